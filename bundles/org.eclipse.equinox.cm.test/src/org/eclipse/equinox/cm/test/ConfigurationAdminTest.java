@@ -147,6 +147,24 @@ public class ConfigurationAdminTest extends AbstractCMTest {
 		assertTrue(configs != null && configs.length > 0);
 	}
 
+	@Test
+	public void testListConfigurationAfterUpdate() throws Exception {
+		Configuration config = getConfiguration("test", null);
+		String filterString = "(&(" + Constants.SERVICE_PID + "=test)(testkey=value1))";
+		assertNull(cm.listConfigurations(filterString));
+		config.update(dictionaryOf("testkey", "value1"));
+		Configuration[] configs = cm.listConfigurations(filterString);
+		assertTrue(configs != null && configs.length == 1);
+		config.update(dictionaryOf("TestKey", new String[] {"value2", "value3"}));
+		assertNull(cm.listConfigurations(filterString));
+		configs = cm.listConfigurations("(testkey=value3)");
+		assertTrue(configs != null && configs.length == 1);
+		config.update(dictionaryOf("testkey", Integer.valueOf(5)));
+		configs = cm.listConfigurations("(testkey=5)");
+		assertTrue(configs != null && configs.length == 1);
+		assertNull(cm.listConfigurations("(testkey=6)"));
+	}
+
 	@Test
 	public void testListConfigurationNull() throws Exception {
 		createFactoryConfiguration("test", null);
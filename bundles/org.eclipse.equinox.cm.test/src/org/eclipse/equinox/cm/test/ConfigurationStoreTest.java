@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.cm.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+/**
+ * Tests persisting the configurations in a file per configuration and in a
+ * single configuration log, selected with the equinox.cm.store property.
+ */
+public class ConfigurationStoreTest extends AbstractCMTest {
+
+	private static final String CM_BUNDLE = "org.eclipse.equinox.cm";
+	private static final String PROP_STORE = "equinox.cm.store";
+	private static final String LOG_FILE = "configurations.log";
+
+	private final List<String> pids = new ArrayList<>();
+	private File store;
+
+	@After
+	public void cleanUp() throws Exception {
+		restart(null);
+		for (String pid : pids) {
+			Configuration[] configs = cm.listConfigurations("(service.pid=" + pid + ")");
+			if (configs != null)
+				configs[0].delete();
+		}
+		getBundle(CM_BUNDLE).stop();
+		if (store != null)
+			new File(store, LOG_FILE).delete();
+		getBundle(CM_BUNDLE).start();
+	}
+
+	/*
+	 * Restarts Configuration Admin with the given store, null for a file per
+	 * configuration.
+	 */
+	private void restart(String storeType) throws Exception {
+		Bundle bundle = getBundle(CM_BUNDLE);
+		bundle.stop();
+		if (storeType == null)
+			System.clearProperty(PROP_STORE);
+		else
+			System.setProperty(PROP_STORE, storeType);
+		bundle.start();
+		store = bundle.getBundleContext().getDataFile("store");
+		cm = getBundleContext().getService(getBundleContext().getServiceReference(ConfigurationAdmin.class));
+	}
+
+	private File getLog() {
+		return new File(store, LOG_FILE);
+	}
+
+	private Configuration update(String pid, Dictionary<String, Object> properties) throws IOException {
+		if (!pids.contains(pid))
+			pids.add(pid);
+		Configuration config = cm.getConfiguration(pid, null);
+		config.update(properties);
+		return config;
+	}
+
+	private Dictionary<String, Object> getProperties(String pid) throws Exception {
+		Configuration[] configs = cm.listConfigurations("(service.pid=" + pid + ")");
+		return configs == null ? null : configs[0].getProperties();
+	}
+
+	private String[] getConfigurationFiles() {
+		return store.list((dir, name) -> name.endsWith(".cfg"));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		restart("log");
+		Hashtable<String, Object> properties = new Hashtable<>();
+		properties.put("string", "value");
+		properties.put("int", Integer.valueOf(42));
+		properties.put("long", Long.valueOf(-1L));
+		properties.put("boolean", Boolean.TRUE);
+		properties.put("char", Character.valueOf('c'));
+		properties.put("double", Double.valueOf(0.5));
+		properties.put("strings", new String[] {"a", "b"});
+		properties.put("ints", new int[] {1, 2, 3});
+		properties.put("vector", new Vector<>(Arrays.asList("x", "y")));
+		update("test.roundtrip", properties);
+		update("test.deleted", dictionaryOf("key", "value"));
+		cm.getConfiguration("test.deleted", null).delete();
+
+		restart("log");
+		assertTrue(getLog().exists());
+		Dictionary<String, Object> restored = getProperties("test.roundtrip");
+		assertNotNull(restored);
+		assertEquals("value", restored.get("string"));
+		assertEquals(Integer.valueOf(42), restored.get("int"));
+		assertEquals(Long.valueOf(-1L), restored.get("long"));
+		assertEquals(Boolean.TRUE, restored.get("boolean"));
+		assertEquals(Character.valueOf('c'), restored.get("char"));
+		assertEquals(Double.valueOf(0.5), restored.get("double"));
+		assertArrayEquals(new String[] {"a", "b"}, (String[]) restored.get("strings"));
+		assertArrayEquals(new int[] {1, 2, 3}, (int[]) restored.get("ints"));
+		assertEquals(Arrays.asList("x", "y"), restored.get("vector"));
+		assertNull(getProperties("test.deleted"));
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		restart("log");
+		char[] chars = new char[1024];
+		for (int i = 0; i < 200; i++) {
+			Arrays.fill(chars, (char) ('a' + i % 26));
+			update("test.compaction", dictionaryOf("value", new String(chars)));
+		}
+		// the log holds a single configuration, the obsolete records are compacted away
+		assertTrue(String.valueOf(getLog().length()), getLog().length() < 128 * 1024);
+
+		restart("log");
+		Arrays.fill(chars, (char) ('a' + 199 % 26));
+		assertEquals(new String(chars), getProperties("test.compaction").get("value"));
+	}
+
+	@Test
+	public void testTornTail() throws Exception {
+		restart("log");
+		update("test.torn", dictionaryOf("key", "value1"));
+		getBundle(CM_BUNDLE).stop();
+		long size = getLog().length();
+		// a record of 1000 bytes which was not completely written
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(getLog(), true))) {
+			out.writeInt(1000);
+			out.writeBytes("partial");
+		}
+
+		restart("log");
+		assertEquals("value1", getProperties("test.torn").get("key"));
+		assertEquals(size, getLog().length());
+		update("test.torn", dictionaryOf("key", "value2"));
+
+		restart("log");
+		assertEquals("value2", getProperties("test.torn").get("key"));
+	}
+
+	@Test
+	public void testCorruptedLog() throws Exception {
+		restart("log");
+		update("test.corrupted1", dictionaryOf("key", "value1"));
+		update("test.corrupted2", dictionaryOf("key", "value2"));
+		getBundle(CM_BUNDLE).stop();
+		// corrupt the first record, which is followed by the second one
+		byte[] content = Files.readAllBytes(getLog().toPath());
+		content[20] ^= 1;
+		Files.write(getLog().toPath(), content);
+
+		restart("log");
+		assertNull(getProperties("test.corrupted1"));
+		assertNull(getProperties("test.corrupted2"));
+		getBundle(CM_BUNDLE).stop();
+		// the log is left for recovery
+		assertArrayEquals(content, Files.readAllBytes(getLog().toPath()));
+	}
+
+	@Test
+	public void testMigration() throws Exception {
+		restart(null);
+		update("test.migration", dictionaryOf("key", "value1"));
+		assertEquals(1, getConfigurationFiles().length);
+
+		// the files are moved into the log
+		restart("log");
+		assertEquals("value1", getProperties("test.migration").get("key"));
+		assertEquals(0, getConfigurationFiles().length);
+		assertTrue(getLog().exists());
+		update("test.migration", dictionaryOf("key", "value2"));
+
+		// and back into files
+		restart(null);
+		assertEquals("value2", getProperties("test.migration").get("key"));
+		assertEquals(1, getConfigurationFiles().length);
+		assertFalse(getLog().exists());
+
+		restart(null);
+		assertEquals("value2", getProperties("test.migration").get("key"));
+	}
+}
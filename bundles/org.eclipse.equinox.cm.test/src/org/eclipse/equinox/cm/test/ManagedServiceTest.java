@@ -16,10 +16,13 @@ package org.eclipse.equinox.cm.test;
 import static org.junit.Assert.*;
 
 import java.util.Dictionary;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.equinox.log.ExtendedLogReaderService;
 import org.junit.Test;
 import org.osgi.framework.*;
 import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.cm.ManagedService;
 import org.osgi.service.log.LogLevel;
 import org.osgi.service.log.LogListener;
@@ -197,4 +200,58 @@ public class ManagedServiceTest extends AbstractCMTest {
 		}
 		reg.unregister();
 	}
+
+	@Test
+	public void testConcurrentUpdates() throws Exception {
+		Bundle cmBundle = getBundle("org.eclipse.equinox.cm");
+		cmBundle.stop();
+		System.setProperty("equinox.cm.updateThreads", "2");
+		BundleContext ctx = getBundleContext();
+		ExtendedLogReaderService reader = ctx.getService(ctx.getServiceReference(ExtendedLogReaderService.class));
+		CountDownLatch statisticsLogged = new CountDownLatch(1);
+		LogListener listener = entry -> {
+			if (entry.getMessage().contains("ManagedService Update Queue") && entry.getMessage().contains("completed=2"))
+				statisticsLogged.countDown();
+		};
+		reader.addLogListener(listener, (bundle, name, level) -> cmBundle.equals(bundle) && level == LogLevel.INFO.ordinal());
+		try {
+			cmBundle.start();
+			cm = ctx.getService(ctx.getServiceReference(ConfigurationAdmin.class));
+
+			CountDownLatch slowUpdated = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			ManagedService slow = properties -> {
+				slowUpdated.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			};
+			CountDownLatch fastUpdated = new CountDownLatch(1);
+			ManagedService fast = properties -> fastUpdated.countDown();
+
+			ServiceRegistration<ManagedService> slowReg = registerService(ManagedService.class, slow, dictionaryOf(Constants.SERVICE_PID, "test.slow"));
+			ServiceRegistration<ManagedService> fastReg = null;
+			try {
+				assertTrue("slow service not updated", slowUpdated.await(5, TimeUnit.SECONDS));
+				// another managed service is updated while the first one is still busy
+				fastReg = registerService(ManagedService.class, fast, dictionaryOf(Constants.SERVICE_PID, "test.fast"));
+				assertTrue("fast service waited for the slow one", fastUpdated.await(5, TimeUnit.SECONDS));
+			} finally {
+				release.countDown();
+				slowReg.unregister();
+				if (fastReg != null)
+					fastReg.unregister();
+			}
+
+			// the statistics of the update queue are logged when Configuration Admin stops
+			cmBundle.stop();
+			assertTrue("statistics not logged", statisticsLogged.await(5, TimeUnit.SECONDS));
+		} finally {
+			reader.removeLogListener(listener);
+			System.clearProperty("equinox.cm.updateThreads");
+			cmBundle.start();
+		}
+	}
 }
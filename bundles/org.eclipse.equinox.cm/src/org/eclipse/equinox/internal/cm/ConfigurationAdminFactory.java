@@ -19,6 +19,7 @@ import java.util.Dictionary;
 import org.osgi.framework.*;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.cm.ConfigurationPermission;
+import org.osgi.service.log.LogService;
 
 /**
  * ConfigurationAdminFactory provides a Configuration Admin ServiceFactory but more significantly
@@ -29,15 +30,18 @@ public class ConfigurationAdminFactory implements ServiceFactory<ConfigurationAd
 
 	static private final Permission allConfigurationPermission = new ConfigurationPermission("*", ConfigurationPermission.CONFIGURE); //$NON-NLS-1$
 	static private final Permission allAttributePermission = new ConfigurationPermission("*", ConfigurationPermission.ATTRIBUTE); //$NON-NLS-1$
+	static private final String PROP_UPDATE_THREADS = "equinox.cm.updateThreads"; //$NON-NLS-1$
 	private final EventDispatcher eventDispatcher;
 	private final PluginManager pluginManager;
 	private final LogTracker log;
 	private final ManagedServiceTracker managedServiceTracker;
 	private final ManagedServiceFactoryTracker managedServiceFactoryTracker;
 	private final ConfigurationStore configurationStore;
+	private final int updateThreads;
 
 	public ConfigurationAdminFactory(BundleContext context, LogTracker log) {
 		this.log = log;
+		updateThreads = parseUpdateThreads(context.getProperty(PROP_UPDATE_THREADS));
 		configurationStore = new ConfigurationStore(this, context);
 		eventDispatcher = new EventDispatcher(context, log);
 		pluginManager = new PluginManager(context);
@@ -57,6 +61,7 @@ public class ConfigurationAdminFactory implements ServiceFactory<ConfigurationAd
 		managedServiceFactoryTracker.close();
 		eventDispatcher.stop();
 		pluginManager.stop();
+		configurationStore.close();
 	}
 
 	@Override
@@ -117,6 +122,25 @@ public class ConfigurationAdminFactory implements ServiceFactory<ConfigurationAd
 		}
 	}
 
+	private int parseUpdateThreads(String value) {
+		if (value == null)
+			return 1;
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			log.log(LogService.LOG_WARNING, "{Configuration Admin} invalid " + PROP_UPDATE_THREADS + ": " + value); //$NON-NLS-1$ //$NON-NLS-2$
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the number of threads that may deliver configuration updates to managed services
+	 * and managed service factories. With a single thread, the updates are delivered in order.
+	 */
+	int getUpdateThreads() {
+		return updateThreads;
+	}
+
 	void log(int level, String message) {
 		log.log(level, message);
 	}
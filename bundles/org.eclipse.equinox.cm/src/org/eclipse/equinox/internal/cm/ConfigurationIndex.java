@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.cm;
+
+import java.util.*;
+import org.osgi.framework.Filter;
+
+/**
+ * ConfigurationIndex keeps the pids of the configurations by factory pid and by the
+ * values of their properties so that ConfigurationStore does not have to look at
+ * every configuration to answer a query. A property is only indexed once a filter
+ * has compared it for equality, and only the values of the indexed properties are
+ * kept.
+ * <p>
+ * The index only narrows down the configurations that may match a filter; the
+ * filter must still be evaluated against them. This class is not thread safe,
+ * ConfigurationStore guards it with its own monitor.
+ * </p>
+ */
+class ConfigurationIndex {
+
+	private final Map<String, Set<String>> factoryPidToPids = new HashMap<>();
+	private final Map<String, String> pidToFactoryPid = new HashMap<>();
+	// lower case key -> property index
+	private final Map<String, PropertyIndex> propertyIndexes = new HashMap<>();
+	// the equality comparisons of the most recent filters
+	private static final int MAX_FILTERS = 100;
+	private final Map<Filter, List<String[]>> filterEqualities = new LinkedHashMap<Filter, List<String[]>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Filter, List<String[]>> eldest) {
+			return size() > MAX_FILTERS;
+		}
+	};
+
+	/*
+	 * The pids of the configurations having each string value of a property, along
+	 * with the pids of those having a value that the filter may match in other ways,
+	 * for example a number.
+	 */
+	private static class PropertyIndex {
+		final Map<String, Set<String>> valueToPids = new HashMap<>();
+		final Set<String> otherPids = new HashSet<>();
+		// the value of the property of each configuration, as last indexed
+		final Map<String, Object> pidToValue = new HashMap<>();
+
+		void add(String pid, Object value) {
+			if (value == null)
+				return;
+			pidToValue.put(pid, value);
+			if (value instanceof String) {
+				addValue(pid, (String) value);
+			} else if (value instanceof Object[]) {
+				for (Object element : (Object[]) value)
+					addElement(pid, element);
+			} else if (value instanceof Collection) {
+				for (Object element : (Collection<?>) value)
+					addElement(pid, element);
+			} else {
+				otherPids.add(pid);
+			}
+		}
+
+		private void addElement(String pid, Object element) {
+			if (element instanceof String)
+				addValue(pid, (String) element);
+			else
+				otherPids.add(pid);
+		}
+
+		private void addValue(String pid, String value) {
+			Set<String> pids = valueToPids.get(value);
+			if (pids == null) {
+				pids = new HashSet<>(2);
+				valueToPids.put(value, pids);
+			}
+			pids.add(pid);
+		}
+
+		void remove(String pid) {
+			Object value = pidToValue.remove(pid);
+			if (value == null)
+				return;
+			otherPids.remove(pid);
+			Collection<?> values;
+			if (value instanceof String)
+				values = Collections.singleton(value);
+			else if (value instanceof Object[])
+				values = Arrays.asList((Object[]) value);
+			else if (value instanceof Collection)
+				values = (Collection<?>) value;
+			else
+				return;
+			for (Object element : values) {
+				Set<String> pids = valueToPids.get(element);
+				if (pids != null && pids.remove(pid) && pids.isEmpty())
+					valueToPids.remove(element);
+			}
+		}
+
+		int count(String value) {
+			Set<String> pids = valueToPids.get(value);
+			return otherPids.size() + (pids == null ? 0 : pids.size());
+		}
+
+		void collect(String value, Collection<String> result) {
+			Set<String> pids = valueToPids.get(value);
+			if (pids != null)
+				result.addAll(pids);
+			result.addAll(otherPids);
+		}
+	}
+
+	void addFactoryConfiguration(String factoryPid, String pid) {
+		Set<String> pids = factoryPidToPids.get(factoryPid);
+		if (pids == null) {
+			pids = new HashSet<>();
+			factoryPidToPids.put(factoryPid, pids);
+		}
+		pids.add(pid);
+		pidToFactoryPid.put(pid, factoryPid);
+	}
+
+	Set<String> getFactoryConfigurations(String factoryPid) {
+		Set<String> pids = factoryPidToPids.get(factoryPid);
+		return pids == null ? Collections.<String> emptySet() : pids;
+	}
+
+	/**
+	 * Indexes the properties of a configuration, replacing its previous properties.
+	 * Configurations without properties never match a filter and are not indexed.
+	 */
+	void update(String pid, Dictionary<String, Object> properties) {
+		for (Map.Entry<String, PropertyIndex> entry : propertyIndexes.entrySet()) {
+			entry.getValue().remove(pid);
+			if (properties != null)
+				entry.getValue().add(pid, properties.get(entry.getKey()));
+		}
+	}
+
+	void remove(String pid) {
+		update(pid, null);
+		String factoryPid = pidToFactoryPid.remove(pid);
+		if (factoryPid != null) {
+			Set<String> pids = factoryPidToPids.get(factoryPid);
+			if (pids != null && pids.remove(pid) && pids.isEmpty())
+				factoryPidToPids.remove(factoryPid);
+		}
+	}
+
+	/**
+	 * Returns the (key, value) pairs that must all be equal for the filter to
+	 * match. The filter is only parsed the first time it is seen.
+	 */
+	List<String[]> getEqualities(Filter filter) {
+		List<String[]> result = filterEqualities.get(filter);
+		if (result == null) {
+			result = getEqualities(filter.toString());
+			filterEqualities.put(filter, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Starts indexing the properties compared by the given equalities. Returns
+	 * <code>true</code> if a property was not indexed yet, in which case every
+	 * configuration must be indexed again.
+	 */
+	boolean addProperties(List<String[]> equalities) {
+		boolean added = false;
+		for (String[] equality : equalities) {
+			String key = equality[0].toLowerCase();
+			if (!propertyIndexes.containsKey(key)) {
+				propertyIndexes.put(key, new PropertyIndex());
+				added = true;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Returns the pids of the indexed configurations which may match all the given
+	 * equalities, or <code>null</code> if there is none and any configuration may
+	 * match. The properties of the equalities must have been added first.
+	 */
+	Collection<String> getCandidates(List<String[]> equalities) {
+		PropertyIndex bestIndex = null;
+		String bestValue = null;
+		for (String[] equality : equalities) {
+			PropertyIndex index = propertyIndexes.get(equality[0].toLowerCase());
+			if (bestIndex == null || index.count(equality[1]) < bestIndex.count(bestValue)) {
+				bestIndex = index;
+				bestValue = equality[1];
+			}
+		}
+		if (bestIndex == null)
+			return null;
+		List<String> result = new ArrayList<>(bestIndex.count(bestValue));
+		bestIndex.collect(bestValue, result);
+		return result;
+	}
+
+	/*
+	 * Returns the (key, value) pairs of the filter that must all be equal for the
+	 * filter to match: the filter itself or the operands of a top level "and", when
+	 * they are simple equality comparisons. The filter is in the normalized form
+	 * given by Filter.toString().
+	 */
+	static List<String[]> getEqualities(String filter) {
+		List<String[]> result = new ArrayList<>();
+		if (filter.startsWith("(&")) { //$NON-NLS-1$
+			int start = 2;
+			while (start < filter.length() && filter.charAt(start) == '(') {
+				int end = findEnd(filter, start);
+				if (end == -1)
+					return Collections.emptyList();
+				String[] equality = getEquality(filter.substring(start, end + 1));
+				if (equality != null)
+					result.add(equality);
+				start = end + 1;
+			}
+		} else {
+			String[] equality = getEquality(filter);
+			if (equality != null)
+				result.add(equality);
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the position of the parenthesis closing the one at start, -1 if
+	 * there is none.
+	 */
+	private static int findEnd(String filter, int start) {
+		int depth = 0;
+		for (int i = start; i < filter.length(); i++) {
+			char c = filter.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (--depth == 0)
+					return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Returns the key and the value of a simple "(key=value)" filter, null for any
+	 * other filter.
+	 */
+	private static String[] getEquality(String filter) {
+		if (filter.length() < 4 || filter.charAt(0) != '(' || filter.charAt(filter.length() - 1) != ')')
+			return null;
+		int equals = filter.indexOf('=');
+		if (equals < 2)
+			return null;
+		String key = filter.substring(1, equals);
+		if (key.indexOf('(') != -1 || key.indexOf(')') != -1 || key.indexOf('\\') != -1)
+			return null;
+		char operator = key.charAt(key.length() - 1);
+		if (operator == '~' || operator == '<' || operator == '>')
+			return null;
+		StringBuilder value = new StringBuilder();
+		for (int i = equals + 1; i < filter.length() - 1; i++) {
+			char c = filter.charAt(i);
+			if (c == '*' || c == '(' || c == ')') // a substring or presence filter, or not a simple filter
+				return null;
+			if (c == '\\') {
+				if (++i == filter.length() - 1)
+					return null;
+				c = filter.charAt(i);
+			}
+			value.append(c);
+		}
+		return new String[] {key.trim(), value.toString()};
+	}
+}
@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.cm;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import org.osgi.service.log.LogService;
+
+/**
+ * ConfigurationLog persists all the configurations in a single file. Every change appends
+ * a record to the file and the file is compacted once most of its records are obsolete.
+ * <p>
+ * The file starts with a magic number and a format version followed by the records. Each
+ * record holds its length, its content and the CRC-32 of its content. The content is either
+ * the pid and the properties of a configuration or the pid of a deleted configuration. An
+ * incomplete or corrupted last record, typically because the VM stopped while writing it,
+ * is discarded. A corrupted record followed by other records makes the whole log unreadable:
+ * the log is then left as it is for it to be recovered.
+ * </p>
+ */
+class ConfigurationLog {
+	private static final int MAGIC = 0x45434D4C; // "ECML"
+	private static final byte VERSION = 1;
+	private static final int HEADER_SIZE = 5;
+	// the log is not compacted below this size
+	private static final long MIN_COMPACT_SIZE = 64 * 1024;
+
+	private static final byte RECORD_UPDATE = 1;
+	private static final byte RECORD_DELETE = 2;
+
+	// value types; a simple value is tagged with the index of its class in objectTypes
+	private static final byte NULL = 0;
+	private static final byte ARRAY = 10;
+	private static final byte PRIMITIVE_ARRAY = 11;
+	private static final byte COLLECTION = 12;
+
+	private static final Class<?>[] objectTypes = {null, String.class, Integer.class, Long.class, Float.class, Double.class, Byte.class, Short.class, Character.class, Boolean.class};
+	private static final Class<?>[] primitiveTypes = {null, null, int.class, long.class, float.class, double.class, byte.class, short.class, char.class, boolean.class};
+
+	private final ConfigurationAdminFactory configurationAdminFactory;
+	private final File file;
+	private FileChannel channel;
+	// pid -> position and length of the last record of the configuration
+	private final Map<String, long[]> records = new HashMap<>();
+	private long liveSize;
+
+	ConfigurationLog(ConfigurationAdminFactory configurationAdminFactory, File file) {
+		this.configurationAdminFactory = configurationAdminFactory;
+		this.file = file;
+	}
+
+	/**
+	 * Reads the log and opens it for writing. Returns the properties of the configurations
+	 * in the order they were first written.
+	 */
+	synchronized Collection<Dictionary<String, Object>> open() throws IOException {
+		Map<String, Dictionary<String, Object>> configurations = new LinkedHashMap<>();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long end;
+		try {
+			end = read(configurations);
+		} catch (IOException e) {
+			// the log is left as it is
+			close();
+			records.clear();
+			liveSize = 0;
+			throw e;
+		}
+		if (end < channel.size()) {
+			configurationAdminFactory.log(LogService.LOG_WARNING, "{Configuration Admin} discarding " + (channel.size() - end) + " bytes at the end of " + file); //$NON-NLS-1$ //$NON-NLS-2$
+			channel.truncate(end);
+		}
+		if (end == 0) {
+			ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_SIZE);
+			DataOutputStream out = new DataOutputStream(header);
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			append(header.toByteArray());
+		} else {
+			compactIfNeeded();
+		}
+		return configurations.values();
+	}
+
+	/**
+	 * Reads the configurations of the log without opening it for writing. Returns
+	 * the properties of the configurations in the order they were first written.
+	 */
+	synchronized Collection<Dictionary<String, Object>> read() throws IOException {
+		Map<String, Dictionary<String, Object>> configurations = new LinkedHashMap<>();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			read(configurations);
+		} finally {
+			close();
+			records.clear();
+			liveSize = 0;
+		}
+		return configurations.values();
+	}
+
+	/*
+	 * Reads the records of the log into the given map and returns the position
+	 * following the last valid record. Throws an IOException if a record which
+	 * is not the last one is corrupted.
+	 */
+	private long read(Map<String, Dictionary<String, Object>> configurations) throws IOException {
+		long size = channel.size();
+		if (size < HEADER_SIZE)
+			return 0; // no record, at most an incomplete header
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 64 * 1024));
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a configuration log: " + file); //$NON-NLS-1$
+		byte version = in.readByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported configuration log version " + version + ": " + file); //$NON-NLS-1$ //$NON-NLS-2$
+		long position = HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		while (position + 8 <= size) {
+			int length = in.readInt();
+			if (length > 0 && position + 8 + length > size)
+				break; // the last record is incomplete
+			if (length <= 0) {
+				if (isEmpty(position, size))
+					break; // the end of the log was never written
+				throw new IOException("The configuration log " + file + " has an invalid record at " + position); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			byte[] content = new byte[length];
+			in.readFully(content);
+			crc.reset();
+			crc.update(content, 0, length);
+			if (in.readInt() != (int) crc.getValue()) {
+				if (position + 8 + length == size || isEmpty(position + 8 + length, size))
+					break; // the last record is corrupted
+				throw new IOException("The configuration log " + file + " has a corrupted record at " + position); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			DataInputStream record = new DataInputStream(new ByteArrayInputStream(content));
+			byte type = record.readByte();
+			String pid = readString(record);
+			if (type == RECORD_UPDATE) {
+				configurations.put(pid, readProperties(record));
+				setRecord(pid, position, length + 8);
+			} else if (type == RECORD_DELETE) {
+				configurations.remove(pid);
+				setRecord(pid, position, -1);
+			} else {
+				throw new IOException("The configuration log " + file + " has a record of unknown type " + type + " at " + position); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			position += length + 8;
+		}
+		return position;
+	}
+
+	/*
+	 * Returns whether the log only holds zeros from the given position, as when the
+	 * VM stopped before the data appended to the file was written.
+	 */
+	private boolean isEmpty(long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				break;
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) != 0)
+					return false;
+			}
+			position += read;
+		}
+		return true;
+	}
+
+	/**
+	 * Saves the properties of a configuration.
+	 */
+	synchronized void write(String pid, Dictionary<String, Object> properties) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(content);
+		out.writeByte(RECORD_UPDATE);
+		writeString(out, pid);
+		writeProperties(out, properties);
+		long position = append(toRecord(content.toByteArray()));
+		setRecord(pid, position, channel.size() - position);
+		compactIfNeeded();
+	}
+
+	/**
+	 * Deletes the configuration with the given pid.
+	 */
+	synchronized void delete(String pid) throws IOException {
+		if (!records.containsKey(pid))
+			return;
+		ByteArrayOutputStream content = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(content);
+		out.writeByte(RECORD_DELETE);
+		writeString(out, pid);
+		append(toRecord(content.toByteArray()));
+		setRecord(pid, 0, -1);
+		compactIfNeeded();
+	}
+
+	synchronized void close() {
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		channel = null;
+	}
+
+	/*
+	 * Records the last record of a configuration; a negative length removes the
+	 * configuration.
+	 */
+	private void setRecord(String pid, long position, long length) {
+		long[] previous = length < 0 ? records.remove(pid) : records.put(pid, new long[] {position, length});
+		if (previous != null)
+			liveSize -= previous[1];
+		if (length >= 0)
+			liveSize += length;
+	}
+
+	private static byte[] toRecord(byte[] content) throws IOException {
+		ByteArrayOutputStream record = new ByteArrayOutputStream(content.length + 8);
+		DataOutputStream out = new DataOutputStream(record);
+		out.writeInt(content.length);
+		out.write(content);
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		out.writeInt((int) crc.getValue());
+		return record.toByteArray();
+	}
+
+	/*
+	 * Writes the bytes at the end of the log and returns their position.
+	 */
+	private long append(byte[] bytes) throws IOException {
+		long position = channel.size();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+		channel.force(false);
+		return position;
+	}
+
+	/*
+	 * Rewrites the log with the last record of each configuration once the obsolete
+	 * records take more space than the others. The log is left as it is if that fails.
+	 */
+	private void compactIfNeeded() throws IOException {
+		long size = channel.size();
+		if (size < MIN_COMPACT_SIZE || size - HEADER_SIZE - liveSize < liveSize)
+			return;
+		File compacted = new File(file.getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+		try {
+			compact(compacted);
+		} catch (IOException e) {
+			configurationAdminFactory.log(LogService.LOG_WARNING, "{Configuration Admin} could not compact " + file, e); //$NON-NLS-1$
+			compacted.delete();
+			if (!channel.isOpen())
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+	}
+
+	private void compact(File compacted) throws IOException {
+		Map<String, long[]> compactedRecords = new HashMap<>();
+		try (FileChannel out = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).put(VERSION).flip();
+			while (header.hasRemaining())
+				out.write(header);
+			// keep the records in the order of the log
+			List<Map.Entry<String, long[]>> live = new ArrayList<>(records.entrySet());
+			live.sort((r1, r2) -> Long.compare(r1.getValue()[0], r2.getValue()[0]));
+			for (Map.Entry<String, long[]> record : live) {
+				long[] location = record.getValue();
+				compactedRecords.put(record.getKey(), new long[] {out.position(), location[1]});
+				long transferred = 0;
+				while (transferred < location[1])
+					transferred += channel.transferTo(location[0] + transferred, location[1] - transferred, out);
+			}
+			out.force(false);
+		}
+		channel.close();
+		try {
+			Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		records.clear();
+		records.putAll(compactedRecords);
+	}
+
+	private static void writeProperties(DataOutputStream out, Dictionary<String, Object> properties) throws IOException {
+		out.writeInt(properties.size());
+		for (Enumeration<String> keys = properties.keys(); keys.hasMoreElements();) {
+			String key = keys.nextElement();
+			writeString(out, key);
+			writeValue(out, properties.get(key));
+		}
+	}
+
+	private static Dictionary<String, Object> readProperties(DataInputStream in) throws IOException {
+		ConfigurationDictionary properties = new ConfigurationDictionary();
+		for (int size = in.readInt(); size > 0; size--) {
+			String key = readString(in);
+			Object value = readValue(in);
+			if (value != null)
+				properties.put(key, value);
+		}
+		return properties;
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Collection) {
+			Collection<?> collection = (Collection<?>) value;
+			out.writeByte(COLLECTION);
+			out.writeInt(collection.size());
+			for (Object element : collection)
+				writeValue(out, element);
+		} else if (value.getClass().isArray()) {
+			Class<?> componentType = value.getClass().getComponentType();
+			int length = Array.getLength(value);
+			if (componentType.isPrimitive()) {
+				out.writeByte(PRIMITIVE_ARRAY);
+				out.writeByte(typeOf(componentType, primitiveTypes));
+				out.writeInt(length);
+				for (int i = 0; i < length; i++)
+					writeSimple(out, Array.get(value, i));
+			} else {
+				out.writeByte(ARRAY);
+				out.writeByte(typeOf(componentType, objectTypes));
+				out.writeInt(length);
+				for (int i = 0; i < length; i++)
+					writeValue(out, Array.get(value, i));
+			}
+		} else {
+			out.writeByte(typeOf(value.getClass(), objectTypes));
+			writeSimple(out, value);
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case NULL :
+				return null;
+			case COLLECTION : {
+				int length = in.readInt();
+				// as ConfigurationImpl stores collections
+				List<Object> result = new Vector<>(length);
+				for (int i = 0; i < length; i++)
+					result.add(readValue(in));
+				return result;
+			}
+			case PRIMITIVE_ARRAY : {
+				Class<?> componentType = classOf(in.readByte(), primitiveTypes);
+				int length = in.readInt();
+				Object result = Array.newInstance(componentType, length);
+				for (int i = 0; i < length; i++)
+					Array.set(result, i, readSimple(in, componentType));
+				return result;
+			}
+			case ARRAY : {
+				Class<?> componentType = classOf(in.readByte(), objectTypes);
+				int length = in.readInt();
+				Object[] result = (Object[]) Array.newInstance(componentType, length);
+				for (int i = 0; i < length; i++)
+					result[i] = readValue(in);
+				return result;
+			}
+			default :
+				return readSimple(in, classOf(type, objectTypes));
+		}
+	}
+
+	private static void writeSimple(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof String)
+			writeString(out, (String) value);
+		else if (value instanceof Integer)
+			out.writeInt(((Integer) value).intValue());
+		else if (value instanceof Long)
+			out.writeLong(((Long) value).longValue());
+		else if (value instanceof Float)
+			out.writeFloat(((Float) value).floatValue());
+		else if (value instanceof Double)
+			out.writeDouble(((Double) value).doubleValue());
+		else if (value instanceof Byte)
+			out.writeByte(((Byte) value).byteValue());
+		else if (value instanceof Short)
+			out.writeShort(((Short) value).shortValue());
+		else if (value instanceof Character)
+			out.writeChar(((Character) value).charValue());
+		else
+			out.writeBoolean(((Boolean) value).booleanValue());
+	}
+
+	private static Object readSimple(DataInputStream in, Class<?> type) throws IOException {
+		if (type == String.class)
+			return readString(in);
+		if (type == Integer.class || type == int.class)
+			return Integer.valueOf(in.readInt());
+		if (type == Long.class || type == long.class)
+			return Long.valueOf(in.readLong());
+		if (type == Float.class || type == float.class)
+			return Float.valueOf(in.readFloat());
+		if (type == Double.class || type == double.class)
+			return Double.valueOf(in.readDouble());
+		if (type == Byte.class || type == byte.class)
+			return Byte.valueOf(in.readByte());
+		if (type == Short.class || type == short.class)
+			return Short.valueOf(in.readShort());
+		if (type == Character.class || type == char.class)
+			return Character.valueOf(in.readChar());
+		return Boolean.valueOf(in.readBoolean());
+	}
+
+	private static byte typeOf(Class<?> clazz, Class<?>[] types) throws IOException {
+		for (byte i = 1; i < types.length; i++) {
+			if (types[i] == clazz)
+				return i;
+		}
+		throw new IOException("Unsupported configuration property type: " + clazz.getName()); //$NON-NLS-1$
+	}
+
+	private static Class<?> classOf(byte type, Class<?>[] types) throws IOException {
+		if (type <= 0 || type >= types.length || types[type] == null)
+			throw new IOException("Unknown configuration property type: " + type); //$NON-NLS-1$
+		return types[type];
+	}
+
+	/*
+	 * Strings are written in modified UTF-8 when it fits in the 64K limit of
+	 * writeUTF, as UTF-16 otherwise.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value.length() <= 65535 / 3) {
+			out.writeByte(0);
+			out.writeUTF(value);
+		} else {
+			out.writeByte(1);
+			out.writeInt(value.length());
+			out.writeChars(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		if (in.readByte() == 0)
+			return in.readUTF();
+		char[] chars = new char[in.readInt()];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = in.readChar();
+		return new String(chars);
+	}
+}
@@ -17,16 +17,21 @@ package org.eclipse.equinox.internal.cm;
 import java.io.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.equinox.internal.cm.reliablefile.*;
 import org.osgi.framework.*;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.log.LogService;
 
 /**
- * ConfigurationStore manages all active configurations along with persistence. The current
+ * ConfigurationStore manages all active configurations along with persistence. The default
  * implementation uses a filestore and serialization of the configuration dictionaries to files
- * identified by their pid. Persistence details are in the constructor, saveConfiguration, and
- * deleteConfiguration and can be factored out separately if required.
+ * identified by their pid. When the equinox.cm.store property is set to "log", all the
+ * configurations are kept in a single ConfigurationLog instead, and the files found in the
+ * store are moved into the log. Without the property, the configurations of an existing log
+ * are moved back into files. Persistence details are in the constructor, saveConfiguration,
+ * and deleteConfiguration and can be factored out separately if required.
  */
 class ConfigurationStore {
 
@@ -34,9 +39,18 @@ class ConfigurationStore {
 	private static final String STORE_DIR = "store"; //$NON-NLS-1$
 	private static final String DATA_PRE = "data"; //$NON-NLS-1$
 	private static final String CFG_EXT = ".cfg"; //$NON-NLS-1$
+	private static final String PROP_STORE = "equinox.cm.store"; //$NON-NLS-1$
+	private static final String STORE_LOG = "log"; //$NON-NLS-1$
+	private static final String LOG_FILE = "configurations.log"; //$NON-NLS-1$
 	private final Map<String, ConfigurationImpl> configurations = new HashMap<>();
+	private final ConfigurationIndex index = new ConfigurationIndex();
+	// pids of the configurations saved since their properties were last indexed, with a sequence
+	// number of the save. Saves don't take the store monitor, the index is updated by queries.
+	private final Map<String, Long> changedPids = new ConcurrentHashMap<>();
+	private final AtomicLong changeSequence = new AtomicLong();
 	private int createdPidCount = 0;
 	private final File store;
+	private ConfigurationLog log;
 
 	public ConfigurationStore(ConfigurationAdminFactory configurationAdminFactory, BundleContext context) {
 		this.configurationAdminFactory = configurationAdminFactory;
@@ -45,6 +59,20 @@ class ConfigurationStore {
 			return; // no persistent store
 
 		store.mkdir();
+		File logFile = new File(store, LOG_FILE);
+		boolean useLog = STORE_LOG.equals(context.getProperty(PROP_STORE));
+		if (useLog) {
+			log = new ConfigurationLog(configurationAdminFactory, logFile);
+			try {
+				for (Dictionary<String, Object> dictionary : log.open())
+					restoreConfiguration(context, dictionary, dictionary.get(Constants.SERVICE_PID));
+			} catch (IOException e) {
+				configurationAdminFactory.log(LogService.LOG_ERROR, "{Configuration Admin} could not open the configuration log " + logFile + ", its configurations are not available. The log is left as it is and a file is used per configuration.", e); //$NON-NLS-1$ //$NON-NLS-2$
+				log = null;
+			}
+		}
+		// files moved into the log, deleted once they are all in the log
+		List<File> movedFiles = new ArrayList<>();
 		for (File configurationFile : store.listFiles()) {
 			String configurationFileName = configurationFile.getName();
 			if (!configurationFileName.endsWith(CFG_EXT))
@@ -58,16 +86,18 @@ class ConfigurationStore {
 				ois = new ObjectInputStream(ris);
 				@SuppressWarnings("unchecked")
 				Dictionary<String, Object> dictionary = (Dictionary<String, Object>) ois.readObject();
-				// before adding, make sure the bundle exists if the location is set
-				String location = (String) dictionary.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
-				if (location != null && context.getBundle(location) == null) {
-					Boolean boundProp = (Boolean) dictionary.remove(ConfigurationImpl.LOCATION_BOUND);
-					if (boundProp != null && boundProp.booleanValue()) {
-						dictionary.remove(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
+				if (log == null) {
+					restoreConfiguration(context, dictionary, configurationFile);
+				} else {
+					// move the configuration into the log
+					ConfigurationImpl config = restoreConfiguration(context, dictionary, dictionary.get(Constants.SERVICE_PID));
+					try {
+						log.write(config.getPid(), config.getAllProperties(true));
+						movedFiles.add(configurationFile);
+					} catch (IOException e) {
+						configurationAdminFactory.log(LogService.LOG_ERROR, "{Configuration Admin - pid = " + config.getPid() + "} could not be moved to the configuration log.", e); //$NON-NLS-1$ //$NON-NLS-2$
 					}
 				}
-				ConfigurationImpl config = new ConfigurationImpl(configurationAdminFactory, this, dictionary, configurationFile);
-				configurations.put(config.getPid(), config);
 			} catch (IOException e) {
 				String message = e.getMessage();
 				String pid = configurationFileName.substring(0, configurationFileName.length() - 4);
@@ -92,14 +122,71 @@ class ConfigurationStore {
 					}
 				}
 			}
-			if (deleteFile) {
-				ReliableFile.delete(configurationFile);
-				configurationFile.delete();
+			if (deleteFile)
+				deleteConfigurationFile(configurationFile);
+		}
+		// every record of the log is forced to the disk when it is written
+		for (File movedFile : movedFiles)
+			deleteConfigurationFile(movedFile);
+		if (!useLog && logFile.exists())
+			restoreFromLog(context, logFile);
+	}
+
+	/*
+	 * Moves the configurations of a log back into a file per configuration. The log
+	 * is deleted once all its configurations have been written.
+	 */
+	private void restoreFromLog(BundleContext context, File logFile) {
+		Collection<Dictionary<String, Object>> dictionaries;
+		try {
+			dictionaries = new ConfigurationLog(configurationAdminFactory, logFile).read();
+		} catch (IOException e) {
+			configurationAdminFactory.log(LogService.LOG_ERROR, "{Configuration Admin} could not read the configuration log " + logFile + ", its configurations are not available. The log is left as it is.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		boolean restored = true;
+		for (Dictionary<String, Object> dictionary : dictionaries) {
+			Object pid = dictionary.get(Constants.SERVICE_PID);
+			if (configurations.containsKey(pid))
+				continue; // already moved to a file
+			try {
+				File configurationFile = File.createTempFile(DATA_PRE, CFG_EXT, store);
+				writeConfigurationFile(configurationFile, dictionary);
+				restoreConfiguration(context, dictionary, configurationFile);
+			} catch (IOException e) {
+				configurationAdminFactory.log(LogService.LOG_ERROR, "{Configuration Admin - pid = " + pid + "} could not be moved out of the configuration log.", e); //$NON-NLS-1$ //$NON-NLS-2$
+				restored = false;
+			}
+		}
+		if (restored)
+			logFile.delete();
+	}
+
+	private ConfigurationImpl restoreConfiguration(BundleContext context, Dictionary<String, Object> dictionary, Object token) {
+		// before adding, make sure the bundle exists if the location is set
+		String location = (String) dictionary.get(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
+		if (location != null && context.getBundle(location) == null) {
+			Boolean boundProp = (Boolean) dictionary.remove(ConfigurationImpl.LOCATION_BOUND);
+			if (boundProp != null && boundProp.booleanValue()) {
+				dictionary.remove(ConfigurationAdmin.SERVICE_BUNDLELOCATION);
 			}
 		}
+		ConfigurationImpl config = new ConfigurationImpl(configurationAdminFactory, this, dictionary, token);
+		addConfiguration(config);
+		return config;
+	}
+
+	/**
+	 * Closes the configuration log, if any.
+	 */
+	void close() {
+		if (log != null)
+			log.close();
 	}
 
 	public Object saveConfiguration(String pid, ConfigurationImpl config, final Object token) throws IOException {
+		// a configuration is saved whenever its properties or its location change
+		changedPids.put(pid, Long.valueOf(changeSequence.incrementAndGet()));
 		if (store == null)
 			return null; // no persistent store
 
@@ -110,9 +197,14 @@ class ConfigurationStore {
 		}
 		try {
 			final File storeCopy = store;
-			return AccessController.doPrivileged(new PrivilegedExceptionAction<File>() {
+			final ConfigurationLog logCopy = log;
+			return AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
 				@Override
-				public File run() throws Exception {
+				public Object run() throws Exception {
+					if (logCopy != null) {
+						logCopy.write(pid, configProperties);
+						return pid;
+					}
 					File toFile = token == null ? File.createTempFile(DATA_PRE, CFG_EXT, storeCopy) : (File) token;
 					writeConfigurationFile(toFile, configProperties);
 					return toFile;
@@ -150,13 +242,24 @@ class ConfigurationStore {
 	}
 
 	public synchronized void removeConfiguration(String pid, final Object token) {
-		configurations.remove(pid);
+		if (configurations.remove(pid) != null) {
+			index.remove(pid);
+			changedPids.remove(pid);
+		}
 		if (store == null || token == null)
 			return; // no persistent store
 		AccessController.doPrivileged(new PrivilegedAction<Object>() {
 			@Override
 			public Object run() {
-				deleteConfigurationFile((File) token);
+				if (log == null) {
+					deleteConfigurationFile((File) token);
+					return null;
+				}
+				try {
+					log.delete(pid);
+				} catch (IOException e) {
+					configurationAdminFactory.log(LogService.LOG_ERROR, "{Configuration Admin - pid = " + pid + "} could not be deleted.", e); //$NON-NLS-1$ //$NON-NLS-2$
+				}
 				return null;
 			}
 		});
@@ -171,7 +274,7 @@ class ConfigurationStore {
 		ConfigurationImpl config = configurations.get(pid);
 		if (config == null) {
 			config = new ConfigurationImpl(configurationAdminFactory, this, null, pid, location, bind);
-			configurations.put(pid, config);
+			addConfiguration(config);
 		}
 		return config;
 	}
@@ -189,32 +292,56 @@ class ConfigurationStore {
 		}
 
 		ConfigurationImpl config = new ConfigurationImpl(configurationAdminFactory, this, factoryPid, pid, location, bind);
-		configurations.put(pid, config);
+		addConfiguration(config);
 		return config;
 	}
 
+	private void addConfiguration(ConfigurationImpl config) {
+		String pid = config.getPid(false);
+		configurations.put(pid, config);
+		String factoryPid = config.getFactoryPid(false);
+		if (factoryPid != null)
+			index.addFactoryConfiguration(factoryPid, pid);
+	}
+
 	public synchronized ConfigurationImpl findConfiguration(String pid) {
 		return configurations.get(pid);
 	}
 
-	public ConfigurationImpl[] getFactoryConfigurations(String factoryPid) {
-		List<ConfigurationImpl> resultList = new ArrayList<>();
-		synchronized (this) {
-			resultList.addAll(configurations.values());
-		}
-		for (Iterator<ConfigurationImpl> it = resultList.iterator(); it.hasNext();) {
-			ConfigurationImpl config = it.next();
-			String otherFactoryPid = config.getFactoryPid();
-			if (otherFactoryPid == null || !otherFactoryPid.equals(factoryPid))
-				it.remove();
-		}
-		return resultList.toArray(new ConfigurationImpl[resultList.size()]);
+	public synchronized ConfigurationImpl[] getFactoryConfigurations(String factoryPid) {
+		Set<String> pids = index.getFactoryConfigurations(factoryPid);
+		ConfigurationImpl[] result = new ConfigurationImpl[pids.size()];
+		int i = 0;
+		for (String pid : pids)
+			result[i++] = configurations.get(pid);
+		return result;
 	}
 
 	public ConfigurationImpl[] listConfigurations(Filter filter) {
+		List<String[]> equalities;
+		synchronized (this) {
+			equalities = index.getEqualities(filter);
+			if (index.addProperties(equalities)) {
+				for (String pid : configurations.keySet())
+					changedPids.put(pid, Long.valueOf(changeSequence.incrementAndGet()));
+			}
+		}
+		updateIndex();
 		List<ConfigurationImpl> resultList = new ArrayList<>();
 		synchronized (this) {
-			resultList.addAll(configurations.values());
+			Collection<String> candidates = index.getCandidates(equalities);
+			if (candidates == null) {
+				resultList.addAll(configurations.values());
+			} else {
+				// the configurations changed since updateIndex() may match too
+				Set<String> pids = new HashSet<>(candidates);
+				pids.addAll(changedPids.keySet());
+				for (String pid : pids) {
+					ConfigurationImpl config = configurations.get(pid);
+					if (config != null)
+						resultList.add(config);
+				}
+			}
 		}
 		for (Iterator<ConfigurationImpl> it = resultList.iterator(); it.hasNext();) {
 			ConfigurationImpl config = it.next();
@@ -227,6 +354,35 @@ class ConfigurationStore {
 		return size == 0 ? null : (ConfigurationImpl[]) resultList.toArray(new ConfigurationImpl[size]);
 	}
 
+	/*
+	 * Indexes the properties of the configurations saved since they were last
+	 * indexed. The properties are read without holding the store monitor, since
+	 * configurations are saved while holding their lock. They are only indexed if
+	 * the configuration was not saved again in the meantime, in which case it
+	 * stays in changedPids.
+	 */
+	private void updateIndex() {
+		if (changedPids.isEmpty())
+			return;
+		List<Map.Entry<String, Long>> changes = new ArrayList<>(changedPids.entrySet());
+		ConfigurationImpl[] changedConfigs = new ConfigurationImpl[changes.size()];
+		List<Dictionary<String, Object>> changedProperties = new ArrayList<>(changes.size());
+		for (int i = 0; i < changedConfigs.length; i++) {
+			changedConfigs[i] = findConfiguration(changes.get(i).getKey());
+			changedProperties.add(changedConfigs[i] == null ? null : changedConfigs[i].getAllProperties(false));
+		}
+		synchronized (this) {
+			for (int i = 0; i < changedConfigs.length; i++) {
+				Map.Entry<String, Long> change = changes.get(i);
+				String pid = change.getKey();
+				if (!changedPids.remove(pid, change.getValue()))
+					continue; // saved again, indexed by the next query
+				if (changedConfigs[i] != null && configurations.get(pid) == changedConfigs[i])
+					index.update(pid, changedProperties.get(i));
+			}
+		}
+	}
+
 	public void unbindConfigurations(Bundle bundle) {
 		ConfigurationImpl[] copy;
 		synchronized (this) {
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.cm;
+
+import java.util.*;
+import org.osgi.service.log.LogService;
+
+/**
+ * KeyedTaskQueue is a utility class that will allow asynchronous execution of tasks. Tasks put
+ * with the same key run one at a time in the order they were put; tasks with different keys
+ * run concurrently on at most maxThreads threads. With a single thread, all the tasks run in
+ * the order they were put, as with SerializedTaskQueue.
+ * <p>
+ * The queue also keeps the number of waiting tasks and the time spent running tasks, logs
+ * a warning for any task running longer than SLOW_TASK milliseconds and logs these statistics
+ * with logStatistics, when the queue is no longer used.
+ * </p>
+ */
+public class KeyedTaskQueue {
+
+	private static final int MAX_WAIT = 5000;
+	private static final long SLOW_TASK = 5000;
+	private final ConfigurationAdminFactory configurationAdminFactory;
+	private final String queueName;
+	private final int maxThreads;
+
+	// key -> the tasks waiting for the running task of that key, if any, to complete
+	private final Map<Object, LinkedList<Runnable>> tasks = new HashMap<>();
+	// keys whose next task can run
+	private final LinkedList<Object> readyKeys = new LinkedList<>();
+	private int threads;
+	private int idleThreads;
+
+	private int queueLength;
+	private int maxQueueLength;
+	private long completedTasks;
+	private long totalTaskTime;
+	private long maxTaskTime;
+
+	public KeyedTaskQueue(ConfigurationAdminFactory configurationAdminFactory, String queueName, int maxThreads) {
+		this.configurationAdminFactory = configurationAdminFactory;
+		this.queueName = queueName;
+		this.maxThreads = Math.max(1, maxThreads);
+	}
+
+	public synchronized void put(Object key, Runnable newTask) {
+		if (maxThreads == 1)
+			key = this; // a single key keeps all the tasks in order
+		LinkedList<Runnable> keyTasks = tasks.get(key);
+		if (keyTasks == null) {
+			keyTasks = new LinkedList<>();
+			tasks.put(key, keyTasks);
+			readyKeys.add(key);
+		}
+		keyTasks.add(newTask);
+		queueLength++;
+		maxQueueLength = Math.max(maxQueueLength, queueLength);
+		if (idleThreads > 0) {
+			notify();
+		} else if (threads < maxThreads) {
+			threads++;
+			Thread thread = new Thread(queueName) {
+				@Override
+				public void run() {
+					Object[] task = nextTask(null, MAX_WAIT);
+					while (task != null) {
+						runTask((Runnable) task[1], task[0]);
+						task = nextTask(task[0], MAX_WAIT);
+					}
+				}
+			};
+			thread.start();
+		}
+	}
+
+	/*
+	 * Completes the task run for the given key, if any, and returns the next key and task to
+	 * run. Returns null and ends the calling thread when no task came within maxWait.
+	 */
+	synchronized Object[] nextTask(Object completedKey, int maxWait) {
+		if (completedKey != null) {
+			if (tasks.get(completedKey).isEmpty())
+				tasks.remove(completedKey);
+			else
+				readyKeys.add(completedKey);
+		}
+		if (readyKeys.isEmpty()) {
+			idleThreads++;
+			try {
+				wait(maxWait);
+			} catch (InterruptedException e) {
+				// ignore -- we control the stack here and do not need to propagate it.
+			} finally {
+				idleThreads--;
+			}
+
+			if (readyKeys.isEmpty()) {
+				threads--;
+				return null;
+			}
+		}
+		Object key = readyKeys.removeFirst();
+		queueLength--;
+		return new Object[] {key, tasks.get(key).removeFirst()};
+	}
+
+	private void runTask(Runnable task, Object key) {
+		long start = System.currentTimeMillis();
+		try {
+			task.run();
+		} catch (Throwable t) {
+			configurationAdminFactory.log(LogService.LOG_ERROR, t.getMessage(), t);
+		} finally {
+			long time = System.currentTimeMillis() - start;
+			int waiting;
+			synchronized (this) {
+				completedTasks++;
+				totalTaskTime += time;
+				maxTaskTime = Math.max(maxTaskTime, time);
+				waiting = queueLength;
+			}
+			if (time > SLOW_TASK)
+				configurationAdminFactory.log(LogService.LOG_WARNING, "{" + queueName + "} a task for " + key + " took " + time + " ms; " + waiting + " task(s) waiting."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		}
+	}
+
+	/**
+	 * Returns the number of tasks waiting to run.
+	 */
+	public synchronized int getQueueLength() {
+		return queueLength;
+	}
+
+	/**
+	 * Returns the largest number of tasks that have been waiting to run at the same time.
+	 */
+	public synchronized int getMaxQueueLength() {
+		return maxQueueLength;
+	}
+
+	public synchronized long getCompletedTasks() {
+		return completedTasks;
+	}
+
+	/**
+	 * Returns the time spent running the completed tasks, in milliseconds.
+	 */
+	public synchronized long getTotalTaskTime() {
+		return totalTaskTime;
+	}
+
+	/**
+	 * Returns the time taken by the longest task, in milliseconds.
+	 */
+	public synchronized long getMaxTaskTime() {
+		return maxTaskTime;
+	}
+
+	/**
+	 * Logs the statistics of the queue, if it ran any task.
+	 */
+	public void logStatistics() {
+		String statistics;
+		synchronized (this) {
+			if (completedTasks == 0)
+				return;
+			statistics = toString();
+		}
+		configurationAdminFactory.log(LogService.LOG_INFO, "{Configuration Admin} " + statistics); //$NON-NLS-1$
+	}
+
+	@Override
+	public synchronized String toString() {
+		return queueName + " [threads=" + threads + ", waiting=" + queueLength + ", maxWaiting=" + maxQueueLength + ", completed=" + completedTasks + ", totalTime=" + totalTaskTime + "ms, maxTime=" + maxTaskTime + "ms]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+	}
+}
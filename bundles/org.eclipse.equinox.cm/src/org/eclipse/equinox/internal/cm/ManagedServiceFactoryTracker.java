@@ -32,12 +32,14 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 	/** @GuardedBy targets*/
 	private final TargetMap targets = new TargetMap();
 
-	private final SerializedTaskQueue queue = new SerializedTaskQueue("ManagedServiceFactory Update Queue"); //$NON-NLS-1$
+	private final KeyedTaskQueue queue;
 
 	public ManagedServiceFactoryTracker(ConfigurationAdminFactory configurationAdminFactory, ConfigurationStore configurationStore, BundleContext context) {
 		super(context, ManagedServiceFactory.class.getName(), null);
 		this.configurationAdminFactory = configurationAdminFactory;
 		this.configurationStore = configurationStore;
+		// updates of a managed service factory are delivered in order, other factories may be updated concurrently
+		this.queue = new KeyedTaskQueue(configurationAdminFactory, "ManagedServiceFactory Update Queue", configurationAdminFactory.getUpdateThreads()); //$NON-NLS-1$
 	}
 
 	void notifyDeleted(ConfigurationImpl config) {
@@ -147,6 +149,12 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 		return false;
 	}
 
+	@Override
+	public void close() {
+		super.close();
+		queue.logStatistics();
+	}
+
 	@Override
 	public ManagedServiceFactory addingService(ServiceReference<ManagedServiceFactory> reference) {
 		ManagedServiceFactory service = context.getService(reference);
@@ -261,7 +269,7 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 	}
 
 	private void asynchDeleted(final ManagedServiceFactory service, final String pid) {
-		queue.put(new Runnable() {
+		queue.put(service, new Runnable() {
 			@Override
 			public void run() {
 				try {
@@ -277,7 +285,7 @@ class ManagedServiceFactoryTracker extends ServiceTracker<ManagedServiceFactory,
 		if (properties == null) {
 			return;
 		}
-		queue.put(new Runnable() {
+		queue.put(service, new Runnable() {
 			@Override
 			public void run() {
 				try {
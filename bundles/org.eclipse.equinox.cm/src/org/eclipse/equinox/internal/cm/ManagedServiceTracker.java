@@ -31,12 +31,14 @@ class ManagedServiceTracker extends ServiceTracker<ManagedService, ManagedServic
 	/** @GuardedBy targets*/
 	private final TargetMap targets = new TargetMap();
 
-	private final SerializedTaskQueue queue = new SerializedTaskQueue("ManagedService Update Queue"); //$NON-NLS-1$
+	private final KeyedTaskQueue queue;
 
 	public ManagedServiceTracker(ConfigurationAdminFactory configurationAdminFactory, ConfigurationStore configurationStore, BundleContext context) {
 		super(context, ManagedService.class.getName(), null);
 		this.configurationAdminFactory = configurationAdminFactory;
 		this.configurationStore = configurationStore;
+		// updates of a managed service are delivered in order, other managed services may be updated concurrently
+		this.queue = new KeyedTaskQueue(configurationAdminFactory, "ManagedService Update Queue", configurationAdminFactory.getUpdateThreads()); //$NON-NLS-1$
 	}
 
 	void notifyDeleted(ConfigurationImpl config) {
@@ -156,6 +158,12 @@ class ManagedServiceTracker extends ServiceTracker<ManagedService, ManagedServic
 		return false;
 	}
 
+	@Override
+	public void close() {
+		super.close();
+		queue.logStatistics();
+	}
+
 	@Override
 	public ManagedService addingService(ServiceReference<ManagedService> reference) {
 		ManagedService service = context.getService(reference);
@@ -269,7 +277,7 @@ class ManagedServiceTracker extends ServiceTracker<ManagedService, ManagedServic
 	}
 
 	private void asynchUpdated(final ManagedService service, final Dictionary<String, ?> properties) {
-		queue.put(new Runnable() {
+		queue.put(service, new Runnable() {
 			@Override
 			public void run() {
 				try {
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.common.tests.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.core.internal.registry.ExtensionRegistry;
+import org.eclipse.core.internal.registry.IRegistryConstants;
+import org.eclipse.core.internal.registry.RegistryObjectManager;
+import org.eclipse.core.internal.registry.RegistryProperties;
+import org.eclipse.core.internal.registry.osgi.RegistryCommandProvider;
+import org.eclipse.core.runtime.ContributorFactorySimple;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IContributor;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.spi.RegistryStrategy;
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Tests the storage of the attributes of configuration elements, which share
+ * their names with the other elements of the registry.
+ */
+public class ConfigurationElementStorageTest {
+
+	private final Object masterToken = new Object();
+
+	private static void addContribution(IExtensionRegistry registry, String contributorId, String content, Object token) {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><?eclipse version=\"3.2\"?><plugin>" + content + "</plugin>"; //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(registry.addContribution(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), ContributorFactorySimple.createContributor(contributorId), false, "plugin.xml", null, token)); //$NON-NLS-1$
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, String> getSharedStrings(IExtensionRegistry registry) throws ReflectiveOperationException {
+		Field field = RegistryObjectManager.class.getDeclaredField("sharedStrings"); //$NON-NLS-1$
+		field.setAccessible(true);
+		return (Map<String, String>) field.get(((ExtensionRegistry) registry).getObjectManager());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<List<String>, String[]> getAttributeNameTables(IExtensionRegistry registry) throws ReflectiveOperationException {
+		Field field = RegistryObjectManager.class.getDeclaredField("attributeNameTables"); //$NON-NLS-1$
+		field.setAccessible(true);
+		return (Map<List<String>, String[]>) field.get(((ExtensionRegistry) registry).getObjectManager());
+	}
+
+	@Test
+	public void testSharedStringsOfRemovedContribution() throws ReflectiveOperationException {
+		IExtensionRegistry registry = RegistryFactory.createRegistry(new RegistryStrategy(null, null), masterToken, null);
+		try {
+			addContribution(registry, "testStorage", "<extension-point id=\"point\" name=\"Point\"/><extension point=\"testStorage.point\"><element kept=\"1\"/></extension>", masterToken); //$NON-NLS-1$ //$NON-NLS-2$
+			addContribution(registry, "testStorage2", "<extension point=\"testStorage.point\"><removed removedAttribute=\"1\"/></extension>", masterToken); //$NON-NLS-1$ //$NON-NLS-2$
+			Map<String, String> sharedStrings = getSharedStrings(registry);
+			assertTrue(sharedStrings.containsKey("removedAttribute")); //$NON-NLS-1$
+
+			IContributor contributor = registry.getExtensions("testStorage2")[0].getContributor(); //$NON-NLS-1$
+			((ExtensionRegistry) registry).removeContributor(contributor, masterToken);
+			assertFalse(sharedStrings.containsKey("removedAttribute")); //$NON-NLS-1$
+			assertFalse(sharedStrings.containsKey("removed")); //$NON-NLS-1$
+			// the tables are rebuilt from the remaining elements
+			assertTrue(sharedStrings.containsKey("element")); //$NON-NLS-1$
+			assertTrue(sharedStrings.containsKey("kept")); //$NON-NLS-1$
+			Map<List<String>, String[]> attributeNameTables = getAttributeNameTables(registry);
+			assertTrue(attributeNameTables.containsKey(Arrays.asList("kept"))); //$NON-NLS-1$
+			assertFalse(attributeNameTables.containsKey(Arrays.asList("removedAttribute"))); //$NON-NLS-1$
+			String[] keptTable = attributeNameTables.get(Arrays.asList("kept")); //$NON-NLS-1$
+
+			// the remaining elements and the ones added after the removal are not affected
+			addContribution(registry, "testStorage3", "<extension point=\"testStorage.point\"><element kept=\"3\"/></extension>", masterToken); //$NON-NLS-1$ //$NON-NLS-2$
+			IConfigurationElement[] elements = registry.getConfigurationElementsFor("testStorage.point"); //$NON-NLS-1$
+			assertEquals(2, elements.length);
+			assertEquals("1", elements[0].getAttribute("kept")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("3", elements[1].getAttribute("kept")); //$NON-NLS-1$ //$NON-NLS-2$
+			// the new element shares the attribute names of the remaining one
+			assertSame(keptTable, attributeNameTables.get(Arrays.asList("kept"))); //$NON-NLS-1$
+		} finally {
+			registry.stop(masterToken);
+		}
+	}
+
+	@Test
+	public void testTranslationInPlace() {
+		// a strategy translating the array it is given
+		RegistryStrategy strategy = new RegistryStrategy(null, null) {
+			@Override
+			public String[] translate(String[] nonTranslated, IContributor contributor, String locale) {
+				for (int i = 0; i < nonTranslated.length; i++)
+					nonTranslated[i] = locale + ':' + nonTranslated[i];
+				return nonTranslated;
+			}
+		};
+		RegistryProperties.setProperty(IRegistryConstants.PROP_MULTI_LANGUAGE, "true"); //$NON-NLS-1$
+		IExtensionRegistry registry = RegistryFactory.createRegistry(strategy, masterToken, null);
+		try {
+			addContribution(registry, "testTranslation", "<extension-point id=\"point\" name=\"Point\"/><extension point=\"testTranslation.point\"><element name=\"n\" other=\"o\">v</element></extension>", masterToken); //$NON-NLS-1$ //$NON-NLS-2$
+			IConfigurationElement element = registry.getConfigurationElementsFor("testTranslation.point")[0]; //$NON-NLS-1$
+			assertEquals("fr:n", element.getAttribute("name", "fr")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals("de:o", element.getAttribute("other", "de")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals("de:v", element.getValue("de")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("fr:v", element.getValue("fr")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("n", element.getAttributeAsIs("name")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("v", element.getValueAsIs()); //$NON-NLS-1$
+		} finally {
+			registry.stop(masterToken);
+			RegistryProperties.setProperty(IRegistryConstants.PROP_MULTI_LANGUAGE, "false"); //$NON-NLS-1$
+		}
+	}
+
+	private static class TestInterpreter implements CommandInterpreter {
+		private final String[] arguments;
+		private int next = 0;
+		final StringBuilder output = new StringBuilder();
+
+		TestInterpreter(String... arguments) {
+			this.arguments = arguments;
+		}
+
+		@Override
+		public String nextArgument() {
+			return next < arguments.length ? arguments[next++] : null;
+		}
+
+		@Override
+		public Object execute(String cmd) {
+			return null;
+		}
+
+		@Override
+		public void print(Object o) {
+			output.append(o);
+		}
+
+		@Override
+		public void println() {
+			output.append('\n');
+		}
+
+		@Override
+		public void println(Object o) {
+			output.append(o).append('\n');
+		}
+
+		@Override
+		public void printStackTrace(Throwable t) {
+			output.append(t);
+		}
+
+		@Override
+		public void printDictionary(Dictionary<?, ?> dic, String title) {
+			output.append(title);
+		}
+
+		@Override
+		public void printBundleResource(Bundle bundle, String resource) {
+			output.append(resource);
+		}
+	}
+
+	@Test
+	public void testRegmemArguments() throws Exception {
+		RegistryCommandProvider provider = new RegistryCommandProvider();
+		// invalid counts display the usage of the command
+		for (String argument : new String[] {"many", "-1", "99999999999"}) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			TestInterpreter interpreter = new TestInterpreter(argument);
+			provider._regmem(interpreter);
+			String output = interpreter.output.toString();
+			assertTrue(output, output.contains("regmem [count]")); //$NON-NLS-1$
+		}
+	}
+}
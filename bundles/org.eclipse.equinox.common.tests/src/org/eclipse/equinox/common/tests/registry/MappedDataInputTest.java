@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.common.tests.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.core.internal.registry.IRegistryConstants;
+import org.eclipse.core.internal.registry.MappedDataInput;
+import org.eclipse.core.internal.registry.RegistryProperties;
+import org.eclipse.core.runtime.ContributorFactorySimple;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.spi.RegistryStrategy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests reading the registry cache from memory mapped files.
+ */
+public class MappedDataInputTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File writeData() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(42);
+			out.writeUTF("café €"); //$NON-NLS-1$
+			out.writeLong(-1L);
+			out.writeBytes("first\nsecond\r\nthird\rfourth"); //$NON-NLS-1$
+		}
+		File file = folder.newFile("data"); //$NON-NLS-1$
+		Files.write(file.toPath(), bytes.toByteArray());
+		return file;
+	}
+
+	@Test
+	public void testReadsLikeDataInputStream() throws IOException {
+		File file = writeData();
+		ByteBuffer buffer = MappedDataInput.map(file);
+		MappedDataInput mapped = new MappedDataInput(buffer, 0);
+		@SuppressWarnings("resource")
+		DataInputStream stream = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+		assertEquals(stream.readInt(), mapped.readInt());
+		assertEquals(stream.readUTF(), mapped.readUTF());
+		assertEquals(stream.readLong(), mapped.readLong());
+		for (int i = 0; i < 4; i++) {
+			@SuppressWarnings("deprecation")
+			String expected = stream.readLine();
+			assertEquals(expected, mapped.readLine());
+		}
+		assertNull(mapped.readLine());
+		assertTrue(MappedDataInput.unmap(buffer));
+	}
+
+	@Test
+	public void testUnmapHeapBuffer() {
+		assertFalse(MappedDataInput.unmap(ByteBuffer.wrap("data".getBytes(StandardCharsets.UTF_8)))); //$NON-NLS-1$
+		assertFalse(MappedDataInput.unmap(null));
+	}
+
+	private IExtensionRegistry startRegistry(File cache, Object masterToken) {
+		RegistryStrategy strategy = new RegistryStrategy(new File[] {cache}, new boolean[] {false});
+		return RegistryFactory.createRegistry(strategy, masterToken, null);
+	}
+
+	@Test
+	public void testMappedCache() throws IOException {
+		File cache = folder.newFolder("cache"); //$NON-NLS-1$
+		Object masterToken = new Object();
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><?eclipse version=\"3.2\"?><plugin>" //$NON-NLS-1$
+				+ "<extension-point id=\"point\" name=\"Point\"/>" //$NON-NLS-1$
+				+ "<extension id=\"ext\" point=\"testMapped.point\"><element value=\"v\"><child value=\"c\"/></element></extension></plugin>"; //$NON-NLS-1$
+		RegistryProperties.setProperty(IRegistryConstants.PROP_MAPPED_CACHE, "true"); //$NON-NLS-1$
+		try {
+			IExtensionRegistry registry = startRegistry(cache, masterToken);
+			registry.addContribution(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), ContributorFactorySimple.createContributor("testMapped"), true, "plugin.xml", null, masterToken); //$NON-NLS-1$ //$NON-NLS-2$
+			registry.stop(masterToken);
+
+			// read from the mapped cache, which is released when the registry stops
+			for (int i = 0; i < 2; i++) {
+				registry = startRegistry(cache, masterToken);
+				assertNotNull(registry.getExtension("testMapped.ext")); //$NON-NLS-1$
+				IConfigurationElement[] elements = registry.getConfigurationElementsFor("testMapped.point"); //$NON-NLS-1$
+				assertEquals(1, elements.length);
+				assertEquals("v", elements[0].getAttribute("value")); //$NON-NLS-1$ //$NON-NLS-2$
+				assertEquals("c", elements[0].getChildren()[0].getAttribute("value")); //$NON-NLS-1$ //$NON-NLS-2$
+				registry.stop(masterToken);
+			}
+		} finally {
+			RegistryProperties.setProperty(IRegistryConstants.PROP_MAPPED_CACHE, "false"); //$NON-NLS-1$
+		}
+	}
+}
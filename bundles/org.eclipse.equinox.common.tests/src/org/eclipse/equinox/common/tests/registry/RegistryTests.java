@@ -19,10 +19,12 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+	ConfigurationElementStorageTest.class,
 	ContributorsTest.class,
 	ExtensionRegistryDynamicTest.class,
 	ExtensionRegistryStaticTest.class,
 	InputErrorTest.class,
+	MappedDataInputTest.class,
 	MultiLanguageTest.class,
 	NamespaceTest.class,
 	RegistryListenerTest.class
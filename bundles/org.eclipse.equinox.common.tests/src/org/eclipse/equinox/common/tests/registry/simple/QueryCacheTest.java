@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.common.tests.registry.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.core.internal.registry.ExtensionRegistry;
+import org.eclipse.core.internal.registry.ReadWriteMonitor;
+import org.eclipse.core.runtime.ContributorFactorySimple;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.junit.Test;
+
+/**
+ * Tests that the results of the registry queries which are cached reflect the
+ * modifications of the registry, while it is read concurrently.
+ */
+public class QueryCacheTest extends BaseExtensionRegistryRun {
+
+	private static final String POINT = "testCache.point"; //$NON-NLS-1$
+
+	// the number of modifications which have completed, odd while an extension is added
+	private volatile int phase = 0;
+	private volatile boolean writing = false;
+
+	private void add(String contributorId, String content) {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><?eclipse version=\"3.2\"?><plugin>" + content + "</plugin>"; //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(simpleRegistry.addContribution(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), ContributorFactorySimple.createContributor(contributorId), false, "plugin.xml", null, userToken)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCachedQueries() {
+		assertNull(simpleRegistry.getExtensionPoint(POINT));
+		assertEquals(0, simpleRegistry.getConfigurationElementsFor(POINT).length);
+
+		add("testCache", "<extension-point id=\"point\" name=\"Point\"/><extension point=\"testCache.point\"><element/></extension>"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNotNull(simpleRegistry.getExtensionPoint(POINT));
+		assertEquals(1, simpleRegistry.getConfigurationElementsFor(POINT).length);
+		assertEquals(1, simpleRegistry.findConfigurationElements(POINT, "element", null, null).length); //$NON-NLS-1$
+
+		add("testCache2", "<extension id=\"ext\" point=\"testCache.point\"><element/></extension>"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, simpleRegistry.getConfigurationElementsFor(POINT).length);
+		assertEquals(2, simpleRegistry.findConfigurationElements(POINT, "element", null, null).length); //$NON-NLS-1$
+
+		assertTrue(simpleRegistry.removeExtension(simpleRegistry.getExtension("testCache2.ext"), userToken)); //$NON-NLS-1$
+		assertEquals(1, simpleRegistry.getConfigurationElementsFor(POINT).length);
+		assertEquals(1, simpleRegistry.findConfigurationElements(POINT, "element", null, null).length); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testReturnedArrays() throws Exception {
+		add("testCache", "<extension-point id=\"point\" name=\"Point\"/><extension point=\"testCache.point\"><element/></extension>"); //$NON-NLS-1$ //$NON-NLS-2$
+		IConfigurationElement[] elements = simpleRegistry.getConfigurationElementsFor(POINT);
+		assertEquals(1, elements.length);
+		// a caller modifying its array does not change the results of the others
+		elements[0] = null;
+		assertNotNull(simpleRegistry.getConfigurationElementsFor(POINT)[0]);
+		assertNotSame(simpleRegistry.getConfigurationElementsFor(POINT), simpleRegistry.getConfigurationElementsFor(POINT));
+
+		// unknown extension points are not cached
+		Field field = ExtensionRegistry.class.getDeclaredField("queryCache"); //$NON-NLS-1$
+		field.setAccessible(true);
+		Object cache = field.get(simpleRegistry);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, simpleRegistry.getConfigurationElementsFor("testCache.missing" + i).length); //$NON-NLS-1$
+			assertNull(simpleRegistry.getExtensionPoint("testCache.missing" + i)); //$NON-NLS-1$
+			assertEquals(0, simpleRegistry.findConfigurationElements("testCache.missing" + i, "element", null, null).length); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		for (String name : new String[] {"extensionPoints", "configurationElements", "indexes"}) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			Field mapField = cache.getClass().getDeclaredField(name);
+			mapField.setAccessible(true);
+			for (Object key : ((Map<?, ?>) mapField.get(cache)).keySet())
+				assertFalse(name, ((String) key).startsWith("testCache.missing")); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void testConcurrentReaders() throws InterruptedException {
+		add("testCache", "<extension-point id=\"point\" name=\"Point\"/><extension point=\"testCache.point\"><element/></extension>"); //$NON-NLS-1$ //$NON-NLS-2$
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread[] readers = new Thread[4];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				while (phase >= 0 && failure.get() == null) {
+					int before = phase;
+					boolean wasWriting = writing;
+					int length = simpleRegistry.getConfigurationElementsFor(POINT).length;
+					int found = simpleRegistry.findConfigurationElements(POINT, "element", null, null).length; //$NON-NLS-1$
+					// only check the results of queries which did not overlap a modification
+					if (!wasWriting && !writing && before == phase && before >= 0) {
+						int expected = before % 2 == 0 ? 1 : 2;
+						if (length != expected || found != expected)
+							failure.compareAndSet(null, "phase " + before + ": expected " + expected + " elements but got " + length + " and " + found); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					}
+				}
+			});
+			readers[i].start();
+		}
+		try {
+			for (int i = 0; i < 200 && failure.get() == null; i++) {
+				writing = true;
+				add("testCache" + i, "<extension id=\"ext\" point=\"testCache.point\"><element/></extension>"); //$NON-NLS-1$ //$NON-NLS-2$
+				phase++;
+				writing = false;
+				// the writer sees its own modification right away
+				assertEquals(2, simpleRegistry.getConfigurationElementsFor(POINT).length);
+
+				writing = true;
+				IExtension extension = simpleRegistry.getExtension("testCache" + i + ".ext"); //$NON-NLS-1$ //$NON-NLS-2$
+				assertTrue(simpleRegistry.removeExtension(extension, userToken));
+				phase++;
+				writing = false;
+				assertEquals(1, simpleRegistry.getConfigurationElementsFor(POINT).length);
+			}
+		} finally {
+			phase = -1;
+			for (Thread reader : readers)
+				reader.join();
+		}
+		assertNull(failure.get());
+	}
+
+	private static void awaitBlocked(Thread thread) throws InterruptedException {
+		for (int i = 0; i < 500 && thread.getState() == Thread.State.RUNNABLE; i++)
+			Thread.sleep(10);
+	}
+
+	@Test
+	public void testFindWhileWriting() throws Exception {
+		add("testCache", "<extension-point id=\"point\" name=\"Point\"/><extension point=\"testCache.point\"><element value=\"a\"/><element value=\"b\"/></extension>"); //$NON-NLS-1$ //$NON-NLS-2$
+		// the index of the extension point is cached
+		assertEquals(2, simpleRegistry.findConfigurationElements(POINT, "element", null, null).length); //$NON-NLS-1$
+
+		Field field = ExtensionRegistry.class.getDeclaredField("access"); //$NON-NLS-1$
+		field.setAccessible(true);
+		ReadWriteMonitor access = (ReadWriteMonitor) field.get(simpleRegistry);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread reader = new Thread(() -> simpleRegistry.findConfigurationElements(POINT, "element", "value", "a")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		reader.setDaemon(true);
+		// a thread holding the registry lock queries the attribute a blocked reader is indexing
+		Thread writer = new Thread(() -> {
+			access.enterWrite();
+			try {
+				reader.start();
+				awaitBlocked(reader);
+				assertEquals(1, simpleRegistry.findConfigurationElements(POINT, "element", "value", "a").length); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			} catch (Throwable e) {
+				failure.set(e);
+			} finally {
+				access.exitWrite();
+			}
+		});
+		writer.setDaemon(true);
+		writer.start();
+		writer.join(10000);
+		assertFalse("deadlock", writer.isAlive()); //$NON-NLS-1$
+		assertNull(failure.get());
+		reader.join(10000);
+		assertFalse("deadlock", reader.isAlive()); //$NON-NLS-1$
+		assertEquals(1, simpleRegistry.findConfigurationElements(POINT, "element", "value", "b").length); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
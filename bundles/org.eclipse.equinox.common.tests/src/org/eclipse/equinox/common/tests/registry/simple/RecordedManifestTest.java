@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.common.tests.registry.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.SAXParserFactory;
+import org.eclipse.core.internal.registry.ExtensionRegistry;
+import org.eclipse.core.internal.registry.RecordedManifest;
+import org.eclipse.core.runtime.ContributorFactorySimple;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.spi.RegistryStrategy;
+import org.eclipse.equinox.common.tests.registry.simple.utils.HiddenLogRegistryStrategy;
+import org.junit.Test;
+
+/**
+ * Tests adding manifests which have been parsed ahead of time, possibly in
+ * parallel, as a batch.
+ */
+public class RecordedManifestTest extends BaseExtensionRegistryRun {
+
+	// the parser factory of the registry
+	private SAXParserFactory factory;
+
+	@Override
+	protected IExtensionRegistry startRegistry() {
+		// use plugin's metadata directory to save cache data
+		IPath userDataPath = getStateLocation();
+		File[] registryLocations = new File[] {new File(userDataPath.toOSString())};
+		boolean[] readOnly = new boolean[] {false};
+		RegistryStrategy registryStrategy = new HiddenLogRegistryStrategy(registryLocations, readOnly);
+		factory = registryStrategy.getXMLParser();
+		return RegistryFactory.createRegistry(registryStrategy, masterToken, userToken);
+	}
+
+	private RecordedManifest record(String contributorId, String xml) {
+		RecordedManifest manifest = new RecordedManifest(ContributorFactorySimple.createContributor(contributorId), "plugin.xml", null, 0); //$NON-NLS-1$
+		manifest.record(factory, new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+		return manifest;
+	}
+
+	private static String extension(String id) {
+		return "<extension id=\"" + id + "\" point=\"testBatch.point\"><element/></extension>"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static String plugin(String content) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><?eclipse version=\"3.2\"?><plugin>" + content + "</plugin>"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testDuplicateExtensionsInBatch() {
+		HiddenLogRegistryStrategy.output = ""; //$NON-NLS-1$
+		RecordedManifest first = record("testBatch", plugin("<extension-point id=\"point\" name=\"Point\"/>" + extension("duplicate") + extension("first"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		// an extension of another contributor in the namespace of the first one
+		RecordedManifest second = record("testBatch2", plugin(extension("testBatch.duplicate") + extension("second"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		((ExtensionRegistry) simpleRegistry).addContributions(new RecordedManifest[] {first, second}, false, masterToken);
+
+		assertEquals("Warning:  Extensions supplied by \"testBatch2\" and \"testBatch\" have the same Id: \"testBatch.duplicate\".", HiddenLogRegistryStrategy.output); //$NON-NLS-1$
+		assertEquals(4, simpleRegistry.getExtensionPoint("testBatch.point").getExtensions().length); //$NON-NLS-1$
+		assertNotNull(simpleRegistry.getExtension("testBatch.first")); //$NON-NLS-1$
+		assertNotNull(simpleRegistry.getExtension("testBatch2.second")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testParallelRecording() throws Exception {
+		HiddenLogRegistryStrategy.output = ""; //$NON-NLS-1$
+		RecordedManifest[] manifests = new RecordedManifest[200];
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < manifests.length; i++) {
+			int index = i;
+			String contributorId = i == 0 ? "testParallel" : "testParallel" + i; //$NON-NLS-1$ //$NON-NLS-2$
+			String content = i == 0 ? "<extension-point id=\"point\" name=\"Point\"/>" : "<extension point=\"testParallel.point\"><element/></extension>"; //$NON-NLS-1$ //$NON-NLS-2$
+			executor.execute(() -> manifests[index] = record(contributorId, plugin(content)));
+		}
+		// the factory is used by the registry while the manifests are recorded
+		for (int i = 0; i < 20; i++) {
+			String xml = plugin("<extension-point id=\"p\" name=\"P\"/>"); //$NON-NLS-1$
+			simpleRegistry.addContribution(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), ContributorFactorySimple.createContributor("testSequential" + i), false, "plugin.xml", null, userToken); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		((ExtensionRegistry) simpleRegistry).addContributions(manifests, false, masterToken);
+
+		assertEquals("", HiddenLogRegistryStrategy.output); //$NON-NLS-1$
+		assertEquals(manifests.length - 1, simpleRegistry.getExtensionPoint("testParallel.point").getExtensions().length); //$NON-NLS-1$
+		for (int i = 0; i < 20; i++)
+			assertNotNull(simpleRegistry.getExtensionPoint("testSequential" + i + ".p")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -27,7 +27,9 @@ import org.junit.runners.Suite.SuiteClasses;
 	XMLExtensionCreateEclipseTest.class,
 	DirectExtensionRemoveTest.class,
 	MergeContributionTest.class,
-	DuplicatePointsTest.class
+	DuplicatePointsTest.class,
+	RecordedManifestTest.class,
+	QueryCacheTest.class
 })
 public class SimpleRegistryTests {
 	// intentionally left blank
@@ -72,6 +72,51 @@ public interface JettyConstants {
 	 */
 	public static final String HTTP_MINTHREADS = "http.minThreads"; //$NON-NLS-1$
 
+	/**
+	 * name="http.virtualThreads" type="Boolean" (default: false -- run requests on virtual
+	 * threads when both the JVM and Jetty support them, on the thread pool otherwise)
+	 * @since 1.6
+	 */
+	public static final String HTTP_VIRTUALTHREADS = "http.virtualThreads"; //$NON-NLS-1$
+
+	/**
+	 * name="http.h2c.enabled" type="Boolean" (default: false -- accept HTTP/2 over clear
+	 * text on the http connector; requires the Jetty HTTP/2 server)
+	 * @since 1.6
+	 */
+	public static final String HTTP_H2C_ENABLED = "http.h2c.enabled"; //$NON-NLS-1$
+
+	/**
+	 * name="https.h2.enabled" type="Boolean" (default: false -- negotiate HTTP/2 with ALPN
+	 * on the https connector; requires the Jetty HTTP/2 and ALPN servers)
+	 * @since 1.6
+	 */
+	public static final String HTTPS_H2_ENABLED = "https.h2.enabled"; //$NON-NLS-1$
+
+	/**
+	 * name="http.acceptors" type="Integer" (default: -1 -- chosen by Jetty from the number of processors)
+	 * @since 1.6
+	 */
+	public static final String HTTP_ACCEPTORS = "http.acceptors"; //$NON-NLS-1$
+
+	/**
+	 * name="http.selectors" type="Integer" (default: -1 -- chosen by Jetty from the number of processors)
+	 * @since 1.6
+	 */
+	public static final String HTTP_SELECTORS = "http.selectors"; //$NON-NLS-1$
+
+	/**
+	 * name="http.outputBufferSize" type="Integer" (default: 32768 -- bytes buffered before a response is committed)
+	 * @since 1.6
+	 */
+	public static final String HTTP_OUTPUTBUFFERSIZE = "http.outputBufferSize"; //$NON-NLS-1$
+
+	/**
+	 * name="http.headerCacheSize" type="Integer" (default: 1024 -- size of the cache of common request header fields)
+	 * @since 1.6
+	 */
+	public static final String HTTP_HEADERCACHESIZE = "http.headerCacheSize"; //$NON-NLS-1$
+
 	/**
 	 * @deprecated
 	 * @since 1.3
@@ -135,6 +135,38 @@ public class Activator implements BundleActivator {
 			defaultSettings.put(JettyConstants.HTTP_MAXTHREADS, Integer.valueOf(maxThreads));
 		}
 
+		// virtual threads (default is false)
+		Boolean virtualThreads = Details.getBooleanProp(context, JettyConstants.HTTP_VIRTUALTHREADS, false);
+		defaultSettings.put(JettyConstants.HTTP_VIRTUALTHREADS, virtualThreads);
+
+		// HTTP/2 over clear text (default is false)
+		Boolean h2cEnabled = Details.getBooleanProp(context, JettyConstants.HTTP_H2C_ENABLED, false);
+		defaultSettings.put(JettyConstants.HTTP_H2C_ENABLED, h2cEnabled);
+
+		// number of acceptor threads (default is chosen by Jetty)
+		int acceptors = Details.getIntProp(context, JettyConstants.HTTP_ACCEPTORS, -1);
+		if (acceptors != -1) {
+			defaultSettings.put(JettyConstants.HTTP_ACCEPTORS, Integer.valueOf(acceptors));
+		}
+
+		// number of selector threads (default is chosen by Jetty)
+		int selectors = Details.getIntProp(context, JettyConstants.HTTP_SELECTORS, -1);
+		if (selectors != -1) {
+			defaultSettings.put(JettyConstants.HTTP_SELECTORS, Integer.valueOf(selectors));
+		}
+
+		// response buffer size
+		int outputBufferSize = Details.getIntProp(context, JettyConstants.HTTP_OUTPUTBUFFERSIZE, -1);
+		if (outputBufferSize != -1) {
+			defaultSettings.put(JettyConstants.HTTP_OUTPUTBUFFERSIZE, Integer.valueOf(outputBufferSize));
+		}
+
+		// request header cache size
+		int headerCacheSize = Details.getIntProp(context, JettyConstants.HTTP_HEADERCACHESIZE, -1);
+		if (headerCacheSize != -1) {
+			defaultSettings.put(JettyConstants.HTTP_HEADERCACHESIZE, Integer.valueOf(headerCacheSize));
+		}
+
 		if (httpsEnabled.booleanValue()) {
 			// HTTPS Port
 
@@ -148,6 +180,10 @@ public class Activator implements BundleActivator {
 			if (httpsHost != null)
 				defaultSettings.put(JettyConstants.HTTPS_HOST, httpsHost);
 
+			// HTTP/2 with ALPN (default is false)
+			Boolean h2Enabled = Details.getBooleanProp(context, JettyConstants.HTTPS_H2_ENABLED, false);
+			defaultSettings.put(JettyConstants.HTTPS_H2_ENABLED, h2Enabled);
+
 			// SSL SETTINGS
 			String keystore = Details.getStringProp(context, JettyConstants.SSL_KEYSTORE, null);
 			if (keystore != null)
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.jetty.internal;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.*;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Creates the connection factories of HTTP/2. The Jetty HTTP/2 and ALPN servers are
+ * optional imports: this class fails to load with a LinkageError when they are not
+ * available. The ALPN server also needs an ALPN processor, such as the one of the
+ * JDK, found with a ServiceLoader.
+ */
+public class Http2Support {
+
+	/**
+	 * Returns the factories of a clear text connector accepting HTTP/1.1, and HTTP/2
+	 * through an upgrade or with prior knowledge.
+	 */
+	public static ConnectionFactory[] createHttpConnectionFactories(HttpConfiguration httpConfig) {
+		return new ConnectionFactory[] {new HttpConnectionFactory(httpConfig), new HTTP2CServerConnectionFactory(httpConfig)};
+	}
+
+	/**
+	 * Returns the factories of a TLS connector negotiating HTTP/2 or HTTP/1.1 with ALPN.
+	 * @throws IllegalStateException if no ALPN processor is available
+	 */
+	public static ConnectionFactory[] createHttpsConnectionFactories(SslContextFactory.Server sslContextFactory, HttpConfiguration httpsConfig) {
+		HttpConnectionFactory http1 = new HttpConnectionFactory(httpsConfig);
+		HTTP2ServerConnectionFactory http2 = new HTTP2ServerConnectionFactory(httpsConfig);
+		ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory(http2.getProtocol(), http1.getProtocol());
+		alpn.setDefaultProtocol(http1.getProtocol());
+		// HTTP/2 forbids the ciphers of its blacklist
+		sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+		return new ConnectionFactory[] {new SslConnectionFactory(sslContextFactory, alpn.getProtocol()), alpn, http2, http1};
+	}
+}
@@ -32,6 +32,8 @@ import org.eclipse.jetty.server.session.HouseKeeper;
 import org.eclipse.jetty.server.session.SessionHandler;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.osgi.framework.Constants;
@@ -44,8 +46,10 @@ public class HttpServerManager implements ManagedServiceFactory {
 	private static final String CONTEXT_TEMPDIR = "javax.servlet.context.tempdir"; //$NON-NLS-1$
 	private static final String DIR_PREFIX = "pid_"; //$NON-NLS-1$
 	private static final String INTERNAL_CONTEXT_CLASSLOADER = "org.eclipse.equinox.http.jetty.internal.ContextClassLoader"; //$NON-NLS-1$
+	private static final Logger LOG = Log.getLogger(HttpServerManager.class);
 
 	private Map<String, Server> servers = new HashMap<>();
+	private Map<String, VirtualThreadExecutor> virtualThreadExecutors = new HashMap<>();
 	private File workDir;
 
 	public HttpServerManager(File workDir) {
@@ -59,12 +63,16 @@ public class HttpServerManager implements ManagedServiceFactory {
 			try {
 				server.stop();
 			} catch (Exception e) {
-				// TODO: consider logging this, but we should still continue cleaning up
-				e.printStackTrace();
+				// still continue cleaning up
+				LOG.warn("Failed to stop the server " + pid, e); //$NON-NLS-1$
 			}
 			File contextWorkDir = new File(workDir, DIR_PREFIX + pid.hashCode());
 			deleteDirectory(contextWorkDir);
 		}
+		// also left by a server which failed to start
+		VirtualThreadExecutor virtualThreadExecutor = virtualThreadExecutors.remove(pid);
+		if (virtualThreadExecutor != null)
+			virtualThreadExecutor.shutdown();
 	}
 
 	@Override
@@ -75,7 +83,13 @@ public class HttpServerManager implements ManagedServiceFactory {
 	@Override
 	public synchronized void updated(String pid, Dictionary<String, ?> dictionary) throws ConfigurationException {
 		deleted(pid);
-		Server server = new Server(new QueuedThreadPool(Details.getInt(dictionary, JettyConstants.HTTP_MAXTHREADS, 200), Details.getInt(dictionary, JettyConstants.HTTP_MINTHREADS, 8)));
+		QueuedThreadPool threadPool = new QueuedThreadPool(Details.getInt(dictionary, JettyConstants.HTTP_MAXTHREADS, 200), Details.getInt(dictionary, JettyConstants.HTTP_MINTHREADS, 8));
+		VirtualThreadExecutor virtualThreadExecutor = null;
+		if (Details.getBoolean(dictionary, JettyConstants.HTTP_VIRTUALTHREADS, false))
+			virtualThreadExecutor = VirtualThreadExecutor.install(threadPool);
+		if (virtualThreadExecutor != null)
+			virtualThreadExecutors.put(pid, virtualThreadExecutor);
+		Server server = new Server(threadPool);
 
 		JettyCustomizer customizer = createJettyCustomizer(dictionary);
 
@@ -83,6 +97,8 @@ public class HttpServerManager implements ManagedServiceFactory {
 		 * May be modified by createHttp(s)Connector.
 		 */
 		HttpConfiguration http_config = new HttpConfiguration();
+		http_config.setOutputBufferSize(Details.getInt(dictionary, JettyConstants.HTTP_OUTPUTBUFFERSIZE, http_config.getOutputBufferSize()));
+		http_config.setHeaderCacheSize(Details.getInt(dictionary, JettyConstants.HTTP_HEADERCACHESIZE, http_config.getHeaderCacheSize()));
 
 		ServerConnector httpConnector = createHttpConnector(dictionary, server, http_config);
 
@@ -142,8 +158,10 @@ public class HttpServerManager implements ManagedServiceFactory {
 		String otherInfo = Details.getString(dictionary, JettyConstants.OTHER_INFO, null);
 		if (otherInfo != null)
 			holder.setInitParameter(JettyConstants.OTHER_INFO, otherInfo);
+		holder.setInitParameter(JettyConstants.HTTP_VIRTUALTHREADS, Boolean.toString(virtualThreadExecutor != null));
 
 		ServletContextHandler httpContext = createHttpContext(dictionary);
+		httpContext.setAttribute(ThreadPoolAttributes.RUNTIME_ATTRIBUTES, new ThreadPoolAttributes(threadPool, virtualThreadExecutor));
 		holder.setInitParameter(JettyConstants.CONTEXT_PATH, httpContext.getContextPath());
 		httpContext.addServlet(holder, "/*"); //$NON-NLS-1$
 		server.setHandler(httpContext);
@@ -184,8 +202,20 @@ public class HttpServerManager implements ManagedServiceFactory {
 			https_config.addCustomizer(new SecureRequestCustomizer());
 			https_config.setUriCompliance(UriCompliance.LEGACY);
 
+			ConnectionFactory[] connectionFactories = null;
+			if (Details.getBoolean(dictionary, JettyConstants.HTTPS_H2_ENABLED, false)) {
+				try {
+					connectionFactories = Http2Support.createHttpsConnectionFactories(sslContextFactory, https_config);
+				} catch (LinkageError | IllegalStateException e) {
+					// the Jetty HTTP/2 or ALPN server is missing, or no ALPN processor is available
+					LOG.warn("HTTP/2 is not available, continuing with HTTP/1.1 over TLS: " + e); //$NON-NLS-1$
+				}
+			}
+			if (connectionFactories == null)
+				connectionFactories = new ConnectionFactory[] {new SslConnectionFactory(sslContextFactory, "http/1.1"), new HttpConnectionFactory(https_config)}; //$NON-NLS-1$
+
 			// HTTPS connector
-			httpsConnector = new ServerConnector(server, new SslConnectionFactory(sslContextFactory, "http/1.1"), new HttpConnectionFactory(https_config)); //$NON-NLS-1$
+			httpsConnector = new ServerConnector(server, Details.getInt(dictionary, JettyConstants.HTTP_ACCEPTORS, -1), Details.getInt(dictionary, JettyConstants.HTTP_SELECTORS, -1), connectionFactories);
 			httpsConnector.setPort(Details.getInt(dictionary, JettyConstants.HTTPS_PORT, 443));
 			httpsConnector.setHost(Details.getString(dictionary, JettyConstants.HTTPS_HOST, null));
 		}
@@ -201,8 +231,20 @@ public class HttpServerManager implements ManagedServiceFactory {
 				http_config.setSecurePort(Details.getInt(dictionary, JettyConstants.HTTPS_PORT, 443));
 			}
 			http_config.setUriCompliance(UriCompliance.LEGACY);;
+			ConnectionFactory[] connectionFactories = null;
+			if (Details.getBoolean(dictionary, JettyConstants.HTTP_H2C_ENABLED, false)) {
+				try {
+					connectionFactories = Http2Support.createHttpConnectionFactories(http_config);
+				} catch (LinkageError e) {
+					// the Jetty HTTP/2 server is missing
+					LOG.warn("HTTP/2 is not available, continuing with HTTP/1.1: " + e); //$NON-NLS-1$
+				}
+			}
+			if (connectionFactories == null)
+				connectionFactories = new ConnectionFactory[] {new HttpConnectionFactory(http_config)};
+
 			// HTTP connector
-			httpConnector = new ServerConnector(server, new HttpConnectionFactory(http_config));
+			httpConnector = new ServerConnector(server, Details.getInt(dictionary, JettyConstants.HTTP_ACCEPTORS, -1), Details.getInt(dictionary, JettyConstants.HTTP_SELECTORS, -1), connectionFactories);
 			httpConnector.setPort(Details.getInt(dictionary, JettyConstants.HTTP_PORT, 80));
 			httpConnector.setHost(Details.getString(dictionary, JettyConstants.HTTP_HOST, null));
 			httpConnector.setIdleTimeout(DEFAULT_IDLE_TIMEOUT);
@@ -215,6 +257,10 @@ public class HttpServerManager implements ManagedServiceFactory {
 			server.stop();
 		}
 		servers.clear();
+		for (VirtualThreadExecutor virtualThreadExecutor : virtualThreadExecutors.values()) {
+			virtualThreadExecutor.shutdown();
+		}
+		virtualThreadExecutors.clear();
 	}
 
 	private ServletContextHandler createHttpContext(@SuppressWarnings("rawtypes") Dictionary dictionary) {
@@ -243,8 +289,8 @@ public class HttpServerManager implements ManagedServiceFactory {
 		try {
 			return (JettyCustomizer) Class.forName(customizerClass).getDeclaredConstructor().newInstance();
 		} catch (Exception e) {
-			// TODO: consider logging this, but we should still continue
-			e.printStackTrace();
+			// still continue without it
+			LOG.warn("Failed to create the customizer " + customizerClass, e); //$NON-NLS-1$
 			return null;
 		}
 	}
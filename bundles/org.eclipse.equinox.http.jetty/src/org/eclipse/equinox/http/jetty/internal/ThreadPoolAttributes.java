@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.jetty.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.eclipse.equinox.http.jetty.JettyConstants;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * The current state of the threads of a server. It is published as the
+ * "equinox.http.runtime.attributes" attribute of the servlet context, which the
+ * Http Service Runtime adds to the properties of its service DTO.
+ */
+public class ThreadPoolAttributes implements Supplier<Map<String, Object>> {
+
+	public static final String RUNTIME_ATTRIBUTES = "equinox.http.runtime.attributes"; //$NON-NLS-1$
+
+	private static final String THREADS = "http.threads"; //$NON-NLS-1$
+	private static final String THREADS_BUSY = "http.threads.busy"; //$NON-NLS-1$
+	private static final String THREADS_IDLE = "http.threads.idle"; //$NON-NLS-1$
+	private static final String THREADS_QUEUED = "http.threads.queued"; //$NON-NLS-1$
+	private static final String VIRTUALTHREADS_ACTIVE = "http.virtualThreads.active"; //$NON-NLS-1$
+	private static final String VIRTUALTHREADS_COMPLETED = "http.virtualThreads.completed"; //$NON-NLS-1$
+
+	private final QueuedThreadPool threadPool;
+	private final VirtualThreadExecutor virtualThreadExecutor;
+
+	public ThreadPoolAttributes(QueuedThreadPool threadPool, VirtualThreadExecutor virtualThreadExecutor) {
+		this.threadPool = threadPool;
+		this.virtualThreadExecutor = virtualThreadExecutor;
+	}
+
+	@Override
+	public Map<String, Object> get() {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(JettyConstants.HTTP_MINTHREADS, Integer.valueOf(threadPool.getMinThreads()));
+		attributes.put(JettyConstants.HTTP_MAXTHREADS, Integer.valueOf(threadPool.getMaxThreads()));
+		attributes.put(THREADS, Integer.valueOf(threadPool.getThreads()));
+		attributes.put(THREADS_BUSY, Integer.valueOf(threadPool.getBusyThreads()));
+		attributes.put(THREADS_IDLE, Integer.valueOf(threadPool.getIdleThreads()));
+		attributes.put(THREADS_QUEUED, Integer.valueOf(threadPool.getQueueSize()));
+		attributes.put(JettyConstants.HTTP_VIRTUALTHREADS, Boolean.valueOf(virtualThreadExecutor != null));
+		if (virtualThreadExecutor != null) {
+			attributes.put(VIRTUALTHREADS_ACTIVE, Integer.valueOf(virtualThreadExecutor.getActiveTasks()));
+			attributes.put(VIRTUALTHREADS_COMPLETED, Long.valueOf(virtualThreadExecutor.getCompletedTasks()));
+		}
+		return attributes;
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.jetty.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Runs the blocking tasks of a Jetty thread pool, such as handling requests, on
+ * virtual threads and counts them. Both the JVM (Java 21, or earlier versions with
+ * preview features enabled) and Jetty (10.0.14) must support virtual threads; the
+ * bundle compiles against neither, so they are reached through reflection.
+ */
+public class VirtualThreadExecutor implements Executor {
+
+	private final ExecutorService executor;
+	private final AtomicInteger activeTasks = new AtomicInteger();
+	private final AtomicLong completedTasks = new AtomicLong();
+
+	private VirtualThreadExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Makes the thread pool run its blocking tasks on virtual threads.
+	 * @return the executor of the virtual threads, or null if they are not supported, in
+	 * which case the thread pool runs every task.
+	 */
+	public static VirtualThreadExecutor install(QueuedThreadPool threadPool) {
+		ExecutorService executor;
+		try {
+			executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+		} catch (Exception e) {
+			// no virtual threads in this JVM
+			return null;
+		}
+		VirtualThreadExecutor virtualThreadExecutor = new VirtualThreadExecutor(executor);
+		try {
+			Method setter = threadPool.getClass().getMethod("setVirtualThreadsExecutor", Executor.class); //$NON-NLS-1$
+			Method getter = threadPool.getClass().getMethod("getVirtualThreadsExecutor"); //$NON-NLS-1$
+			setter.invoke(threadPool, virtualThreadExecutor);
+			// Jetty ignores the executor if it does not find virtual threads itself
+			if (getter.invoke(threadPool) == virtualThreadExecutor)
+				return virtualThreadExecutor;
+		} catch (Exception e) {
+			// a version of Jetty without virtual threads
+		}
+		executor.shutdown();
+		return null;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		activeTasks.incrementAndGet();
+		try {
+			executor.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					activeTasks.decrementAndGet();
+					completedTasks.incrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			activeTasks.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops accepting tasks once the server using it is stopped. The tasks already
+	 * submitted still run.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public boolean isShutdown() {
+		return executor.isShutdown();
+	}
+
+	/**
+	 * Returns the number of tasks running or about to run on virtual threads.
+	 */
+	public int getActiveTasks() {
+		return activeTasks.get();
+	}
+
+	public long getCompletedTasks() {
+		return completedTasks.get();
+	}
+}
@@ -21,8 +21,12 @@ import org.eclipse.equinox.http.servlet.tests.Bug562843_Test;
 import org.eclipse.equinox.http.servlet.tests.Bug564747_Test;
 import org.eclipse.equinox.http.servlet.tests.Bug569406_Test;
 import org.eclipse.equinox.http.servlet.tests.ContextHelperCustomizerTests;
+import org.eclipse.equinox.http.servlet.tests.DispatchTableTest;
+import org.eclipse.equinox.http.servlet.tests.DispatchTargetsCacheTest;
 import org.eclipse.equinox.http.servlet.tests.DispatchingTest;
+import org.eclipse.equinox.http.servlet.tests.HttpServerManagerTest;
 import org.eclipse.equinox.http.servlet.tests.PreprocessorTestCase;
+import org.eclipse.equinox.http.servlet.tests.RequestMetricsTest;
 import org.eclipse.equinox.http.servlet.tests.ServletTest;
 import org.eclipse.equinox.http.servlet.tests.TestHttpServiceAndErrorPage;
 import org.eclipse.equinox.http.servlet.tests.TestHttpServiceAndNamedServlet;
@@ -65,8 +69,12 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
 	AuthenticationTest.class,
+	DispatchTableTest.class,
+	DispatchTargetsCacheTest.class,
 	DispatchingTest.class,
+	HttpServerManagerTest.class,
 	PreprocessorTestCase.class,
+	RequestMetricsTest.class,
 	ServletTest.class,
 	Test_140_11_3.class,
 	Test_140_2_17to22.class,
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.servlet.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.Filter;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.equinox.http.servlet.testbase.BaseTest;
+import org.eclipse.equinox.http.servlet.tests.util.MockFilter;
+import org.eclipse.equinox.http.servlet.tests.util.MockServlet;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+
+/**
+ * Tests that the endpoints and filters looked up by the paths, extensions and
+ * names they match are the ones chosen by trying every registration in order.
+ */
+public class DispatchTableTest extends BaseTest {
+
+	private void registerServlet(String name, Servlet servlet, String... patterns) {
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, name);
+		if (patterns.length > 0) {
+			properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, patterns);
+		}
+		registrations.add(getBundleContext().registerService(Servlet.class, servlet, properties));
+	}
+
+	private void registerFilter(String name, int ranking, String property, String... values) {
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_NAME, name);
+		properties.put(property, values);
+		properties.put(Constants.SERVICE_RANKING, ranking);
+		registrations.add(getBundleContext().registerService(Filter.class, new MockFilter().around(name), properties));
+	}
+
+	@Test
+	public void test_endpointMatching() throws Exception {
+		registerServlet("exact", new MockServlet().content("exact"), "/a/b", "/a/b.txt");
+		registerServlet("prefixA", new MockServlet().content("prefixA"), "/a/*");
+		registerServlet("prefixAB", new MockServlet().content("prefixAB"), "/a/b/*");
+		registerServlet("extension", new MockServlet().content("extension"), "*.txt");
+		registerServlet("default", new MockServlet().content("default"), "/");
+		registerServlet("root", new MockServlet().content("root"), "");
+
+		assertEquals("exact", requestAdvisor.request("a/b"));
+		assertEquals("exact", requestAdvisor.request("a/b.txt"));
+		assertEquals("prefixAB", requestAdvisor.request("a/b/c"));
+		assertEquals("prefixAB", requestAdvisor.request("a/b/c.txt"));
+		assertEquals("prefixA", requestAdvisor.request("a"));
+		assertEquals("prefixA", requestAdvisor.request("a/c"));
+		// a prefix is preferred to an extension
+		assertEquals("prefixA", requestAdvisor.request("a/c.txt"));
+		assertEquals("extension", requestAdvisor.request("c.txt"));
+		assertEquals("extension", requestAdvisor.request("c/d/e.txt"));
+		assertEquals("default", requestAdvisor.request("c/d.html"));
+		assertEquals("default", requestAdvisor.request("c"));
+		assertEquals("root", requestAdvisor.request(""));
+	}
+
+	@Test
+	public void test_namedDispatch() throws Exception {
+		@SuppressWarnings("serial")
+		class ForwardServlet extends HttpServlet {
+
+			@Override
+			protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				getServletContext().getNamedDispatcher(request.getParameter("name")).forward(request, response);
+			}
+
+		}
+
+		registerServlet("forward", new ForwardServlet(), "/forward");
+		registerServlet("target", new MockServlet().content("target"), "/target");
+		registerServlet("other", new MockServlet().content("other"), "/other");
+		registerFilter("f", 0, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_SERVLET, "target");
+
+		assertEquals("target", requestAdvisor.request("forward?name=target"));
+		assertEquals("other", requestAdvisor.request("forward?name=other"));
+		// a filter bound to the name of a servlet applies to the requests it serves
+		assertEquals("ftargetf", requestAdvisor.request("target"));
+		assertEquals("other", requestAdvisor.request("other"));
+	}
+
+	@Test
+	public void test_errorDispatch() throws Exception {
+		registerServlet("missing", new MockServlet().error(HttpServletResponse.SC_NOT_FOUND, "missing"), "/missing");
+		registerServlet("forbidden", new MockServlet().error(HttpServletResponse.SC_FORBIDDEN, "forbidden"), "/forbidden");
+
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, "notFound");
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_ERROR_PAGE, "404");
+		registrations.add(getBundleContext().registerService(Servlet.class, new MockServlet().content("notFound"), properties));
+
+		Map<String, List<String>> response = requestAdvisor.request("missing", null);
+		assertEquals("404", response.get("responseCode").get(0));
+		assertEquals("notFound", response.get("responseBody").get(0));
+
+		// no endpoint matches the path
+		response = requestAdvisor.request("nothing/here", null);
+		assertEquals("404", response.get("responseCode").get(0));
+
+		// the error page does not handle other codes
+		response = requestAdvisor.request("forbidden", null);
+		assertEquals("403", response.get("responseCode").get(0));
+		assertEquals(-1, response.get("responseBody").get(0).indexOf("notFound"));
+	}
+
+	@Test
+	public void test_filterOrder() throws Exception {
+		registerServlet("a", new MockServlet().content("a"), "/a/*", "*.txt");
+
+		// registered out of order, filters are called from the highest ranking
+		registerFilter("3", 3, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "*.txt");
+		registerFilter("5", 5, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "/a/*");
+		registerFilter("1", 1, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_REGEX, ".*/b/.*");
+		registerFilter("4", 4, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_SERVLET, "a");
+		registerFilter("2", 2, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "/a/b/c.txt");
+		// matching several patterns, the filter is called once
+		registerFilter("6", 6, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "/a/*", "*.txt", "/a/b/c.txt");
+		// same ranking as 3, registered later
+		registerFilter("7", 3, HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "/*");
+
+		assertEquals("6543721a1273456", requestAdvisor.request("a/b/c.txt"));
+		assertEquals("65437a73456", requestAdvisor.request("a/c.txt"));
+		assertEquals("6547a7456", requestAdvisor.request("a/c"));
+		assertEquals("64371a17346", requestAdvisor.request("d/b/e.txt"));
+		assertEquals("6437a7346", requestAdvisor.request("e.txt"));
+	}
+
+}
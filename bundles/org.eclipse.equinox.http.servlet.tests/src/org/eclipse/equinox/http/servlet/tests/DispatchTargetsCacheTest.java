@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.servlet.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+import javax.servlet.Servlet;
+
+import org.eclipse.equinox.http.servlet.testbase.BaseTest;
+import org.eclipse.equinox.http.servlet.tests.util.MockServlet;
+import org.junit.Test;
+import org.osgi.service.http.runtime.HttpServiceRuntime;
+import org.osgi.service.http.runtime.dto.RequestInfoDTO;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+
+/**
+ * Tests the dispatch targets the runtime keeps for the request paths it
+ * resolved.
+ */
+public class DispatchTargetsCacheTest extends BaseTest {
+
+	private void registerServlet(String name, String pattern) {
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, name);
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, pattern);
+		registrations.add(getBundleContext().registerService(Servlet.class, new MockServlet().content(name), properties));
+	}
+
+	@Test
+	public void test_dispatchTargetsCache() throws Exception {
+		registerServlet("a", "/a/*");
+
+		HttpServiceRuntime runtime = getHttpServiceRuntime();
+		Method getDispatchTargets = runtime.getClass().getMethod("getDispatchTargets", String.class, RequestInfoDTO.class);
+		Field field = runtime.getClass().getDeclaredField("routes");
+		field.setAccessible(true);
+		Map<?, ?> routes = (Map<?, ?>) field.get(runtime);
+		field = runtime.getClass().getDeclaredField("MAX_ROUTES");
+		field.setAccessible(true);
+		int maxRoutes = field.getInt(null);
+
+		assertNotNull(getDispatchTargets.invoke(runtime, "/a/0", null));
+		assertTrue(routes.containsKey("/a/0"));
+		assertNotNull(getDispatchTargets.invoke(runtime, "/a/0?q=1", null));
+		assertEquals(1, routes.size());
+
+		// paths without targets are not kept
+		assertNull(getDispatchTargets.invoke(runtime, "/missing", null));
+		assertFalse(routes.containsKey("/missing"));
+
+		// the least recently used paths are dropped first
+		for (int i = 1; i <= maxRoutes; i++) {
+			if ((i % 100) == 0) {
+				getDispatchTargets.invoke(runtime, "/a/0", null);
+			}
+			getDispatchTargets.invoke(runtime, "/a/" + i, null);
+		}
+		assertEquals(maxRoutes, routes.size());
+		assertTrue(routes.containsKey("/a/0"));
+		assertFalse(routes.containsKey("/a/1"));
+		assertTrue(routes.containsKey("/a/2"));
+
+		assertEquals("a", requestAdvisor.request("a/0"));
+
+		// a new registration changes the dispatch targets
+		registerServlet("b", "/a/0");
+		assertEquals(0, routes.size());
+		assertEquals("b", requestAdvisor.request("a/0"));
+		assertEquals("a", requestAdvisor.request("a/1"));
+	}
+
+}
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.servlet.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.cert.X509Certificate;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.equinox.http.jetty.JettyConfigurator;
+import org.eclipse.equinox.http.jetty.JettyConstants;
+import org.eclipse.equinox.http.servlet.testbase.BaseTest;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.ManagedServiceFactory;
+import org.osgi.service.http.runtime.HttpServiceRuntime;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+import org.osgi.util.tracker.ServiceTracker;
+
+/**
+ * Tests the servers of the Jetty bundle: the threads handling their requests, the
+ * release of their virtual threads when they are stopped and their HTTP/2
+ * connectors.
+ */
+public class HttpServerManagerTest extends BaseTest {
+
+	private static final String PID = "test.virtualThreads";
+	// tells the runtime of the tested server from the one of the other tests
+	private static final String OTHER_INFO = "test.httpServerManager";
+
+	private ManagedServiceFactory createServerManager(File workDir) throws Exception {
+		Class<?> clazz = FrameworkUtil.getBundle(JettyConfigurator.class).loadClass("org.eclipse.equinox.http.jetty.internal.HttpServerManager");
+		return (ManagedServiceFactory) clazz.getConstructor(File.class).newInstance(workDir);
+	}
+
+	private Object startServer(ManagedServiceFactory serverManager) throws Exception {
+		Dictionary<String, Object> settings = settingsOf(PID);
+		settings.put(JettyConstants.HTTP_VIRTUALTHREADS, Boolean.TRUE);
+		serverManager.updated(PID, settings);
+		Field field = serverManager.getClass().getDeclaredField("virtualThreadExecutors");
+		field.setAccessible(true);
+		// none without virtual threads in the JVM or in Jetty
+		return ((Map<?, ?>) field.get(serverManager)).get(PID);
+	}
+
+	/*
+	 * Returns the runtime of the tested server, once started.
+	 */
+	private ServiceReference<HttpServiceRuntime> getRuntime() throws Exception {
+		ServiceTracker<HttpServiceRuntime, HttpServiceRuntime> tracker = new ServiceTracker<>(getBundleContext(), FrameworkUtil.createFilter("(&(objectClass=" + HttpServiceRuntime.class.getName() + ")(" + JettyConstants.OTHER_INFO + "=" + OTHER_INFO + "))"), null);
+		tracker.open();
+		try {
+			assertNotNull("runtime", tracker.waitForService(10000));
+			return tracker.getServiceReference();
+		} finally {
+			tracker.close();
+		}
+	}
+
+	/*
+	 * Registers a servlet on the tested server answering with the name of the thread
+	 * handling the request and whether it is virtual.
+	 */
+	private void registerThreadServlet() {
+		Servlet servlet = new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+				Thread thread = Thread.currentThread();
+				response.getWriter().print(thread.getName() + "|" + isVirtual(thread));
+			}
+		};
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/thread");
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_TARGET, "(" + JettyConstants.OTHER_INFO + "=" + OTHER_INFO + ")");
+		registrations.add(getBundleContext().registerService(Servlet.class, servlet, properties));
+	}
+
+	static boolean isVirtual(Thread thread) {
+		try {
+			return ((Boolean) Thread.class.getMethod("isVirtual").invoke(thread)).booleanValue();
+		} catch (ReflectiveOperationException e) {
+			// no virtual threads before Java 19
+			return false;
+		}
+	}
+
+	private static String get(URL url) throws IOException {
+		return read((HttpURLConnection) url.openConnection());
+	}
+
+	private static String read(HttpURLConnection connection) throws IOException {
+		try {
+			assertEquals(connection.getURL().toString(), HttpURLConnection.HTTP_OK, connection.getResponseCode());
+			try (InputStream is = connection.getInputStream()) {
+				ByteArrayOutputStream content = new ByteArrayOutputStream();
+				byte[] buffer = new byte[1024];
+				int n;
+				while ((n = is.read(buffer)) != -1) {
+					content.write(buffer, 0, n);
+				}
+				return new String(content.toByteArray(), StandardCharsets.UTF_8);
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/*
+	 * Tells if the Jetty bundle has the Jetty HTTP/2 server.
+	 */
+	private static boolean isHttp2Available() {
+		try {
+			FrameworkUtil.getBundle(JettyConfigurator.class).loadClass("org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Creates a key store holding a self-signed certificate for localhost.
+	 */
+	private static File createKeyStore(File dir) throws Exception {
+		File keyStore = new File(dir, "keystore.jks");
+		String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+		Process process = new ProcessBuilder(keytool, "-genkeypair", "-keystore", keyStore.getPath(), "-storetype", "JKS", "-storepass", "password", "-keypass", "password", "-alias", "localhost", "-dname", "CN=localhost", "-keyalg", "RSA", "-validity", "1").redirectErrorStream(true).start();
+		try (InputStream is = process.getInputStream()) {
+			while (is.read() != -1) {
+				// the output of keytool
+			}
+		}
+		assertEquals("keytool", 0, process.waitFor());
+		return keyStore;
+	}
+
+	private static SSLContext trustAll() throws Exception {
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(null, new TrustManager[] {new X509TrustManager() {
+			@Override
+			public void checkClientTrusted(X509Certificate[] chain, String authType) {
+				// trusted
+			}
+
+			@Override
+			public void checkServerTrusted(X509Certificate[] chain, String authType) {
+				// trusted
+			}
+
+			@Override
+			public X509Certificate[] getAcceptedIssuers() {
+				return new X509Certificate[0];
+			}
+		}}, null);
+		return sslContext;
+	}
+
+	private static boolean isShutdown(Object virtualThreadExecutor) throws Exception {
+		Method method = virtualThreadExecutor.getClass().getMethod("isShutdown");
+		return ((Boolean) method.invoke(virtualThreadExecutor)).booleanValue();
+	}
+
+	@Test
+	public void test_deleted() throws Exception {
+		File workDir = Files.createTempDirectory("jetty").toFile();
+		ManagedServiceFactory serverManager = createServerManager(workDir);
+		try {
+			Object virtualThreadExecutor = startServer(serverManager);
+			assumeNotNull(virtualThreadExecutor);
+			assertFalse(isShutdown(virtualThreadExecutor));
+
+			serverManager.deleted(PID);
+			assertTrue(isShutdown(virtualThreadExecutor));
+
+			// a new configuration gets new virtual threads
+			Object updatedExecutor = startServer(serverManager);
+			serverManager.updated(PID, settingsOf(PID));
+			assertTrue(isShutdown(updatedExecutor));
+		} finally {
+			serverManager.getClass().getMethod("shutdown").invoke(serverManager);
+			workDir.delete();
+		}
+	}
+
+	@Test
+	public void test_shutdown() throws Exception {
+		File workDir = Files.createTempDirectory("jetty").toFile();
+		ManagedServiceFactory serverManager = createServerManager(workDir);
+		try {
+			Object virtualThreadExecutor = startServer(serverManager);
+			assumeNotNull(virtualThreadExecutor);
+
+			serverManager.getClass().getMethod("shutdown").invoke(serverManager);
+			assertTrue(isShutdown(virtualThreadExecutor));
+		} finally {
+			workDir.delete();
+		}
+	}
+
+	@Test
+	public void test_virtualThreadsFallback() throws Exception {
+		File workDir = Files.createTempDirectory("jetty").toFile();
+		ManagedServiceFactory serverManager = createServerManager(workDir);
+		try {
+			Dictionary<String, Object> settings = settingsOf(PID);
+			settings.put(JettyConstants.HTTP_VIRTUALTHREADS, Boolean.TRUE);
+			settings.put(JettyConstants.OTHER_INFO, OTHER_INFO);
+			serverManager.updated(PID, settings);
+			ServiceReference<HttpServiceRuntime> runtime = getRuntime();
+			// false when the JVM or Jetty lacks virtual threads
+			boolean virtualThreads = Boolean.parseBoolean((String) runtime.getProperty(JettyConstants.HTTP_VIRTUALTHREADS));
+			registerThreadServlet();
+
+			String[] thread = get(new URL("http://localhost:" + runtime.getProperty(JettyConstants.HTTP_PORT) + "/thread")).split("\\|");
+			assertEquals(thread[0], Boolean.toString(virtualThreads), thread[1]);
+			if (!virtualThreads) {
+				// served by the pool threads, as without the setting
+				assertTrue(thread[0], thread[0].startsWith("qtp"));
+			}
+		} finally {
+			serverManager.getClass().getMethod("shutdown").invoke(serverManager);
+			workDir.delete();
+		}
+	}
+
+	@Test
+	public void test_h2c_http11() throws Exception {
+		File workDir = Files.createTempDirectory("jetty").toFile();
+		ManagedServiceFactory serverManager = createServerManager(workDir);
+		try {
+			Dictionary<String, Object> settings = settingsOf(PID);
+			settings.put(JettyConstants.HTTP_H2C_ENABLED, Boolean.TRUE);
+			settings.put(JettyConstants.OTHER_INFO, OTHER_INFO);
+			serverManager.updated(PID, settings);
+			ServiceReference<HttpServiceRuntime> runtime = getRuntime();
+			registerThreadServlet();
+
+			// HTTP/1.1 clients are still served
+			HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + runtime.getProperty(JettyConstants.HTTP_PORT) + "/thread").openConnection();
+			String statusLine = connection.getHeaderField(0);
+			assertTrue(statusLine, statusLine.startsWith("HTTP/1.1 200"));
+			assertFalse(read(connection).isEmpty());
+		} finally {
+			serverManager.getClass().getMethod("shutdown").invoke(serverManager);
+			workDir.delete();
+		}
+	}
+
+	@Test
+	public void test_h2c_priorKnowledge() throws Exception {
+		File workDir = Files.createTempDirectory("jetty").toFile();
+		ManagedServiceFactory serverManager = createServerManager(workDir);
+		try {
+			Dictionary<String, Object> settings = settingsOf(PID);
+			settings.put(JettyConstants.HTTP_H2C_ENABLED, Boolean.TRUE);
+			settings.put(JettyConstants.OTHER_INFO, OTHER_INFO);
+			serverManager.updated(PID, settings);
+			ServiceReference<HttpServiceRuntime> runtime = getRuntime();
+			int port = Integer.parseInt((String) runtime.getProperty(JettyConstants.HTTP_PORT));
+
+			if (!isHttp2Available()) {
+				// the connector falls back to HTTP/1.1
+				registerThreadServlet();
+				assertFalse(get(new URL("http://localhost:" + port + "/thread")).isEmpty());
+				return;
+			}
+			try (Socket socket = new Socket("localhost", port)) {
+				socket.setSoTimeout(10000);
+				OutputStream os = socket.getOutputStream();
+				// the connection preface of a client knowing the server speaks HTTP/2
+				os.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				// an empty SETTINGS frame
+				os.write(new byte[] {0, 0, 0, 4, 0, 0, 0, 0, 0});
+				os.flush();
+
+				// the server answers with its SETTINGS frame, on stream 0 and not an acknowledgment
+				byte[] frameHeader = new byte[9];
+				new DataInputStream(socket.getInputStream()).readFully(frameHeader);
+				assertEquals("frame type", 4, frameHeader[3]);
+				assertEquals("flags", 0, frameHeader[4]);
+				assertEquals("stream", 0, ((frameHeader[5] & 0x7f) << 24) | ((frameHeader[6] & 0xff) << 16) | ((frameHeader[7] & 0xff) << 8) | (frameHeader[8] & 0xff));
+			}
+		} finally {
+			serverManager.getClass().getMethod("shutdown").invoke(serverManager);
+			workDir.delete();
+		}
+	}
+
+	@Test
+	public void test_h2_alpnFallback() throws Exception {
+		File workDir = Files.createTempDirectory("jetty").toFile();
+		ManagedServiceFactory serverManager = createServerManager(workDir);
+		File keyStore = createKeyStore(workDir);
+		try {
+			Dictionary<String, Object> settings = settingsOf(PID);
+			settings.put(JettyConstants.HTTP_ENABLED, Boolean.FALSE);
+			settings.put(JettyConstants.HTTPS_ENABLED, Boolean.TRUE);
+			settings.put(JettyConstants.HTTPS_PORT, Integer.valueOf(0));
+			settings.put(JettyConstants.HTTPS_H2_ENABLED, Boolean.TRUE);
+			settings.put(JettyConstants.SSL_KEYSTORE, keyStore.getPath());
+			settings.put(JettyConstants.SSL_PASSWORD, "password");
+			settings.put(JettyConstants.SSL_KEYPASSWORD, "password");
+			settings.put(JettyConstants.OTHER_INFO, OTHER_INFO);
+			// without the Jetty HTTP/2 or ALPN server, or without an ALPN processor, the
+			// connector serves HTTP/1.1 over TLS instead of failing to start
+			serverManager.updated(PID, settings);
+			ServiceReference<HttpServiceRuntime> runtime = getRuntime();
+			registerThreadServlet();
+
+			// a client without ALPN gets HTTP/1.1 in any case
+			HttpsURLConnection connection = (HttpsURLConnection) new URL("https://localhost:" + runtime.getProperty(JettyConstants.HTTPS_PORT) + "/thread").openConnection();
+			connection.setSSLSocketFactory(trustAll().getSocketFactory());
+			connection.setHostnameVerifier((hostname, session) -> true);
+			String statusLine = connection.getHeaderField(0);
+			assertTrue(statusLine, statusLine.startsWith("HTTP/1.1 200"));
+			assertFalse(read(connection).isEmpty());
+		} finally {
+			serverManager.getClass().getMethod("shutdown").invoke(serverManager);
+			keyStore.delete();
+			workDir.delete();
+		}
+	}
+
+	private static Dictionary<String, Object> settingsOf(String pid) {
+		Dictionary<String, Object> settings = new Hashtable<>();
+		settings.put(Constants.SERVICE_PID, pid);
+		settings.put(JettyConstants.HTTP_PORT, Integer.valueOf(0));
+		return settings;
+	}
+}
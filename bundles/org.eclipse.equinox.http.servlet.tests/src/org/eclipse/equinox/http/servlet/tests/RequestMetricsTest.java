@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.servlet.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Filter;
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.equinox.http.servlet.HttpRequestMetrics;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
+import org.eclipse.equinox.http.servlet.testbase.BaseTest;
+import org.eclipse.equinox.http.servlet.tests.util.MockFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+
+/**
+ * Tests the request metrics of asynchronous requests, which are recorded when
+ * their processing completes.
+ */
+public class RequestMetricsTest extends BaseTest {
+
+	private static final String METRICS = "equinox.http.whiteboard.metrics";
+	private static final long DELAY = 200;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Before
+	public void enableMetrics() throws Exception {
+		stopJetty();
+		System.setProperty(METRICS, "true");
+		startJetty();
+	}
+
+	@After
+	public void disableMetrics() throws Exception {
+		executor.shutdownNow();
+		stopJetty();
+		System.clearProperty(METRICS);
+		startJetty();
+	}
+
+	@SuppressWarnings("serial")
+	class AsyncServlet extends HttpServlet {
+
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			final AsyncContext asyncContext = req.startAsync();
+			if (req.getParameter("timeout") != null) {
+				// never completed
+				asyncContext.setTimeout(DELAY);
+				return;
+			}
+			if (req.getParameter("completed") != null) {
+				// completed before the call returns
+				try {
+					asyncContext.getResponse().getWriter().print("completed");
+				} finally {
+					asyncContext.complete();
+				}
+				return;
+			}
+			executor.submit(() -> {
+				try {
+					Thread.sleep(DELAY);
+					asyncContext.getResponse().getWriter().print("async");
+				} finally {
+					asyncContext.complete();
+				}
+				return null;
+			});
+		}
+
+	}
+
+	@SuppressWarnings("serial")
+	class DispatchServlet extends HttpServlet {
+
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			if (req.getAttribute("dispatched") != null) {
+				resp.getWriter().print("dispatched");
+				return;
+			}
+			req.setAttribute("dispatched", Boolean.TRUE);
+			final AsyncContext asyncContext = req.startAsync();
+			executor.submit(() -> {
+				Thread.sleep(DELAY);
+				asyncContext.dispatch();
+				return null;
+			});
+		}
+
+	}
+
+	private void registerServlet(String name, Servlet servlet) {
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_ASYNC_SUPPORTED, Boolean.TRUE);
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, name);
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/" + name);
+		registrations.add(getBundleContext().registerService(Servlet.class, servlet, properties));
+	}
+
+	/*
+	 * Returns the metrics of a registration once it counted the given number of
+	 * requests, as asynchronous requests may be completed after the response is
+	 * received.
+	 */
+	private RequestMetricsDTO getRequestMetricsDTO(String name, long requestCount) throws Exception {
+		ServiceReference<HttpRequestMetrics> reference = getBundleContext().getServiceReference(HttpRequestMetrics.class);
+		assertNotNull(reference);
+		HttpRequestMetrics requestMetrics = getBundleContext().getService(reference);
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (true) {
+				for (RequestMetricsDTO requestMetricsDTO : requestMetrics.getRequestMetricsDTOs()) {
+					if (name.equals(requestMetricsDTO.name) && (requestMetricsDTO.requestCount >= requestCount || System.currentTimeMillis() > deadline)) {
+						return requestMetricsDTO;
+					}
+				}
+				Thread.sleep(10);
+			}
+		} finally {
+			getBundleContext().ungetService(reference);
+		}
+	}
+
+	@Test
+	public void test_asyncRequest() throws Exception {
+		registerServlet("async", new AsyncServlet());
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_NAME, "filter");
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "/async");
+		properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_ASYNC_SUPPORTED, Boolean.TRUE);
+		registrations.add(getBundleContext().registerService(Filter.class, new MockFilter(), properties));
+
+		assertEquals("async", requestAdvisor.request("async"));
+
+		for (String name : new String[] {"async", "filter"}) {
+			RequestMetricsDTO requestMetricsDTO = getRequestMetricsDTO(name, 1);
+			assertEquals(name, 1, requestMetricsDTO.requestCount);
+			assertEquals(name, 0, requestMetricsDTO.errorCount);
+			assertEquals(name, 0, requestMetricsDTO.inFlightCount);
+			// the time until the asynchronous processing completed
+			assertTrue(name, requestMetricsDTO.maxTime >= TimeUnit.MILLISECONDS.toMicros(DELAY));
+		}
+	}
+
+	@Test
+	public void test_asyncCompletedBeforeReturn() throws Exception {
+		registerServlet("async", new AsyncServlet());
+
+		assertEquals("completed", requestAdvisor.request("async?completed=true"));
+
+		RequestMetricsDTO requestMetricsDTO = getRequestMetricsDTO("async", 1);
+		assertEquals(1, requestMetricsDTO.requestCount);
+		assertEquals(0, requestMetricsDTO.errorCount);
+		assertEquals(0, requestMetricsDTO.inFlightCount);
+	}
+
+	@Test
+	public void test_asyncTimeout() throws Exception {
+		registerServlet("async", new AsyncServlet());
+
+		requestAdvisor.request("async?timeout=true", null);
+
+		RequestMetricsDTO requestMetricsDTO = getRequestMetricsDTO("async", 1);
+		assertEquals(1, requestMetricsDTO.requestCount);
+		assertEquals(1, requestMetricsDTO.errorCount);
+		assertEquals(0, requestMetricsDTO.inFlightCount);
+	}
+
+	@Test
+	public void test_asyncDispatch() throws Exception {
+		registerServlet("dispatch", new DispatchServlet());
+
+		assertEquals("dispatched", requestAdvisor.request("dispatch"));
+
+		// the dispatch is part of the request
+		RequestMetricsDTO requestMetricsDTO = getRequestMetricsDTO("dispatch", 1);
+		Thread.sleep(DELAY);
+		assertEquals(1, getRequestMetricsDTO("dispatch", 1).requestCount);
+		assertEquals(0, requestMetricsDTO.inFlightCount);
+		assertTrue(requestMetricsDTO.maxTime >= TimeUnit.MILLISECONDS.toMicros(DELAY));
+	}
+
+}
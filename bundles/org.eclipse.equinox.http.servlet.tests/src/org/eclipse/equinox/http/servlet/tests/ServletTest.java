@@ -19,19 +19,27 @@ package org.eclipse.equinox.http.servlet.tests;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,6 +57,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -2080,6 +2089,366 @@ public class ServletTest extends BaseTest {
 		assertEquals("Response Body Suffix", "789", actual.get("responseBody").get(0).substring(8997, 9000));
 	}
 
+	private void registerRangeContext(Bundle bundle, final AtomicInteger connections) {
+		ServletContextHelper customSCH = new ServletContextHelper(bundle) {
+			@Override
+			public String getMimeType(String filename) {
+				if (filename.endsWith(".mp4")) { //$NON-NLS-1$
+					return "video/mp4"; //$NON-NLS-1$
+				}
+				return null;
+			}
+			@Override
+			public URL getResource(String name) {
+				final URL url = super.getResource(name);
+				if (url == null) {
+					return null;
+				}
+				try {
+					// counts the connections opened to the bundle entry
+					return new URL(null, url.toExternalForm(), new URLStreamHandler() {
+						@Override
+						protected URLConnection openConnection(URL u) throws IOException {
+							connections.incrementAndGet();
+							return url.openConnection();
+						}
+					});
+				} catch (MalformedURLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		Dictionary<String, Object> contextProps = new Hashtable<>();
+		contextProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME, "foo");
+		contextProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_PATH, "/foo");
+		registrations.add(getBundleContext().registerService(ServletContextHelper.class, customSCH, contextProps));
+	}
+
+	@Test
+	public void test_ResourceRangeRequest_MultipleRanges() throws Exception {
+		Map<String, List<String>> actual;
+		Bundle bundle = installBundle(TEST_BUNDLE_2);
+		registerRangeContext(bundle, new AtomicInteger());
+		Map<String, List<String>> requestHeader = new HashMap<>();
+		requestHeader.put("Range", Collections.singletonList("bytes=0-2,1000-1002"));
+		try {
+			bundle.start();
+			actual = requestAdvisor.request("foo/TestResource1/rangerequest.mp4", requestHeader);
+		} finally {
+			uninstallBundle(bundle);
+		}
+		assertEquals("Response Code", Collections.singletonList("206"), actual.get("responseCode"));
+		assertTrue("Content-Type", actual.get("Content-Type").get(0).startsWith("multipart/byteranges; boundary="));
+		String body = actual.get("responseBody").get(0);
+		int first = body.indexOf("Content-Range: bytes 0-2/20655");
+		int second = body.indexOf("Content-Range: bytes 1000-1002/20655");
+		assertTrue(body, first != -1 && second > first);
+		assertTrue(body, body.indexOf("video/mp4") != -1);
+		assertEquals("123", body.substring(body.indexOf("\r\n\r\n", first) + 4).substring(0, 3));
+		assertEquals("901", body.substring(body.indexOf("\r\n\r\n", second) + 4).substring(0, 3));
+	}
+
+	@Test
+	public void test_ResourceRangeRequest_MultipleRanges_Writer() throws Exception {
+		Map<String, List<String>> actual;
+		Bundle bundle = installBundle(TEST_BUNDLE_2);
+		registerRangeContext(bundle, new AtomicInteger());
+		// the resource is written to a response already open as a Writer
+		Filter filter = new Filter() {
+			@Override
+			public void init(FilterConfig filterConfig) {
+				// nothing
+			}
+			@Override
+			public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+				response.getWriter();
+				chain.doFilter(request, response);
+			}
+			@Override
+			public void destroy() {
+				// nothing
+			}
+		};
+		Dictionary<String, Object> filterProps = new Hashtable<>();
+		filterProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN, "/*");
+		filterProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_SELECT, "(" + HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME + "=foo)");
+		registrations.add(getBundleContext().registerService(Filter.class, filter, filterProps));
+		Map<String, List<String>> requestHeader = new HashMap<>();
+		requestHeader.put("Range", Collections.singletonList("bytes=0-2,1000-1002"));
+		try {
+			bundle.start();
+			actual = requestAdvisor.request("foo/TestResource1/rangerequest.mp4", requestHeader);
+		} finally {
+			uninstallBundle(bundle);
+		}
+		// the ranges cannot be framed, the whole content is sent
+		assertEquals("Response Code", Collections.singletonList("200"), actual.get("responseCode"));
+		assertTrue("Content-Type", actual.get("Content-Type").get(0).startsWith("video/mp4"));
+		assertNull("Content-Range", actual.get("Content-Range"));
+		String body = actual.get("responseBody").get(0);
+		assertEquals(20655, body.length());
+		assertEquals("123", body.substring(0, 3));
+	}
+
+	@Test
+	public void test_ResourceCacheHit() throws Exception {
+		AtomicInteger connections = new AtomicInteger();
+		List<Map<String, List<String>>> responses = new ArrayList<>();
+		Bundle bundle = installBundle(TEST_BUNDLE_2);
+		registerRangeContext(bundle, connections);
+		int afterFirstRequest;
+		try {
+			bundle.start();
+			responses.add(requestAdvisor.request("foo/TestResource1/rangerequest.mp4", null));
+			afterFirstRequest = connections.get();
+			responses.add(requestAdvisor.request("foo/TestResource1/rangerequest.mp4", null));
+			Map<String, List<String>> requestHeader = new HashMap<>();
+			requestHeader.put("Range", Collections.singletonList("bytes=1000-9999"));
+			responses.add(requestAdvisor.request("foo/TestResource1/rangerequest.mp4", requestHeader));
+			requestHeader = new HashMap<>();
+			requestHeader.put("If-None-Match", responses.get(0).get("ETag"));
+			responses.add(requestAdvisor.request("foo/TestResource1/rangerequest.mp4", requestHeader));
+		} finally {
+			uninstallBundle(bundle);
+		}
+		// the length, last modification and content of the bundle entry are cached
+		assertTrue(afterFirstRequest > 0);
+		assertEquals(afterFirstRequest, connections.get());
+		assertEquals(Collections.singletonList("200"), responses.get(0).get("responseCode"));
+		assertEquals(responses.get(0).get("responseBody"), responses.get(1).get("responseBody"));
+		assertEquals(responses.get(0).get("ETag"), responses.get(1).get("ETag"));
+		assertEquals(responses.get(0).get("Last-Modified"), responses.get(1).get("Last-Modified"));
+		assertEquals(Collections.singletonList("206"), responses.get(2).get("responseCode"));
+		assertEquals("901", responses.get(2).get("responseBody").get(0).substring(0, 3));
+		assertEquals(Collections.singletonList("304"), responses.get(3).get("responseCode"));
+	}
+
+	private void registerTestResource1() {
+		Dictionary<String, Object> resourceProps = new Hashtable<>();
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_RESOURCE_PATTERN, "/TestResource1/*");
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_RESOURCE_PREFIX, "/org/eclipse/equinox/http/servlet/tests/tb2");
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_SELECT, "(" + HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME + "=foo)");
+		registrations.add(getBundleContext().registerService(Object.class, new Object(), resourceProps));
+	}
+
+	@Test
+	public void test_ResourceCache_BundleUpdated() throws Exception {
+		AtomicInteger connections = new AtomicInteger();
+		Bundle bundle = installBundle(TEST_BUNDLE_2);
+		int beforeUpdate;
+		Map<String, List<String>> actual;
+		try {
+			// the resources stay registered while the bundle of their entries is updated
+			registerRangeContext(bundle, connections);
+			registerTestResource1();
+			requestAdvisor.request("foo/TestResource1/rangerequest.mp4", null);
+			requestAdvisor.request("foo/TestResource1/rangerequest.mp4", null);
+			beforeUpdate = connections.get();
+			Thread.sleep(10);
+			bundle.update();
+			actual = requestAdvisor.request("foo/TestResource1/rangerequest.mp4", null);
+		} finally {
+			uninstallBundle(bundle);
+		}
+		// the entry is read again from the updated bundle
+		assertTrue(connections.get() > beforeUpdate);
+		assertEquals(Collections.singletonList("200"), actual.get("responseCode"));
+		assertEquals(20655, actual.get("responseBody").get(0).length());
+	}
+
+	@Test
+	public void test_ResourceCache_LeastRecentlyServedEvicted() throws Exception {
+		final Bundle bundle = installBundle(TEST_BUNDLE_2);
+		final AtomicInteger connections = new AtomicInteger();
+		final URL entry = bundle.getEntry("META-INF/MANIFEST.MF");
+		ServletContextHelper customSCH = new ServletContextHelper(bundle) {
+			@Override
+			public String getMimeType(String filename) {
+				return "text/plain";
+			}
+			@Override
+			public URL getResource(String name) {
+				try {
+					// any name is a bundle entry of the bundle, with the content of its manifest
+					return new URL("bundleentry", bundle.getBundleId() + ".fwk0", -1, name, new URLStreamHandler() {
+						@Override
+						protected URLConnection openConnection(URL u) throws IOException {
+							connections.incrementAndGet();
+							return entry.openConnection();
+						}
+					});
+				} catch (MalformedURLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		Dictionary<String, Object> contextProps = new Hashtable<>();
+		contextProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME, "foo");
+		contextProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_PATH, "/foo");
+		registrations.add(getBundleContext().registerService(ServletContextHelper.class, customSCH, contextProps));
+		Dictionary<String, Object> resourceProps = new Hashtable<>();
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_RESOURCE_PATTERN, "/*");
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_RESOURCE_PREFIX, "/");
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_SELECT, "(" + HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME + "=foo)");
+		registrations.add(getBundleContext().registerService(Object.class, new Object(), resourceProps));
+		try {
+			// fills the cache of 1000 resources
+			for (int i = 0; i < 1000; i++) {
+				requestAdvisor.request("foo/r" + i, null);
+			}
+			requestAdvisor.request("foo/r0", null);
+			// evicts r1, the least recently served
+			requestAdvisor.request("foo/r1000", null);
+
+			int connectionCount = connections.get();
+			requestAdvisor.request("foo/r0", null);
+			requestAdvisor.request("foo/r2", null);
+			assertEquals("r0 and r2 are cached", connectionCount, connections.get());
+			Map<String, List<String>> actual = requestAdvisor.request("foo/r1", null);
+			assertTrue("r1 was evicted", connections.get() > connectionCount);
+			assertEquals(Collections.singletonList("200"), actual.get("responseCode"));
+		} finally {
+			uninstallBundle(bundle);
+		}
+	}
+
+	@Test
+	public void test_ResourceETag() throws Exception {
+		Bundle bundle = installBundle(TEST_BUNDLE_2);
+		registerRangeContext(bundle, new AtomicInteger());
+		Map<String, List<String>> actual;
+		try {
+			bundle.start();
+			actual = requestAdvisor.request("foo/TestResource1/rangerequest.mp4", null);
+		} finally {
+			uninstallBundle(bundle);
+		}
+		// the content of a small bundle entry is in memory, its ETag is a digest of it
+		String etag = actual.get("ETag").get(0);
+		assertTrue(etag, etag.startsWith("\""));
+
+		File dir = Files.createTempDirectory("etag").toFile();
+		try {
+			File text = new File(dir, "a.txt");
+			Files.write(text.toPath(), "text".getBytes(StandardCharsets.UTF_8));
+			registerDirectoryResources(dir, "equinox.http.whiteboard.resource.compress");
+			actual = requestAdvisor.request("foo/a.txt", null);
+			// the content of a file is not in memory, its ETag only tells its last modification and length
+			etag = actual.get("ETag").get(0);
+			assertTrue(etag, etag.startsWith("W/\""));
+
+			Map<String, List<String>> requestHeader = new HashMap<>();
+			requestHeader.put("If-None-Match", Collections.singletonList(etag));
+			actual = requestAdvisor.request("foo/a.txt", requestHeader);
+			assertEquals(Collections.singletonList("304"), actual.get("responseCode"));
+		} finally {
+			deleteDirectory(dir);
+		}
+	}
+
+	private void registerDirectoryResources(final File dir, String property) {
+		ServletContextHelper customSCH = new ServletContextHelper() {
+			@Override
+			public URL getResource(String name) {
+				File file = new File(dir, name);
+				try {
+					return file.isFile() ? file.toURI().toURL() : null;
+				} catch (MalformedURLException e) {
+					return null;
+				}
+			}
+		};
+		Dictionary<String, Object> contextProps = new Hashtable<>();
+		contextProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME, "foo");
+		contextProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_PATH, "/foo");
+		registrations.add(getBundleContext().registerService(ServletContextHelper.class, customSCH, contextProps));
+		Dictionary<String, Object> resourceProps = new Hashtable<>();
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_RESOURCE_PATTERN, "/*");
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_RESOURCE_PREFIX, "/");
+		resourceProps.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_SELECT, "(" + HttpWhiteboardConstants.HTTP_WHITEBOARD_CONTEXT_NAME + "=foo)");
+		resourceProps.put(property, Boolean.TRUE);
+		registrations.add(getBundleContext().registerService(Object.class, new Object(), resourceProps));
+	}
+
+	private static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void test_ResourcePrecompressed_Modified() throws Exception {
+		File dir = Files.createTempDirectory("precompressed").toFile();
+		try {
+			File text = new File(dir, "a.txt");
+			Files.write(text.toPath(), "text".getBytes(StandardCharsets.UTF_8));
+			File gz = new File(dir, "a.txt.gz");
+			try (OutputStream os = new GZIPOutputStream(new FileOutputStream(gz))) {
+				os.write("text".getBytes(StandardCharsets.UTF_8));
+			}
+			long now = System.currentTimeMillis() / 1000 * 1000;
+			// the resource was modified after it was compressed
+			gz.setLastModified(now - 20000);
+			text.setLastModified(now - 10000);
+			registerDirectoryResources(dir, "equinox.http.whiteboard.resource.precompressed");
+
+			Map<String, List<String>> requestHeader = new HashMap<>();
+			requestHeader.put("Accept-Encoding", Collections.singletonList("gzip"));
+			Map<String, List<String>> actual = requestAdvisor.request("foo/a.txt", requestHeader);
+			assertEquals(Collections.singletonList("200"), actual.get("responseCode"));
+			assertNull("Content-Encoding", actual.get("Content-Encoding"));
+			assertEquals("text", actual.get("responseBody").get(0));
+
+			// compressed again
+			gz.setLastModified(now);
+			actual = requestAdvisor.request("foo/a.txt", requestHeader);
+			assertEquals(Collections.singletonList("200"), actual.get("responseCode"));
+			assertEquals(Collections.singletonList("gzip"), actual.get("Content-Encoding"));
+		} finally {
+			deleteDirectory(dir);
+		}
+	}
+
+	@Test
+	public void test_ResourceCompressed_Modified() throws Exception {
+		File dir = Files.createTempDirectory("compressed").toFile();
+		try {
+			File text = new File(dir, "a.txt");
+			StringBuilder content = new StringBuilder();
+			for (int i = 0; i < 500; i++) {
+				content.append("line ").append(i).append('\n');
+			}
+			Files.write(text.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+			long now = System.currentTimeMillis() / 1000 * 1000;
+			text.setLastModified(now - 10000);
+			registerDirectoryResources(dir, "equinox.http.whiteboard.resource.compress");
+
+			Map<String, List<String>> requestHeader = new HashMap<>();
+			requestHeader.put("Accept-Encoding", Collections.singletonList("gzip"));
+			Map<String, List<String>> actual = requestAdvisor.request("foo/a.txt", requestHeader);
+			assertEquals(Collections.singletonList("gzip"), actual.get("Content-Encoding"));
+			List<String> etag = actual.get("ETag");
+
+			// the resource is compressed again once modified, from its new content
+			content.append("modified\n");
+			Files.write(text.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+			text.setLastModified(now);
+			actual = requestAdvisor.request("foo/a.txt", requestHeader);
+			assertEquals(Collections.singletonList("gzip"), actual.get("Content-Encoding"));
+			assertFalse(etag.equals(actual.get("ETag")));
+
+			actual = requestAdvisor.request("foo/a.txt", null);
+			assertNull("Content-Encoding", actual.get("Content-Encoding"));
+			assertEquals(content.toString(), actual.get("responseBody").get(0));
+		} finally {
+			deleteDirectory(dir);
+		}
+	}
+
 	@Test
 	public void test_Runtime() throws Exception {
 		Bundle bundle = installBundle(TEST_BUNDLE_1);
@@ -2523,6 +2892,152 @@ public class ServletTest extends BaseTest {
 		assertEquals("resource1.txt|text/plain|25|1", result.get("responseBody").get(0));
 	}
 
+	@Test
+	public void test_Servlet16_fileuploadStreaming() throws Exception {
+		Servlet servlet = new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+				throws IOException, ServletException {
+
+				Part part = req.getPart("file");
+				Assert.assertNotNull(part);
+
+				String submittedFileName = part.getSubmittedFileName();
+				String contentType = part.getContentType();
+				long size = part.getSize();
+
+				int read = 0;
+				try (InputStream in = part.getInputStream()) {
+					while (in.read() != -1) {
+						read++;
+					}
+				}
+
+				File tempDir = (File)getServletContext().getAttribute(ServletContext.TEMPDIR);
+				File location = new File(tempDir, "file-upload-test");
+
+				File[] listFiles = location.listFiles();
+
+				PrintWriter writer = resp.getWriter();
+
+				writer.write(submittedFileName);
+				writer.write("|");
+				writer.write(contentType);
+				writer.write("|" + size);
+				writer.write("|" + read);
+				writer.write("|" + listFiles.length);
+			}
+		};
+
+		Dictionary<String, Object> props = new Hashtable<>();
+		props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, "S16");
+		props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/Servlet16/*");
+		props.put("equinox.http.multipartSupported", Boolean.TRUE);
+		props.put("equinox.http.whiteboard.servlet.multipart.location", "file-upload-test");
+		props.put("equinox.http.whiteboard.servlet.multipart.fileSizeThreshold", 10);
+		props.put("equinox.http.whiteboard.servlet.multipart.streaming", Boolean.TRUE);
+		registrations.add(getBundleContext().registerService(Servlet.class, servlet, props));
+
+		Map<String, List<Object>> map = new HashMap<>();
+
+		map.put("file", Arrays.<Object>asList(getClass().getResource("resource1.txt")));
+
+		Map<String, List<String>> result = requestAdvisor.upload("Servlet16/do", map);
+
+		assertEquals("200", result.get("responseCode").get(0));
+		assertEquals("resource1.txt|text/plain|-1|25|0", result.get("responseBody").get(0));
+	}
+
+	@Test
+	public void test_Servlet16_fileuploadStreamingReadOnce() throws Exception {
+		Servlet servlet = new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+				throws IOException, ServletException {
+
+				Part part = req.getPart("file");
+				Assert.assertNotNull(part);
+
+				try (InputStream in = part.getInputStream()) {
+					while (in.read() != -1) {
+						// the body is not stored
+					}
+				}
+
+				PrintWriter writer = resp.getWriter();
+
+				writer.write("" + part.getSize());
+				try {
+					part.getInputStream();
+					writer.write("|read again");
+				} catch (IllegalStateException e) {
+					writer.write("|IllegalStateException");
+				}
+			}
+		};
+
+		Dictionary<String, Object> props = new Hashtable<>();
+		props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, "S16");
+		props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/Servlet16/*");
+		props.put("equinox.http.multipartSupported", Boolean.TRUE);
+		props.put("equinox.http.whiteboard.servlet.multipart.streaming", Boolean.TRUE);
+		registrations.add(getBundleContext().registerService(Servlet.class, servlet, props));
+
+		Map<String, List<Object>> map = new HashMap<>();
+
+		map.put("file", Arrays.<Object>asList(getClass().getResource("resource1.txt")));
+
+		Map<String, List<String>> result = requestAdvisor.upload("Servlet16/do", map);
+
+		assertEquals("200", result.get("responseCode").get(0));
+		assertEquals("-1|IllegalStateException", result.get("responseBody").get(0));
+	}
+
+	@Test
+	public void test_Servlet16_fileuploadStreamingMaxRequestSize() throws Exception {
+		Servlet servlet = new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+				throws IOException, ServletException {
+
+				PrintWriter writer = resp.getWriter();
+
+				try {
+					for (Part part : req.getParts()) {
+						writer.write(part.getName() + "|");
+					}
+					writer.write("complete");
+				} catch (IllegalStateException e) {
+					writer.write("IllegalStateException");
+				}
+			}
+		};
+
+		Dictionary<String, Object> props = new Hashtable<>();
+		props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME, "S16");
+		props.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN, "/Servlet16/*");
+		props.put("equinox.http.multipartSupported", Boolean.TRUE);
+		props.put("equinox.http.whiteboard.servlet.multipart.streaming", Boolean.TRUE);
+		// Note the actual uploaded file size is 25bytes
+		props.put("equinox.http.whiteboard.servlet.multipart.maxRequestSize", 24L);
+		registrations.add(getBundleContext().registerService(Servlet.class, servlet, props));
+
+		Map<String, List<Object>> map = new HashMap<>();
+
+		map.put("file", Arrays.<Object>asList(getClass().getResource("resource1.txt")));
+
+		Map<String, List<String>> result = requestAdvisor.upload("Servlet16/do", map);
+
+		assertEquals("200", result.get("responseCode").get(0));
+		assertEquals("IllegalStateException", result.get("responseBody").get(0));
+	}
+
 	@Test
 	public void test_Servlet16_fileuploadWithLocationMaxFileSize() throws Exception {
 		Servlet servlet = new HttpServlet() {
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.http.servlet;
+
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Http Whiteboard runtime registers a service of this type when request
+ * metrics are enabled with the <code>equinox.http.whiteboard.metrics</code>
+ * property, either as an init parameter of the proxy servlet or as a
+ * framework property. The service has the same properties as the
+ * <code>HttpServiceRuntime</code> service.
+ *
+ * @since 1.8
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+@ProviderType
+public interface HttpRequestMetrics {
+
+	/**
+	 * Returns the request metrics of every servlet, resource, error page and
+	 * filter currently registered with the runtime.
+	 *
+	 * @return a snapshot of the request metrics, never <code>null</code>
+	 */
+	public RequestMetricsDTO[] getRequestMetricsDTOs();
+
+}
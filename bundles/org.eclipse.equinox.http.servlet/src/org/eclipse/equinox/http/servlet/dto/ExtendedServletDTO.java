@@ -22,5 +22,13 @@ import org.osgi.service.http.runtime.dto.ServletDTO;
  */
 @Deprecated
 public class ExtendedServletDTO extends ServletDTO {
-	// deprecated
+
+	/**
+	 * The request metrics of the servlet, <code>null</code> unless request
+	 * metrics are enabled.
+	 *
+	 * @since 1.8
+	 */
+	public RequestMetricsDTO requestMetrics;
+
 }
\ No newline at end of file
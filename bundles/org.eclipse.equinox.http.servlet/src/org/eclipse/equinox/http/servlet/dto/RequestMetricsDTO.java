@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.http.servlet.dto;
+
+import org.osgi.dto.DTO;
+
+/**
+ * The requests handled by a servlet, resource, error page or filter since it
+ * was registered, as recorded when request metrics are enabled.
+ * <p>
+ * The time taken by a filter includes the time taken by the rest of the
+ * filter chain, including the servlet. A call which starts asynchronous
+ * processing completes with it. All the times are in microseconds.
+ * </p>
+ * @since 1.8
+ */
+public class RequestMetricsDTO extends DTO {
+
+	/**
+	 * The service id of the servlet, resource, error page or filter.
+	 */
+	public long serviceId;
+
+	/**
+	 * The service id of the servlet context of the registration.
+	 */
+	public long servletContextId;
+
+	/**
+	 * The name of the servlet, error page or filter. The name of a resource
+	 * is made of its class name and prefix.
+	 */
+	public String name;
+
+	/**
+	 * The number of completed calls, including the failed ones.
+	 */
+	public long requestCount;
+
+	/**
+	 * The number of calls which threw an exception or set a status code of 500
+	 * or more.
+	 */
+	public long errorCount;
+
+	/**
+	 * The number of calls in progress.
+	 */
+	public long inFlightCount;
+
+	/**
+	 * The total time taken by the completed calls.
+	 */
+	public long totalTime;
+
+	/**
+	 * The time taken by the longest call.
+	 */
+	public long maxTime;
+
+	/**
+	 * The inclusive upper bounds of the buckets of the latency histogram.
+	 */
+	public long[] latencyBounds;
+
+	/**
+	 * The number of calls in each bucket of the latency histogram. It has one
+	 * more element than <code>latencyBounds</code>, which counts the calls
+	 * taking longer than the last bound.
+	 */
+	public long[] latencyCounts;
+
+}
@@ -26,10 +26,13 @@ import java.util.Map.Entry;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import javax.servlet.*;
 import javax.servlet.Filter;
 import javax.servlet.http.*;
+import org.eclipse.equinox.http.servlet.HttpRequestMetrics;
 import org.eclipse.equinox.http.servlet.context.ContextPathCustomizer;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
 import org.eclipse.equinox.http.servlet.internal.context.*;
 import org.eclipse.equinox.http.servlet.internal.dto.ExtendedErrorPageDTO;
 import org.eclipse.equinox.http.servlet.internal.dto.ExtendedFailedServletContextDTO;
@@ -78,6 +81,21 @@ public class HttpServiceRuntimeImpl
 		this.targetFilter = "(" + Activator.UNIQUE_SERVICE_ID + "=" + this.attributes.get(Activator.UNIQUE_SERVICE_ID) + ")";  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		this.httpSessionTracker = new HttpSessionTracker(this);
 		this.invalidatorReg = trackingContext.registerService(HttpSessionInvalidator.class, this.httpSessionTracker, attributes);
+		this.requestMetricsEnabled = BooleanPlus.from(
+			this.attributes.get(Const.EQUINOX_HTTP_METRICS),
+			Boolean.parseBoolean(consumingContext.getProperty(Const.EQUINOX_HTTP_METRICS)));
+
+		if (requestMetricsEnabled) {
+			this.requestMetricsReg = trackingContext.registerService(HttpRequestMetrics.class, new HttpRequestMetrics() {
+				@Override
+				public RequestMetricsDTO[] getRequestMetricsDTOs() {
+					return HttpServiceRuntimeImpl.this.getRequestMetricsDTOs();
+				}
+			}, attributes);
+		}
+		else {
+			this.requestMetricsReg = null;
+		}
 
 		loggerFactoryTracker = new ServiceTracker<>(consumingContext, LoggerFactory.class, new ServiceTrackerCustomizer<LoggerFactory, Logger>() {
 			@Override
@@ -137,6 +155,7 @@ public class HttpServiceRuntimeImpl
 				trackingContext, consumingContext, serviceReference, parentServletContext, this);
 
 			controllerMap.put(serviceReference, contextController);
+			routesChanged();
 
 			result.set(contextController);
 		}
@@ -226,6 +245,10 @@ public class HttpServiceRuntimeImpl
 	public synchronized void destroy() {
 		invalidatorReg.unregister();
 
+		if (requestMetricsReg != null) {
+			requestMetricsReg.unregister();
+		}
+
 		try {
 			defaultContextReg.unregister();
 		}
@@ -238,6 +261,7 @@ public class HttpServiceRuntimeImpl
 		preprocessorServiceTracker.close();
 
 		controllerMap.clear();
+		routesChanged();
 		preprocessorMap.clear();
 		registeredObjects.clear();
 		legacyContextMap.clear();
@@ -259,6 +283,46 @@ public class HttpServiceRuntimeImpl
 	public DispatchTargets getDispatchTargets(
 		String pathString, RequestInfoDTO requestInfoDTO) {
 
+		if (requestInfoDTO != null) {
+			// the request info lists every registration looked at
+			return resolveDispatchTargets(pathString, requestInfoDTO);
+		}
+
+		int index = pathString.indexOf('?');
+		String key = (index == -1) ? pathString : pathString.substring(0, index);
+		long version = routesVersion.get();
+
+		Route route = routes.get(key);
+
+		if ((route == null) || (route.version != version)) {
+			DispatchTargets dispatchTargets = resolveDispatchTargets(
+				pathString, null);
+
+			// paths without targets are not cached, any path can be requested
+			if (dispatchTargets != null) {
+				routes.put(key, new Route(version, dispatchTargets.copy(null)));
+			}
+
+			return dispatchTargets;
+		}
+
+		return route.dispatchTargets.copy(
+			(index == -1) ? null : pathString.substring(index + 1));
+	}
+
+	/**
+	 * Invalidates the dispatch targets cached for request paths. Must be called
+	 * after a context controller, or an endpoint or a filter of one, is added
+	 * or removed.
+	 */
+	public void routesChanged() {
+		routesVersion.incrementAndGet();
+		routes.clear();
+	}
+
+	private DispatchTargets resolveDispatchTargets(
+		String pathString, RequestInfoDTO requestInfoDTO) {
+
 		Path path = new Path(pathString);
 
 		String queryString = path.getQueryString();
@@ -358,6 +422,7 @@ public class HttpServiceRuntimeImpl
 			String[] serviceTypes = (String[]) serviceDTO.properties.get(Constants.OBJECTCLASS);
 			for (String type : serviceTypes) {
 				if (HttpServiceRuntime.class.getName().equals(type)) {
+					addRuntimeAttributes(serviceDTO);
 					return serviceDTO;
 				}
 			}
@@ -365,6 +430,29 @@ public class HttpServiceRuntimeImpl
 		return null;
 	}
 
+	/*
+	 * Adds the current state of the server, such as the use of its threads, as
+	 * published by the servlet container.
+	 */
+	private void addRuntimeAttributes(ServiceReferenceDTO serviceDTO) {
+		Object runtimeAttributes = parentServletContext.getAttribute(
+			Const.EQUINOX_HTTP_RUNTIME_ATTRIBUTES);
+
+		if (runtimeAttributes instanceof Supplier) {
+			runtimeAttributes = ((Supplier<?>)runtimeAttributes).get();
+		}
+
+		if (runtimeAttributes instanceof Map) {
+			Map<String, Object> properties = new HashMap<>(serviceDTO.properties);
+
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)runtimeAttributes).entrySet()) {
+				properties.put(String.valueOf(entry.getKey()), entry.getValue());
+			}
+
+			serviceDTO.properties = properties;
+		}
+	}
+
 	public void debug(String message) {
 		Logger logger = loggerFactoryTracker.getService();
 		if (logger == null) {
@@ -455,6 +543,7 @@ public class HttpServiceRuntimeImpl
 			}
 			failedServletContextDTOs.remove(serviceReference);
 			controllerMap.remove(serviceReference);
+			routesChanged();
 			trackingContext.ungetService(serviceReference);
 		}
 		finally {
@@ -492,6 +581,20 @@ public class HttpServiceRuntimeImpl
 		return null;
 	}
 
+	public boolean isRequestMetricsEnabled() {
+		return requestMetricsEnabled;
+	}
+
+	RequestMetricsDTO[] getRequestMetricsDTOs() {
+		List<RequestMetricsDTO> requestMetricsDTOs = new ArrayList<>();
+
+		for (ContextController contextController : controllerMap.values()) {
+			contextController.collectRequestMetricsDTOs(requestMetricsDTOs);
+		}
+
+		return requestMetricsDTOs.toArray(new RequestMetricsDTO[0]);
+	}
+
 	public Collection<ContextController> getContextControllers() {
 		return controllerMap.values();
 	}
@@ -1291,6 +1394,9 @@ public class HttpServiceRuntimeImpl
 		}
 	}
 
+	// the most request paths whose dispatch targets are cached
+	private static final int MAX_ROUTES = 1000;
+
 	private final Map<String, Object> attributes;
 	private final String targetFilter;
 	final ServiceRegistration<ServletContextHelper> defaultContextReg;
@@ -1341,12 +1447,49 @@ public class HttpServiceRuntimeImpl
 	private final ContextPathCustomizerHolder contextPathCustomizerHolder;
 	private final HttpSessionTracker httpSessionTracker;
 	private final ServiceRegistration<HttpSessionInvalidator> invalidatorReg;
+	private final boolean requestMetricsEnabled;
+	private final ServiceRegistration<HttpRequestMetrics> requestMetricsReg;
 	private final AtomicReference<ServiceRegistration<HttpServiceRuntime>> hsrRegistration = new AtomicReference<>();
 
 	private final AtomicLong serviceChangecount = new AtomicLong();
+	// dispatch targets by request path, without the query string, least recently used first
+	private final Map<String, Route> routes = Collections.synchronizedMap(new RouteCache());
+	private final AtomicLong routesVersion = new AtomicLong();
 	private final ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
 	private final Semaphore semaphore = new Semaphore(1);
 
+	/*
+	 * The dispatch targets of a request path, as resolved when routesVersion
+	 * was version.
+	 */
+	private static class Route {
+		final long version;
+		final DispatchTargets dispatchTargets;
+
+		Route(long version, DispatchTargets dispatchTargets) {
+			this.version = version;
+			this.dispatchTargets = dispatchTargets;
+		}
+	}
+
+	/*
+	 * Routes in access order, dropping the least recently used one when more
+	 * than MAX_ROUTES paths are cached.
+	 */
+	private static class RouteCache extends LinkedHashMap<String, Route> {
+
+		private static final long serialVersionUID = 1L;
+
+		RouteCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, Route> eldest) {
+			return size() > MAX_ROUTES;
+		}
+	}
+
 	class ChangeCountTimer implements Callable<Void> {
 		@Override
 		public Void call() {
@@ -21,12 +21,14 @@ import java.net.URISyntaxException;
 import java.security.AccessController;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.servlet.*;
 import javax.servlet.Filter;
 import javax.servlet.http.*;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
 import org.eclipse.equinox.http.servlet.internal.HttpServiceRuntimeImpl;
 import org.eclipse.equinox.http.servlet.internal.customizer.*;
 import org.eclipse.equinox.http.servlet.internal.dto.ExtendedErrorPageDTO;
@@ -167,6 +169,7 @@ public class ContextController {
 		recordErrorPageShadowing(errorPageRegistration);
 
 		endpointRegistrations.add(errorPageRegistration);
+		registrationsChanged();
 
 		return errorPageRegistration;
 	}
@@ -280,6 +283,7 @@ public class ContextController {
 		newRegistration.init(filterConfig);
 
 		filterRegistrations.add(newRegistration);
+		registrationsChanged();
 		return newRegistration;
 	}
 
@@ -384,8 +388,13 @@ public class ContextController {
 		Bundle bundle = resourceRef.getBundle();
 		ServletContextHelper curServletContextHelper = getServletContextHelper(
 			bundle);
+		boolean precompressed = BooleanPlus.from(
+			resourceRef.getProperty(Const.EQUINOX_HTTP_RESOURCE_PRECOMPRESSED), false);
+		boolean compress = BooleanPlus.from(
+			resourceRef.getProperty(Const.EQUINOX_HTTP_RESOURCE_COMPRESS), false);
 		Servlet servlet = new ResourceServlet(
-			prefix, curServletContextHelper, AccessController.getContext());
+			prefix, curServletContextHelper, AccessController.getContext(), bundle,
+			precompressed, compress);
 
 		ResourceDTO resourceDTO = new ResourceDTO();
 
@@ -415,6 +424,7 @@ public class ContextController {
 		recordEndpointShadowing(resourceRegistration);
 
 		endpointRegistrations.add(resourceRegistration);
+		registrationsChanged();
 
 		return resourceRegistration;
 	}
@@ -475,9 +485,11 @@ public class ContextController {
 
 		ServletContext servletContext = createServletContext(
 			servletHolder.getBundle(), curServletContextHelper);
+		boolean multipartStreaming = BooleanPlus.from(
+			servletRef.getProperty(Const.EQUINOX_HTTP_MULTIPART_STREAMING), false);
 		ServletRegistration servletRegistration = new ServletRegistration(
 			servletHolder, servletDTO, curServletContextHelper, this,
-			servletContext);
+			servletContext, multipartStreaming);
 		ServletConfig servletConfig = new ServletConfigImpl(
 			servletDTO.name, servletDTO.initParams, servletContext);
 
@@ -493,6 +505,7 @@ public class ContextController {
 		recordEndpointShadowing(servletRegistration);
 
 		endpointRegistrations.add(servletRegistration);
+		registrationsChanged();
 
 		return servletRegistration;
 	}
@@ -595,6 +608,7 @@ public class ContextController {
 
 		endpointRegistrations.clear();
 		filterRegistrations.clear();
+		registrationsChanged();
 		listenerRegistrations.clear();
 		eventListeners.clear();
 		proxyContext.destroy();
@@ -712,14 +726,11 @@ public class ContextController {
 
 		checkShutdown();
 
-		EndpointRegistration<?> endpointRegistration = null;
-		for (EndpointRegistration<?> curEndpointRegistration : endpointRegistrations) {
-			if (curEndpointRegistration.match(servletName, servletPath, pathInfo, extension, match) != null) {
-				endpointRegistration = curEndpointRegistration;
+		DispatchTable dispatchTable = getDispatchTable();
 
-				break;
-			}
-		}
+		EndpointRegistration<?> endpointRegistration =
+			dispatchTable.getEndpointRegistration(
+				servletName, servletPath, pathInfo, extension, match);
 
 		if (endpointRegistration == null) {
 			return null;
@@ -733,7 +744,7 @@ public class ContextController {
 		addEnpointRegistrationsToRequestInfo(
 			endpointRegistration, requestInfoDTO);
 
-		if (filterRegistrations.isEmpty()) {
+		if (!dispatchTable.hasFilters()) {
 			return new DispatchTargets(
 				this, endpointRegistration, servletName, requestURI, servletPath,
 				pathInfo, queryString);
@@ -750,9 +761,9 @@ public class ContextController {
 		List<FilterRegistration> matchingFilterRegistrations =
 			new ArrayList<>();
 
-		collectFilters(
+		dispatchTable.collectFilters(
 			matchingFilterRegistrations, endpointRegistration.getName(), requestURI,
-			servletPath, pathInfo, extension);
+			extension);
 
 		addFilterRegistrationsToRequestInfo(
 			matchingFilterRegistrations, requestInfoDTO);
@@ -762,18 +773,27 @@ public class ContextController {
 			requestURI, servletPath, pathInfo, queryString);
 	}
 
-	private void collectFilters(
-		List<FilterRegistration> matchingFilterRegistrations,
-		String servletName, String requestURI, String servletPath, String pathInfo, String extension) {
+	/*
+	 * Returns the dispatch table of the current registrations, building it
+	 * again if they changed since it was built.
+	 */
+	private DispatchTable getDispatchTable() {
+		int version = registrationsVersion.get();
+		DispatchTable table = dispatchTable;
 
-		for (FilterRegistration filterRegistration : filterRegistrations) {
-			if ((filterRegistration.match(
-					servletName, requestURI, extension, null) != null) &&
-				!matchingFilterRegistrations.contains(filterRegistration)) {
+		if ((table == null) || (table.getVersion() != version)) {
+			table = new DispatchTable(
+				version, endpointRegistrations, filterRegistrations);
 
-				matchingFilterRegistrations.add(filterRegistration);
-			}
+			dispatchTable = table;
 		}
+
+		return table;
+	}
+
+	private void registrationsChanged() {
+		registrationsVersion.incrementAndGet();
+		httpServiceRuntime.routesChanged();
 	}
 
 	public Map<String, HttpSessionAdaptor> getActiveSessions() {
@@ -784,6 +804,12 @@ public class ContextController {
 		return endpointRegistrations;
 	}
 
+	public void removeEndpointRegistration(EndpointRegistration<?> endpointRegistration) {
+		if (endpointRegistrations.remove(endpointRegistration)) {
+			registrationsChanged();
+		}
+	}
+
 	public EventListeners getEventListeners() {
 		return eventListeners;
 	}
@@ -792,6 +818,12 @@ public class ContextController {
 		return filterRegistrations;
 	}
 
+	public void removeFilterRegistration(FilterRegistration filterRegistration) {
+		if (filterRegistrations.remove(filterRegistration)) {
+			registrationsChanged();
+		}
+	}
+
 	public String getFullContextPath() {
 		if (fullContextPath != null) {
 			return fullContextPath;
@@ -1111,7 +1143,7 @@ public class ContextController {
 			}
 			else {
 				if (!httpServiceRuntime.isFailedServletDTO(endpointRegistration.getServiceReference())) {
-					servletDTOs.add(DTOUtil.clone((ServletDTO)endpointRegistration.getD()));
+					servletDTOs.add(DTOUtil.clone((ServletDTO)endpointRegistration.getD(), endpointRegistration.getRequestMetricsDTO()));
 				}
 			}
 		}
@@ -1133,6 +1165,26 @@ public class ContextController {
 		servletContextDTO.filterDTOs = filterDTOs.toArray(new FilterDTO[0]);
 	}
 
+	public synchronized void collectRequestMetricsDTOs(
+		List<RequestMetricsDTO> requestMetricsDTOs) {
+
+		for (EndpointRegistration<?> endpointRegistration : endpointRegistrations) {
+			RequestMetricsDTO requestMetricsDTO = endpointRegistration.getRequestMetricsDTO();
+
+			if (requestMetricsDTO != null) {
+				requestMetricsDTOs.add(requestMetricsDTO);
+			}
+		}
+
+		for (FilterRegistration filterRegistration : filterRegistrations) {
+			RequestMetricsDTO requestMetricsDTO = filterRegistration.getRequestMetricsDTO();
+
+			if (requestMetricsDTO != null) {
+				requestMetricsDTOs.add(requestMetricsDTO);
+			}
+		}
+	}
+
 	private void collectListenerDTOs(
 		ServletContextDTO servletContextDTO) {
 
@@ -1459,6 +1511,9 @@ public class ContextController {
 	private final Set<EndpointRegistration<?>> endpointRegistrations = new ConcurrentSkipListSet<>();
 	private final EventListeners eventListeners = new EventListeners();
 	private final Set<FilterRegistration> filterRegistrations = new ConcurrentSkipListSet<>();
+	// incremented after every change to the endpoint or filter registrations
+	private final AtomicInteger registrationsVersion = new AtomicInteger();
+	private volatile DispatchTable dispatchTable;
 	private final ConcurrentMap<String, HttpSessionAdaptor> activeSessions = new ConcurrentHashMap<>();
 
 	private final HttpServiceRuntimeImpl httpServiceRuntime;
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.http.servlet.internal.context;
+
+import java.util.*;
+import org.eclipse.equinox.http.servlet.internal.registration.*;
+import org.eclipse.equinox.http.servlet.internal.servlet.Match;
+import org.eclipse.equinox.http.servlet.internal.util.Const;
+
+/**
+ * An immutable snapshot of the endpoint and filter registrations of a context
+ * controller, indexed by the servlet paths, request URIs, extensions and names
+ * that their patterns can match. A lookup only calls <code>match</code> on the
+ * registrations that can match, in the order of the registrations, so it returns
+ * the same registrations as trying every registration in turn.
+ * <p>
+ * The table is built again whenever the registrations of the context controller
+ * change; <code>version</code> tells which change it was built after.
+ * </p>
+ */
+class DispatchTable {
+
+	DispatchTable(
+		int version, Collection<EndpointRegistration<?>> endpointRegistrations,
+		Collection<FilterRegistration> filterRegistrations) {
+
+		this.version = version;
+
+		endpoints = new ArrayList<>(endpointRegistrations);
+
+		for (EndpointRegistration<?> endpointRegistration : endpoints) {
+			indexEndpoint(endpointRegistration);
+		}
+
+		filters = filterRegistrations.toArray(
+			new FilterRegistration[filterRegistrations.size()]);
+
+		for (int i = 0; i < filters.length; i++) {
+			indexFilter(filters[i], i);
+		}
+	}
+
+	int getVersion() {
+		return version;
+	}
+
+	boolean hasFilters() {
+		return filters.length > 0;
+	}
+
+	/**
+	 * Returns the first endpoint registration matching the request, or
+	 * <code>null</code> if none does.
+	 */
+	EndpointRegistration<?> getEndpointRegistration(
+		String servletName, String servletPath, String pathInfo,
+		String extension, Match match) {
+
+		for (EndpointRegistration<?> endpointRegistration : getCandidates(
+				servletName, servletPath, extension, match)) {
+
+			if (endpointRegistration.match(
+					servletName, servletPath, pathInfo, extension, match) != null) {
+
+				return endpointRegistration;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Adds the filter registrations matching the request, in the order they
+	 * must be called.
+	 */
+	void collectFilters(
+		List<FilterRegistration> matchingFilterRegistrations,
+		String servletName, String requestURI, String extension) {
+
+		BitSet candidates = (BitSet)alwaysFilters.clone();
+
+		if (servletName != null) {
+			or(candidates, filtersByName.get(servletName));
+		}
+
+		if ((requestURI != null) && !requestURI.isEmpty()) {
+			or(candidates, filtersByPath.get(requestURI));
+
+			// every "/*" pattern whose prefix is a parent of the request URI
+			or(candidates, filtersByPrefix.get(requestURI));
+
+			for (int i = requestURI.indexOf('/'); i != -1; i = requestURI.indexOf('/', i + 1)) {
+				or(candidates, filtersByPrefix.get(requestURI.substring(0, i)));
+			}
+
+			if (extension != null) {
+				or(candidates, filtersByExtension.get(extension));
+			}
+		}
+
+		for (int i = candidates.nextSetBit(0); i != -1; i = candidates.nextSetBit(i + 1)) {
+			if (filters[i].match(servletName, requestURI, extension, null) != null) {
+				matchingFilterRegistrations.add(filters[i]);
+			}
+		}
+	}
+
+	private List<EndpointRegistration<?>> getCandidates(
+		String servletName, String servletPath, String extension, Match match) {
+
+		List<EndpointRegistration<?>> candidates;
+
+		if (match == Match.ERROR) {
+			candidates = errorPages;
+		}
+		else if (servletName != null) {
+			candidates = endpointsByName.get(servletName);
+		}
+		else if (match == Match.EXACT) {
+			candidates = endpointsByPath.get(servletPath);
+		}
+		else if (match == Match.EXTENSION) {
+			if ((extension != null) && (extension.indexOf('.') != -1)) {
+				// not an extension of the last segment, keyed differently
+				return endpoints;
+			}
+
+			Map<String, List<EndpointRegistration<?>>> byExtension =
+				endpointsByExtension.get(servletPath);
+
+			candidates = (byExtension == null) ? null : byExtension.get(String.valueOf(extension));
+		}
+		else if (match == Match.REGEX) {
+			candidates = endpointsByPrefix.get(servletPath);
+		}
+		else if (match == Match.DEFAULT_SERVLET) {
+			candidates = defaultServlets;
+		}
+		else if (match == Match.CONTEXT_ROOT) {
+			candidates = contextRoots;
+		}
+		else {
+			return endpoints;
+		}
+
+		return (candidates == null) ? Collections.<EndpointRegistration<?>> emptyList() : candidates;
+	}
+
+	/*
+	 * Files the endpoint registration under every key that one of its
+	 * patterns can match, following MatchableRegistration.doMatch.
+	 */
+	private void indexEndpoint(EndpointRegistration<?> endpointRegistration) {
+		if (endpointRegistration instanceof ErrorPageRegistration) {
+			errorPages.add(endpointRegistration);
+		}
+
+		String name = endpointRegistration.getName();
+
+		if (name != null) {
+			add(endpointsByName, name, endpointRegistration);
+		}
+
+		String[] patterns = endpointRegistration.getPatterns();
+
+		if (patterns == null) {
+			return;
+		}
+
+		for (String pattern : patterns) {
+			add(endpointsByPath, pattern, endpointRegistration);
+
+			if (Const.BLANK.equals(pattern)) {
+				addOnce(contextRoots, endpointRegistration);
+			}
+			else if (Const.SLASH.equals(pattern)) {
+				addOnce(defaultServlets, endpointRegistration);
+			}
+
+			if (pattern.indexOf(Const.SLASH_STAR_DOT) == 0) {
+				pattern = pattern.substring(1);
+			}
+
+			if (pattern.startsWith(Const.SLASH) && pattern.endsWith(Const.SLASH_STAR)) {
+				add(endpointsByPrefix, pattern.substring(0, pattern.length() - 2), endpointRegistration);
+			}
+
+			int index = pattern.lastIndexOf(Const.STAR_DOT);
+
+			if (index != -1) {
+				String prefix = (index > 0) ? pattern.substring(0, index - 1) : Const.BLANK;
+
+				Map<String, List<EndpointRegistration<?>>> byExtension =
+					endpointsByExtension.get(prefix);
+
+				if (byExtension == null) {
+					byExtension = new HashMap<>();
+					endpointsByExtension.put(prefix, byExtension);
+				}
+
+				add(byExtension, pattern.substring(pattern.lastIndexOf('.') + 1), endpointRegistration);
+			}
+		}
+	}
+
+	/*
+	 * Files the filter registration under every key that one of its patterns
+	 * can match, following FilterRegistration.doPatternMatch.
+	 */
+	private void indexFilter(FilterRegistration filterRegistration, int index) {
+		String[] servletNames = filterRegistration.getD().servletNames;
+
+		if (servletNames != null) {
+			for (String servletName : servletNames) {
+				set(filtersByName, servletName, index);
+			}
+		}
+
+		String[] regexs = filterRegistration.getD().regexs;
+
+		if ((regexs != null) && (regexs.length > 0)) {
+			alwaysFilters.set(index);
+		}
+
+		for (String pattern : filterRegistration.getD().patterns) {
+			if (pattern.indexOf(Const.SLASH_STAR_DOT) == 0) {
+				pattern = pattern.substring(1);
+			}
+
+			int extensionMatchIndex = pattern.indexOf(Const.SLASH_STAR_DOT);
+
+			if ((extensionMatchIndex >= 0) && (pattern.lastIndexOf('/') == extensionMatchIndex)) {
+				pattern = pattern.substring(0, extensionMatchIndex + 2);
+			}
+
+			if (pattern.isEmpty()) {
+				set(filtersByPath, Const.SLASH, index);
+			}
+			else if (pattern.charAt(0) == '/') {
+				if (pattern.endsWith(Const.SLASH_STAR)) {
+					set(filtersByPrefix, pattern.substring(0, pattern.length() - 2), index);
+				}
+				else {
+					set(filtersByPath, pattern, index);
+				}
+			}
+			else if ((pattern.charAt(0) == '*') && (pattern.length() >= 2)) {
+				set(filtersByExtension, pattern.substring(2), index);
+			}
+			else if (pattern.charAt(0) == '*') {
+				// let match report the malformed pattern
+				alwaysFilters.set(index);
+			}
+		}
+	}
+
+	private static void add(
+		Map<String, List<EndpointRegistration<?>>> map, String key,
+		EndpointRegistration<?> endpointRegistration) {
+
+		List<EndpointRegistration<?>> list = map.get(key);
+
+		if (list == null) {
+			list = new ArrayList<>(1);
+			map.put(key, list);
+		}
+
+		addOnce(list, endpointRegistration);
+	}
+
+	private static void addOnce(
+		List<EndpointRegistration<?>> list,
+		EndpointRegistration<?> endpointRegistration) {
+
+		// registrations are added in order, a repeat can only be the last one
+		if (list.isEmpty() || (list.get(list.size() - 1) != endpointRegistration)) {
+			list.add(endpointRegistration);
+		}
+	}
+
+	private static void set(Map<String, BitSet> map, String key, int index) {
+		BitSet bitSet = map.get(key);
+
+		if (bitSet == null) {
+			bitSet = new BitSet();
+			map.put(key, bitSet);
+		}
+
+		bitSet.set(index);
+	}
+
+	private static void or(BitSet candidates, BitSet bitSet) {
+		if (bitSet != null) {
+			candidates.or(bitSet);
+		}
+	}
+
+	private final int version;
+	private final List<EndpointRegistration<?>> endpoints;
+	private final List<EndpointRegistration<?>> errorPages = new ArrayList<>();
+	private final List<EndpointRegistration<?>> contextRoots = new ArrayList<>();
+	private final List<EndpointRegistration<?>> defaultServlets = new ArrayList<>();
+	private final Map<String, List<EndpointRegistration<?>>> endpointsByName = new HashMap<>();
+	// exact patterns, by servlet path
+	private final Map<String, List<EndpointRegistration<?>>> endpointsByPath = new HashMap<>();
+	// "/*" patterns, by the servlet path they match
+	private final Map<String, List<EndpointRegistration<?>>> endpointsByPrefix = new HashMap<>();
+	// "*." patterns, by servlet path, then extension
+	private final Map<String, Map<String, List<EndpointRegistration<?>>>> endpointsByExtension = new HashMap<>();
+
+	private final FilterRegistration[] filters;
+	// filters which may match any request
+	private final BitSet alwaysFilters = new BitSet();
+	private final Map<String, BitSet> filtersByName = new HashMap<>();
+	private final Map<String, BitSet> filtersByPath = new HashMap<>();
+	private final Map<String, BitSet> filtersByPrefix = new HashMap<>();
+	private final Map<String, BitSet> filtersByExtension = new HashMap<>();
+
+}
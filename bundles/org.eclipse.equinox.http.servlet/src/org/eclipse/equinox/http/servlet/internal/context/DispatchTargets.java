@@ -60,6 +60,23 @@ public class DispatchTargets {
 		this.queryString = queryString;
 	}
 
+	/**
+	 * Returns new dispatch targets to the same endpoint and filters for
+	 * another request with the given query string.
+	 */
+	public DispatchTargets copy(String newQueryString) {
+		List<FilterRegistration> filterRegistrations = matchingFilterRegistrations;
+
+		if (!filterRegistrations.isEmpty()) {
+			// the filters get sorted for each dispatch
+			filterRegistrations = new ArrayList<>(filterRegistrations);
+		}
+
+		return new DispatchTargets(
+			contextController, endpointRegistration, filterRegistrations,
+			servletName, requestURI, servletPath, pathInfo, newQueryString);
+	}
+
 	public void addRequestParameters(HttpServletRequest request) {
 		currentRequest = request;
 	}
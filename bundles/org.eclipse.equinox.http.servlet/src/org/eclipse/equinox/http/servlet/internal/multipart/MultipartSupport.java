@@ -15,13 +15,13 @@
 package org.eclipse.equinox.http.servlet.internal.multipart;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Collection;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
 
 public interface MultipartSupport {
 
-	public List<Part> parseRequest(HttpServletRequest request) throws IOException, ServletException;
+	public Collection<Part> parseRequest(HttpServletRequest request) throws IOException, ServletException;
 
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import org.osgi.service.http.runtime.dto.ServletDTO;
 
 public interface MultipartSupportFactory {
 
-	MultipartSupport newInstance(ServletDTO servletDTO, ServletContext servletContext);
+	MultipartSupport newInstance(
+		ServletDTO servletDTO, ServletContext servletContext, boolean streaming);
 
 }
\ No newline at end of file
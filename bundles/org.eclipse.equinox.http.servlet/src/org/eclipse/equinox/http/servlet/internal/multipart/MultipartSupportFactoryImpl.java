@@ -23,8 +23,10 @@ public class MultipartSupportFactoryImpl
 	public static final Class<?> FAIL_EARLY = FileUploadException.class;
 
 	@Override
-	public MultipartSupport newInstance(ServletDTO servletDTO, ServletContext servletContext) {
-		return new MultipartSupportImpl(servletDTO, servletContext);
+	public MultipartSupport newInstance(
+		ServletDTO servletDTO, ServletContext servletContext, boolean streaming) {
+
+		return new MultipartSupportImpl(servletDTO, servletContext, streaming);
 	}
 
 }
\ No newline at end of file
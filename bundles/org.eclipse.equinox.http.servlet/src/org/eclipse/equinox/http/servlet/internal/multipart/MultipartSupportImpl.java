@@ -17,7 +17,7 @@ package org.eclipse.equinox.http.servlet.internal.multipart;
 import java.io.*;
 import java.security.AccessControlContext;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -32,8 +32,11 @@ import org.osgi.service.http.runtime.dto.ServletDTO;
 
 public class MultipartSupportImpl implements MultipartSupport {
 
-	public MultipartSupportImpl(ServletDTO servletDTO, ServletContext servletContext) {
+	public MultipartSupportImpl(
+		ServletDTO servletDTO, ServletContext servletContext, boolean streaming) {
+
 		this.servletDTO = servletDTO;
+		this.streaming = streaming;
 
 		// Must return non-null File. See Servlet 3.1 §4.8.1
 		File baseStorage = (File)servletContext.getAttribute(ServletContext.TEMPDIR);
@@ -52,6 +55,8 @@ public class MultipartSupportImpl implements MultipartSupport {
 
 		baseStorage.mkdirs();
 
+		this.baseStorage = baseStorage;
+
 		DiskFileItemFactory factory = new DiskFileItemFactory();
 
 		factory.setRepository(baseStorage);
@@ -80,7 +85,7 @@ public class MultipartSupportImpl implements MultipartSupport {
 	}
 
 	@Override
-	public List<Part> parseRequest(HttpServletRequest request) throws IOException, ServletException {
+	public Collection<Part> parseRequest(HttpServletRequest request) throws IOException, ServletException {
 		if (upload == null) {
 			throw new IllegalStateException("Servlet was not configured for multipart!"); //$NON-NLS-1$
 		}
@@ -93,23 +98,36 @@ public class MultipartSupportImpl implements MultipartSupport {
 			throw new ServletException("Not a multipart request!"); //$NON-NLS-1$
 		}
 
-		ArrayList<Part> parts = new ArrayList<>();
-
 		try {
+			if (streaming) {
+				return new MultipartSupportStreamingParts(
+					upload.getItemIterator(request), baseStorage);
+			}
+
+			ArrayList<Part> parts = new ArrayList<>();
+
 			for (Object item : upload.parseRequest(request)) {
 				DiskFileItem diskFileItem = (DiskFileItem)item;
 
 				parts.add(new MultipartSupportPart(diskFileItem));
 			}
+
+			return parts;
 		}
 		catch (FileUploadException fnfe) {
+			if (streaming &&
+				MultipartSupportStreamingParts.isSizeLimitExceeded(fnfe)) {
+
+				throw new IllegalStateException(fnfe.getMessage(), fnfe);
+			}
+
 			throw new IOException(fnfe);
 		}
-
-		return parts;
 	}
 
+	private final File baseStorage;
 	private final ServletDTO servletDTO;
+	private final boolean streaming;
 	private final ServletFileUpload upload;
 
 
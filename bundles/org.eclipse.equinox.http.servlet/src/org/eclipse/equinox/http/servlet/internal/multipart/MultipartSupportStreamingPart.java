@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.servlet.internal.multipart;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import javax.servlet.http.Part;
+import org.apache.commons.fileupload.FileItemHeaders;
+import org.apache.commons.fileupload.FileItemStream;
+
+/**
+ * A part whose body is read from the request stream. Its size is not known,
+ * {@link #getSize()} returns -1, and it is never stored: the body can only be
+ * read once, by {@link #getInputStream()} or by {@link #write(String)}, which
+ * copies it straight to its destination.
+ */
+public class MultipartSupportStreamingPart implements Part {
+
+	public MultipartSupportStreamingPart(
+		FileItemStream itemStream, File baseStorage) {
+
+		this.itemStream = itemStream;
+		this.baseStorage = baseStorage;
+		this.headers = itemStream.getHeaders();
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		synchronized (this) {
+			if (opened) {
+				throw new IllegalStateException(
+					"The body of the part " + getName() + " was already read"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+
+			opened = true;
+		}
+
+		return itemStream.openStream();
+	}
+
+	@Override
+	public String getContentType() {
+		return itemStream.getContentType();
+	}
+
+	@Override
+	public String getName() {
+		return itemStream.getFieldName();
+	}
+
+	@Override
+	public String getSubmittedFileName() {
+		return itemStream.getName();
+	}
+
+	@Override
+	public long getSize() {
+		return -1;
+	}
+
+	@Override
+	public void write(String fileName) throws IOException {
+		File file = new File(fileName);
+
+		if (!file.isAbsolute()) {
+			file = new File(baseStorage, fileName);
+		}
+
+		try (InputStream inputStream = getInputStream()) {
+			Files.copy(
+				inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@Override
+	public void delete() {
+		// nothing is stored
+	}
+
+	@Override
+	public String getHeader(String name) {
+		if (headers == null) {
+			return null;
+		}
+		return headers.getHeader(name);
+	}
+
+	@Override
+	public Collection<String> getHeaders(String name) {
+		if (headers == null) {
+			return Collections.emptyList();
+		}
+		return toList(headers.getHeaders(name));
+	}
+
+	@Override
+	public Collection<String> getHeaderNames() {
+		if (headers == null) {
+			return Collections.emptyList();
+		}
+		return toList(headers.getHeaderNames());
+	}
+
+	private static List<String> toList(Iterator<String> iterator) {
+		List<String> list = new ArrayList<>();
+		while (iterator.hasNext()) {
+			list.add(iterator.next());
+		}
+		return list;
+	}
+
+	private final File baseStorage;
+	private final FileItemHeaders headers;
+	private final FileItemStream itemStream;
+	private boolean opened;
+
+}
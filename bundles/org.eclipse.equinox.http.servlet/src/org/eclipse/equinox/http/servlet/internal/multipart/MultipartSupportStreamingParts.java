@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.http.servlet.internal.multipart;
+
+import java.io.*;
+import java.util.*;
+import javax.servlet.http.Part;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+
+/**
+ * The parts of a multipart request, read from the request stream as they are
+ * iterated over. Nothing is stored: the body of a part can only be read until
+ * the iteration moves to the next part, so the parts must be consumed in the
+ * order of the request. Iterating again returns the parts already seen, whose
+ * bodies are no longer available, then goes on reading the request.
+ * <p>
+ * A request or a part over its maximum size is reported by the iterators with
+ * an {@link IllegalStateException}, as
+ * {@link javax.servlet.http.HttpServletRequest#getParts()} does. Other errors
+ * reading the request are thrown as {@link UncheckedIOException}.
+ * </p>
+ */
+public class MultipartSupportStreamingParts extends AbstractCollection<Part> {
+
+	public MultipartSupportStreamingParts(
+		FileItemIterator itemIterator, File baseStorage) {
+
+		this.itemIterator = itemIterator;
+		this.baseStorage = baseStorage;
+	}
+
+	@Override
+	public Iterator<Part> iterator() {
+		return new Iterator<Part>() {
+
+			@Override
+			public boolean hasNext() {
+				return (index < parts.size()) || readNext();
+			}
+
+			@Override
+			public Part next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return parts.get(index++);
+			}
+
+			private int index;
+
+		};
+	}
+
+	/**
+	 * Reads the whole request; the bodies of the parts are skipped.
+	 */
+	@Override
+	public int size() {
+		while (readNext()) {
+			// skip to the end
+		}
+
+		return parts.size();
+	}
+
+	private boolean readNext() {
+		if (complete) {
+			return false;
+		}
+
+		try {
+			if (!itemIterator.hasNext()) {
+				complete = true;
+
+				return false;
+			}
+
+			parts.add(
+				new MultipartSupportStreamingPart(
+					itemIterator.next(), baseStorage));
+
+			return true;
+		}
+		catch (FileUploadException fue) {
+			complete = true;
+
+			if (isSizeLimitExceeded(fue)) {
+				throw new IllegalStateException(fue.getMessage(), fue);
+			}
+
+			throw new UncheckedIOException(new IOException(fue));
+		}
+		catch (IOException ioe) {
+			complete = true;
+
+			if (isSizeLimitExceeded(ioe)) {
+				throw new IllegalStateException(ioe.getCause().getMessage(), ioe.getCause());
+			}
+
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Tells if reading the request failed because the request or a part is over
+	 * its maximum size. The request stream reports these failures wrapped in an
+	 * IOException.
+	 */
+	static boolean isSizeLimitExceeded(Throwable t) {
+		if (t instanceof FileUploadBase.FileUploadIOException) {
+			t = t.getCause();
+		}
+
+		return (t instanceof FileUploadBase.SizeLimitExceededException) ||
+			(t instanceof FileUploadBase.FileSizeLimitExceededException);
+	}
+
+	private final File baseStorage;
+	private boolean complete;
+	private final FileItemIterator itemIterator;
+	private final List<Part> parts = new ArrayList<>();
+
+}
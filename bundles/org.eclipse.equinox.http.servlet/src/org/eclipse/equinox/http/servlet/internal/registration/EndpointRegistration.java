@@ -18,6 +18,7 @@ import java.io.IOException;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
 import org.eclipse.equinox.http.servlet.internal.context.ContextController;
 import org.eclipse.equinox.http.servlet.internal.context.ServiceHolder;
 import org.eclipse.equinox.http.servlet.internal.servlet.Match;
@@ -36,6 +37,7 @@ public abstract class EndpointRegistration<D extends DTO>
 	private final ServletContextHelper servletContextHelper; //The context used during the registration of the servlet
 	private final ContextController contextController;
 	private final ClassLoader classLoader;
+	private final RequestMetrics requestMetrics;
 
 	public EndpointRegistration(
 		ServiceHolder<Servlet> servletHolder, D d, ServletContextHelper servletContextHelper,
@@ -51,6 +53,7 @@ public abstract class EndpointRegistration<D extends DTO>
 		} else {
 			classLoader = servletHolder.getBundle().adapt(BundleWiring.class).getClassLoader();
 		}
+		requestMetrics = contextController.getHttpServiceRuntime().isRequestMetricsEnabled() ? new RequestMetrics() : null;
 		createContextAttributes();
 	}
 
@@ -60,7 +63,7 @@ public abstract class EndpointRegistration<D extends DTO>
 		try {
 			Thread.currentThread().setContextClassLoader(classLoader);
 
-			contextController.getEndpointRegistrations().remove(this);
+			contextController.removeEndpointRegistration(this);
 			contextController.getHttpServiceRuntime().getRegisteredObjects().remove(this.getT());
 			contextController.ungetServletContextHelper(servletHolder.getBundle());
 
@@ -153,13 +156,34 @@ public abstract class EndpointRegistration<D extends DTO>
 
 	//Delegate the handling of the request to the actual servlet
 	public void service(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+		// an asynchronous dispatch is measured with the call which started it
+		boolean measured = (requestMetrics != null) && (req.getDispatcherType() != DispatcherType.ASYNC);
+		long start = measured ? requestMetrics.begin() : 0;
+		boolean failed = true;
 		ClassLoader original = Thread.currentThread().getContextClassLoader();
 		try {
 			Thread.currentThread().setContextClassLoader(classLoader);
 			getT().service(req, resp);
+			failed = false;
 		} finally {
 			Thread.currentThread().setContextClassLoader(original);
+			if (measured) {
+				requestMetrics.end(start, req, resp, failed);
+			}
+		}
+	}
+
+	/**
+	 * Returns the request metrics of the endpoint, <code>null</code> unless
+	 * request metrics are enabled.
+	 */
+	public RequestMetricsDTO getRequestMetricsDTO() {
+		if (requestMetrics == null) {
+			return null;
 		}
+
+		return requestMetrics.getRequestMetricsDTO(
+			getServiceId(), contextController.getServiceId(), getName());
 	}
 
 	private void createContextAttributes() {
@@ -20,6 +20,7 @@ import java.util.regex.Pattern;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
 import org.eclipse.equinox.http.servlet.internal.context.ContextController;
 import org.eclipse.equinox.http.servlet.internal.context.ServiceHolder;
 import org.eclipse.equinox.http.servlet.internal.servlet.FilterChainImpl;
@@ -41,6 +42,7 @@ public class FilterRegistration
 	private final ContextController contextController;
 	private final boolean initDestoyWithContextController;
 	private final Pattern[] compiledRegexs;
+	private final RequestMetrics requestMetrics;
 
 	public FilterRegistration(
 		ServiceHolder<Filter> filterHolder, FilterDTO filterDTO, int priority,
@@ -51,6 +53,7 @@ public class FilterRegistration
 		this.priority = priority;
 		this.contextController = contextController;
 		this.compiledRegexs = getCompiledRegex(filterDTO);
+		this.requestMetrics = contextController.getHttpServiceRuntime().isRequestMetricsEnabled() ? new RequestMetrics() : null;
 		if (filterHolder.getLegacyTCCL() != null) {
 			// legacy filter registrations used the current TCCL at registration time
 			classLoader = filterHolder.getLegacyTCCL();
@@ -97,7 +100,7 @@ public class FilterRegistration
 		try {
 			Thread.currentThread().setContextClassLoader(classLoader);
 			contextController.getHttpServiceRuntime().getRegisteredObjects().remove(this.getT());
-			contextController.getFilterRegistrations().remove(this);
+			contextController.removeFilterRegistration(this);
 			contextController.ungetServletContextHelper(filterHolder.getBundle());
 			super.destroy();
 			getT().destroy();
@@ -120,14 +123,36 @@ public class FilterRegistration
 			FilterChain chain)
 		throws IOException, ServletException {
 
+		// an asynchronous dispatch is measured with the call which started it
+		boolean measured = (requestMetrics != null) && (request.getDispatcherType() != DispatcherType.ASYNC);
+		long start = measured ? requestMetrics.begin() : 0;
+		boolean failed = true;
 		ClassLoader original = Thread.currentThread().getContextClassLoader();
 		try {
 			Thread.currentThread().setContextClassLoader(classLoader);
 			getT().doFilter(request, response, chain);
+			failed = false;
 		}
 		finally {
 			Thread.currentThread().setContextClassLoader(original);
+			if (measured) {
+				requestMetrics.end(start, request, response, failed);
+			}
+		}
+	}
+
+	/**
+	 * Returns the request metrics of the filter, including the time taken by
+	 * the rest of the filter chain, <code>null</code> unless request metrics
+	 * are enabled.
+	 */
+	public RequestMetricsDTO getRequestMetricsDTO() {
+		if (requestMetrics == null) {
+			return null;
 		}
+
+		return requestMetrics.getRequestMetricsDTO(
+			getD().serviceId, contextController.getServiceId(), getD().name);
 	}
 
 	@Override
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.http.servlet.internal.registration;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
+
+/**
+ * Counts the calls to a servlet or filter and their latency. The counters
+ * are updated without locking; a snapshot taken while calls complete may be
+ * slightly inconsistent, for example the request count may not yet include
+ * a call counted in the histogram.
+ */
+public class RequestMetrics {
+
+	/**
+	 * Counts a call starting and returns the value to pass to
+	 * {@link #end(long, boolean)} when it completes.
+	 */
+	public long begin() {
+		inFlight.increment();
+
+		return System.nanoTime();
+	}
+
+	/**
+	 * Counts a call returning from a servlet or filter. A call which started
+	 * asynchronous processing is only counted once the processing completes,
+	 * or now if it already completed.
+	 *
+	 * @param failed whether the call threw an exception
+	 */
+	public void end(
+		long start, ServletRequest request, HttpServletResponse response,
+		boolean failed) {
+
+		if (!failed && request.isAsyncStarted()) {
+			try {
+				request.getAsyncContext().addListener(
+					new CompletionListener(start, response));
+
+				return;
+			}
+			catch (IllegalStateException ise) {
+				// another thread completed the processing since isAsyncStarted()
+			}
+		}
+
+		end(start, failed || (response.getStatus() >= 500));
+	}
+
+	public void end(long start, boolean error) {
+		long time = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+		inFlight.decrement();
+		requests.increment();
+
+		if (error) {
+			errors.increment();
+		}
+
+		totalTime.add(time);
+		maxTime.accumulate(time);
+
+		int bucket = Arrays.binarySearch(LATENCY_BOUNDS, time);
+
+		if (bucket < 0) {
+			bucket = -bucket - 1;
+		}
+
+		latencyCounts.incrementAndGet(bucket);
+	}
+
+	public RequestMetricsDTO getRequestMetricsDTO(
+		long serviceId, long servletContextId, String name) {
+
+		RequestMetricsDTO requestMetricsDTO = new RequestMetricsDTO();
+
+		requestMetricsDTO.serviceId = serviceId;
+		requestMetricsDTO.servletContextId = servletContextId;
+		requestMetricsDTO.name = name;
+		requestMetricsDTO.requestCount = requests.sum();
+		requestMetricsDTO.errorCount = errors.sum();
+		requestMetricsDTO.inFlightCount = inFlight.sum();
+		requestMetricsDTO.totalTime = totalTime.sum();
+		requestMetricsDTO.maxTime = maxTime.get();
+		requestMetricsDTO.latencyBounds = LATENCY_BOUNDS.clone();
+		requestMetricsDTO.latencyCounts = new long[latencyCounts.length()];
+
+		for (int i = 0; i < requestMetricsDTO.latencyCounts.length; i++) {
+			requestMetricsDTO.latencyCounts[i] = latencyCounts.get(i);
+		}
+
+		return requestMetricsDTO;
+	}
+
+	private class CompletionListener implements AsyncListener {
+
+		public CompletionListener(long start, HttpServletResponse response) {
+			this.start = start;
+			this.response = response;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			end(start, error || (response.getStatus() >= 500));
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			error = true;
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			error = true;
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// the listeners are dropped when asynchronous processing restarts
+			event.getAsyncContext().addListener(this);
+		}
+
+		private final long start;
+		private final HttpServletResponse response;
+		private volatile boolean error;
+
+	}
+
+	// in microseconds, from 1 ms to 10 s
+	private static final long[] LATENCY_BOUNDS = {
+		1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000,
+		1000000, 2500000, 5000000, 10000000
+	};
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder inFlight = new LongAdder();
+	private final LongAdder totalTime = new LongAdder();
+	private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+	private final AtomicLongArray latencyCounts = new AtomicLongArray(LATENCY_BOUNDS.length + 1);
+
+}
@@ -55,7 +55,8 @@ public class ServletRegistration extends EndpointRegistration<ServletDTO> {
 	public ServletRegistration(
 		ServiceHolder<Servlet> servletHolder, ServletDTO servletDTO,
 		ServletContextHelper servletContextHelper,
-		ContextController contextController, ServletContext servletContext) {
+		ContextController contextController, ServletContext servletContext,
+		boolean multipartStreaming) {
 
 		super(servletHolder, servletDTO, servletContextHelper, contextController);
 
@@ -64,7 +65,8 @@ public class ServletRegistration extends EndpointRegistration<ServletDTO> {
 				throw new IllegalStateException(
 					"Multipart support not enabled due to missing, optional commons-fileupload dependency!"); //$NON-NLS-1$
 			}
-			multipartSupport = factory.newInstance(servletDTO, servletContext);
+			multipartSupport = factory.newInstance(
+				servletDTO, servletContext, multipartStreaming);
 		}
 		else {
 			multipartSupport = null;
@@ -91,7 +93,7 @@ public class ServletRegistration extends EndpointRegistration<ServletDTO> {
 		return servletHolder.getServiceReference();
 	}
 
-	public List<Part> parseRequest(HttpServletRequest request) throws IOException, ServletException {
+	public Collection<Part> parseRequest(HttpServletRequest request) throws IOException, ServletException {
 		if (multipartSupport == null) {
 			throw new IOException("Servlet not configured for multipart!"); //$NON-NLS-1$
 		}
@@ -35,7 +35,7 @@ public class HttpServletRequestWrapperImpl extends HttpServletRequestWrapper {
 
 	private final Deque<DispatchTargets> dispatchTargets = new LinkedList<>();
 	private final HttpServletRequest request;
-	private List<Part> parts;
+	private Collection<Part> parts;
 	private final Lock lock = new ReentrantLock();
 
 	private static final Set<String> dispatcherAttributes =	new HashSet<>();
@@ -451,7 +451,14 @@ public class HttpServletRequestWrapperImpl extends HttpServletRequestWrapper {
 
 	@Override
 	public Collection<Part> getParts() throws IOException, ServletException {
-		return new ArrayList<>(getParts0());
+		Collection<Part> allParts = getParts0();
+
+		if (allParts instanceof List) {
+			return new ArrayList<>(allParts);
+		}
+
+		// streamed parts are read once, in the order of the request
+		return allParts;
 	}
 
 	public AsyncContext startAsync() throws IllegalStateException {
@@ -468,7 +475,7 @@ public class HttpServletRequestWrapperImpl extends HttpServletRequestWrapper {
 		throw new IllegalStateException("Async not supported by " + endpointRegistration); //$NON-NLS-1$
 	}
 
-	private List<Part> getParts0() throws IOException, ServletException {
+	private Collection<Part> getParts0() throws IOException, ServletException {
 		org.eclipse.equinox.http.servlet.internal.registration.ServletRegistration servletRegistration = getServletRegistration();
 
 		if (servletRegistration == null) {
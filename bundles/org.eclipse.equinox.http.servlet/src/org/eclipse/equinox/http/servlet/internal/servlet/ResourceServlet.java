@@ -17,14 +17,28 @@
 package org.eclipse.equinox.http.servlet.internal.servlet;
 
 import java.io.*;
-import java.net.URL;
-import java.net.URLConnection;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.security.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
 import javax.servlet.http.*;
 import org.eclipse.equinox.http.servlet.RangeAwareServletContextHelper;
 import org.eclipse.equinox.http.servlet.internal.util.Const;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
 import org.osgi.service.http.context.ServletContextHelper;
 
 public class ResourceServlet extends HttpServlet {
@@ -37,18 +51,76 @@ public class ResourceServlet extends HttpServlet {
 	private static final String ACCEPT_RANGES = "Accept-Ranges"; //$NON-NLS-1$
 	private static final String RANGE_UNIT_BYTES = "bytes"; //$NON-NLS-1$
 	private static final String CONTENT_RANGE = "Content-Range"; //$NON-NLS-1$
+	private static final String ACCEPT_ENCODING = "Accept-Encoding"; //$NON-NLS-1$
+	private static final String CONTENT_ENCODING = "Content-Encoding"; //$NON-NLS-1$
+	private static final String VARY = "Vary"; //$NON-NLS-1$
+	private static final String BROTLI = "br"; //$NON-NLS-1$
+	private static final String GZIP = "gzip"; //$NON-NLS-1$
+	private static final int MAX_CACHED_RESOURCES = 1000;
+	// the content of resources up to this length is kept in memory
+	private static final int MAX_CACHED_CONTENT_LENGTH = 64 * 1024;
+	private static final long MAX_CACHED_CONTENT = 8 * 1024 * 1024;
+	// text resources are compressed when their length is in this range
+	private static final int MIN_COMPRESSED_LENGTH = 1024;
+	private static final int MAX_COMPRESSED_LENGTH = 16 * 1024 * 1024;
+	private static final long MAX_COMPRESSED_CONTENT = 64 * 1024 * 1024;
+	// a replaced compressed file is deleted once responses can no longer be sending it
+	private static final long RETIRED_COMPRESSED_DELAY = 60 * 1000;
 
 	private final String internalName;
 	final ServletContextHelper servletContextHelper;
 	private final AccessControlContext acc;
-
-	public ResourceServlet(String internalName, ServletContextHelper servletContextHelper, AccessControlContext acc) {
+	// the bundle registering the resources, to find the bundles of bundle entries
+	private final Bundle bundle;
+	// resources by URL, as last served, least recently served first
+	private final transient Map<String, CachedResource> resources = Collections.synchronizedMap(new LinkedHashMap<String, CachedResource>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedResource> eldest) {
+			if (size() <= MAX_CACHED_RESOURCES)
+				return false;
+			removed(eldest.getValue());
+			return true;
+		}
+	});
+	private final transient AtomicLong cachedContentLength = new AtomicLong();
+	// serve the ".br" and ".gz" siblings of resources to clients accepting them
+	private final boolean precompressed;
+	// compress text resources once into the temporary directory
+	private final boolean compress;
+	private transient File compressedDir;
+	private final transient AtomicLong compressedContentLength = new AtomicLong();
+	// compressed resources replaced in the cache, oldest first
+	private final transient Queue<CachedResource> retiredCompressed = new ConcurrentLinkedQueue<>();
+
+	public ResourceServlet(String internalName, ServletContextHelper servletContextHelper, AccessControlContext acc, Bundle bundle, boolean precompressed, boolean compress) {
 		if (internalName.equals(Const.SLASH)) {
 			internalName = Const.BLANK;
 		}
 		this.internalName = internalName;
 		this.servletContextHelper = servletContextHelper;
 		this.acc = acc;
+		this.bundle = bundle;
+		this.precompressed = precompressed;
+		this.compress = compress;
+	}
+
+	@Override
+	public void destroy() {
+		synchronized (this) {
+			if (compressedDir != null) {
+				File[] files = compressedDir.listFiles();
+				if (files != null)
+					for (File file : files)
+						file.delete();
+				compressedDir.delete();
+				compressedDir = null;
+			}
+		}
+		retiredCompressed.clear();
+		resources.clear();
+		super.destroy();
 	}
 
 	public void service(HttpServletRequest req, final HttpServletResponse resp) throws IOException {
@@ -74,18 +146,50 @@ public class ResourceServlet extends HttpServlet {
 
 				@Override
 				public Boolean run() throws Exception {
-					URLConnection connection = resourceURL.openConnection();
-					long lastModified = connection.getLastModified();
-					int contentLength = connection.getContentLength();
-
-					String etag = null;
-					if (lastModified != -1 && contentLength != -1)
-						etag = "W/\"" + contentLength + "-" + lastModified + "\""; //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+					File file = toFile(resourceURL);
+					URLConnection connection = null;
+					CachedResource resource = file == null ? getBundleResource(resourceURL, null) : null;
+					if (resource == null) {
+						long lastModified;
+						long completeLength;
+						if (file != null) {
+							lastModified = file.lastModified();
+							completeLength = file.length();
+						} else {
+							connection = resourceURL.openConnection();
+							lastModified = connection.getLastModified();
+							completeLength = connection.getContentLengthLong();
+						}
+						resource = getCachedResource(resourcePath, resourceURL, file, lastModified, completeLength, null);
+					}
+					CachedResource identity = resource;
+					long lastModified = resource.lastModified;
+					String contentType = resource.contentType;
+					boolean rangeable = (servletContextHelper instanceof RangeAwareServletContextHelper) &&
+						((RangeAwareServletContextHelper)servletContextHelper).rangeableContentType(contentType, req.getHeader("User-Agent")); //$NON-NLS-1$
+
+					if (precompressed || compress) {
+						resp.setHeader(VARY, ACCEPT_ENCODING);
+						String acceptEncoding = req.getHeader(ACCEPT_ENCODING);
+						// ranges are served from the identity content; an included resource is part of another response
+						if (acceptEncoding != null && req.getHeader(RANGE) == null && !rangeable && req.getDispatcherType() != DispatcherType.INCLUDE) {
+							CachedResource encoded = getEncodedResource(resourcePath, resource, acceptEncoding);
+							if (encoded != null) {
+								resource = encoded;
+								connection = null;
+								lastModified = resource.lastModified;
+								resp.setHeader(CONTENT_ENCODING, resource.contentEncoding);
+							}
+						}
+					}
+					int contentLength = resource.contentLength;
+					String etag = resource.etag;
 
 					// Check for cache revalidation.
 					// We should prefer ETag validation as the guarantees are stronger and all HTTP 1.1 clients should be using it
+					// If-None-Match uses the weak comparison, a weak ETag matches without its W/ prefix
 					String ifNoneMatch = req.getHeader(IF_NONE_MATCH);
-					if (ifNoneMatch != null && etag != null && ifNoneMatch.indexOf(etag) != -1) {
+					if (ifNoneMatch != null && etag != null && ifNoneMatch.indexOf(etag.startsWith("W/") ? etag.substring(2) : etag) != -1) { //$NON-NLS-1$
 						resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 						return Boolean.TRUE;
 					}
@@ -100,7 +204,22 @@ public class ResourceServlet extends HttpServlet {
 
 					String rangeHeader = req.getHeader(RANGE);
 					Range range = null;
-					if (rangeHeader != null) {
+					List<Range> ranges = null;
+					if (rangeHeader != null && rangeHeader.indexOf(',') != -1) {
+						ranges = Range.createFromMultipleRangeHeader(rangeHeader, contentLength);
+						if (ranges != null && ranges.isEmpty()) {
+							resp.setHeader(ACCEPT_RANGES, RANGE_UNIT_BYTES);
+							resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+							return Boolean.TRUE;
+						}
+						if (ranges != null && ranges.size() == 1) {
+							range = ranges.get(0);
+							ranges = null;
+						} else if (ranges != null && !resource.isRandomAccess()) {
+							// only sent from random access content, the whole content is sent instead
+							ranges = null;
+						}
+					} else if (rangeHeader != null) {
 						range = Range.createFromRangeHeader(rangeHeader);
 						range.completeLength = contentLength;
 						range.updateBytePos();
@@ -116,11 +235,6 @@ public class ResourceServlet extends HttpServlet {
 					if (contentLength != -1)
 						resp.setContentLength(contentLength);
 
-					String filename = new File(resourcePath).getName();
-					String contentType = servletContextHelper.getMimeType(filename);
-					if (contentType == null)
-						contentType = getServletConfig().getServletContext().getMimeType(filename);
-
 					if (contentType != null)
 						resp.setContentType(contentType);
 
@@ -130,9 +244,7 @@ public class ResourceServlet extends HttpServlet {
 					if (etag != null)
 						resp.setHeader(ETAG, etag);
 
-					if (range == null &&
-						(servletContextHelper instanceof RangeAwareServletContextHelper) &&
-						((RangeAwareServletContextHelper)servletContextHelper).rangeableContentType(contentType, req.getHeader("User-Agent"))) { //$NON-NLS-1$
+					if (range == null && ranges == null && rangeable) {
 
 						range = new Range();
 						range.firstBytePos = 0;
@@ -140,28 +252,65 @@ public class ResourceServlet extends HttpServlet {
 						range.updateBytePos();
 					}
 
+					MultipartRanges multipartRanges = null;
 					if (range != null) {
 						resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
 						resp.setHeader(ACCEPT_RANGES, RANGE_UNIT_BYTES);
 						resp.setContentLength(range.contentLength());
 						resp.setHeader(CONTENT_RANGE, RANGE_UNIT_BYTES + " " + range.firstBytePos + "-" + range.lastBytePos + "/" + range.completeLength); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					} else if (ranges != null) {
+						multipartRanges = new MultipartRanges(ranges, contentType, contentLength);
+						resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+						resp.setHeader(ACCEPT_RANGES, RANGE_UNIT_BYTES);
+						resp.setContentType(multipartRanges.getContentType());
+						resp.setContentLengthLong(multipartRanges.getContentLength());
 					}
 
 					if (contentLength != 0) {
-						// open the input stream
-						try (InputStream is = connection.getInputStream()) {
+						try {
 							// write the resource
+							OutputStream os;
 							try {
-								OutputStream os = resp.getOutputStream();
-								int writtenContentLength = writeResourceToOutputStream(is, os, range);
-								if (contentLength == -1 || contentLength != writtenContentLength)
-									resp.setContentLength(writtenContentLength);
+								os = resp.getOutputStream();
 							} catch (IllegalStateException e) { // can occur if the response output is already open as a Writer
-								Writer writer = resp.getWriter();
-								writeResourceToWriter(is, writer, range);
-								// Since ContentLength is a measure of the number of bytes contained in the body
-								// of a message when we use a Writer we lose control of the exact byte count and
-								// defer the problem to the Servlet Engine's Writer implementation.
+								if (resource != identity) {
+									// characters cannot carry encoded content
+									resource = identity;
+									resp.setHeader(CONTENT_ENCODING, null);
+									if (identity.contentLength != -1)
+										resp.setContentLength(identity.contentLength);
+								}
+								if (multipartRanges != null) {
+									// the parts cannot be framed with characters, the whole content is sent instead
+									resp.setStatus(HttpServletResponse.SC_OK);
+									if (contentType != null)
+										resp.setContentType(contentType);
+									if (contentLength != -1)
+										resp.setContentLength(contentLength);
+								}
+								try (InputStream is = resource.openStream(connection)) {
+									Writer writer = resp.getWriter();
+									writeResourceToWriter(is, writer, range);
+									// Since ContentLength is a measure of the number of bytes contained in the body
+									// of a message when we use a Writer we lose control of the exact byte count and
+									// defer the problem to the Servlet Engine's Writer implementation.
+								}
+								return Boolean.TRUE;
+							}
+							if (multipartRanges != null) {
+								multipartRanges.write(os, resource);
+							} else if (resource.isRandomAccess()) {
+								if (range != null)
+									resource.write(os, range.firstBytePos, range.contentLength());
+								else
+									resource.write(os, 0, contentLength);
+							} else {
+								// open the input stream
+								try (InputStream is = resource.openStream(connection)) {
+									int writtenContentLength = writeResourceToOutputStream(is, os, range);
+									if (contentLength == -1 || contentLength != writtenContentLength)
+										resp.setContentLength(writtenContentLength);
+								}
 							}
 						} catch (FileNotFoundException | SecurityException e) {
 							// SecurityException may indicate the following scenarios
@@ -177,6 +326,307 @@ public class ResourceServlet extends HttpServlet {
 		}
 	}
 
+	/*
+	 * Returns the file of a file: URL, null for any other URL.
+	 */
+	static File toFile(URL url) {
+		if (!"file".equals(url.getProtocol())) //$NON-NLS-1$
+			return null;
+		try {
+			File file = new File(url.toURI());
+			// a directory or a missing file is left to its URL connection
+			return file.isFile() ? file : null;
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Returns what is known of the resource, from the cache if it was not modified
+	 * since it was cached. An encoded variant of a resource has the content type of
+	 * the resource path.
+	 */
+	CachedResource getCachedResource(String resourcePath, URL resourceURL, File file, long lastModified, long completeLength, String contentEncoding) throws IOException {
+		String key = getKey(resourceURL, contentEncoding);
+		long bundleLastModified = getBundleLastModified(resourceURL);
+		CachedResource resource = resources.get(key);
+		if (resource != null && resource.lastModified == lastModified && resource.completeLength == completeLength && resource.bundleLastModified == bundleLastModified)
+			return resource;
+
+		String filename = new File(resourcePath).getName();
+		String contentType = servletContextHelper.getMimeType(filename);
+		if (contentType == null)
+			contentType = getServletConfig().getServletContext().getMimeType(filename);
+
+		byte[] content = null;
+		if (file == null && completeLength > 0 && completeLength <= MAX_CACHED_CONTENT_LENGTH && cachedContentLength.get() + completeLength <= MAX_CACHED_CONTENT) {
+			content = readContent(resourceURL, (int) completeLength);
+			if (content != null)
+				cachedContentLength.addAndGet(content.length);
+		}
+
+		resource = new CachedResource(resourceURL, lastModified, completeLength, contentType, file, content, contentEncoding, bundleLastModified);
+		if (lastModified != -1 && completeLength != -1) {
+			// the least recently served resource is removed once the cache is full
+			CachedResource previous = resources.put(key, resource);
+			if (previous != null)
+				removed(previous);
+		} else if (content != null) {
+			cachedContentLength.addAndGet(-content.length);
+		}
+		return resource;
+	}
+
+	private static String getKey(URL resourceURL, String contentEncoding) {
+		return contentEncoding == null ? resourceURL.toExternalForm() : contentEncoding + ':' + resourceURL.toExternalForm();
+	}
+
+	/*
+	 * Releases the content and the compressed copy of a resource no longer cached.
+	 */
+	void removed(CachedResource resource) {
+		if (resource.content != null)
+			cachedContentLength.addAndGet(-resource.content.length);
+		deleteCompressed(resource);
+	}
+
+	/*
+	 * Returns the cached resource of a bundle entry, null if it is not cached, if its
+	 * bundle was updated since it was cached or if the URL is not a bundle entry. The
+	 * entries of a bundle only change when the bundle is updated, so they are not
+	 * checked for modifications otherwise.
+	 */
+	private CachedResource getBundleResource(URL resourceURL, String contentEncoding) {
+		long bundleLastModified = getBundleLastModified(resourceURL);
+		if (bundleLastModified == -1)
+			return null;
+		CachedResource resource = resources.get(getKey(resourceURL, contentEncoding));
+		return resource != null && resource.bundleLastModified == bundleLastModified ? resource : null;
+	}
+
+	/*
+	 * Returns the last modification of the bundle of a bundleentry or bundleresource URL,
+	 * -1 for any other URL or if the bundle is not found. The host of these URLs starts
+	 * with the bundle id.
+	 */
+	long getBundleLastModified(URL resourceURL) {
+		String protocol = resourceURL.getProtocol();
+		if (bundle == null || (!"bundleentry".equals(protocol) && !"bundleresource".equals(protocol))) //$NON-NLS-1$ //$NON-NLS-2$
+			return -1;
+		String host = resourceURL.getHost();
+		int dot = host.indexOf('.');
+		BundleContext context = bundle.getBundleContext();
+		if (context == null)
+			return -1;
+		try {
+			Bundle owner = context.getBundle(Long.parseLong(dot == -1 ? host : host.substring(0, dot)));
+			return owner == null ? -1 : owner.getLastModified();
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/*
+	 * Reads the whole content of a resource, null if it does not have the expected length.
+	 */
+	private static byte[] readContent(URL resourceURL, int length) throws IOException {
+		byte[] content = new byte[length];
+		try (InputStream is = resourceURL.openStream()) {
+			int read = 0;
+			while (read < length) {
+				int n = is.read(content, read, length - read);
+				if (n == -1)
+					return null;
+				read += n;
+			}
+			return is.read() == -1 ? content : null;
+		}
+	}
+
+	/*
+	 * Returns the variant of the resource to send to a client accepting the given
+	 * content codings, null if the resource is to be sent as is.
+	 */
+	CachedResource getEncodedResource(String resourcePath, CachedResource resource, String acceptEncoding) {
+		if (resource.etag == null || resource.contentLength == 0) // not cached
+			return null;
+		boolean acceptsGzip = accepts(acceptEncoding, GZIP);
+		if (precompressed) {
+			CachedResource encoded = null;
+			if (accepts(acceptEncoding, BROTLI))
+				encoded = getPrecompressedResource(resourcePath, resource, BROTLI, ".br"); //$NON-NLS-1$
+			if (encoded == null && acceptsGzip)
+				encoded = getPrecompressedResource(resourcePath, resource, GZIP, ".gz"); //$NON-NLS-1$
+			if (encoded != null)
+				return encoded;
+		}
+		if (compress && acceptsGzip)
+			return getCompressedResource(resource);
+		return null;
+	}
+
+	/*
+	 * Returns the sibling of the resource holding its content encoded with the given
+	 * coding, null if there is none.
+	 */
+	private CachedResource getPrecompressedResource(String resourcePath, CachedResource resource, String contentEncoding, String suffix) {
+		Optional<URL> sibling = resource.siblings.get(contentEncoding);
+		if (sibling == null) {
+			sibling = Optional.ofNullable(servletContextHelper.getResource(resourcePath + suffix));
+			resource.siblings.put(contentEncoding, sibling);
+		}
+		if (!sibling.isPresent())
+			return null;
+		URL siblingURL = sibling.get();
+		try {
+			File file = toFile(siblingURL);
+			CachedResource encoded = file == null ? getBundleResource(siblingURL, contentEncoding) : null;
+			if (encoded != null)
+				return encoded.lastModified < resource.lastModified ? null : encoded;
+			long lastModified;
+			long completeLength;
+			if (file != null) {
+				lastModified = file.lastModified();
+				completeLength = file.length();
+			} else {
+				URLConnection connection = siblingURL.openConnection();
+				lastModified = connection.getLastModified();
+				completeLength = connection.getContentLengthLong();
+			}
+			// a sibling older than the resource was not compressed from its current content
+			if (lastModified <= 0 || completeLength <= 0 || lastModified < resource.lastModified)
+				return null;
+			return getCachedResource(resourcePath, siblingURL, file, lastModified, completeLength, contentEncoding);
+		} catch (IOException | SecurityException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Returns the resource compressed with gzip, null if it is not compressed. The first
+	 * thread asking compresses the resource, the others send it as is in the meantime.
+	 */
+	private CachedResource getCompressedResource(CachedResource resource) {
+		deleteRetiredCompressed();
+		CachedResource compressed = resource.compressed;
+		if (compressed != null || !isCompressible(resource) || !resource.compressing.compareAndSet(false, true))
+			return compressed;
+		compressed = compressContent(resource);
+		resource.compressed = compressed;
+		return compressed;
+	}
+
+	private boolean isCompressible(CachedResource resource) {
+		if (resource.contentLength < MIN_COMPRESSED_LENGTH || resource.contentLength > MAX_COMPRESSED_LENGTH || compressedContentLength.get() >= MAX_COMPRESSED_CONTENT)
+			return false;
+		if (resource.contentType == null)
+			return false;
+		String contentType = resource.contentType.toLowerCase();
+		return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json") || contentType.contains("xml"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	private CachedResource compressContent(CachedResource resource) {
+		File dir = getCompressedDir();
+		if (dir == null)
+			return null;
+		File file = null;
+		try {
+			// always a new file, a replaced one may still be sent
+			file = File.createTempFile("resource", ".gz", dir); //$NON-NLS-1$ //$NON-NLS-2$
+			try (InputStream is = resource.openStream(null); OutputStream os = new GZIPOutputStream(new FileOutputStream(file))) {
+				byte[] buffer = new byte[8192];
+				int bytesRead;
+				while ((bytesRead = is.read(buffer)) != -1)
+					os.write(buffer, 0, bytesRead);
+			}
+			long length = file.length();
+			if (length >= resource.completeLength) {
+				// not worth it
+				file.delete();
+				return null;
+			}
+			compressedContentLength.addAndGet(length);
+			return new CachedResource(file.toURI().toURL(), resource.lastModified, length, resource.contentType, file, null, GZIP, resource.bundleLastModified);
+		} catch (IOException | SecurityException e) {
+			if (file != null)
+				file.delete();
+			return null;
+		}
+	}
+
+	/*
+	 * Returns the directory of the compressed resources, under the temporary directory
+	 * of the servlet context, null if there is none.
+	 */
+	private synchronized File getCompressedDir() {
+		if (compressedDir == null) {
+			File tempDir = (File) getServletConfig().getServletContext().getAttribute(ServletContext.TEMPDIR);
+			if (tempDir == null)
+				return null;
+			try {
+				compressedDir = Files.createTempDirectory(tempDir.toPath(), "resources").toFile(); //$NON-NLS-1$
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return compressedDir;
+	}
+
+	/*
+	 * Retires the compressed copy of a resource replaced in the cache. Its file is only
+	 * deleted later, as responses may still be sending it.
+	 */
+	private void deleteCompressed(CachedResource resource) {
+		CachedResource compressed = resource.compressed;
+		if (compressed != null) {
+			compressed.retired = System.currentTimeMillis();
+			retiredCompressed.add(compressed);
+		}
+	}
+
+	/*
+	 * Deletes the files of the compressed resources retired long enough ago.
+	 */
+	private void deleteRetiredCompressed() {
+		long retiredBefore = System.currentTimeMillis() - RETIRED_COMPRESSED_DELAY;
+		CachedResource compressed;
+		while ((compressed = retiredCompressed.peek()) != null && compressed.retired <= retiredBefore) {
+			if (retiredCompressed.remove(compressed) && compressed.file.delete())
+				compressedContentLength.addAndGet(-compressed.completeLength);
+		}
+	}
+
+	/*
+	 * Tells if an Accept-Encoding header accepts a content coding, by name or with "*".
+	 */
+	static boolean accepts(String acceptEncoding, String coding) {
+		boolean wildcard = false;
+		for (String element : acceptEncoding.split(",")) { //$NON-NLS-1$
+			int semicolon = element.indexOf(';');
+			String name = (semicolon == -1 ? element : element.substring(0, semicolon)).trim();
+			boolean acceptable = semicolon == -1 || !isZeroQuality(element.substring(semicolon + 1));
+			if (name.equalsIgnoreCase(coding))
+				return acceptable;
+			if (name.equals("*")) //$NON-NLS-1$
+				wildcard = acceptable;
+		}
+		return wildcard;
+	}
+
+	private static boolean isZeroQuality(String parameters) {
+		for (String parameter : parameters.split(";")) { //$NON-NLS-1$
+			int equals = parameter.indexOf('=');
+			if (equals != -1 && parameter.substring(0, equals).trim().equalsIgnoreCase("q")) { //$NON-NLS-1$
+				try {
+					return Double.parseDouble(parameter.substring(equals + 1).trim()) <= 0;
+				} catch (NumberFormatException e) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	void sendError(final HttpServletResponse resp, int sc) throws IOException {
 
 		try {
@@ -235,9 +685,146 @@ public class ResourceServlet extends HttpServlet {
 		}
 	}
 
+	/*
+	 * What is known of a resource as of its last modification. The content is
+	 * sent from memory or from a file when available, from the resource URL
+	 * otherwise. An encoded variant has its own ETag, which is strong when it is
+	 * the digest of the content in memory and weak otherwise, as the last
+	 * modification and the length do not tell every change of the content.
+	 */
+	static class CachedResource {
+		final URL url;
+		final long lastModified;
+		final long completeLength;
+		// -1 if unknown or too large
+		final int contentLength;
+		final String contentType;
+		final String etag;
+		final File file;
+		final byte[] content;
+		// null for the identity content
+		final String contentEncoding;
+		// the last modification of the bundle of a bundle entry, -1 for any other resource
+		final long bundleLastModified;
+		// content coding -> sibling holding the encoded content, if any
+		final Map<String, Optional<URL>> siblings = new ConcurrentHashMap<>();
+		volatile CachedResource compressed;
+		final AtomicBoolean compressing = new AtomicBoolean();
+		// when a compressed resource was replaced in the cache
+		volatile long retired;
+
+		CachedResource(URL url, long lastModified, long completeLength, String contentType, File file, byte[] content, String contentEncoding, long bundleLastModified) {
+			this.url = url;
+			this.lastModified = lastModified;
+			this.completeLength = completeLength;
+			this.contentLength = completeLength > Integer.MAX_VALUE ? -1 : (int) completeLength;
+			this.contentType = contentType;
+			this.file = file;
+			this.content = content;
+			this.contentEncoding = contentEncoding;
+			this.bundleLastModified = bundleLastModified;
+			String digest = content != null ? digest(content) : null;
+			if (digest != null)
+				etag = "\"" + digest + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+			else if (lastModified != -1 && completeLength != -1)
+				etag = "W/\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(completeLength) + (contentEncoding == null ? "" : "-" + contentEncoding) + "\""; //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			else
+				etag = null;
+		}
+
+		private static String digest(byte[] content) {
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256").digest(content); //$NON-NLS-1$
+				return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+			} catch (NoSuchAlgorithmException e) {
+				return null;
+			}
+		}
+
+		boolean isRandomAccess() {
+			return (content != null || file != null) && contentLength != -1;
+		}
+
+		InputStream openStream(URLConnection connection) throws IOException {
+			if (content != null)
+				return new ByteArrayInputStream(content);
+			if (file != null)
+				return new FileInputStream(file);
+			return (connection != null ? connection : url.openConnection()).getInputStream();
+		}
+
+		/*
+		 * Writes count bytes of the content from position, which must be random access.
+		 */
+		void write(OutputStream os, long position, long count) throws IOException {
+			if (content != null) {
+				os.write(content, (int) position, (int) count);
+				return;
+			}
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				WritableByteChannel target = Channels.newChannel(os);
+				while (count > 0) {
+					long transferred = channel.transferTo(position, count, target);
+					if (transferred <= 0)
+						break; // the file got shorter
+					position += transferred;
+					count -= transferred;
+				}
+			} catch (NoSuchFileException e) {
+				throw new FileNotFoundException(e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * The body of a response to a request for several ranges.
+	 */
+	static class MultipartRanges {
+		private final String boundary = Long.toHexString(System.nanoTime()) + Long.toHexString(Double.doubleToLongBits(Math.random()));
+		private final List<Range> ranges;
+		private final byte[][] partHeaders;
+		private final byte[] end;
+
+		MultipartRanges(List<Range> ranges, String contentType, int completeLength) {
+			this.ranges = ranges;
+			partHeaders = new byte[ranges.size()][];
+			for (int i = 0; i < partHeaders.length; i++) {
+				Range range = ranges.get(i);
+				StringBuilder partHeader = new StringBuilder();
+				partHeader.append("\r\n--").append(boundary).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				if (contentType != null)
+					partHeader.append("Content-Type: ").append(contentType).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				partHeader.append(CONTENT_RANGE).append(": ").append(RANGE_UNIT_BYTES).append(' ').append(range.firstBytePos).append('-').append(range.lastBytePos).append('/').append(completeLength).append("\r\n\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				partHeaders[i] = partHeader.toString().getBytes(StandardCharsets.ISO_8859_1);
+			}
+			end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		String getContentType() {
+			return "multipart/byteranges; boundary=" + boundary; //$NON-NLS-1$
+		}
+
+		long getContentLength() {
+			long contentLength = end.length;
+			for (int i = 0; i < partHeaders.length; i++)
+				contentLength += partHeaders[i].length + ranges.get(i).contentLength();
+			return contentLength;
+		}
+
+		void write(OutputStream os, CachedResource resource) throws IOException {
+			for (int i = 0; i < partHeaders.length; i++) {
+				os.write(partHeaders[i]);
+				resource.write(os, ranges.get(i).firstBytePos, ranges.get(i).contentLength());
+			}
+			os.write(end);
+		}
+	}
+
 	static class Range {
 
 		private static final Pattern RANGE_PATTERN = Pattern.compile("^(.+)=(\\d+)?-(\\d+)?$"); //$NON-NLS-1$
+		private static final Pattern RANGE_SPEC_PATTERN = Pattern.compile("^\\s*(\\d+)?-(\\d+)?\\s*$"); //$NON-NLS-1$
+		private static final int MAX_RANGES = 16;
 
 		static final int NOT_SET = -1;
 
@@ -273,6 +860,49 @@ public class ResourceServlet extends HttpServlet {
 			return range;
 		}
 
+		/*
+		 * Returns the satisfiable ranges of a header asking for several ranges, or null
+		 * if the header is to be ignored and the whole content sent.
+		 */
+		static List<Range> createFromMultipleRangeHeader(String header, int completeLength) {
+			int equals = header.indexOf('=');
+			if (completeLength == NOT_SET || equals == -1 || !RANGE_UNIT_BYTES.equals(header.substring(0, equals).trim()))
+				return null;
+			String[] specs = header.substring(equals + 1).split(","); //$NON-NLS-1$
+			if (specs.length > MAX_RANGES)
+				return null;
+			List<Range> ranges = new ArrayList<>(specs.length);
+			for (String spec : specs) {
+				Matcher matcher = RANGE_SPEC_PATTERN.matcher(spec);
+				if (!matcher.matches() || (matcher.group(1) == null && matcher.group(2) == null))
+					return null;
+				Range range = new Range();
+				range.completeLength = completeLength;
+				try {
+					if (matcher.group(1) != null)
+						range.firstBytePos = Integer.parseInt(matcher.group(1));
+					if (matcher.group(2) != null)
+						range.lastBytePos = Integer.parseInt(matcher.group(2));
+				} catch (NumberFormatException e) {
+					return null;
+				}
+				if (range.firstBytePos != NOT_SET && range.lastBytePos != NOT_SET && range.lastBytePos < range.firstBytePos)
+					return null;
+				if (range.firstBytePos == NOT_SET) {
+					// the last lastBytePos bytes
+					if (range.lastBytePos == 0)
+						continue;
+					range.firstBytePos = Math.max(0, completeLength - range.lastBytePos);
+					range.lastBytePos = completeLength - 1;
+				} else if (range.lastBytePos == NOT_SET || range.lastBytePos >= completeLength) {
+					range.lastBytePos = completeLength - 1;
+				}
+				if (range.firstBytePos < completeLength)
+					ranges.add(range);
+			}
+			return ranges;
+		}
+
 		void updateBytePos() {
 			if (lastBytePos == -1 || lastBytePos >= completeLength) {
 				lastBytePos = completeLength - 1;
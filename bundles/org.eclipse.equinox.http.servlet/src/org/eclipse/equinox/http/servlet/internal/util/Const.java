@@ -47,6 +47,11 @@ public class Const {
 	public static final String EQUINOX_HTTP_MULTIPART_LOCATION = "equinox.http.whiteboard.servlet.multipart.location"; //$NON-NLS-1$
 	public static final String EQUINOX_HTTP_MULTIPART_MAXFILESIZE = "equinox.http.whiteboard.servlet.multipart.maxFileSize"; //$NON-NLS-1$
 	public static final String EQUINOX_HTTP_MULTIPART_MAXREQUESTSIZE = "equinox.http.whiteboard.servlet.multipart.maxRequestSize"; //$NON-NLS-1$
+	public static final String EQUINOX_HTTP_MULTIPART_STREAMING = "equinox.http.whiteboard.servlet.multipart.streaming"; //$NON-NLS-1$
+	public static final String EQUINOX_HTTP_METRICS = "equinox.http.whiteboard.metrics"; //$NON-NLS-1$
+	public static final String EQUINOX_HTTP_RUNTIME_ATTRIBUTES = "equinox.http.runtime.attributes"; //$NON-NLS-1$
+	public static final String EQUINOX_HTTP_RESOURCE_COMPRESS = "equinox.http.whiteboard.resource.compress"; //$NON-NLS-1$
+	public static final String EQUINOX_HTTP_RESOURCE_PRECOMPRESSED = "equinox.http.whiteboard.resource.precompressed"; //$NON-NLS-1$
 	public static final String EQUINOX_LEGACY_TCCL_PROP = "equinox.legacy.tccl"; //$NON-NLS-1$
 	public static final String EQUINOX_LEGACY_CONTEXT_SELECT = "equinox.context.select"; //$NON-NLS-1$
 	public static final String EQUINOX_LEGACY_CONTEXT_HELPER = "equinox.legacy.context.helper"; //$NON-NLS-1$
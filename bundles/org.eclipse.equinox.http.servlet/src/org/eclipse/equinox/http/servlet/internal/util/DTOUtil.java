@@ -18,6 +18,7 @@ import static org.osgi.service.http.whiteboard.HttpWhiteboardConstants.*;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import org.eclipse.equinox.http.servlet.dto.RequestMetricsDTO;
 import org.eclipse.equinox.http.servlet.internal.dto.ExtendedErrorPageDTO;
 import org.eclipse.equinox.http.servlet.internal.dto.ExtendedErrorPageDTO.ErrorCodeType;
 import org.eclipse.equinox.http.servlet.internal.error.HttpWhiteboardFailureException;
@@ -402,8 +403,26 @@ public class DTOUtil {
 	}
 
 	public static ServletDTO clone(ServletDTO original) {
-		ServletDTO clone = new ServletDTO();
+		return copy(original, new ServletDTO());
+	}
+
+	/**
+	 * Returns a copy of the servlet DTO holding its request metrics, if any.
+	 */
+	public static ServletDTO clone(ServletDTO original, RequestMetricsDTO requestMetricsDTO) {
+		if (requestMetricsDTO == null) {
+			return clone(original);
+		}
+
+		org.eclipse.equinox.http.servlet.dto.ExtendedServletDTO clone = copy(
+			original, new org.eclipse.equinox.http.servlet.dto.ExtendedServletDTO());
+
+		clone.requestMetrics = requestMetricsDTO;
+
+		return clone;
+	}
 
+	private static <T extends ServletDTO> T copy(ServletDTO original, T clone) {
 		clone.asyncSupported = copy(original.asyncSupported);
 		clone.initParams = copyStringMap(original.initParams);
 		clone.multipartEnabled = copy(original.multipartEnabled);
@@ -15,9 +15,13 @@ package org.eclipse.equinox.preferences.tests;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.core.runtime.CoreException;
@@ -30,9 +34,11 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.INodeChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeSetListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.NodeChangeEvent;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeSetEvent;
 import org.eclipse.core.runtime.preferences.IScopeContext;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.osgi.service.datalocation.Location;
@@ -158,6 +164,50 @@ public class EclipsePreferencesTest {
 		});
 	}
 
+	@Test
+	public void testBatchChanges() {
+		final IEclipsePreferences node = createTestNode();
+		final IEclipsePreferences child = (IEclipsePreferences) node.node("child");
+		final List<String> singleChanges = new ArrayList<>();
+		final List<PreferenceChangeSetEvent> changeSets = new ArrayList<>();
+		IPreferenceChangeSetListener listener = new IPreferenceChangeSetListener() {
+			@Override
+			public void preferenceChange(PreferenceChangeEvent event) {
+				singleChanges.add(event.getKey());
+			}
+
+			@Override
+			public void preferenceChanges(PreferenceChangeSetEvent event) {
+				changeSets.add(event);
+			}
+		};
+		node.addPreferenceChangeListener(listener);
+		child.addPreferenceChangeListener(listener);
+
+		node.put("a", "1");
+		assertEquals(Arrays.asList("a"), singleChanges);
+
+		node.batchChanges(() -> {
+			node.put("b", "2");
+			node.put("c", "3");
+			child.put("d", "4");
+			assertTrue(changeSets.isEmpty());
+		});
+		assertEquals(Arrays.asList("a"), singleChanges);
+		assertEquals(2, changeSets.size());
+		assertEquals(node, changeSets.get(0).getNode());
+		assertEquals(2, changeSets.get(0).getChanges().length);
+		assertEquals("b", changeSets.get(0).getChanges()[0].getKey());
+		assertEquals(child, changeSets.get(1).getNode());
+		assertEquals(1, changeSets.get(1).getChanges().length);
+
+		changeSets.clear();
+		node.clear();
+		assertEquals(Arrays.asList("a"), singleChanges);
+		assertEquals(1, changeSets.size());
+		assertEquals(3, changeSets.get(0).getChanges().length);
+	}
+
 	private static void executeInTwoThreads(final ICoreRunnable runnable) throws InterruptedException, CoreException {
 		final CountDownLatch latch = new CountDownLatch(1);
 		Job job = Job.create("", new ICoreRunnable() {
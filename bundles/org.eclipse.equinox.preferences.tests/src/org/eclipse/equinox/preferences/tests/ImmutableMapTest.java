@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.preferences.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.eclipse.core.internal.preferences.ImmutableMap;
+import org.junit.Test;
+
+public class ImmutableMapTest {
+
+	@Test
+	public void testPutAndGet() {
+		ImmutableMap map = ImmutableMap.EMPTY;
+		for (int i = 0; i < 5000; i++) {
+			map = map.put("key" + i, "value" + i);
+		}
+		assertEquals(5000, map.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals("value" + i, map.get("key" + i));
+		}
+		assertNull(map.get("missing"));
+	}
+
+	@Test
+	public void testSnapshotsAreUnchanged() {
+		ImmutableMap first = ImmutableMap.EMPTY.put("a", "1").put("b", "2");
+		ImmutableMap second = first.put("a", "3").removeKey("b").put("c", "4");
+		assertEquals("1", first.get("a"));
+		assertEquals("2", first.get("b"));
+		assertNull(first.get("c"));
+		assertEquals(2, first.size());
+		assertEquals("3", second.get("a"));
+		assertNull(second.get("b"));
+		assertEquals("4", second.get("c"));
+		assertEquals(2, second.size());
+	}
+
+	@Test
+	public void testCollidingKeys() {
+		// "Aa" and "BB" have the same String.hashCode()
+		ImmutableMap map = ImmutableMap.EMPTY.put("Aa", "1").put("BB", "2").put("AaAa", "3").put("BBBB", "4");
+		assertEquals(4, map.size());
+		assertEquals("1", map.get("Aa"));
+		assertEquals("2", map.get("BB"));
+		map = map.removeKey("Aa");
+		assertNull(map.get("Aa"));
+		assertEquals("2", map.get("BB"));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void testRemoveAll() {
+		ImmutableMap map = ImmutableMap.EMPTY;
+		for (int i = 0; i < 1000; i++) {
+			map = map.put("key" + i, "value");
+		}
+		assertSame(map, map.removeKey("missing"));
+		for (String key : map.keys()) {
+			map = map.removeKey(key);
+		}
+		assertSame(ImmutableMap.EMPTY, map);
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(42);
+		Map<String, String> expected = new HashMap<>();
+		ImmutableMap map = ImmutableMap.EMPTY;
+		for (int i = 0; i < 20000; i++) {
+			String key = "k" + random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				map = map.removeKey(key);
+				expected.remove(key);
+			} else {
+				String value = "v" + random.nextInt(10);
+				map = map.put(key, value);
+				expected.put(key, value);
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		String[] keys = map.keys();
+		String[] expectedKeys = expected.keySet().toArray(new String[0]);
+		Arrays.sort(keys);
+		Arrays.sort(expectedKeys);
+		assertArrayEquals(expectedKeys, keys);
+		for (Map.Entry<String, String> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+	}
+}
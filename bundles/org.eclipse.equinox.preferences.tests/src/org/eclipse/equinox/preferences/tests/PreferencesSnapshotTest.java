@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.preferences.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import org.eclipse.core.internal.preferences.EclipsePreferences;
+import org.eclipse.core.internal.preferences.PreferencesSnapshot;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the binary snapshot of the preference files of a scope.
+ */
+public class PreferencesSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private IPath baseLocation;
+	private File settings;
+
+	@Before
+	public void setUp() throws IOException {
+		baseLocation = new Path(folder.getRoot().getAbsolutePath());
+		settings = folder.newFolder(EclipsePreferences.DEFAULT_PREFERENCES_DIRNAME);
+	}
+
+	private IPath writePrefs(String name, String content) throws IOException {
+		File file = new File(settings, name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+		return new Path(file.getAbsolutePath());
+	}
+
+	private String[] snapshotNames() {
+		String[] names = settings.list((dir, name) -> name.startsWith(".snapshot")); //$NON-NLS-1$
+		Arrays.sort(names);
+		return names;
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		IPath location = writePrefs("a.prefs", "key=value\nother=x\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		PreferencesSnapshot.write(baseLocation, null);
+		PreferencesSnapshot snapshot = PreferencesSnapshot.open(baseLocation);
+		assertNotNull(snapshot);
+		Properties properties = snapshot.load(location);
+		assertNotNull(properties);
+		assertEquals("value", properties.get("key")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("x", properties.get("other")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(snapshot.load(location.removeLastSegments(1).append("missing.prefs"))); //$NON-NLS-1$
+	}
+
+	private static void setVerifyChecksums(boolean verify) throws ReflectiveOperationException {
+		Field field = PreferencesSnapshot.class.getDeclaredField("verifyChecksums"); //$NON-NLS-1$
+		field.setAccessible(true);
+		field.setBoolean(null, verify);
+	}
+
+	@Test
+	public void testChangedFile() throws IOException {
+		IPath location = writePrefs("a.prefs", "key=value1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		File file = location.toFile();
+		long lastModified = file.lastModified();
+		PreferencesSnapshot.write(baseLocation, null);
+
+		// without checksums, the file is not read if its length and modification time are unchanged
+		writePrefs("a.prefs", "key=value2\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.setLastModified(lastModified);
+		PreferencesSnapshot snapshot = PreferencesSnapshot.open(baseLocation);
+		assertEquals("value1", snapshot.load(location).get("key")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		writePrefs("a.prefs", "key=value22\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.setLastModified(lastModified);
+		assertNull(snapshot.load(location));
+	}
+
+	@Test
+	public void testSameSizeEdit() throws Exception {
+		setVerifyChecksums(true);
+		try {
+			checkSameSizeEdit();
+		} finally {
+			setVerifyChecksums(false);
+		}
+	}
+
+	private void checkSameSizeEdit() throws IOException {
+		IPath location = writePrefs("a.prefs", "key=value1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		File file = location.toFile();
+		long lastModified = file.lastModified();
+		PreferencesSnapshot.write(baseLocation, null);
+
+		// an edit which keeps both the length and the modification time
+		writePrefs("a.prefs", "key=value2\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.setLastModified(lastModified);
+		assertEquals(lastModified, file.lastModified());
+
+		PreferencesSnapshot snapshot = PreferencesSnapshot.open(baseLocation);
+		assertNotNull(snapshot);
+		assertNull(snapshot.load(location));
+
+		// a new snapshot taken from the previous one doesn't keep the old content
+		PreferencesSnapshot.write(baseLocation, snapshot);
+		Properties properties = PreferencesSnapshot.open(baseLocation).load(location);
+		assertNotNull(properties);
+		assertEquals("value2", properties.get("key")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testWriteWhileMapped() throws IOException {
+		IPath location = writePrefs("a.prefs", "key=1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		PreferencesSnapshot.write(baseLocation, null);
+		PreferencesSnapshot first = PreferencesSnapshot.open(baseLocation);
+		assertEquals("1", first.load(location).get("key")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		writePrefs("a.prefs", "key=22\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		PreferencesSnapshot.write(baseLocation, first);
+		// the mapped snapshot is still readable and knows the file changed
+		assertNull(first.load(location));
+		PreferencesSnapshot second = PreferencesSnapshot.open(baseLocation);
+		assertEquals("22", second.load(location).get("key")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// the previous generation is not needed anymore
+		String[] names = snapshotNames();
+		assertEquals(Arrays.toString(names), 1, names.length);
+		assertEquals(".snapshot.1", names[0]); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.preferences.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.core.internal.preferences.EclipsePreferences;
+import org.eclipse.core.internal.preferences.PreferencesWriter;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * Tests flushing and synchronizing preferences with write-behind enabled.
+ */
+public class PreferencesWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A node stored in a file of its own.
+	 */
+	static class FileNode extends EclipsePreferences {
+		private final IPath location;
+
+		FileNode(File file) {
+			super(null, file.getName());
+			this.location = new Path(file.getAbsolutePath());
+		}
+
+		@Override
+		protected IPath getLocation() {
+			return location;
+		}
+
+		@Override
+		protected IEclipsePreferences getLoadLevel() {
+			return this;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		PreferencesWriter.stop();
+		PreferencesWriter.start("100"); //$NON-NLS-1$
+	}
+
+	@After
+	public void tearDown() {
+		PreferencesWriter.stop();
+	}
+
+	private static Properties load(File file) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream input = new FileInputStream(file)) {
+			properties.load(input);
+		}
+		return properties;
+	}
+
+	@Test
+	public void testFlushReturnsBeforeTheWrite() throws Exception {
+		// a delay the test never waits for
+		PreferencesWriter.stop();
+		PreferencesWriter.start("60000"); //$NON-NLS-1$
+		File file = new File(folder.getRoot(), "test.prefs"); //$NON-NLS-1$
+		FileNode node = new FileNode(file);
+		for (int i = 0; i < 10; i++) {
+			node.putInt("key", i); //$NON-NLS-1$
+			node.flush();
+		}
+		assertFalse(file.exists());
+
+		// sync writes the latest content right away
+		node.sync();
+		assertEquals("9", load(file).getProperty("key")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		node.remove("key"); //$NON-NLS-1$
+		node.flush();
+		assertTrue(file.exists());
+		node.sync();
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testStopWritesPendingContent() throws Exception {
+		PreferencesWriter.stop();
+		PreferencesWriter.start("60000"); //$NON-NLS-1$
+		File file = new File(folder.getRoot(), "test.prefs"); //$NON-NLS-1$
+		FileNode node = new FileNode(file);
+		node.put("key", "value"); //$NON-NLS-1$ //$NON-NLS-2$
+		node.flush();
+		assertFalse(file.exists());
+		PreferencesWriter.stop();
+		assertEquals("value", load(file).getProperty("key")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testBackgroundWrite() throws Exception {
+		File file = new File(folder.getRoot(), "test.prefs"); //$NON-NLS-1$
+		FileNode node = new FileNode(file);
+		node.put("key", "value"); //$NON-NLS-1$ //$NON-NLS-2$
+		node.flush();
+		for (int i = 0; i < 100 && !file.exists(); i++)
+			Thread.sleep(50);
+		assertEquals("value", load(file).getProperty("key")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testSyncReportsFailure() throws Exception {
+		// the directory of the preference file cannot be created
+		File file = new File(folder.newFile("file"), "test.prefs"); //$NON-NLS-1$ //$NON-NLS-2$
+		FileNode node = new FileNode(file);
+		node.put("key", "value"); //$NON-NLS-1$ //$NON-NLS-2$
+		node.flush();
+		// the failed write makes the node dirty again, for the next flush
+		for (int i = 0; i < 100 && !node.isDirty(); i++)
+			Thread.sleep(50);
+		assertTrue(node.isDirty());
+		assertThrows(BackingStoreException.class, node::sync);
+		assertTrue(node.isDirty());
+	}
+
+	@Test
+	public void testConcurrentFlushes() throws Exception {
+		File file = new File(folder.getRoot(), "test.prefs"); //$NON-NLS-1$
+		FileNode node = new FileNode(file);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			String key = "key" + i; //$NON-NLS-1$
+			threads[i] = new Thread(() -> {
+				try {
+					for (int j = 0; j < 10; j++) {
+						node.putInt(key, j);
+						node.flush();
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+		// the latest content of the file is written
+		PreferencesWriter.stop();
+		Properties properties = load(file);
+		for (int i = 0; i < threads.length; i++) {
+			assertEquals("9", properties.getProperty("key" + i)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.preferences.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.core.internal.preferences.PreferencesService;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
+
+/**
+ * Tests that the values the preferences service caches for its look-ups are
+ * discarded when the nodes holding them change.
+ */
+public class ResolvedValueCacheTest {
+
+	private static final String QUALIFIER = "org.eclipse.equinox.preferences.tests.cache"; //$NON-NLS-1$
+
+	private final PreferencesService service = PreferencesService.getDefault();
+
+	private Preferences getInstanceNode(String path) {
+		return service.getRootNode().node(InstanceScope.SCOPE).node(path);
+	}
+
+	@After
+	public void tearDown() throws BackingStoreException {
+		IEclipsePreferences instance = (IEclipsePreferences) service.getRootNode().node(InstanceScope.SCOPE);
+		if (instance.nodeExists(QUALIFIER))
+			instance.node(QUALIFIER).removeNode();
+	}
+
+	@Test
+	public void testQualifierWithSlash() {
+		String qualifier = QUALIFIER + "/nested/deeper"; //$NON-NLS-1$
+		Preferences node = getInstanceNode(qualifier);
+		node.put("key", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", service.getString(qualifier, "key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		node.put("key", "2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2", service.getString(qualifier, "key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		node.remove("key"); //$NON-NLS-1$
+		assertNull(service.getString(qualifier, "key", null, null)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testKeyWithPath() {
+		Preferences node = getInstanceNode(QUALIFIER + "/child"); //$NON-NLS-1$
+		node.put("key", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", service.getString(QUALIFIER, "child/key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", service.getString(QUALIFIER, "child//key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		node.put("key", "2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2", service.getString(QUALIFIER, "child/key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2", service.getString(QUALIFIER, "child//key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testRemovedAncestor() throws BackingStoreException {
+		String qualifier = QUALIFIER + "/a/b"; //$NON-NLS-1$
+		getInstanceNode(qualifier).put("key", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", service.getString(qualifier, "key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", service.getString(QUALIFIER, "a/b/key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		getInstanceNode(QUALIFIER + "/a").removeNode(); //$NON-NLS-1$
+		assertNull(service.getString(qualifier, "key", null, null)); //$NON-NLS-1$
+		assertNull(service.getString(QUALIFIER, "a/b/key", null, null)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testManyMissingKeys() {
+		Preferences node = getInstanceNode(QUALIFIER);
+		for (int i = 0; i < 3000; i++) {
+			assertNull(service.getString(QUALIFIER, "missing" + i, null, null)); //$NON-NLS-1$
+			assertNull(service.getString(QUALIFIER + "/q" + i, "key", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		node.put("missing0", "found"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("found", service.getString(QUALIFIER, "missing0", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+		node.put("missing2999", "found"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("found", service.getString(QUALIFIER, "missing2999", null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -71,6 +71,9 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer<Obje
 		// Open the services first before processing the command-line args, order is important! (Bug 150288)
 		PreferencesOSGiUtils.getDefault().openServices();
 		processCommandLine();
+		PreferencesWriter.start(context.getProperty(PreferencesWriter.PROP_WRITE_BEHIND_DELAY));
+		PreferencesSnapshot.enabled = Boolean.parseBoolean(context.getProperty(PreferencesSnapshot.PROP_SNAPSHOT));
+		PreferencesSnapshot.verifyChecksums = Boolean.parseBoolean(context.getProperty(PreferencesSnapshot.PROP_SNAPSHOT_CHECKSUM));
 
 		boolean shouldRegister = !"false".equalsIgnoreCase(context.getProperty(PROP_REGISTER_PERF_SERVICE)); //$NON-NLS-1$
 		if (shouldRegister) {
@@ -112,6 +115,11 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer<Obje
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		PreferencesWriter.stop();
+		if (PreferencesSnapshot.enabled) {
+			InstancePreferences.saveSnapshot();
+			ConfigurationPreferences.saveSnapshot();
+		}
 		PreferencesOSGiUtils.getDefault().closeServices();
 		if (registryServiceTracker != null) {
 			registryServiceTracker.close();
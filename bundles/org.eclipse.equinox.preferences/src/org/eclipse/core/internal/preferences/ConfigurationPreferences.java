@@ -34,6 +34,9 @@ public class ConfigurationPreferences extends EclipsePreferences {
 	private static Set<String> loadedNodes = Collections.synchronizedSet(new HashSet<String>());
 	private static boolean initialized = false;
 	private static IPath baseLocation;
+	// the snapshot of the preference files, opened on first use
+	private static PreferencesSnapshot snapshot;
+	private static boolean snapshotOpened = false;
 
 	static {
 		Location location = PreferencesOSGiUtils.getDefault().getConfigurationLocation();
@@ -77,6 +80,30 @@ public class ConfigurationPreferences extends EclipsePreferences {
 		return location;
 	}
 
+	@Override
+	PreferencesSnapshot getSnapshot() {
+		synchronized (ConfigurationPreferences.class) {
+			if (!snapshotOpened && PreferencesSnapshot.enabled) {
+				IPath base = baseLocation;
+				if (base != null) {
+					snapshot = PreferencesSnapshot.open(base);
+					snapshotOpened = true;
+				}
+			}
+			return snapshot;
+		}
+	}
+
+	/*
+	 * Refresh the snapshot of the preference files of this scope if it has been used.
+	 */
+	static void saveSnapshot() {
+		synchronized (ConfigurationPreferences.class) {
+			if (snapshotOpened && baseLocation != null)
+				PreferencesSnapshot.write(baseLocation, snapshot);
+		}
+	}
+
 	@Override
 	protected boolean isAlreadyLoaded(IEclipsePreferences node) {
 		return loadedNodes.contains(node.name());
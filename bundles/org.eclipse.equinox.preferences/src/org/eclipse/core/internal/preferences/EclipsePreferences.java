@@ -19,6 +19,7 @@ package org.eclipse.core.internal.preferences;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -74,6 +75,31 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	private final ListenerList<IPreferenceChangeListener> preferenceChangeListeners = new ListenerList<>();
 	private ScopeDescriptor descriptor;
 
+	/*
+	 * The batch of changes run by the current thread, if any.
+	 */
+	private static final ThreadLocal<ChangeBatch> currentBatch = new ThreadLocal<>();
+
+	/*
+	 * Collects the changes made to nodes during a batch so that they can be
+	 * reported to change set listeners when the outermost batch completes.
+	 */
+	private static final class ChangeBatch {
+		// the nodes whose subtrees are part of the batch, innermost last
+		final List<EclipsePreferences> roots = new ArrayList<>();
+		final Map<EclipsePreferences, List<PreferenceChangeEvent>> changes = new LinkedHashMap<>();
+
+		boolean contains(EclipsePreferences node) {
+			for (EclipsePreferences root : roots) {
+				for (EclipsePreferences current = node; current != null; current = current.parent) {
+					if (current == root)
+						return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	public static boolean DEBUG_PREFERENCE_GENERAL = false;
 	public static boolean DEBUG_PREFERENCE_SET = false;
 	public static boolean DEBUG_PREFERENCE_GET = false;
@@ -131,6 +157,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 			if (children == null)
 				children = Collections.synchronizedMap(new HashMap<String, Object>());
 			children.put(childName, child == null ? (Object) childName : child);
+			ResolvedValueCache.getDefault().childrenChanged(absolutePath(), childName);
 			return child;
 		}
 	}
@@ -206,12 +233,58 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 			keys = properties.keys();
 		}
 		//don't synchronize remove call because it calls listeners
-		for (String key : keys) {
-			remove(key);
+		beginBatch();
+		try {
+			for (String key : keys) {
+				remove(key);
+			}
+		} finally {
+			endBatch();
 		}
 		makeDirty();
 	}
 
+	@Override
+	public void batchChanges(Runnable changes) {
+		checkRemoved();
+		beginBatch();
+		try {
+			changes.run();
+		} finally {
+			endBatch();
+		}
+	}
+
+	/*
+	 * Start a batch of changes to this node and its descendants in the current
+	 * thread. Each call must be followed by a call to #endBatch().
+	 */
+	void beginBatch() {
+		ChangeBatch batch = currentBatch.get();
+		if (batch == null) {
+			batch = new ChangeBatch();
+			currentBatch.set(batch);
+		}
+		batch.roots.add(this);
+	}
+
+	/*
+	 * End the batch started by the matching call to #beginBatch(). If this
+	 * is the outermost batch then send the collected changes to the change
+	 * set listeners.
+	 */
+	void endBatch() {
+		ChangeBatch batch = currentBatch.get();
+		batch.roots.remove(batch.roots.size() - 1);
+		if (!batch.roots.isEmpty())
+			return;
+		currentBatch.remove();
+		for (Map.Entry<EclipsePreferences, List<PreferenceChangeEvent>> entry : batch.changes.entrySet()) {
+			List<PreferenceChangeEvent> nodeChanges = entry.getValue();
+			entry.getKey().firePreferenceChangeSetEvent(nodeChanges.toArray(new PreferenceChangeEvent[nodeChanges.size()]));
+		}
+	}
+
 	protected List<String> computeChildren(IPath root) {
 		if (root == null) {
 			return List.of();
@@ -276,23 +349,18 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	 */
 	private void write(Properties props, IPath location) throws BackingStoreException {
 		Path preferenceFile = location.toFile().toPath();
-		Path parentFile = preferenceFile.getParent();
-		if (parentFile == null) {
+		if (preferenceFile.getParent() == null) {
 			return;
 		}
 		try {
-			Files.createDirectories(parentFile);
 			String fileContent = removeTimestampFromTable(props);
+			PreferencesWriter writer = PreferencesWriter.getDefault();
+			if (writer != null) {
+				writer.write(this, preferenceFile, fileContent);
+				return;
+			}
 			synchronized (writeLock) {
-				if (Files.exists(preferenceFile)) {
-					// Write new file content to a temporary file first to not loose the old content
-					// in case of a failure. If everything goes OK, it is moved to the right place.
-					Path tmp = preferenceFile.resolveSibling(preferenceFile.getFileName() + BACKUP_FILE_EXTENSION);
-					Files.writeString(tmp, fileContent, StandardCharsets.UTF_8);
-					Files.move(tmp, preferenceFile, StandardCopyOption.REPLACE_EXISTING);
-				} else {
-					Files.writeString(preferenceFile, fileContent, StandardCharsets.UTF_8);
-				}
+				writeFile(preferenceFile, fileContent);
 			}
 		} catch (IOException e) {
 			String message = NLS.bind(PrefsMessages.preferences_saveException, location);
@@ -301,6 +369,33 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		}
 	}
 
+	/*
+	 * Writes the given content to the given preference file. The content is written
+	 * to a temporary file first to not loose the old content in case of a failure.
+	 * If everything goes OK, it is moved to the right place.
+	 */
+	static void writeFile(Path preferenceFile, String fileContent) throws IOException {
+		Files.createDirectories(preferenceFile.getParent());
+		Path tmp = preferenceFile.resolveSibling(preferenceFile.getFileName() + BACKUP_FILE_EXTENSION);
+		Files.writeString(tmp, fileContent, StandardCharsets.UTF_8);
+		try {
+			Files.move(tmp, preferenceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, preferenceFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/*
+	 * Deletes the given preference file if it exists.
+	 */
+	static void deleteFile(Path preferenceFile) {
+		File file = preferenceFile.toFile();
+		if (file.exists() && !file.delete()) {
+			String message = NLS.bind(PrefsMessages.preferences_failedDelete, preferenceFile);
+			log(new Status(IStatus.WARNING, PrefsMessages.OWNER_NAME, IStatus.WARNING, message, null));
+		}
+	}
+
 	protected static String removeTimestampFromTable(Properties properties) throws IOException {
 		// store the properties in a string and then skip the first line (date/timestamp)
 		ByteArrayOutputStream output = new ByteArrayOutputStream();
@@ -645,6 +740,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 			if (DEBUG_PREFERENCE_SET)
 				PrefsMessages.message("Setting preference: " + absolutePath() + '/' + key + '=' + newValue); //$NON-NLS-1$
 			properties = properties.put(key, newValue);
+			ResolvedValueCache.getDefault().nodeChanged(absolutePath());
 			return oldValue;
 		}
 	}
@@ -689,6 +785,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		if (DEBUG_PREFERENCE_GENERAL)
 			PrefsMessages.message("Loading preferences from file: " + location); //$NON-NLS-1$
 		Properties result = new Properties();
+		// don't read content that is about to be replaced
+		PreferencesWriter writer = PreferencesWriter.getDefault();
+		if (writer != null)
+			writer.writePending(location.toFile().toPath());
 		try (InputStream input = getSaveInputStream(location)) {
 			result.load(input);
 		} catch (FileNotFoundException e) {
@@ -719,10 +819,23 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 				PrefsMessages.message("Unable to determine location of preference file for node: " + absolutePath()); //$NON-NLS-1$
 			return;
 		}
-		Properties fromDisk = loadProperties(location);
+		PreferencesSnapshot snapshot = getSnapshot();
+		Properties fromDisk = snapshot == null ? null : snapshot.load(location);
+		if (fromDisk == null)
+			fromDisk = loadProperties(location);
+		else if (DEBUG_PREFERENCE_GENERAL)
+			PrefsMessages.message("Loaded preferences from snapshot: " + location); //$NON-NLS-1$
 		convertFromProperties(this, fromDisk, false);
 	}
 
+	/*
+	 * Subclasses to over-ride. Return the snapshot of the preference files of
+	 * the scope of this node, or null if there is none.
+	 */
+	PreferencesSnapshot getSnapshot() {
+		return null;
+	}
+
 	protected void loaded() {
 		if (descriptor == null) {
 			// do nothing
@@ -828,8 +941,24 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	protected void firePreferenceEvent(String key, Object oldValue, Object newValue) {
 		if (preferenceChangeListeners == null)
 			return;
+		if (preferenceChangeListeners.isEmpty())
+			return;
 		final PreferenceChangeEvent event = new PreferenceChangeEvent(this, key, oldValue, newValue);
+		ChangeBatch batch = currentBatch.get();
+		boolean batched = false;
+		if (batch != null && batch.contains(this)) {
+			for (IPreferenceChangeListener listener : preferenceChangeListeners) {
+				if (listener instanceof IPreferenceChangeSetListener) {
+					// the change set listeners get the change when the batch completes
+					batch.changes.computeIfAbsent(this, n -> new ArrayList<>()).add(event);
+					batched = true;
+					break;
+				}
+			}
+		}
 		for (final IPreferenceChangeListener listener : preferenceChangeListeners) {
+			if (batched && listener instanceof IPreferenceChangeSetListener)
+				continue;
 			ISafeRunnable job = new ISafeRunnable() {
 				@Override
 				public void handleException(Throwable exception) {
@@ -846,6 +975,31 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	}
 
 
+	/*
+	 * Convenience method for notifying change set listeners of the changes
+	 * made during a batch.
+	 */
+	protected void firePreferenceChangeSetEvent(PreferenceChangeEvent[] changes) {
+		final PreferenceChangeSetEvent event = new PreferenceChangeSetEvent(this, changes);
+		for (final IPreferenceChangeListener listener : preferenceChangeListeners) {
+			if (!(listener instanceof IPreferenceChangeSetListener))
+				continue;
+			ISafeRunnable job = new ISafeRunnable() {
+				@Override
+				public void handleException(Throwable exception) {
+					// already logged in Platform#run()
+				}
+
+				@Override
+				public void run() throws Exception {
+					((IPreferenceChangeSetListener) listener).preferenceChanges(event);
+				}
+			};
+			SafeRunner.run(job);
+		}
+	}
+
+
 	@Override
 	public void put(String key, String newValue) {
 		if (key == null || newValue == null)
@@ -946,6 +1100,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 			if (oldValue == null)
 				return;
 			properties = properties.removeKey(key);
+			ResolvedValueCache.getDefault().nodeChanged(absolutePath());
 		}
 		makeDirty();
 		firePreferenceEvent(key, oldValue, null);
@@ -998,8 +1153,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		synchronized (childAndPropertyLock) {
 			if (children != null) {
 				Object result = children.remove(key);
-				if (result != null)
+				if (result != null) {
 					makeDirty();
+					ResolvedValueCache.getDefault().childrenChanged(absolutePath(), key);
+				}
 				if (children.isEmpty())
 					children = null;
 				return result;
@@ -1056,10 +1213,11 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		Properties table = convertToProperties(new SortedProperties(), EMPTY_STRING);
 		if (table.isEmpty()) {
 			// nothing to save. delete existing file if one exists.
-			if (location.toFile().exists() && !location.toFile().delete()) {
-				String message = NLS.bind(PrefsMessages.preferences_failedDelete, location);
-				log(new Status(IStatus.WARNING, PrefsMessages.OWNER_NAME, IStatus.WARNING, message, null));
-			}
+			PreferencesWriter writer = PreferencesWriter.getDefault();
+			if (writer == null)
+				deleteFile(location.toFile().toPath());
+			else
+				writer.write(this, location.toFile().toPath(), null);
 			return;
 		}
 		table.put(VERSION_KEY, VERSION_VALUE);
@@ -1203,6 +1361,25 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		if (node instanceof EclipsePreferences) {
 			((EclipsePreferences) node).load();
 			node.flush();
+			((EclipsePreferences) node).writePending();
+		}
+	}
+
+	/*
+	 * With write-behind, writes the content of the preference file of this node
+	 * which has been flushed but not written yet, and reports a failure to write
+	 * it since the last sync.
+	 */
+	private void writePending() throws BackingStoreException {
+		PreferencesWriter writer = PreferencesWriter.getDefault();
+		IPath location = writer == null || descriptor != null ? null : getLocation();
+		if (location == null)
+			return;
+		try {
+			writer.sync(location.toFile().toPath());
+		} catch (IOException e) {
+			String message = NLS.bind(PrefsMessages.preferences_saveException, location);
+			throw new BackingStoreException(message, e);
 		}
 	}
 
@@ -17,76 +17,55 @@ package org.eclipse.core.internal.preferences;
 /**
  * Hash table of {String --> String}.
  *
- * This map handles collisions using linear probing.  When elements are
- * removed, the entire table is rehashed.  Thus this map has good space
- * characteristics, good insertion and iteration performance, but slower
- * removal performance than a HashMap.
+ * This map is implemented as a hash array mapped trie.  Each level of the
+ * trie consumes five bits of the key hash and only stores the slots that are
+ * actually in use, so a map with n entries is at most seven levels deep.
+ * Adding or removing a key copies only the nodes on the path to that key and
+ * shares all other nodes with the original map, which makes updates
+ * logarithmic rather than linear in the size of the map.
  * <p>
  * This map is thread safe because it is immutable.  All methods that modify
  * the map create and return a new map, rather than modifying the receiver.
  */
 public abstract class ImmutableMap implements Cloneable {
-	static class ArrayMap extends ImmutableMap {
-		private static final float LOAD_FACTOR = 0.45f;
+	static class TrieMap extends ImmutableMap {
 		/**
 		 * number of elements in the table
 		 */
 		private int elementSize;
 
 		/**
-		 * The table keys
+		 * The root of the trie, never <code>null</code>
 		 */
-		private String[] keyTable;
+		private Node root;
 
-		private int threshold;
-		private String[] valueTable;
+		TrieMap() {
+			this(BitmapNode.EMPTY, 0);
+		}
 
-		ArrayMap(int size) {
-			this.elementSize = 0;
-			//table size must always be a power of two
-			int tableLen = 1;
-			while (tableLen < size)
-				tableLen *= 2;
-			this.keyTable = new String[tableLen];
-			this.valueTable = new String[tableLen];
-			this.threshold = (int) (tableLen * LOAD_FACTOR);
+		private TrieMap(Node root, int elementSize) {
+			this.root = root;
+			this.elementSize = elementSize;
 		}
 
 		@Override
 		public String get(String key) {
-			int lengthMask = keyTable.length - 1;
-			int index = key.hashCode() & lengthMask;
-			String currentKey;
-			while ((currentKey = keyTable[index]) != null) {
-				if (currentKey.equals(key))
-					return valueTable[index];
-				index = (index + 1) & lengthMask;
-			}
-			return null;
+			return root.get(key, hash(key), 0);
 		}
 
 		/**
 		 * This method destructively adds the key/value pair to the table.
-		 * The caller must ensure the table has an empty slot before calling
-		 * this method.
+		 * Only the root of the receiver is replaced, nodes are never
+		 * modified so they may still be shared with other maps.
 		 * @param key
 		 * @param value
 		 */
 		@Override
 		protected void internalPut(String key, String value) {
-			int lengthMask = keyTable.length - 1;
-			int index = key.hashCode() & lengthMask;
-			String currentKey;
-			while ((currentKey = keyTable[index]) != null) {
-				if (currentKey.equals(key)) {
-					valueTable[index] = value;
-					return;
-				}
-				index = (index + 1) & lengthMask;
-			}
-			keyTable[index] = key;
-			valueTable[index] = value;
-			++elementSize;
+			boolean[] added = new boolean[1];
+			root = root.put(key, hash(key), value, 0, added);
+			if (added[0])
+				++elementSize;
 		}
 
 		/**
@@ -97,87 +76,327 @@ public abstract class ImmutableMap implements Cloneable {
 			if (elementSize == 0)
 				return EMPTY_STRING_ARRAY;
 			String[] result = new String[elementSize];
-			int next = 0;
-			for (String key : keyTable) {
-				if (key != null) {
-					result[next++] = key;
-				}
-			}
+			root.collectKeys(result, 0);
 			return result;
 		}
 
 		@Override
 		public ImmutableMap put(String key, String value) {
-			ArrayMap result;
-			final int oldLen = keyTable.length;
-			if (elementSize + 1 > threshold) {
-				//rehash case
-				String currentKey;
-				result = new ArrayMap(oldLen * 2);
-				for (int i = oldLen; --i >= 0;)
-					if ((currentKey = keyTable[i]) != null)
-						result.internalPut(currentKey, valueTable[i]);
-			} else {
-				result = new ArrayMap(oldLen);
-				System.arraycopy(this.keyTable, 0, result.keyTable, 0, this.keyTable.length);
-				System.arraycopy(this.valueTable, 0, result.valueTable, 0, this.valueTable.length);
-				result.elementSize = this.elementSize;
-			}
-			result.internalPut(key, value);
-			return result;
+			boolean[] added = new boolean[1];
+			Node newRoot = root.put(key, hash(key), value, 0, added);
+			if (newRoot == root)
+				return this;
+			return new TrieMap(newRoot, added[0] ? elementSize + 1 : elementSize);
 		}
 
 		@Override
 		public ImmutableMap removeKey(String key) {
-			final int lengthMask = keyTable.length - 1;
-			int index = key.hashCode() & lengthMask;
-			String currentKey;
-			while ((currentKey = keyTable[index]) != null) {
-				if (currentKey.equals(key)) {
-					if (elementSize <= 1)
-						return EMPTY;
-					//return a new map that includes all keys except the current one
-					ImmutableMap result = createMap((int) (elementSize / LOAD_FACTOR));
-					for (int i = 0; i < index; i++)
-						if ((currentKey = keyTable[i]) != null)
-							result.internalPut(currentKey, valueTable[i]);
-					for (int i = index + 1; i <= lengthMask; i++)
-						if ((currentKey = keyTable[i]) != null)
-							result.internalPut(currentKey, valueTable[i]);
-					return result;
+			Node newRoot = root.remove(key, hash(key), 0);
+			if (newRoot == root)
+				return this;
+			if (newRoot == null || elementSize <= 1)
+				return EMPTY;
+			return new TrieMap(newRoot, elementSize - 1);
+		}
+
+		@Override
+		public void shareStrings(StringPool set) {
+			root.shareStrings(set);
+		}
+
+		@Override
+		public int size() {
+			return elementSize;
+		}
+
+		/**
+		 * Spreads the higher bits of the string hash into the lower bits, which
+		 * are the ones used to index the first levels of the trie.
+		 */
+		private static int hash(String key) {
+			int h = key.hashCode();
+			return h ^ (h >>> 16);
+		}
+	}
+
+	/**
+	 * A node of a {@link TrieMap}.  Nodes are never modified once they are
+	 * reachable from a map, except for string sharing which replaces
+	 * strings with equal instances.
+	 */
+	static abstract class Node {
+		static final int BITS = 5;
+		static final int MASK = (1 << BITS) - 1;
+
+		abstract String get(String key, int hash, int shift);
+
+		/**
+		 * Returns a node that contains the given key/value pair, or the
+		 * receiver if the key is already mapped to the given value.  Sets
+		 * <code>added[0]</code> if the key was not present before.
+		 */
+		abstract Node put(String key, int hash, String value, int shift, boolean[] added);
+
+		/**
+		 * Returns a node without the given key, the receiver if the key is
+		 * not present, or <code>null</code> if the resulting node is empty.
+		 */
+		abstract Node remove(String key, int hash, int shift);
+
+		/**
+		 * Copies all keys of this node into the given array starting at the
+		 * given index, and returns the index following the last key copied.
+		 */
+		abstract int collectKeys(String[] result, int index);
+
+		abstract void shareStrings(StringPool set);
+
+		static int bitpos(int hash, int shift) {
+			return 1 << ((hash >>> shift) & MASK);
+		}
+
+		/**
+		 * Creates a node holding two distinct keys that collide at the
+		 * previous level of the trie.
+		 */
+		static Node createNode(int shift, String key1, String value1, int hash1, String key2, String value2, int hash2) {
+			if (hash1 == hash2)
+				return new CollisionNode(hash1, new String[] {key1, key2}, new String[] {value1, value2});
+			int bit1 = bitpos(hash1, shift);
+			int bit2 = bitpos(hash2, shift);
+			if (bit1 == bit2)
+				return new BitmapNode(bit1, new Object[] {null, createNode(shift + BITS, key1, value1, hash1, key2, value2, hash2)});
+			if (Integer.compareUnsigned(bit1, bit2) < 0)
+				return new BitmapNode(bit1 | bit2, new Object[] {key1, value1, key2, value2});
+			return new BitmapNode(bit1 | bit2, new Object[] {key2, value2, key1, value1});
+		}
+	}
+
+	/**
+	 * A trie node that stores up to 32 slots, one for each bit set in the
+	 * bitmap.  Each slot takes two consecutive array elements: either a key
+	 * and its value, or <code>null</code> and a child node.
+	 */
+	static final class BitmapNode extends Node {
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		private final int bitmap;
+		private final Object[] array;
+
+		BitmapNode(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		String get(String key, int hash, int shift) {
+			int bit = bitpos(hash, shift);
+			if ((bitmap & bit) == 0)
+				return null;
+			int index = 2 * index(bit);
+			Object currentKey = array[index];
+			if (currentKey == null)
+				return ((Node) array[index + 1]).get(key, hash, shift + BITS);
+			return key.equals(currentKey) ? (String) array[index + 1] : null;
+		}
+
+		@Override
+		Node put(String key, int hash, String value, int shift, boolean[] added) {
+			int bit = bitpos(hash, shift);
+			int index = 2 * index(bit);
+			if ((bitmap & bit) == 0) {
+				// free slot, insert the pair
+				Object[] newArray = new Object[array.length + 2];
+				System.arraycopy(array, 0, newArray, 0, index);
+				newArray[index] = key;
+				newArray[index + 1] = value;
+				System.arraycopy(array, index, newArray, index + 2, array.length - index);
+				added[0] = true;
+				return new BitmapNode(bitmap | bit, newArray);
+			}
+			Object currentKey = array[index];
+			Object currentValue = array[index + 1];
+			if (currentKey == null) {
+				Node child = (Node) currentValue;
+				Node newChild = child.put(key, hash, value, shift + BITS, added);
+				if (newChild == child)
+					return this;
+				return new BitmapNode(bitmap, cloneAndSet(array, index, null, newChild));
+			}
+			if (key.equals(currentKey)) {
+				if (value == currentValue)
+					return this;
+				return new BitmapNode(bitmap, cloneAndSet(array, index, currentKey, value));
+			}
+			// two different keys in the same slot, push both down one level
+			added[0] = true;
+			String otherKey = (String) currentKey;
+			Node child = createNode(shift + BITS, otherKey, (String) currentValue, TrieMap.hash(otherKey), key, value, hash);
+			return new BitmapNode(bitmap, cloneAndSet(array, index, null, child));
+		}
+
+		@Override
+		Node remove(String key, int hash, int shift) {
+			int bit = bitpos(hash, shift);
+			if ((bitmap & bit) == 0)
+				return this;
+			int index = 2 * index(bit);
+			Object currentKey = array[index];
+			if (currentKey == null) {
+				Node child = (Node) array[index + 1];
+				Node newChild = child.remove(key, hash, shift + BITS);
+				if (newChild == child)
+					return this;
+				if (newChild == null)
+					return removeSlot(bit, index);
+				if (newChild instanceof BitmapNode) {
+					// pull a lone remaining entry up into this node to keep the trie shallow
+					Object[] childArray = ((BitmapNode) newChild).array;
+					if (childArray.length == 2 && childArray[0] != null)
+						return new BitmapNode(bitmap, cloneAndSet(array, index, childArray[0], childArray[1]));
 				}
-				index = (index + 1) & lengthMask;
+				return new BitmapNode(bitmap, cloneAndSet(array, index, null, newChild));
 			}
+			if (key.equals(currentKey))
+				return removeSlot(bit, index);
 			return this;
 		}
 
+		private Node removeSlot(int bit, int index) {
+			if (bitmap == bit)
+				return null;
+			Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, index);
+			System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+			return new BitmapNode(bitmap ^ bit, newArray);
+		}
+
+		private static Object[] cloneAndSet(Object[] array, int index, Object key, Object value) {
+			Object[] result = array.clone();
+			result[index] = key;
+			result[index + 1] = value;
+			return result;
+		}
 
 		@Override
-		public void shareStrings(StringPool set) {
-			//copy elements for thread safety
-			String[] array = keyTable;
-			if (array == null)
-				return;
-			for (int i = 0; i < array.length; i++) {
-				String o = array[i];
-				if (o != null)
-					array[i] = set.add(o);
+		int collectKeys(String[] result, int next) {
+			for (int i = 0; i < array.length; i += 2) {
+				Object key = array[i];
+				if (key == null)
+					next = ((Node) array[i + 1]).collectKeys(result, next);
+				else
+					result[next++] = (String) key;
+			}
+			return next;
+		}
+
+		@Override
+		void shareStrings(StringPool set) {
+			for (int i = 0; i < array.length; i += 2) {
+				Object key = array[i];
+				if (key == null) {
+					((Node) array[i + 1]).shareStrings(set);
+				} else {
+					array[i] = set.add((String) key);
+					Object value = array[i + 1];
+					if (value != null)
+						array[i + 1] = set.add((String) value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A trie node holding keys whose hashes are identical.
+	 */
+	static final class CollisionNode extends Node {
+		private final int hash;
+		private final String[] keys;
+		private final String[] values;
+
+		CollisionNode(int hash, String[] keys, String[] values) {
+			this.hash = hash;
+			this.keys = keys;
+			this.values = values;
+		}
+
+		private int indexOf(String key) {
+			for (int i = 0; i < keys.length; i++)
+				if (keys[i].equals(key))
+					return i;
+			return -1;
+		}
+
+		@Override
+		String get(String key, int keyHash, int shift) {
+			if (keyHash != hash)
+				return null;
+			int index = indexOf(key);
+			return index == -1 ? null : values[index];
+		}
+
+		@Override
+		Node put(String key, int keyHash, String value, int shift, boolean[] added) {
+			if (keyHash != hash) {
+				// nest this node below a bitmap node that can tell both hashes apart
+				return new BitmapNode(bitpos(hash, shift), new Object[] {null, this}).put(key, keyHash, value, shift, added);
 			}
-			array = valueTable;
-			if (array == null)
-				return;
-			for (int i = 0; i < array.length; i++) {
-				String o = array[i];
-				if (o != null)
-					array[i] = set.add(o);
+			int index = indexOf(key);
+			if (index != -1) {
+				if (values[index] == value)
+					return this;
+				String[] newValues = values.clone();
+				newValues[index] = value;
+				return new CollisionNode(hash, keys, newValues);
 			}
+			int length = keys.length;
+			String[] newKeys = new String[length + 1];
+			String[] newValues = new String[length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, length);
+			System.arraycopy(values, 0, newValues, 0, length);
+			newKeys[length] = key;
+			newValues[length] = value;
+			added[0] = true;
+			return new CollisionNode(hash, newKeys, newValues);
 		}
 
 		@Override
-		public int size() {
-			return elementSize;
+		Node remove(String key, int keyHash, int shift) {
+			if (keyHash != hash)
+				return this;
+			int index = indexOf(key);
+			if (index == -1)
+				return this;
+			int length = keys.length;
+			if (length == 1)
+				return null;
+			String[] newKeys = new String[length - 1];
+			String[] newValues = new String[length - 1];
+			System.arraycopy(keys, 0, newKeys, 0, index);
+			System.arraycopy(values, 0, newValues, 0, index);
+			System.arraycopy(keys, index + 1, newKeys, index, length - index - 1);
+			System.arraycopy(values, index + 1, newValues, index, length - index - 1);
+			return new CollisionNode(hash, newKeys, newValues);
 		}
 
+		@Override
+		int collectKeys(String[] result, int next) {
+			System.arraycopy(keys, 0, result, next, keys.length);
+			return next + keys.length;
+		}
+
+		@Override
+		void shareStrings(StringPool set) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = set.add(keys[i]);
+				if (values[i] != null)
+					values[i] = set.add(values[i]);
+			}
+		}
 	}
 
 	static class EmptyMap extends ImmutableMap {
@@ -203,7 +422,7 @@ public abstract class ImmutableMap implements Cloneable {
 
 		@Override
 		public ImmutableMap put(String key, String value) {
-			ImmutableMap result = createMap(4);
+			ImmutableMap result = createMap(1);
 			result.internalPut(key, value);
 			return result;
 		}
@@ -233,7 +452,8 @@ public abstract class ImmutableMap implements Cloneable {
 	protected static ImmutableMap createMap(int i) {
 		if (i <= 0)
 			return EMPTY;
-		return new ArrayMap(i);
+		// the trie grows on demand, there is no capacity to reserve
+		return new TrieMap();
 	}
 
 	/**
@@ -33,6 +33,9 @@ public class InstancePreferences extends EclipsePreferences {
 	private static Set<String> loadedNodes = Collections.synchronizedSet(new HashSet<String>());
 	private static boolean initialized = false;
 	private static IPath baseLocation;
+	// the snapshot of the preference files, opened on first use
+	private static PreferencesSnapshot snapshot;
+	private static boolean snapshotOpened = false;
 
 	/* package */static IPath getBaseLocation() {
 		// If we are running with -data=@none we won't have an instance location.
@@ -82,6 +85,30 @@ public class InstancePreferences extends EclipsePreferences {
 		loadedNodes.add(name());
 	}
 
+	@Override
+	PreferencesSnapshot getSnapshot() {
+		synchronized (InstancePreferences.class) {
+			if (!snapshotOpened && PreferencesSnapshot.enabled) {
+				IPath base = getBaseLocation();
+				if (base != null) {
+					snapshot = PreferencesSnapshot.open(base);
+					snapshotOpened = true;
+				}
+			}
+			return snapshot;
+		}
+	}
+
+	/*
+	 * Refresh the snapshot of the preference files of this scope if it has been used.
+	 */
+	static void saveSnapshot() {
+		synchronized (InstancePreferences.class) {
+			if (snapshotOpened && baseLocation != null)
+				PreferencesSnapshot.write(baseLocation, snapshot);
+		}
+	}
+
 	@Override
 	protected IPath getLocation() {
 		if (location == null)
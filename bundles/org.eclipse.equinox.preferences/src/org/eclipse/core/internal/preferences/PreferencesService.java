@@ -194,11 +194,15 @@ public class PreferencesService implements IPreferencesService {
 			}
 		};
 
+		// report the changes to change set listeners all at once
+		root.beginBatch();
 		try {
 			// start by visiting the root
 			modifiedNode.accept(visitor);
 		} catch (BackingStoreException e) {
 			throw new CoreException(createStatusError(PrefsMessages.preferences_applyProblems, e));
+		} finally {
+			root.endBatch();
 		}
 
 		// save the preferences
@@ -476,7 +480,7 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public boolean getBoolean(String qualifier, String key, boolean defaultValue, IScopeContext[] scopes) {
-		String result = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String result = getValue(qualifier, key, scopes);
 		return result == null ? defaultValue : Boolean.valueOf(result).booleanValue();
 	}
 
@@ -513,7 +517,7 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public byte[] getByteArray(String qualifier, String key, byte[] defaultValue, IScopeContext[] scopes) {
-		String result = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String result = getValue(qualifier, key, scopes);
 		return result == null ? defaultValue : Base64.decode(result.getBytes());
 	}
 
@@ -527,7 +531,7 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public double getDouble(String qualifier, String key, double defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -540,7 +544,7 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public float getFloat(String qualifier, String key, float defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -553,7 +557,7 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public int getInt(String qualifier, String key, int defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -568,7 +572,7 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public long getLong(String qualifier, String key, long defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -646,6 +650,55 @@ public class PreferencesService implements IPreferencesService {
 		return result.toArray(new Preferences[result.size()]);
 	}
 
+	/*
+	 * Return the value of the given key found by searching the nodes of the look-up
+	 * order, or null if none of them has a value. Values are served from the
+	 * resolved value cache if the result doesn't depend on the given contexts.
+	 */
+	private String getValue(String qualifier, String key, IScopeContext[] contexts) {
+		if (qualifier == null || key == null || !isCacheable(contexts))
+			return get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, contexts));
+		String[] decoded = EclipsePreferences.decodePath(key);
+		String childPath = EclipsePreferences.makeRelative(decoded[0]);
+		String nodePath = childPath.isEmpty() ? qualifier : qualifier + IPath.SEPARATOR + childPath;
+		if (!isCacheable(nodePath, getLookupOrder(qualifier, key)))
+			return get(decoded[1], null, getNodes(qualifier, key, contexts));
+		return ResolvedValueCache.getDefault().get(nodePath, decoded[1], () -> get(decoded[1], null, getNodes(qualifier, key, contexts)));
+	}
+
+	/*
+	 * Return whether or not the nodes of the given contexts are the same nodes the
+	 * look-up would find in the global preference tree if no context was given.
+	 */
+	private boolean isCacheable(IScopeContext[] contexts) {
+		if (contexts == null)
+			return true;
+		for (IScopeContext context : contexts) {
+			if (context == null)
+				continue;
+			Class<?> contextClass = context.getClass();
+			if (contextClass != InstanceScope.class && contextClass != ConfigurationScope.class && contextClass != DefaultScope.class && contextClass != BundleDefaultsScope.class)
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Return whether or not the resolved value cache is told about the changes of
+	 * the nodes with the given path in the given scopes, that is if the path is a
+	 * plain relative path and the nodes of all the scopes are EclipsePreferences.
+	 */
+	private boolean isCacheable(String nodePath, String[] scopes) {
+		if (nodePath.isEmpty() || nodePath.charAt(0) == IPath.SEPARATOR || nodePath.charAt(nodePath.length() - 1) == IPath.SEPARATOR || nodePath.contains(EclipsePreferences.DOUBLE_SLASH))
+			return false;
+		IEclipsePreferences root = getRootNode();
+		for (String scope : scopes) {
+			if (!(root.node(scope) instanceof EclipsePreferences))
+				return false;
+		}
+		return true;
+	}
+
 	/*
 	 * Convert the given qualifier and key into a key to use in the look-up registry.
 	 */
@@ -683,7 +736,8 @@ public class PreferencesService implements IPreferencesService {
 
 	@Override
 	public String getString(String qualifier, String key, String defaultValue, IScopeContext[] scopes) {
-		return get(EclipsePreferences.decodePath(key)[1], defaultValue, getNodes(qualifier, key, scopes));
+		String result = getValue(qualifier, key, scopes);
+		return result == null ? defaultValue : result;
 	}
 
 
@@ -720,7 +774,13 @@ public class PreferencesService implements IPreferencesService {
 				return true;
 			}
 		};
-		toApply.accept(visitor);
+		// report the changes to change set listeners all at once
+		root.beginBatch();
+		try {
+			toApply.accept(visitor);
+		} finally {
+			root.endBatch();
+		}
 	}
 
 	/**
@@ -945,6 +1005,7 @@ public class PreferencesService implements IPreferencesService {
 			LookupOrder obj = new LookupOrder(order);
 			defaultsRegistry.put(registryKey, obj);
 		}
+		ResolvedValueCache.getDefault().clear();
 	}
 
 	public void setRegistryHelper(Object registryHelper) {
@@ -1135,5 +1196,6 @@ public class PreferencesService implements IPreferencesService {
 		if (order == null)
 			order = new String[0];
 		DEFAULT_DEFAULT_LOOKUP_ORDER = order;
+		ResolvedValueCache.getDefault().clear();
 	}
 }
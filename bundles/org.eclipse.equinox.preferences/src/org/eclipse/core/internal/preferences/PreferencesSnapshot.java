@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.preferences;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * A binary snapshot of all the preference files of a scope.
+ * <p>
+ * The snapshot stores the content of every <code>.prefs</code> file of the
+ * scope together with the length, the modification time and a checksum of
+ * the bytes the file had when the snapshot was taken. Loading a node from the
+ * snapshot avoids reading and parsing its preference file. If the length or
+ * the modification time of the file has changed since the snapshot was taken
+ * the node is loaded from the file as usual.
+ * </p>
+ * <p>
+ * An edit which keeps both the length and the modification time of a file is
+ * not noticed, unless the {@value #PROP_SNAPSHOT_CHECKSUM} property is set to
+ * <code>true</code>. The file is then read to compare its checksum whenever it
+ * is loaded from the snapshot, which saves the parsing but not the read.
+ * </p>
+ * <p>
+ * The snapshot file is memory mapped and decoded lazily. All the strings are
+ * kept in a single table, so equal keys and values of different nodes are
+ * shared without a string sharing pass.
+ * </p>
+ * <p>
+ * The format of the snapshot is:
+ * <pre>
+ * int magic, int version
+ * int stringCount, int[stringCount] string offsets
+ * int fileCount, fileCount * (int name, long length, long lastModified, long checksum, int entries offset)
+ * string data: (int byteCount, UTF-8 bytes)*
+ * entries: (int pairCount, pairCount * (int key, int value))*
+ * </pre>
+ * where strings are referenced by their index in the string table and offsets
+ * are absolute positions in the snapshot.
+ * </p>
+ * <p>
+ * Every snapshot is written to a new file named <code>.snapshot.&lt;generation&gt;</code>
+ * and the most recent generation is used. An older generation may still be
+ * mapped while the next one is written, and mapped files cannot be replaced or
+ * deleted on every platform, so older generations are only deleted on a best
+ * effort basis and again whenever a snapshot is opened or written.
+ * </p>
+ * <p>
+ * Snapshots are disabled by default. They are enabled by setting the
+ * {@value #PROP_SNAPSHOT} property to <code>true</code>, in which case the
+ * snapshots of the instance and configuration scopes are refreshed when the
+ * preferences bundle is stopped.
+ * </p>
+ */
+public class PreferencesSnapshot {
+
+	/**
+	 * The framework property which enables the preference snapshots.
+	 */
+	static final String PROP_SNAPSHOT = "eclipse.preferences.snapshot"; //$NON-NLS-1$
+	/**
+	 * The framework property which makes the snapshots verify the checksums of
+	 * the preference files.
+	 */
+	static final String PROP_SNAPSHOT_CHECKSUM = "eclipse.preferences.snapshot.checksum"; //$NON-NLS-1$
+	static final String SNAPSHOT_FILE_NAME = ".snapshot"; //$NON-NLS-1$
+
+	private static final int MAGIC = 0x45505331; // EPS1
+	private static final int VERSION = 2;
+
+	static volatile boolean enabled = false;
+	static volatile boolean verifyChecksums = false;
+
+	private static class FileEntry {
+		final long length;
+		final long lastModified;
+		final long checksum;
+		final int entriesOffset;
+
+		FileEntry(long length, long lastModified, long checksum, int entriesOffset) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.checksum = checksum;
+			this.entriesOffset = entriesOffset;
+		}
+
+		boolean matches(long fileLength, long fileLastModified) {
+			return length == fileLength && lastModified == fileLastModified;
+		}
+	}
+
+	private final int generation;
+	private final ByteBuffer buffer;
+	private final int[] stringOffsets;
+	private final String[] strings;
+	private final Map<String, FileEntry> files;
+
+	private PreferencesSnapshot(int generation, ByteBuffer buffer, int[] stringOffsets, Map<String, FileEntry> files) {
+		this.generation = generation;
+		this.buffer = buffer;
+		this.stringOffsets = stringOffsets;
+		this.strings = new String[stringOffsets.length];
+		this.files = files;
+	}
+
+	/**
+	 * Returns the directory holding the preference files and the snapshots of
+	 * the scope stored at the given location.
+	 */
+	private static File getDirectory(IPath baseLocation) {
+		return baseLocation.append(EclipsePreferences.DEFAULT_PREFERENCES_DIRNAME).toFile();
+	}
+
+	/**
+	 * Returns the generation of the given snapshot file name, or -1 if the
+	 * name is not the name of a snapshot.
+	 */
+	private static int getGeneration(String name) {
+		if (!name.startsWith(SNAPSHOT_FILE_NAME + '.'))
+			return -1;
+		try {
+			return Integer.parseInt(name.substring(SNAPSHOT_FILE_NAME.length() + 1));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the most recent generation of the snapshots stored in the given
+	 * directory, or -1 if there is none.
+	 */
+	private static int getLatestGeneration(File directory) {
+		int result = -1;
+		String[] names = directory.list();
+		if (names != null)
+			for (String name : names)
+				result = Math.max(result, getGeneration(name));
+		return result;
+	}
+
+	/**
+	 * Deletes the snapshots stored in the given directory other than the given
+	 * generation. Snapshots which are still mapped may not be deletable, they
+	 * are left for a later attempt.
+	 */
+	private static void deleteOtherGenerations(File directory, int generation) {
+		File[] children = directory.listFiles();
+		if (children == null)
+			return;
+		for (File child : children) {
+			String name = child.getName();
+			int childGeneration = getGeneration(name);
+			boolean stale = childGeneration >= 0 ? childGeneration != generation : name.equals(SNAPSHOT_FILE_NAME);
+			if (stale && !child.delete() && EclipsePreferences.DEBUG_PREFERENCE_GENERAL)
+				PrefsMessages.message("Unable to delete preference snapshot, it is deleted later: " + child); //$NON-NLS-1$
+		}
+	}
+
+	private static long checksum(byte[] content) {
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		return crc.getValue();
+	}
+
+	/**
+	 * Returns the bytes of the given file, or <code>null</code> if it cannot be read.
+	 */
+	private static byte[] readContent(File file) {
+		try {
+			return Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Opens the most recent snapshot of the scope stored at the given location.
+	 * Returns <code>null</code> if there is no snapshot or if it cannot be read.
+	 */
+	public static PreferencesSnapshot open(IPath baseLocation) {
+		File directory = getDirectory(baseLocation);
+		int generation = getLatestGeneration(directory);
+		if (generation < 0)
+			return null;
+		deleteOtherGenerations(directory, generation);
+		Path snapshotFile = new File(directory, SNAPSHOT_FILE_NAME + '.' + generation).toPath();
+		try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				return null;
+			int[] stringOffsets = new int[buffer.getInt()];
+			for (int i = 0; i < stringOffsets.length; i++)
+				stringOffsets[i] = buffer.getInt();
+			int fileCount = buffer.getInt();
+			Map<String, FileEntry> files = new HashMap<>(fileCount * 2);
+			PreferencesSnapshot result = new PreferencesSnapshot(generation, buffer, stringOffsets, files);
+			for (int i = 0; i < fileCount; i++) {
+				String name = result.getString(buffer.getInt());
+				files.put(name, new FileEntry(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt()));
+			}
+			return result;
+		} catch (IOException | RuntimeException e) {
+			if (EclipsePreferences.DEBUG_PREFERENCE_GENERAL)
+				PrefsMessages.message("Unable to read preference snapshot: " + snapshotFile + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the content of the given preference file, or <code>null</code>
+	 * if the file is not part of this snapshot or has changed since the
+	 * snapshot was taken.
+	 */
+	public Properties load(IPath location) {
+		FileEntry entry = files.get(location.lastSegment());
+		if (entry == null)
+			return null;
+		// don't read content that is about to be replaced
+		PreferencesWriter writer = PreferencesWriter.getDefault();
+		if (writer != null)
+			writer.writePending(location.toFile().toPath());
+		File file = location.toFile();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		if (!entry.matches(length, lastModified))
+			return null;
+		if (verifyChecksums) {
+			byte[] content = readContent(file);
+			if (content == null || entry.checksum != checksum(content))
+				return null;
+		}
+		Properties result = new Properties();
+		readEntries(entry, result);
+		return result;
+	}
+
+	private void readEntries(FileEntry entry, Map<Object, Object> result) {
+		int offset = entry.entriesOffset;
+		int pairCount = buffer.getInt(offset);
+		for (int i = 0; i < pairCount; i++) {
+			offset += 8;
+			result.put(getString(buffer.getInt(offset - 4)), getString(buffer.getInt(offset)));
+		}
+	}
+
+	private String getString(int index) {
+		String result = strings[index];
+		if (result == null) {
+			ByteBuffer data = buffer.duplicate();
+			data.position(stringOffsets[index]);
+			byte[] bytes = new byte[data.getInt()];
+			data.get(bytes);
+			// racing threads decode equal strings, which is harmless
+			result = new String(bytes, StandardCharsets.UTF_8);
+			strings[index] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Takes a new snapshot of the preference files of the scope stored at the
+	 * given location. Files which did not change since the given previous
+	 * snapshot was taken are not parsed again.
+	 */
+	public static void write(IPath baseLocation, PreferencesSnapshot previous) {
+		File directory = getDirectory(baseLocation);
+		File[] prefsFiles = directory.listFiles();
+		if (prefsFiles == null)
+			return;
+		String extension = '.' + EclipsePreferences.PREFS_FILE_EXTENSION;
+		Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+		List<Object[]> fileData = new ArrayList<>();
+		for (File prefsFile : prefsFiles) {
+			String name = prefsFile.getName();
+			if (!name.endsWith(extension) || !prefsFile.isFile())
+				continue;
+			long length = prefsFile.length();
+			long lastModified = prefsFile.lastModified();
+			FileEntry entry = previous == null ? null : previous.files.get(name);
+			boolean unchanged = entry != null && entry.matches(length, lastModified);
+			byte[] bytes = null;
+			if (!unchanged || verifyChecksums) {
+				// the content is read once, so the checksum describes exactly what is stored
+				bytes = readContent(prefsFile);
+				if (bytes == null)
+					continue;
+				unchanged = unchanged && entry.checksum == checksum(bytes);
+			}
+			Map<Object, Object> content = new TreeMap<>();
+			long checksum;
+			if (unchanged) {
+				previous.readEntries(entry, content);
+				checksum = entry.checksum;
+			} else {
+				checksum = checksum(bytes);
+				Properties properties = new Properties();
+				try {
+					properties.load(new ByteArrayInputStream(bytes));
+				} catch (IOException | IllegalArgumentException e) {
+					// leave the file out of the snapshot, loading the node reports the problem
+					continue;
+				}
+				content.putAll(properties);
+			}
+			int[] pairs = new int[content.size() * 2];
+			int next = 0;
+			for (Map.Entry<Object, Object> pair : content.entrySet()) {
+				pairs[next++] = indexOf(stringIndexes, (String) pair.getKey());
+				pairs[next++] = indexOf(stringIndexes, (String) pair.getValue());
+			}
+			fileData.add(new Object[] {indexOf(stringIndexes, name), length, lastModified, checksum, pairs});
+		}
+
+		// never replace a snapshot in place, the previous one may still be mapped
+		int generation = Math.max(getLatestGeneration(directory), previous == null ? -1 : previous.generation) + 1;
+		Path snapshotFile = new File(directory, SNAPSHOT_FILE_NAME + '.' + generation).toPath();
+		Path tmp = snapshotFile.resolveSibling(SNAPSHOT_FILE_NAME + ".tmp"); //$NON-NLS-1$
+		try {
+			byte[][] encoded = new byte[stringIndexes.size()][];
+			int index = 0;
+			for (String string : stringIndexes.keySet())
+				encoded[index++] = string.getBytes(StandardCharsets.UTF_8);
+			// compute the offsets of the three sections following the header
+			int headerSize = 4 + 4 + 4 + 4 * encoded.length + 4 + fileData.size() * (4 + 8 + 8 + 8 + 4);
+			int stringsSize = 0;
+			for (byte[] bytes : encoded)
+				stringsSize += 4 + bytes.length;
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(headerSize + stringsSize);
+			DataOutputStream output = new DataOutputStream(bytes);
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(encoded.length);
+			int offset = headerSize;
+			for (byte[] string : encoded) {
+				output.writeInt(offset);
+				offset += 4 + string.length;
+			}
+			output.writeInt(fileData.size());
+			for (Object[] data : fileData) {
+				output.writeInt((Integer) data[0]);
+				output.writeLong((Long) data[1]);
+				output.writeLong((Long) data[2]);
+				output.writeLong((Long) data[3]);
+				output.writeInt(offset);
+				offset += 4 + 4 * ((int[]) data[4]).length;
+			}
+			for (byte[] string : encoded) {
+				output.writeInt(string.length);
+				output.write(string);
+			}
+			for (Object[] data : fileData) {
+				int[] pairs = (int[]) data[4];
+				output.writeInt(pairs.length / 2);
+				for (int pair : pairs)
+					output.writeInt(pair);
+			}
+			output.flush();
+			Files.write(tmp, bytes.toByteArray());
+			Files.move(tmp, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// the snapshot is just an optimization, files are read as usual without it
+			String message = NLS.bind(PrefsMessages.preferences_saveException, snapshotFile);
+			EclipsePreferences.log(new Status(IStatus.WARNING, PrefsMessages.OWNER_NAME, IStatus.WARNING, message, e));
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException e1) {
+				// ignore, it is overwritten by the next snapshot
+			}
+			return;
+		}
+		deleteOtherGenerations(directory, generation);
+	}
+
+	private static int indexOf(Map<String, Integer> stringIndexes, String string) {
+		return stringIndexes.computeIfAbsent(string, s -> stringIndexes.size());
+	}
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.preferences;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.osgi.util.NLS;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * Writes preference files in the background.
+ * <p>
+ * When write-behind is enabled, flushing a node only records the new content
+ * of its preference file and returns. A background thread writes the files
+ * once the write-behind delay has elapsed, so that all the flushes of the same
+ * node during the delay result in a single write of its latest content.
+ * Pending writes are performed right away when a node is synchronized, before
+ * a file is loaded again and when the preferences bundle is stopped.
+ * </p>
+ * <p>
+ * A file that cannot be written is logged and its node is made dirty again,
+ * so that it is saved by the next flush. The failure is also reported by the
+ * next <code>sync()</code> of the node, with a
+ * <code>BackingStoreException</code>.
+ * </p>
+ * <p>
+ * Write-behind is disabled by default. It is enabled by setting the
+ * {@value #PROP_WRITE_BEHIND_DELAY} property to the delay in milliseconds.
+ * </p>
+ */
+public class PreferencesWriter {
+
+	/**
+	 * The framework property holding the write-behind delay in milliseconds.
+	 */
+	static final String PROP_WRITE_BEHIND_DELAY = "eclipse.preferences.writeBehindDelay"; //$NON-NLS-1$
+
+	/**
+	 * The time in milliseconds {@link #stop()} waits for a write in progress.
+	 */
+	private static final long STOP_TIMEOUT = 10000;
+
+	private static volatile PreferencesWriter instance;
+
+	private final long delay;
+	private final ScheduledExecutorService executor;
+	/**
+	 * Pending writes, guarded by this writer.
+	 */
+	private Map<Path, PendingWrite> pending = new LinkedHashMap<>();
+	/**
+	 * The failures to write files not reported by a sync yet, guarded by this
+	 * writer.
+	 */
+	private final Map<Path, IOException> failures = new HashMap<>();
+	/**
+	 * Serializes the file system operations, so that content taken from the
+	 * pending writes is never overwritten with older content.
+	 */
+	private final Object ioLock = new Object();
+	private boolean scheduled = false;
+
+	/**
+	 * The latest content of a file and the node it belongs to. A
+	 * <code>null</code> content means that the file has to be deleted.
+	 */
+	private static final class PendingWrite {
+		final EclipsePreferences node;
+		final String content;
+
+		PendingWrite(EclipsePreferences node, String content) {
+			this.node = node;
+			this.content = content;
+		}
+	}
+
+	private PreferencesWriter(long delay) {
+		this.delay = delay;
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "Preferences Writer"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		// stop() performs the pending writes itself
+		scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		this.executor = scheduler;
+	}
+
+	/**
+	 * Returns the writer, or <code>null</code> if write-behind is disabled.
+	 */
+	static PreferencesWriter getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Enables write-behind if the given delay is a positive number.
+	 */
+	public static synchronized void start(String delayProperty) {
+		if (delayProperty == null || instance != null)
+			return;
+		long delay;
+		try {
+			delay = Long.parseLong(delayProperty.trim());
+		} catch (NumberFormatException e) {
+			return;
+		}
+		if (delay > 0)
+			instance = new PreferencesWriter(delay);
+	}
+
+	/**
+	 * Disables write-behind after performing all pending writes and waiting
+	 * for the background thread to end.
+	 */
+	public static synchronized void stop() {
+		PreferencesWriter writer = instance;
+		if (writer == null)
+			return;
+		instance = null;
+		writer.executor.shutdown();
+		writer.writePending();
+		try {
+			writer.executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Records the given content of the given node to be written to the given
+	 * file by the background thread, or the deletion of the file if the content
+	 * is <code>null</code>. The content replaces any content of the file that
+	 * has not been written yet.
+	 */
+	void write(EclipsePreferences node, Path file, String content) {
+		boolean schedule;
+		synchronized (this) {
+			pending.put(file, new PendingWrite(node, content));
+			schedule = !scheduled;
+			scheduled = true;
+		}
+		if (schedule) {
+			try {
+				executor.schedule(() -> writePending(), delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// stopped concurrently, write in the caller's thread instead
+				writePending();
+			}
+		}
+	}
+
+	/**
+	 * Performs the pending write of the given file, if any, and reports the
+	 * failure to write the file since the last sync.
+	 * 
+	 * @throws IOException if the file could not be written
+	 */
+	void sync(Path file) throws IOException {
+		writePending(file);
+		IOException failure;
+		synchronized (this) {
+			failure = failures.remove(file);
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Performs the pending write of the given file, if any.
+	 */
+	void writePending(Path file) {
+		synchronized (ioLock) {
+			PendingWrite write;
+			synchronized (this) {
+				write = pending.remove(file);
+			}
+			if (write != null)
+				write(file, write);
+		}
+	}
+
+	/**
+	 * Performs all pending writes.
+	 */
+	void writePending() {
+		synchronized (ioLock) {
+			Map<Path, PendingWrite> toWrite;
+			synchronized (this) {
+				toWrite = pending;
+				pending = new LinkedHashMap<>();
+				scheduled = false;
+			}
+			toWrite.forEach(this::write);
+		}
+	}
+
+	private void write(Path file, PendingWrite write) {
+		IOException failure = null;
+		try {
+			if (write.content == null)
+				EclipsePreferences.deleteFile(file);
+			else
+				EclipsePreferences.writeFile(file, write.content);
+		} catch (IOException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			failure = new IOException(e);
+		}
+		synchronized (this) {
+			if (failure == null)
+				failures.remove(file);
+			else
+				failures.put(file, failure);
+		}
+		if (failure != null) {
+			// the node has to be saved again
+			write.node.makeDirty();
+			String message = NLS.bind(PrefsMessages.preferences_saveException, file);
+			EclipsePreferences.log(new Status(IStatus.ERROR, PrefsMessages.OWNER_NAME, IStatus.ERROR, message, failure));
+		}
+	}
+}
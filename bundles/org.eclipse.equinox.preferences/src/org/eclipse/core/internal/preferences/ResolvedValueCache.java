@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.preferences;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Cache of the values which the preferences service resolved by searching
+ * the scopes of the look-up order.
+ * <p>
+ * Values are grouped by the path of the node holding them relative to the
+ * scope roots, for instance <code>org.example/sub</code> for the key
+ * <code>sub/key</code> of the qualifier <code>org.example</code>. Whenever the
+ * node with that path changes in any scope, either because one of its values
+ * changed or because it or one of its ancestors was added or removed, all the
+ * values cached for that path are discarded. A change of the look-up order
+ * discards the whole cache.
+ * </p>
+ * <p>
+ * A group of values which is discarded while a value is being resolved is
+ * simply dropped from the cache, so a value read before a concurrent change
+ * never becomes visible to later look-ups.
+ * </p>
+ * <p>
+ * The cache holds at most {@link #MAX_NODES} groups of at most
+ * {@link #MAX_VALUES_PER_NODE} values; an arbitrary group or value is
+ * discarded to make room for a new one.
+ * </p>
+ */
+class ResolvedValueCache {
+
+	static final int MAX_NODES = 1024;
+	static final int MAX_VALUES_PER_NODE = 256;
+
+	private static final ResolvedValueCache instance = new ResolvedValueCache();
+
+	/**
+	 * Marker for keys which do not have a value in any scope.
+	 */
+	private static final String NOT_FOUND = new String();
+
+	private final Map<String, Map<String, String>> values = new ConcurrentHashMap<>();
+
+	static ResolvedValueCache getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached value for the given key of the node with the given
+	 * path relative to the scope roots, or resolves and caches it if it is not
+	 * known yet. Returns <code>null</code> if the key does not have a value.
+	 */
+	String get(String nodePath, String key, Supplier<String> resolver) {
+		Map<String, String> nodeValues = values.get(nodePath);
+		if (nodeValues == null) {
+			if (values.size() >= MAX_NODES)
+				removeAny(values);
+			nodeValues = values.computeIfAbsent(nodePath, p -> new ConcurrentHashMap<>());
+		}
+		String result = nodeValues.get(key);
+		if (result == null) {
+			result = resolver.get();
+			if (nodeValues.size() >= MAX_VALUES_PER_NODE)
+				removeAny(nodeValues);
+			nodeValues.put(key, result == null ? NOT_FOUND : result);
+			return result;
+		}
+		return result == NOT_FOUND ? null : result;
+	}
+
+	private static void removeAny(Map<String, ?> map) {
+		Iterator<String> keys = map.keySet().iterator();
+		if (keys.hasNext()) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+	/**
+	 * Discards the cached values affected by a change of the values of the
+	 * node with the given absolute path.
+	 */
+	void nodeChanged(String path) {
+		if (values.isEmpty())
+			return;
+		String nodePath = getNodePath(path);
+		if (nodePath != null)
+			values.remove(nodePath);
+	}
+
+	/**
+	 * Discards the cached values affected by adding or removing the child
+	 * with the given name to the node with the given absolute path.
+	 */
+	void childrenChanged(String parentPath, String childName) {
+		if (values.isEmpty())
+			return;
+		if (parentPath.length() <= 1) {
+			// a scope was added or removed
+			values.clear();
+			return;
+		}
+		String parentNodePath = getNodePath(parentPath);
+		String nodePath = parentNodePath == null ? childName : parentNodePath + IPath.SEPARATOR + childName;
+		// the child and all of its descendants
+		values.remove(nodePath);
+		String prefix = nodePath + IPath.SEPARATOR;
+		values.keySet().removeIf(p -> p.startsWith(prefix));
+	}
+
+	/*
+	 * Returns the path of the node with the given absolute path relative to its
+	 * scope root, or null for the root and the scope roots.
+	 */
+	private static String getNodePath(String path) {
+		// the path is of the form /scope/qualifier/...
+		int start = path.indexOf(IPath.SEPARATOR, 1);
+		return start == -1 ? null : path.substring(start + 1);
+	}
+
+	/**
+	 * Discards all cached values, for instance because the look-up order changed.
+	 */
+	void clear() {
+		values.clear();
+	}
+}
@@ -219,6 +219,88 @@ public interface IEclipsePreferences extends Preferences {
 		public void preferenceChange(PreferenceChangeEvent event);
 	}
 
+	/**
+	 * An event object describing all the changes made to the preferences of a
+	 * node during a batch of changes.
+	 *
+	 * @see IEclipsePreferences#batchChanges(Runnable)
+	 * @see IEclipsePreferences.IPreferenceChangeSetListener
+	 * @since 3.11
+	 */
+	public final class PreferenceChangeSetEvent extends EventObject {
+		/**
+		 * All serializable objects should have a stable serialVersionUID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private PreferenceChangeEvent[] changes;
+
+		/**
+		 * Constructor for a new preference change set event. The node and the
+		 * changes must not be <code>null</code>.
+		 *
+		 * @param node the node on which the changes occurred
+		 * @param changes the changes, in the order in which they occurred
+		 */
+		public PreferenceChangeSetEvent(Preferences node, PreferenceChangeEvent[] changes) {
+			super(node);
+			if (changes == null)
+				throw new IllegalArgumentException();
+			this.changes = changes;
+		}
+
+		/**
+		 * Return the preference node on which the changes occurred.
+		 * Must not be <code>null</code>.
+		 *
+		 * @return the node
+		 */
+		public Preferences getNode() {
+			return (Preferences) source;
+		}
+
+		/**
+		 * Return the changes to the preferences of the node, in the order in
+		 * which they occurred. A key which was changed several times has
+		 * several entries.
+		 *
+		 * @return the changes
+		 */
+		public PreferenceChangeEvent[] getChanges() {
+			return changes.clone();
+		}
+	}
+
+	/**
+	 * A preference change listener which receives the changes made during a
+	 * batch of changes all at once.
+	 * <p>
+	 * Changes made outside of a batch are reported individually through
+	 * {@link #preferenceChange(PreferenceChangeEvent)}. Changes made to a node
+	 * during a batch are not reported individually to this listener, instead
+	 * they are reported in a single event once the batch completes.
+	 * </p>
+	 * <p>
+	 * Clients may implement this interface.
+	 * </p>
+	 *
+	 * @see IEclipsePreferences#batchChanges(Runnable)
+	 * @since 3.11
+	 */
+	public interface IPreferenceChangeSetListener extends IPreferenceChangeListener {
+
+		/**
+		 * Notification that the preference values of a node have been changed by
+		 * a batch of changes. The given event object describes the changes and
+		 * must not be <code>null</code>.
+		 *
+		 * @param event the event details
+		 * @see IEclipsePreferences.PreferenceChangeSetEvent
+		 * @see IEclipsePreferences#batchChanges(Runnable)
+		 */
+		public void preferenceChanges(PreferenceChangeSetEvent event);
+	}
+
 	/**
 	 * Register the given listener for changes to this node. Duplicate calls
 	 * to this method with the same listener will have no effect. The given
@@ -320,4 +402,31 @@ public interface IEclipsePreferences extends Preferences {
 	 *         with it.
 	 */
 	public void accept(IPreferenceNodeVisitor visitor) throws BackingStoreException;
+
+	/**
+	 * Runs the given runnable as a batch of changes to this node and its
+	 * descendants.
+	 * <p>
+	 * Changes made by the runnable, in the calling thread, to the preferences
+	 * of this node or of any of its descendants are reported to
+	 * {@link IPreferenceChangeSetListener}s in a single
+	 * {@link PreferenceChangeSetEvent} per node once the runnable completes.
+	 * Other preference change listeners are notified of each change as usual.
+	 * Batches may be nested, in which case the events are sent when the
+	 * outermost batch completes.
+	 * </p>
+	 * <p>
+	 * The default implementation just runs the given runnable, so
+	 * implementations which don't support batches report all changes
+	 * individually.
+	 * </p>
+	 *
+	 * @param changes the runnable making the changes
+	 * @throws IllegalStateException if this node or an ancestor has been removed
+	 * @see IPreferenceChangeSetListener
+	 * @since 3.11
+	 */
+	public default void batchChanges(Runnable changes) {
+		changes.run();
+	}
 }
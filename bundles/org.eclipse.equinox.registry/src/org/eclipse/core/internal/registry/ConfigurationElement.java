@@ -29,12 +29,16 @@ public class ConfigurationElement extends RegistryObject {
 	int parentId;
 	byte parentType; //This value is only interesting when running from cache.
 
-	//Store the properties and the value of the configuration element.
+	//The names of the properties of the configuration element: [p1, p2]
+	//The array is shared by all the elements having the same property names and must not be modified.
+	protected String[] propertyNames = RegistryObjectManager.EMPTY_STRING_ARRAY;
+
+	//Store the values of the properties and the value of the configuration element.
 	//The format is the following:
-	//	[p1, v1, p2, v2, configurationElementValue]
-	//If the array size is even, there is no "configurationElementValue (ie getValue returns null)".
-	//The properties and their values are alternated (v1 is the value of p1).
-	protected String[] propertiesAndValue;
+	//	[v1, v2, configurationElementValue]
+	//If the array is not longer than propertyNames, there is no "configurationElementValue (ie getValue returns null)".
+	//v1 is the value of p1.
+	protected String[] propertyValues = RegistryObjectManager.EMPTY_STRING_ARRAY;
 
 	//The name of the configuration element
 	private String name;
@@ -52,9 +56,10 @@ public class ConfigurationElement extends RegistryObject {
 		super(registry, persist);
 
 		setObjectId(self);
-		this.contributorId = contributorId;
-		this.name = name;
-		this.propertiesAndValue = propertiesAndValue;
+		RegistryObjectManager objectManager = registry.getObjectManager();
+		this.contributorId = objectManager.intern(contributorId);
+		this.name = objectManager.intern(name);
+		setProperties(propertiesAndValue);
 		setRawChildren(children);
 		setExtraDataOffset(extraDataOffset);
 		parentId = parent;
@@ -70,8 +75,8 @@ public class ConfigurationElement extends RegistryObject {
 	}
 
 	String getValueAsIs() {
-		if (propertiesAndValue.length != 0 && propertiesAndValue.length % 2 == 1)
-			return propertiesAndValue[propertiesAndValue.length - 1];
+		if (propertyValues.length > propertyNames.length)
+			return propertyValues[propertyNames.length];
 		return null;
 	}
 
@@ -80,53 +85,87 @@ public class ConfigurationElement extends RegistryObject {
 	}
 
 	String getAttributeAsIs(String attrName) {
-		if (propertiesAndValue.length <= 1)
-			return null;
-		int size = propertiesAndValue.length - (propertiesAndValue.length % 2);
-		for (int i = 0; i < size; i += 2) {
-			if (propertiesAndValue[i].equals(attrName))
-				return propertiesAndValue[i + 1];
+		int index = indexOfProperty(attrName);
+		return index == -1 ? null : propertyValues[index];
+	}
+
+	/*
+	 * Returns the position of the given property in propertyNames, -1 if the
+	 * element does not have it.
+	 */
+	int indexOfProperty(String attrName) {
+		for (int i = 0; i < propertyNames.length; i++) {
+			if (propertyNames[i].equals(attrName))
+				return i;
 		}
-		return null;
+		return -1;
 	}
 
 	protected String[] getAttributeNames() {
-		if (propertiesAndValue.length <= 1)
+		if (propertyNames.length == 0)
 			return RegistryObjectManager.EMPTY_STRING_ARRAY;
-
-		int size = propertiesAndValue.length / 2;
-		String[] result = new String[size];
-		for (int i = 0; i < size; i++) {
-			result[i] = propertiesAndValue[i * 2];
-		}
-		return result;
+		return propertyNames.clone();
 	}
 
+	/**
+	 * Sets the properties and the value of this element. The format of the array is
+	 * <code>[p1, v1, p2, v2, configurationElementValue]</code>, the value being optional.
+	 */
 	void setProperties(String[] value) {
-		propertiesAndValue = value;
+		int size = value.length / 2;
+		String[] names = new String[size];
+		String[] values = new String[value.length - size];
+		for (int i = 0; i < size; i++) {
+			names[i] = value[i * 2];
+			values[i] = value[i * 2 + 1];
+		}
+		if (values.length > size)
+			values[size] = value[value.length - 1];
+		propertyNames = registry.getObjectManager().internAttributeNames(names);
+		propertyValues = values.length == 0 ? RegistryObjectManager.EMPTY_STRING_ARRAY : values;
 	}
 
+	/**
+	 * Returns the properties and the value of this element in the format
+	 * expected by {@link #setProperties(String[])}.
+	 */
 	protected String[] getPropertiesAndValue() {
-		return propertiesAndValue;
+		if (propertyValues.length == 0)
+			return RegistryObjectManager.EMPTY_STRING_ARRAY;
+		String[] result = new String[propertyNames.length + propertyValues.length];
+		for (int i = 0; i < propertyNames.length; i++) {
+			result[i * 2] = propertyNames[i];
+			result[i * 2 + 1] = propertyValues[i];
+		}
+		if (propertyValues.length > propertyNames.length)
+			result[result.length - 1] = propertyValues[propertyNames.length];
+		return result;
 	}
 
 	void setValue(String value) {
-		if (propertiesAndValue.length == 0) {
-			propertiesAndValue = new String[] {value};
+		if (propertyValues.length > propertyNames.length) {
+			propertyValues[propertyNames.length] = value;
 			return;
 		}
-		if (propertiesAndValue.length % 2 == 1) {
-			propertiesAndValue[propertiesAndValue.length - 1] = value;
-			return;
-		}
-		String[] newPropertiesAndValue = new String[propertiesAndValue.length + 1];
-		System.arraycopy(propertiesAndValue, 0, newPropertiesAndValue, 0, propertiesAndValue.length);
-		newPropertiesAndValue[propertiesAndValue.length] = value;
-		propertiesAndValue = newPropertiesAndValue;
+		String[] newPropertyValues = new String[propertyNames.length + 1];
+		System.arraycopy(propertyValues, 0, newPropertyValues, 0, propertyValues.length);
+		newPropertyValues[propertyNames.length] = value;
+		propertyValues = newPropertyValues;
+	}
+
+	/**
+	 * Shares the names of this element again, once the shared strings and attribute
+	 * name tables were emptied.
+	 */
+	void internNames() {
+		RegistryObjectManager objectManager = registry.getObjectManager();
+		contributorId = objectManager.intern(contributorId);
+		name = objectManager.intern(name);
+		propertyNames = objectManager.internAttributeNames(propertyNames);
 	}
 
 	void setContributorId(String id) {
-		this.contributorId = id;
+		this.contributorId = registry.getObjectManager().intern(id);
 	}
 
 	protected String getContributorId() {
@@ -165,7 +204,7 @@ public class ConfigurationElement extends RegistryObject {
 	}
 
 	void setName(String name) {
-		this.name = name;
+		this.name = registry.getObjectManager().intern(name);
 	}
 
 	void setParentType(byte type) {
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.registry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.eclipse.core.runtime.IConfigurationElement;
+
+/**
+ * Index of the top-level configuration elements of an extension point, used to
+ * answer {@link ExtensionRegistry#findConfigurationElements(String, String, String, String)}.
+ * <p>
+ * The elements are indexed by name when the index is created. The elements with
+ * a given name are indexed by the value of an attribute the first time they are
+ * queried by that attribute. An index is only valid until the registry is modified.
+ * </p>
+ */
+class ConfigurationElementIndex {
+	private static final IConfigurationElement[] EMPTY = new IConfigurationElement[0];
+
+	private final ExtensionRegistry registry;
+	private final IConfigurationElement[] elements;
+	private final Map<String, IConfigurationElement[]> byName;
+	// (element name, attribute name) -> attribute value -> elements
+	private final Map<List<String>, Map<String, IConfigurationElement[]>> byAttribute = new ConcurrentHashMap<>();
+
+	ConfigurationElementIndex(ExtensionRegistry registry, IConfigurationElement[] elements) {
+		this.registry = registry;
+		this.elements = elements;
+		this.byName = group(elements, IConfigurationElement::getName);
+	}
+
+	/**
+	 * Returns the elements with the given name and attribute value. A
+	 * <code>null</code> element name or attribute name matches any element.
+	 */
+	IConfigurationElement[] find(String elementName, String attributeName, String attributeValue) {
+		IConfigurationElement[] result;
+		if (attributeName == null) {
+			result = elementName == null ? elements : byName.get(elementName);
+		} else {
+			List<String> key = Arrays.asList(elementName, attributeName);
+			Map<String, IConfigurationElement[]> byValue = byAttribute.get(key);
+			if (byValue == null) {
+				// not computed in computeIfAbsent, which would wait for the registry lock
+				// while blocking the other threads querying the same attribute
+				IConfigurationElement[] candidates = elementName == null ? elements : byName.getOrDefault(elementName, EMPTY);
+				registry.enterRead();
+				try {
+					byValue = group(candidates, element -> element.getAttribute(attributeName));
+				} finally {
+					registry.exitRead();
+				}
+				Map<String, IConfigurationElement[]> existing = byAttribute.putIfAbsent(key, byValue);
+				if (existing != null)
+					byValue = existing;
+			}
+			result = byValue.get(attributeValue);
+		}
+		// callers are free to modify the array they get
+		return result == null ? new IConfigurationElement[0] : result.clone();
+	}
+
+	private static Map<String, IConfigurationElement[]> group(IConfigurationElement[] elements, Function<IConfigurationElement, String> key) {
+		Map<String, List<IConfigurationElement>> groups = new HashMap<>();
+		for (IConfigurationElement element : elements)
+			groups.computeIfAbsent(key.apply(element), k -> new ArrayList<>(1)).add(element);
+		// a hash map, since the key may be null
+		Map<String, IConfigurationElement[]> result = new HashMap<>(groups.size() * 4 / 3 + 1);
+		groups.forEach((k, group) -> result.put(k, group.toArray(new IConfigurationElement[group.size()])));
+		return result;
+	}
+}
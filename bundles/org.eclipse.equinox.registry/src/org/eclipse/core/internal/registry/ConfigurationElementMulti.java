@@ -34,39 +34,28 @@ public class ConfigurationElementMulti extends ConfigurationElement {
 
 	@Override
 	String getAttribute(String attrName, String locale) {
-		if (propertiesAndValue.length <= 1)
-			return null;
-		//round down to an even size
-		int size = propertiesAndValue.length - (propertiesAndValue.length % 2);
-		int index = -1;
-		for (int i = 0, j = 0; i < size; i += 2, j++) {
-			if (!(propertiesAndValue[i].equals(attrName)))
-				continue;
-			index = j;
-			break;
-		}
+		int index = indexOfProperty(attrName);
 		if (index == -1)
 			return null;
 
 		String result = getTranslatedAtIndex(index, locale);
 		if (result != null)
 			return result;
-		return propertiesAndValue[index * 2 + 1]; // return non-translated value
+		return propertyValues[index]; // return non-translated value
 	}
 
 	@Override
 	String getValue(String locale) {
-		if (propertiesAndValue.length == 0 || propertiesAndValue.length % 2 == 0)
+		if (propertyValues.length <= propertyNames.length)
 			return null;
-		int index = propertiesAndValue.length - 1;
-		return getTranslatedAtIndex(index, locale);
+		return getTranslatedAtIndex(propertyNames.length, locale);
 	}
 
 	synchronized private String getTranslatedAtIndex(int index, String locale) {
 		String[] translated = null;
 		if (!translatedProperties.containsKey(locale)) {
-			String[] propertiesNonTranslated = getNonTranslated();
-			translated = registry.translate(propertiesNonTranslated, getContributor(), locale);
+			// the strategy may return the array it is given, or translate it in place
+			translated = registry.translate(propertyValues.clone(), getContributor(), locale);
 			translatedProperties.put(locale, translated);
 			registry.getObjectManager().markDirty();
 		} else
@@ -77,22 +66,6 @@ public class ConfigurationElementMulti extends ConfigurationElement {
 		return null;
 	}
 
-	private String[] getNonTranslated() {
-		int size = propertiesAndValue.length / 2;
-		boolean hasValue = ((propertiesAndValue.length % 2) == 1);
-		if (hasValue)
-			size++;
-		String[] propertiesNonTranslated = new String[size];
-		int pos = 0;
-		for (int i = 1; i < propertiesAndValue.length; i += 2) {
-			propertiesNonTranslated[pos] = propertiesAndValue[i];
-			pos++;
-		}
-		if (hasValue)
-			propertiesNonTranslated[pos] = propertiesAndValue[propertiesAndValue.length - 1];
-		return propertiesNonTranslated;
-	}
-
 	synchronized int getNumCachedLocales() {
 		return translatedProperties.getSzie();
 	}
@@ -17,6 +17,7 @@ package org.eclipse.core.internal.registry;
 import java.io.*;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.parsers.ParserConfigurationException;
 import org.eclipse.core.internal.registry.spi.ConfigurationElementAttribute;
 import org.eclipse.core.internal.registry.spi.ConfigurationElementDescription;
@@ -61,6 +62,20 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 	// used to enforce concurrent access policy for readers/writers
 	private final ReadWriteMonitor access = new ReadWriteMonitor();
 
+	// Results of the most frequent queries, keyed by extension point id. Looking them up does not
+	// need any lock. The cache is dropped when a write section begins and a new one is published
+	// when it ends. A result is only added to the cache that was published before it was computed
+	// under the read lock, so a result computed before or during a modification is never found in
+	// the cache published after it.
+	private static final class QueryCache {
+		final Map<String, IExtensionPoint> extensionPoints = new ConcurrentHashMap<>();
+		final Map<String, IConfigurationElement[]> configurationElements = new ConcurrentHashMap<>();
+		final Map<String, ConfigurationElementIndex> indexes = new ConcurrentHashMap<>();
+	}
+
+	// null while the registry is being modified
+	private volatile QueryCache queryCache = new QueryCache();
+
 	// deltas not broadcasted yet. Deltas are kept organized by the namespace name (objects with the same namespace are grouped together)
 	private transient Map<String, Object> deltas = new HashMap<>(11);
 
@@ -127,14 +142,14 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 	 * </p>
 	 */
 	private void add(Contribution element) {
-		access.enterWrite();
+		enterWrite();
 		try {
 			eventDelta = CombinedEventDelta.recordAddition();
 			basicAdd(element, true);
 			fireRegistryChangeEvent();
 			eventDelta = null;
 		} finally {
-			access.exitWrite();
+			exitWrite();
 		}
 	}
 
@@ -255,6 +270,27 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 		registryObjects.removeContributor(contributorId);
 	}
 
+	private void enterWrite() {
+		access.enterWrite();
+		// nothing is cached until the modification is complete
+		queryCache = null;
+	}
+
+	private void exitWrite() {
+		if (access.getWriteHoldCount() == 1)
+			queryCache = new QueryCache();
+		access.exitWrite();
+	}
+
+	/*
+	 * Discards the cached query results after a modification made outside of a
+	 * write section.
+	 */
+	private void clearQueryCache() {
+		enterWrite();
+		exitWrite();
+	}
+
 	// allow other objects in the registry to use the same lock
 	void enterRead() {
 		access.enterRead();
@@ -304,11 +340,25 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 	 */
 	@Override
 	public IConfigurationElement[] getConfigurationElementsFor(String pluginId, String extensionPointSimpleId) {
-		// this is just a convenience API - no need to do any sync'ing here
-		IExtensionPoint extPoint = this.getExtensionPoint(pluginId, extensionPointSimpleId);
-		if (extPoint == null)
-			return new IConfigurationElement[0];
-		return extPoint.getConfigurationElements();
+		String xptUniqueId = pluginId + '.' + extensionPointSimpleId;
+		QueryCache cache = queryCache;
+		IConfigurationElement[] result = cache == null ? null : cache.configurationElements.get(xptUniqueId);
+		if (result == null) {
+			access.enterRead();
+			try {
+				IExtensionPoint extPoint = getExtensionPoint(xptUniqueId);
+				// unknown ids are not cached, so that they cannot fill the cache
+				if (extPoint == null)
+					return new IConfigurationElement[0];
+				result = extPoint.getConfigurationElements();
+				if (cache != null)
+					cache.configurationElements.put(xptUniqueId, result);
+			} finally {
+				access.exitRead();
+			}
+		}
+		// callers are free to modify the array they get
+		return result.clone();
 	}
 
 	/*
@@ -324,6 +374,26 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 		return extension.getConfigurationElements();
 	}
 
+	@Override
+	public IConfigurationElement[] findConfigurationElements(String extensionPointId, String elementName, String attributeName, String attributeValue) {
+		// translated attribute values depend on the locale of the caller
+		if (isMultiLanguage)
+			return IExtensionRegistry.super.findConfigurationElements(extensionPointId, elementName, attributeName, attributeValue);
+		QueryCache cache = queryCache;
+		ConfigurationElementIndex index = cache == null ? null : cache.indexes.get(extensionPointId);
+		if (index == null) {
+			access.enterRead();
+			try {
+				index = new ConfigurationElementIndex(this, getConfigurationElementsFor(extensionPointId));
+				if (cache != null && getExtensionPoint(extensionPointId) != null)
+					cache.indexes.put(extensionPointId, index);
+			} finally {
+				access.exitRead();
+			}
+		}
+		return index.find(elementName, attributeName, attributeValue);
+	}
+
 	private RegistryDelta getDelta(String namespace) {
 		// is there a delta for the plug-in?
 		RegistryDelta existingDelta = (RegistryDelta) deltas.get(namespace);
@@ -395,12 +465,20 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 	 */
 	@Override
 	public IExtensionPoint getExtensionPoint(String xptUniqueId) {
-		access.enterRead();
-		try {
-			return registryObjects.getExtensionPointHandle(xptUniqueId);
-		} finally {
-			access.exitRead();
+		QueryCache cache = queryCache;
+		IExtensionPoint result = cache == null ? null : cache.extensionPoints.get(xptUniqueId);
+		if (result == null) {
+			access.enterRead();
+			try {
+				result = registryObjects.getExtensionPointHandle(xptUniqueId);
+				// unknown ids are not cached, so that they cannot fill the cache
+				if (cache != null && result != null)
+					cache.extensionPoints.put(xptUniqueId, result);
+			} finally {
+				access.exitRead();
+			}
 		}
+		return result;
 	}
 
 	/*
@@ -409,12 +487,7 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 	 */
 	@Override
 	public IExtensionPoint getExtensionPoint(String elementName, String xpt) {
-		access.enterRead();
-		try {
-			return registryObjects.getExtensionPointHandle(elementName + '.' + xpt);
-		} finally {
-			access.exitRead();
-		}
+		return getExtensionPoint(elementName + '.' + xpt);
 	}
 
 	/*
@@ -586,14 +659,14 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 	 * </p>
 	 */
 	public void remove(String removedContributorId) {
-		access.enterWrite();
+		enterWrite();
 		try {
 			eventDelta = CombinedEventDelta.recordRemoval();
 			basicRemove(removedContributorId);
 			fireRegistryChangeEvent();
 			eventDelta = null;
 		} finally {
-			access.exitWrite();
+			exitWrite();
 		}
 	}
 
@@ -712,6 +785,8 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 			}
 
 			if (!isRegistryFilledFromCache) {
+				// the cache is not read, release its files
+				theTableReader.close();
 				// set cache storage manager to a first writable location
 				for (int index = 0; index < strategy.getLocationsLength(); index++) {
 					if (!strategy.isCacheReadOnly(index)) {
@@ -1082,11 +1157,15 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 			int status = problems.getSeverity();
 			if (status != IStatus.OK) {
 				log(problems);
-				if (status == IStatus.ERROR || status == IStatus.CANCEL)
+				if (status == IStatus.ERROR || status == IStatus.CANCEL) {
+					// the parser may have left extension points behind
+					clearQueryCache();
 					return false;
+				}
 			}
 		} catch (ParserConfigurationException | SAXException | IOException e) {
 			logError(ownerName, contributionName, e);
+			clearQueryCache();
 			return false;
 		} finally {
 			try {
@@ -1099,6 +1178,79 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 		return true;
 	}
 
+	/**
+	 * Adds the contributions of manifests which have already been parsed.
+	 * <p>
+	 * The registry objects are created in the order of the given manifests, and
+	 * all the contributions are then linked under a single write lock and
+	 * reported in a single registry change event. Manifests of contributors
+	 * which are already present in the registry are skipped.
+	 * </p>
+	 * @param manifests the recorded manifests to add
+	 * @param persist true if the contributions should be stored in the registry cache
+	 * @param key the key used to check permissions
+	 */
+	public void addContributions(RecordedManifest[] manifests, boolean persist, Object key) {
+		if (!checkReadWriteAccess(key, persist))
+			throw new IllegalArgumentException("Unauthorized access to the ExtensionRegistry.addContribution() method. Check if proper access token is supplied."); //$NON-NLS-1$
+
+		List<Contribution> contributions = new ArrayList<>(manifests.length);
+		// the extensions of the batch are not in the registry until the end
+		Map<String, String> batchExtensionIds = new HashMap<>();
+		for (RecordedManifest manifest : manifests) {
+			RegistryContributor internalContributor = (RegistryContributor) manifest.getContributor();
+			if (!hasContributor(internalContributor)) {
+				Contribution contribution = createContribution(manifest, internalContributor, persist, batchExtensionIds);
+				if (contribution != null)
+					contributions.add(contribution);
+			}
+			if (manifest.timestamp != 0)
+				aggregatedTimestamp.add(manifest.timestamp);
+		}
+		if (contributions.isEmpty())
+			return;
+
+		enterWrite();
+		try {
+			eventDelta = CombinedEventDelta.recordAddition();
+			for (Contribution contribution : contributions)
+				basicAdd(contribution, true);
+			fireRegistryChangeEvent();
+			eventDelta = null;
+		} finally {
+			exitWrite();
+		}
+	}
+
+	private Contribution createContribution(RecordedManifest manifest, RegistryContributor internalContributor, boolean persist, Map<String, String> batchExtensionIds) {
+		registryObjects.addContributor(internalContributor); // only adds a contributor if it is not already present
+
+		String ownerName = internalContributor.getActualName();
+		String message = NLS.bind(RegistryMessages.parse_problems, ownerName);
+		MultiStatus problems = new MultiStatus(RegistryMessages.OWNER_NAME, ExtensionsParser.PARSE_PROBLEM, message, null);
+		ExtensionsParser parser = new ExtensionsParser(problems, this);
+		Contribution contribution = getElementFactory().createContribution(internalContributor.getActualId(), persist);
+
+		try {
+			parser.parseManifest(manifest, getObjectManager(), contribution, batchExtensionIds);
+			int status = problems.getSeverity();
+			if (status != IStatus.OK) {
+				log(problems);
+				if (status == IStatus.ERROR || status == IStatus.CANCEL) {
+					// the parser may have left extension points behind
+					clearQueryCache();
+					return null;
+				}
+			}
+		} catch (ParserConfigurationException | SAXException | IOException e) {
+			logError(ownerName, manifest.contributionName, e);
+			clearQueryCache();
+			return null;
+		}
+		parser.addExtensionIds(batchExtensionIds);
+		return contribution;
+	}
+
 	private void logError(String owner, String contributionName, Exception e) {
 		String message = NLS.bind(RegistryMessages.parse_failedParsingManifest, owner + "/" + contributionName); //$NON-NLS-1$
 		log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, 0, message, e));
@@ -1339,7 +1491,7 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 			throw new IllegalArgumentException("Unauthorized access to the ExtensionRegistry.removeExtension() method. Check if proper access token is supplied."); //$NON-NLS-1$
 		int id = registryObject.getObjectId();
 
-		access.enterWrite();
+		enterWrite();
 		try {
 			eventDelta = CombinedEventDelta.recordRemoval();
 			String namespace;
@@ -1363,7 +1515,7 @@ public class ExtensionRegistry implements IExtensionRegistry, IDynamicExtensionR
 			fireRegistryChangeEvent();
 			eventDelta = null;
 		} finally {
-			access.exitWrite();
+			exitWrite();
 		}
 		return true;
 	}
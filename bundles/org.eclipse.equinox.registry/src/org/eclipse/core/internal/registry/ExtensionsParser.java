@@ -17,6 +17,7 @@ package org.eclipse.core.internal.registry;
 import java.io.IOException;
 import java.util.*;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import org.eclipse.core.runtime.*;
 import org.eclipse.osgi.util.NLS;
@@ -145,6 +146,10 @@ public class ExtensionsParser extends DefaultHandler {
 
 	private ArrayList<String> processedExtensionIds = null;
 
+	// The ids of the extensions of the manifests added before this one in the same batch,
+	// mapped to the namespace supplying them. These extensions are not in the registry yet.
+	private Map<String, String> batchExtensionIds = null;
+
 	// Keep track of elements added into the registry manager in case we encounter a error
 	// and need to rollback
 	private final ArrayList<RegistryObject> addedRegistryObjects = new ArrayList<>(5);
@@ -397,13 +402,29 @@ public class ExtensionsParser extends DefaultHandler {
 		if (registry.debug())
 			start = System.currentTimeMillis();
 
-		if (factory == null)
-			throw new SAXException(RegistryMessages.parse_xmlParserNotAvailable);
-
 		try {
 			locationName = in.getSystemId();
 			if (locationName == null)
 				locationName = manifestName;
+			newSAXParser(factory).parse(in, this);
+			return (Contribution) objectStack.pop();
+		} finally {
+			if (registry.debug()) {
+				cumulativeTime = cumulativeTime + (System.currentTimeMillis() - start);
+				System.out.println("Cumulative parse time so far : " + cumulativeTime); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Creates a parser for extensions manifests from the given factory. The
+	 * factory is shared by all the threads parsing manifests, it is configured
+	 * and used while holding its monitor as parser factories are not thread safe.
+	 */
+	static SAXParser newSAXParser(SAXParserFactory factory) throws ParserConfigurationException, SAXException {
+		if (factory == null)
+			throw new SAXException(RegistryMessages.parse_xmlParserNotAvailable);
+		synchronized (factory) {
 			factory.setNamespaceAware(true);
 			try {
 				factory.setFeature("http://xml.org/sax/features/string-interning", true); //$NON-NLS-1$
@@ -411,16 +432,39 @@ public class ExtensionsParser extends DefaultHandler {
 				// ignore; we can still operate without string-interning
 			}
 			factory.setValidating(false);
-			factory.newSAXParser().parse(in, this);
-			return (Contribution) objectStack.pop();
-		} finally {
-			if (registry.debug()) {
-				cumulativeTime = cumulativeTime + (System.currentTimeMillis() - start);
-				System.out.println("Cumulative parse time so far : " + cumulativeTime); //$NON-NLS-1$
-			}
+			return factory.newSAXParser();
 		}
 	}
 
+	/**
+	 * Creates the registry objects of a manifest which has already been parsed
+	 * into the given recording.
+	 * 
+	 * @param batchExtensionIds the ids of the extensions of the manifests of the
+	 * same batch which are not in the registry yet, mapped to the namespace
+	 * supplying them, or <code>null</code>. Used to report duplicate extensions.
+	 */
+	public Contribution parseManifest(RecordedManifest manifest, RegistryObjectManager registryObjects, Contribution currentNamespace, Map<String, String> batchExtensionIds) throws ParserConfigurationException, SAXException, IOException {
+		this.resources = manifest.translationBundle;
+		this.objectManager = registryObjects;
+		this.contribution = currentNamespace;
+		this.locationName = manifest.contributionName;
+		this.batchExtensionIds = batchExtensionIds;
+		manifest.replay(this);
+		return (Contribution) objectStack.pop();
+	}
+
+	/**
+	 * Adds the ids of the extensions of the parsed manifest to the given batch,
+	 * so that the following manifests of the batch are checked against them.
+	 * Ids are only collected in debug mode.
+	 */
+	void addExtensionIds(Map<String, String> batch) {
+		if (processedExtensionIds != null)
+			for (String extensionId : processedExtensionIds)
+				batch.putIfAbsent(extensionId, contribution.getDefaultNamespace());
+	}
+
 	private void parseConfigurationElementAttributes(Attributes attributes) {
 		ConfigurationElement parentConfigurationElement = (ConfigurationElement) objectStack.peek();
 
@@ -488,11 +532,16 @@ public class ExtensionsParser extends DefaultHandler {
 		if (simpleId != null && registry.debug()) {
 			String uniqueId = namespaceName + '.' + simpleId;
 			IExtension existingExtension = registry.getExtension(uniqueId);
+			String batchSupplier = batchExtensionIds == null ? null : batchExtensionIds.get(uniqueId);
 			if (existingExtension != null) {
 				String currentSupplier = contribution.getDefaultNamespace();
 				String existingSupplier = existingExtension.getContributor().getName();
 				String msg = NLS.bind(RegistryMessages.parse_duplicateExtension, new String[] {currentSupplier, existingSupplier, uniqueId});
 				registry.log(new Status(IStatus.WARNING, RegistryMessages.OWNER_NAME, 0, msg, null));
+			} else if (batchSupplier != null) { // check elements of the same batch, not in the registry yet
+				String currentSupplier = contribution.getDefaultNamespace();
+				String msg = NLS.bind(RegistryMessages.parse_duplicateExtension, new String[] {currentSupplier, batchSupplier, uniqueId});
+				registry.log(new Status(IStatus.WARNING, RegistryMessages.OWNER_NAME, 0, msg, null));
 			} else if (processedExtensionIds != null) { // check elements in this contribution
 				for (String extensionId : processedExtensionIds) {
 					if (uniqueId.equals(extensionId)) {
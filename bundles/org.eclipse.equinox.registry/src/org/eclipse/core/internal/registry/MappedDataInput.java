@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.registry;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the data written by a {@link DataOutputStream} directly from a
+ * buffer, typically a memory mapped file.
+ * <p>
+ * Every instance has its own position, so several threads can read the same
+ * buffer at the same time by using one instance each.
+ * </p>
+ * <p>
+ * A mapped file stays mapped until the buffer is garbage collected unless it
+ * is released with {@link #unmap(ByteBuffer)}. The buffer must not be read
+ * anymore once it has been released.
+ * </p>
+ */
+public class MappedDataInput implements DataInput {
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates an input reading the given buffer from the given position. The
+	 * buffer itself is not modified.
+	 */
+	public MappedDataInput(ByteBuffer buffer, int position) {
+		this.buffer = buffer.duplicate();
+		this.buffer.position(position);
+	}
+
+	/**
+	 * Maps the given file into memory.
+	 */
+	public static ByteBuffer map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Releases the given buffer returned by {@link #map(File)} right away
+	 * rather than when it is garbage collected, which keeps the file open and
+	 * prevents it from being deleted on some platforms. The caller must make
+	 * sure that the buffer is not read anymore, reading it afterwards crashes
+	 * the virtual machine.
+	 * 
+	 * @return <code>true</code> if the buffer has been released, and
+	 * <code>false</code> if it is left to the garbage collector because it is
+	 * not a direct buffer or the virtual machine does not allow releasing it
+	 */
+	public static boolean unmap(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect())
+			return false;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe", false, null); //$NON-NLS-1$
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+			theUnsafe.setAccessible(true);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class); //$NON-NLS-1$
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// released when garbage collected
+			return false;
+		}
+	}
+
+	private void require(int length) throws EOFException {
+		if (buffer.remaining() < length)
+			throw new EOFException();
+	}
+
+	@Override
+	public void readFully(byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		require(len);
+		buffer.get(b, off, len);
+	}
+
+	@Override
+	public int skipBytes(int n) {
+		int skipped = Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		require(1);
+		return buffer.get();
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		require(2);
+		return buffer.getShort();
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		require(2);
+		return buffer.getChar();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		require(4);
+		return buffer.getInt();
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		require(8);
+		return buffer.getLong();
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		require(4);
+		return buffer.getFloat();
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		require(8);
+		return buffer.getDouble();
+	}
+
+	/*
+	 * Reads a line of bytes like DataInputStream.readLine(), which ends with
+	 * a line feed, a carriage return, a carriage return followed by a line
+	 * feed or the end of the buffer.
+	 */
+	@Override
+	public String readLine() {
+		if (!buffer.hasRemaining())
+			return null;
+		StringBuilder line = new StringBuilder();
+		while (buffer.hasRemaining()) {
+			int c = buffer.get() & 0xFF;
+			if (c == '\n')
+				break;
+			if (c == '\r') {
+				if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n')
+					buffer.get();
+				break;
+			}
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	/*
+	 * Decodes the modified UTF-8 written by DataOutputStream.writeUTF() without
+	 * copying the encoded bytes first.
+	 */
+	@Override
+	public String readUTF() throws IOException {
+		int length = readUnsignedShort();
+		require(length);
+		char[] chars = new char[length];
+		int count = 0;
+		int end = buffer.position() + length;
+		while (buffer.position() < end) {
+			int c = buffer.get() & 0xFF;
+			if (c < 0x80) {
+				chars[count++] = (char) c;
+			} else if ((c & 0xE0) == 0xC0) {
+				if (buffer.position() + 1 > end)
+					throw new UTFDataFormatException();
+				int c2 = buffer.get();
+				if ((c2 & 0xC0) != 0x80)
+					throw new UTFDataFormatException();
+				chars[count++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+			} else if ((c & 0xF0) == 0xE0) {
+				if (buffer.position() + 2 > end)
+					throw new UTFDataFormatException();
+				int c2 = buffer.get();
+				int c3 = buffer.get();
+				if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80)
+					throw new UTFDataFormatException();
+				chars[count++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+			} else {
+				throw new UTFDataFormatException();
+			}
+		}
+		return new String(chars, 0, count);
+	}
+}
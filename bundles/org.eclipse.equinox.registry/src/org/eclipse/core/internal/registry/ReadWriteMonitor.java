@@ -13,96 +13,78 @@
  *******************************************************************************/
 package org.eclipse.core.internal.registry;
 
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 /**
  * Monitor ensuring no more than one writer working concurrently.
  * Multiple readers are allowed to perform simultaneously.
  *
- * This class was borrowed from org.eclipse.jdt.internal.core.search.indexing.
+ * Readers do not synchronize with each other; they only wait for a writer
+ * to finish. The writer may enter the monitor again, both for writing and
+ * for reading.
  */
 public class ReadWriteMonitor {
 
-	/**
-	 * <0 : writing (cannot go beyond -1, i.e one concurrent writer)
-	 * =0 : idle
-	 * >0 : reading (number of concurrent readers)
-	 */
-	private int status = 0;
-
-	private Thread writeLockowner;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
 	/**
 	 * Concurrent reading is allowed
 	 * Blocking only when already writing.
 	 */
-	public synchronized void enterRead() {
-		if (writeLockowner == Thread.currentThread())
-			return;
-		while (status < 0) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				// ignore
-			}
-		}
-		status++;
+	public void enterRead() {
+		lock.readLock().lock();
 	}
 
 	/**
 	 * Only one writer at a time is allowed to perform
 	 * Blocking only when already writing or reading.
 	 */
-	public synchronized void enterWrite() {
-		if (writeLockowner != Thread.currentThread()) {
-			while (status != 0) {
-				try {
-					wait();
-				} catch (InterruptedException e) {
-					// ignore
-				}
-			}
-//			System.out.println(this + "lockowner:" + Thread.currentThread());
-			writeLockowner = Thread.currentThread();
-		}
-		status--;
+	public void enterWrite() {
+		lock.writeLock().lock();
 	}
 
 	/**
 	 * Only notify waiting writer(s) if last reader
 	 */
-	public synchronized void exitRead() {
-		if (writeLockowner == Thread.currentThread())
-			return;
-		if (--status == 0)
-			notifyAll();
+	public void exitRead() {
+		lock.readLock().unlock();
 	}
 
 	/**
 	 * When writing is over, all readers and possible
 	 * writers are granted permission to restart concurrently
 	 */
-	public synchronized void exitWrite() {
-		if (writeLockowner != Thread.currentThread())
-			throw new IllegalStateException("Current owner is " + writeLockowner); //$NON-NLS-1$
-		if (++status == 0) {
-			//			System.out.println(this + "exitWrite:" + Thread.currentThread());
-			writeLockowner = null;
-			notifyAll();
-		}
+	public void exitWrite() {
+		if (!lock.isWriteLockedByCurrentThread())
+			throw new IllegalStateException("Current owner is not " + Thread.currentThread()); //$NON-NLS-1$
+		lock.writeLock().unlock();
+	}
+
+	/**
+	 * Returns how many times the current thread has entered the monitor for
+	 * writing without exiting it yet.
+	 */
+	public int getWriteHoldCount() {
+		return lock.getWriteHoldCount();
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder buffer = new StringBuilder();
 		buffer.append(this.hashCode());
-		if (status == 0) {
-			buffer.append("Monitor idle "); //$NON-NLS-1$
-		} else if (status < 0) {
+		int status;
+		if (lock.isWriteLocked()) {
 			buffer.append("Monitor writing "); //$NON-NLS-1$
-		} else if (status > 0) {
+			status = lock.isWriteLockedByCurrentThread() ? -lock.getWriteHoldCount() : -1;
+		} else if (lock.getReadLockCount() > 0) {
 			buffer.append("Monitor reading "); //$NON-NLS-1$
+			status = lock.getReadLockCount();
+		} else {
+			buffer.append("Monitor idle "); //$NON-NLS-1$
+			status = 0;
 		}
 		buffer.append("(status = "); //$NON-NLS-1$
-		buffer.append(this.status);
+		buffer.append(status);
 		buffer.append(")"); //$NON-NLS-1$
 		return buffer.toString();
 	}
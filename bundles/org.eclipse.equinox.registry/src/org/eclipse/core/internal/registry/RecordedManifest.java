@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.registry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.ResourceBundle;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.eclipse.core.runtime.IContributor;
+import org.xml.sax.*;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The SAX events of an extensions manifest, recorded so that the manifest can
+ * be parsed on any thread and turned into registry objects later on.
+ * <p>
+ * Recording a manifest does not touch the registry. The registry objects are
+ * created when the recorded events are replayed to an {@link ExtensionsParser},
+ * which gives them the same identifiers and resolves duplicate extension points
+ * the same way as if the manifest had been parsed at that point.
+ * </p>
+ */
+public class RecordedManifest extends DefaultHandler implements Locator {
+	private static final Integer START_ELEMENT = Integer.valueOf(0);
+	private static final Integer END_ELEMENT = Integer.valueOf(1);
+	private static final Integer CHARACTERS = Integer.valueOf(2);
+	private static final Integer PROCESSING_INSTRUCTION = Integer.valueOf(3);
+	private static final Integer WARNING = Integer.valueOf(4);
+	private static final Integer ERROR = Integer.valueOf(5);
+
+	final IContributor contributor;
+	final String contributionName;
+	final ResourceBundle translationBundle;
+	final long timestamp;
+
+	// each event is stored as its type and line number followed by its arguments
+	private final ArrayList<Object> events = new ArrayList<>();
+	private Locator locator = null;
+	// set if the manifest could not be parsed completely
+	private Exception failure = null;
+	// the line of the event being replayed
+	private int lineNumber = -1;
+
+	public RecordedManifest(IContributor contributor, String contributionName, ResourceBundle translationBundle, long timestamp) {
+		this.contributor = contributor;
+		this.contributionName = contributionName == null ? "" : contributionName; //$NON-NLS-1$
+		this.translationBundle = translationBundle;
+		this.timestamp = timestamp;
+	}
+
+	public IContributor getContributor() {
+		return contributor;
+	}
+
+	/**
+	 * Records the events of the given manifest. This method can be called from
+	 * any thread. Problems are not reported until the events are replayed.
+	 *
+	 * @param factory the factory of the XML parser to use
+	 * @param is the manifest, closed by this method
+	 */
+	public void record(SAXParserFactory factory, InputStream is) {
+		try {
+			ExtensionsParser.newSAXParser(factory).parse(new InputSource(is), this);
+		} catch (SAXParseException e) {
+			// already recorded by fatalError()
+		} catch (ParserConfigurationException | SAXException | IOException e) {
+			failure = e;
+		} finally {
+			try {
+				is.close();
+			} catch (IOException ioe) {
+				// nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Replays the recorded events to the given handler. Ends by throwing the
+	 * exception that stopped the parsing of the manifest, if any.
+	 */
+	void replay(ExtensionsParser handler) throws ParserConfigurationException, SAXException, IOException {
+		handler.setDocumentLocator(this);
+		int size = events.size();
+		for (int i = 0; i < size;) {
+			Object type = events.get(i++);
+			lineNumber = ((Integer) events.get(i++)).intValue();
+			if (type == START_ELEMENT) {
+				String elementName = (String) events.get(i++);
+				if (elementName == null)
+					// the start of the document
+					handler.startDocument();
+				else
+					handler.startElement(null, elementName, null, (Attributes) events.get(i++));
+			} else if (type == END_ELEMENT) {
+				String elementName = (String) events.get(i++);
+				if (elementName == null)
+					handler.endDocument();
+				else
+					handler.endElement(null, elementName, null);
+			} else if (type == CHARACTERS) {
+				char[] ch = (char[]) events.get(i++);
+				handler.characters(ch, 0, ch.length);
+			} else if (type == PROCESSING_INSTRUCTION) {
+				handler.processingInstruction((String) events.get(i++), (String) events.get(i++));
+			} else if (type == WARNING) {
+				handler.warning((SAXParseException) events.get(i++));
+			} else if (type == ERROR) {
+				handler.error((SAXParseException) events.get(i++));
+			}
+		}
+		if (failure instanceof SAXParseException)
+			handler.fatalError((SAXParseException) failure);
+		if (failure instanceof SAXException)
+			throw (SAXException) failure;
+		if (failure instanceof IOException)
+			throw (IOException) failure;
+		if (failure instanceof ParserConfigurationException)
+			throw (ParserConfigurationException) failure;
+	}
+
+	private void addEvent(Integer type) {
+		events.add(type);
+		events.add(Integer.valueOf(locator == null ? -1 : locator.getLineNumber()));
+	}
+
+	@Override
+	public void setDocumentLocator(Locator documentLocator) {
+		this.locator = documentLocator;
+	}
+
+	@Override
+	public void startDocument() {
+		addEvent(START_ELEMENT);
+		events.add(null);
+	}
+
+	@Override
+	public void endDocument() {
+		addEvent(END_ELEMENT);
+		events.add(null);
+	}
+
+	@Override
+	public void startElement(String uri, String elementName, String qName, Attributes attributes) {
+		addEvent(START_ELEMENT);
+		events.add(elementName);
+		events.add(new AttributesImpl(attributes));
+	}
+
+	@Override
+	public void endElement(String uri, String elementName, String qName) {
+		addEvent(END_ELEMENT);
+		events.add(elementName);
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		addEvent(CHARACTERS);
+		char[] copy = new char[length];
+		System.arraycopy(ch, start, copy, 0, length);
+		events.add(copy);
+	}
+
+	@Override
+	public void processingInstruction(String target, String data) {
+		addEvent(PROCESSING_INSTRUCTION);
+		events.add(target);
+		events.add(data);
+	}
+
+	@Override
+	public void warning(SAXParseException ex) {
+		addEvent(WARNING);
+		events.add(ex);
+	}
+
+	@Override
+	public void error(SAXParseException ex) {
+		addEvent(ERROR);
+		events.add(ex);
+	}
+
+	@Override
+	public void fatalError(SAXParseException ex) throws SAXException {
+		failure = ex;
+		throw ex;
+	}
+
+	/* The locator of the events being replayed */
+
+	@Override
+	public String getPublicId() {
+		return null;
+	}
+
+	@Override
+	public String getSystemId() {
+		return null;
+	}
+
+	@Override
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public int getColumnNumber() {
+		return -1;
+	}
+}
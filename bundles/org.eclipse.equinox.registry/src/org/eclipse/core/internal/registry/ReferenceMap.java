@@ -23,6 +23,8 @@
 package org.eclipse.core.internal.registry;
 
 import java.lang.ref.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *  Hashtable-based map with integer keys that allows values to be removed
@@ -294,6 +296,23 @@ public class ReferenceMap {
 		return null;
 	}
 
+	/**
+	 *  Returns the values of this map which were not garbage collected.
+	 *
+	 *  @return a new list of the values
+	 */
+	public List<Object> values() {
+		List<Object> values = new ArrayList<>(size);
+		for (IEntry entry : table) {
+			for (; entry != null; entry = entry.getNext()) {
+				Object value = entry.getValue();
+				if (value != null)
+					values.add(value);
+			}
+		}
+		return values;
+	}
+
 	/**
 	 *  Converts the given hash code into an index into the
 	 *  hash table.
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.registry;
+
+import java.lang.reflect.*;
+import java.util.*;
+import org.eclipse.core.runtime.IContributor;
+import org.eclipse.core.runtime.spi.RegistryContributor;
+
+/**
+ * The estimated heap space used by the extension points, extensions and
+ * configuration elements of a contributor.
+ * <p>
+ * Sizes are estimated for a 64-bit VM using compressed references. An object
+ * shared by several registry objects, such as an interned attribute name, is
+ * only counted once, for the first contributor found using it.
+ * </p>
+ */
+public final class RegistryFootprint {
+	private static final int HEADER_SIZE = 12;
+	private static final int ARRAY_HEADER_SIZE = 16;
+	private static final int REFERENCE_SIZE = 4;
+
+	private final String contributor;
+	int extensionPoints;
+	int extensions;
+	int configurationElements;
+	long size;
+
+	private RegistryFootprint(String contributor) {
+		this.contributor = contributor;
+	}
+
+	public String getContributor() {
+		return contributor;
+	}
+
+	public int getExtensionPoints() {
+		return extensionPoints;
+	}
+
+	public int getExtensions() {
+		return extensions;
+	}
+
+	public int getConfigurationElements() {
+		return configurationElements;
+	}
+
+	/**
+	 * Returns the estimated number of bytes used by the registry objects of the contributor.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Measures the registry objects of every contributor of the given registry,
+	 * largest first. All the objects are loaded from the registry cache, so
+	 * this is meant for diagnostics only.
+	 */
+	public static List<RegistryFootprint> measure(ExtensionRegistry registry) {
+		Sizer sizer = new Sizer();
+		List<RegistryFootprint> result = new ArrayList<>();
+		registry.enterRead();
+		try {
+			RegistryObjectManager objectManager = registry.getObjectManager();
+			for (IContributor contributor : objectManager.getContributorsSync()) {
+				RegistryFootprint footprint = new RegistryFootprint(contributor.getName());
+				for (RegistryObject object : objectManager.getAssociatedObjects(((RegistryContributor) contributor).getActualId()).values()) {
+					if (object instanceof ExtensionPoint)
+						footprint.extensionPoints++;
+					else if (object instanceof Extension)
+						footprint.extensions++;
+					else
+						footprint.configurationElements++;
+					footprint.size += sizer.sizeOf(object);
+				}
+				result.add(footprint);
+			}
+		} finally {
+			registry.exitRead();
+		}
+		result.sort((a, b) -> Long.compare(b.size, a.size));
+		return result;
+	}
+
+	/*
+	 * Adds up the size of registry objects and of the strings and arrays they
+	 * reference, counting each instance once.
+	 */
+	private static class Sizer {
+		private final Map<Object, Object> counted = new IdentityHashMap<>();
+		private final Map<Class<?>, Field[]> referenceFields = new HashMap<>();
+		private final Map<Class<?>, Long> shallowSizes = new HashMap<>();
+
+		long sizeOf(RegistryObject object) {
+			if (counted.put(object, object) != null)
+				return 0;
+			long total = shallowSizeOf(object.getClass());
+			for (Field field : getReferenceFields(object.getClass())) {
+				try {
+					total += sizeOfValue(field.get(object));
+				} catch (IllegalAccessException e) {
+					// not counted
+				}
+			}
+			return total;
+		}
+
+		private long sizeOfValue(Object value) {
+			if (value == null || counted.put(value, value) != null)
+				return 0;
+			if (value instanceof String)
+				return sizeOfString((String) value);
+			if (value instanceof DirectMap) { // translations of a multi-language element
+				DirectMap translations = (DirectMap) value;
+				return shallowSizeOf(DirectMap.class) + sizeOfValue(translations.getKeys()) + sizeOfValue(translations.getValues());
+			}
+			Class<?> type = value.getClass();
+			if (!type.isArray()) // shared with the rest of the registry
+				return 0;
+			int length = Array.getLength(value);
+			Class<?> componentType = type.getComponentType();
+			long total = align(ARRAY_HEADER_SIZE + (long) length * sizeOfType(componentType));
+			if (!componentType.isPrimitive()) {
+				for (Object element : (Object[]) value)
+					total += sizeOfValue(element);
+			}
+			return total;
+		}
+
+		private static long sizeOfString(String value) {
+			boolean latin1 = true;
+			for (int i = 0; i < value.length() && latin1; i++)
+				latin1 = value.charAt(i) < 256;
+			// the string itself, then its byte array
+			return align(HEADER_SIZE + 2 * 4 + 2 * 1 + REFERENCE_SIZE) + align(ARRAY_HEADER_SIZE + (long) value.length() * (latin1 ? 1 : 2));
+		}
+
+		private long shallowSizeOf(Class<?> type) {
+			Long size = shallowSizes.get(type);
+			if (size == null) {
+				long fields = 0;
+				for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+					for (Field field : current.getDeclaredFields()) {
+						if (!Modifier.isStatic(field.getModifiers()))
+							fields += sizeOfType(field.getType());
+					}
+				}
+				size = Long.valueOf(align(HEADER_SIZE + fields));
+				shallowSizes.put(type, size);
+			}
+			return size.longValue();
+		}
+
+		private Field[] getReferenceFields(Class<?> type) {
+			Field[] result = referenceFields.get(type);
+			if (result == null) {
+				List<Field> fields = new ArrayList<>();
+				for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+					for (Field field : current.getDeclaredFields()) {
+						if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+							continue;
+						try {
+							field.setAccessible(true);
+							fields.add(field);
+						} catch (RuntimeException e) {
+							// not counted
+						}
+					}
+				}
+				result = fields.toArray(new Field[fields.size()]);
+				referenceFields.put(type, result);
+			}
+			return result;
+		}
+
+		private static int sizeOfType(Class<?> type) {
+			if (type == long.class || type == double.class)
+				return 8;
+			if (type == int.class || type == float.class)
+				return 4;
+			if (type == short.class || type == char.class)
+				return 2;
+			if (type == byte.class || type == boolean.class)
+				return 1;
+			return REFERENCE_SIZE;
+		}
+
+		private static long align(long size) {
+			return (size + 7) & ~7L;
+		}
+	}
+}
@@ -15,6 +15,7 @@ package org.eclipse.core.internal.registry;
 
 import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.runtime.IContributor;
 import org.eclipse.core.runtime.InvalidRegistryObjectException;
 import org.eclipse.core.runtime.spi.RegistryContributor;
@@ -65,6 +66,12 @@ public class RegistryObjectManager implements IObjectManager {
 
 	private final KeyedHashSet heldObjects = new KeyedHashSet(); //strong reference to the objects that must be hold on to
 
+	// Strings shared by the registry objects: element names, attribute names and contributor ids.
+	// The tables are rebuilt from the objects in memory when objects are removed.
+	private final Map<String, String> sharedStrings = new ConcurrentHashMap<>();
+	// Attribute name tables shared by the configuration elements having the same attributes
+	private final Map<List<String>, String[]> attributeNameTables = new ConcurrentHashMap<>();
+
 	//Indicate if objects have been removed or added from the table. This only needs to be set in a couple of places (addNamespace and removeNamespace)
 	private boolean isDirty = false;
 
@@ -88,6 +95,29 @@ public class RegistryObjectManager implements IObjectManager {
 		this.registry = registry;
 	}
 
+	/**
+	 * Returns the shared instance of the given string, which may be <code>null</code>.
+	 */
+	String intern(String value) {
+		if (value == null)
+			return null;
+		String shared = sharedStrings.putIfAbsent(value, value);
+		return shared == null ? value : shared;
+	}
+
+	/**
+	 * Returns the shared table holding the given attribute names. The table
+	 * returned must not be modified.
+	 */
+	String[] internAttributeNames(String[] names) {
+		if (names.length == 0)
+			return EMPTY_STRING_ARRAY;
+		for (int i = 0; i < names.length; i++)
+			names[i] = intern(names[i]);
+		String[] shared = attributeNameTables.putIfAbsent(Arrays.asList(names), names);
+		return shared == null ? names : shared;
+	}
+
 	/**
 	 * Initialize the object manager. Return true if the initialization succeeded, false otherwise
 	 */
@@ -738,6 +768,14 @@ public class RegistryObjectManager implements IObjectManager {
 			if (toRemove instanceof ExtensionPoint)
 				removeExtensionPoint(((ExtensionPoint) toRemove).getUniqueIdentifier());
 		}
+		// Don't keep the strings only used by the removed objects. The objects flushed from
+		// the cache share their strings again when they are read back.
+		sharedStrings.clear();
+		attributeNameTables.clear();
+		for (Object object : cache.values()) {
+			if (object instanceof ConfigurationElement)
+				((ConfigurationElement) object).internNames();
+		}
 	}
 
 	IObjectManager createDelegatingObjectManager(Map<?, ?> object) {
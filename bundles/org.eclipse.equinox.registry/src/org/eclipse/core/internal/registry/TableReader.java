@@ -15,9 +15,13 @@ package org.eclipse.core.internal.registry;
 
 import java.io.*;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.spi.RegistryContributor;
@@ -41,13 +45,23 @@ public class TableReader {
 
 	//Informations representing the MAIN file
 	static final String MAIN = ".mainData"; //$NON-NLS-1$
+	File mainFile = null;
 	BufferedRandomInputStream mainDataFile = null;
-	DataInputStream mainInput = null;
+	DataInput mainInput = null;
 
 	//Informations representing the EXTRA file
 	static final String EXTRA = ".extraData"; //$NON-NLS-1$
+	File extraFile = null;
 	BufferedRandomInputStream extraDataFile = null;
-	DataInputStream extraInput = null;
+	DataInput extraInput = null;
+
+	// The MAIN and EXTRA files mapped into memory when the mapped cache is enabled. Objects
+	// are then loaded without locking, each load reading the files from its own position.
+	private final boolean mapFiles;
+	private volatile ByteBuffer mainData = null;
+	private volatile ByteBuffer extraData = null;
+	// Held for reading while the mapped files are read, and for writing to unmap them
+	private final ReadWriteLock mappedLock = new ReentrantReadWriteLock();
 
 	//The table file
 	static final String TABLE = ".table"; //$NON-NLS-1$
@@ -77,14 +91,40 @@ public class TableReader {
 
 	private final ExtensionRegistry registry;
 
-	private SoftReference<Map<String, String>> stringPool;
+	private volatile SoftReference<Map<String, String>> stringPool;
 
 	void setMainDataFile(File main) throws IOException {
+		mainFile = main;
+		if (mapFiles) {
+			ByteBuffer data = MappedDataInput.map(main);
+			mappedLock.writeLock().lock();
+			try {
+				unmap(mainData);
+				mainData = data;
+				mainInput = new MappedDataInput(data, 0);
+			} finally {
+				mappedLock.writeLock().unlock();
+			}
+			return;
+		}
 		mainDataFile = new BufferedRandomInputStream(main);
 		mainInput = new DataInputStream(mainDataFile);
 	}
 
 	void setExtraDataFile(File extra) throws IOException {
+		extraFile = extra;
+		if (mapFiles) {
+			ByteBuffer data = MappedDataInput.map(extra);
+			mappedLock.writeLock().lock();
+			try {
+				unmap(extraData);
+				extraData = data;
+				extraInput = new MappedDataInput(data, 0);
+			} finally {
+				mappedLock.writeLock().unlock();
+			}
+			return;
+		}
 		extraDataFile = new BufferedRandomInputStream(extra);
 		extraInput = new DataInputStream(extraDataFile);
 	}
@@ -111,6 +151,7 @@ public class TableReader {
 
 	public TableReader(ExtensionRegistry registry) {
 		this.registry = registry;
+		this.mapFiles = "true".equalsIgnoreCase(RegistryProperties.getProperty(IRegistryConstants.PROP_MAPPED_CACHE)); //$NON-NLS-1$
 	}
 
 	// Don't need to synchronize - called only from a synchronized method
@@ -173,8 +214,8 @@ public class TableReader {
 			if (!validTime || !validInstall || !validOS || !validWS || !validNL || !validMultiLang)
 				return false;
 
-			boolean validMain = (mainDataFileSize == mainDataFile.length());
-			boolean validExtra = (extraDataFileSize == extraDataFile.length());
+			boolean validMain = (mainDataFileSize == (mapFiles ? mainData.capacity() : mainDataFile.length()));
+			boolean validExtra = (extraDataFileSize == (mapFiles ? extraData.capacity() : extraDataFile.length()));
 			boolean validContrib = (contributionsFileSize == contributionsFile.length());
 			boolean validContributors = (contributorsFileSize == contributorsFile.length());
 			boolean validNamespace = (namespacesFileSize == namespacesFile.length());
@@ -189,12 +230,20 @@ public class TableReader {
 
 	public Object loadConfigurationElement(int offset) {
 		try {
+			if (mapFiles) {
+				mappedLock.readLock().lock();
+				try {
+					return basicLoadConfigurationElement(openMainData(offset), null);
+				} finally {
+					mappedLock.readLock().unlock();
+				}
+			}
 			synchronized (mainDataFile) {
 				goToInputFile(offset);
 				return basicLoadConfigurationElement(mainInput, null);
 			}
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			if (DEBUG)
 				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading a configuration element (" + offset + ") from the registry cache", e)); //$NON-NLS-1$//$NON-NLS-2$
@@ -202,7 +251,7 @@ public class TableReader {
 		}
 	}
 
-	private ConfigurationElement basicLoadConfigurationElement(DataInputStream is, String actualContributorId) throws IOException {
+	private ConfigurationElement basicLoadConfigurationElement(DataInput is, String actualContributorId) throws IOException {
 		int self = is.readInt();
 		String contributorId = readStringOrNull(is);
 		String name = readStringOrNull(is);
@@ -232,7 +281,7 @@ public class TableReader {
 		return result;
 	}
 
-	private String[] readStringArray(DataInputStream is) throws IOException {
+	private String[] readStringArray(DataInput is) throws IOException {
 		int size = is.readInt();
 		if (size == 0)
 			return null;
@@ -245,12 +294,20 @@ public class TableReader {
 
 	public Object loadThirdLevelConfigurationElements(int offset, RegistryObjectManager objectManager) {
 		try {
+			if (mapFiles) {
+				mappedLock.readLock().lock();
+				try {
+					return loadConfigurationElementAndChildren(null, openExtraData(offset), 3, Integer.MAX_VALUE, objectManager, null);
+				} finally {
+					mappedLock.readLock().unlock();
+				}
+			}
 			synchronized (extraDataFile) {
 				goToExtraFile(offset);
 				return loadConfigurationElementAndChildren(null, extraInput, 3, Integer.MAX_VALUE, objectManager, null);
 			}
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			if (DEBUG)
 				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading a third level configuration element (" + offset + ") from the registry cache", e)); //$NON-NLS-1$//$NON-NLS-2$
@@ -259,8 +316,8 @@ public class TableReader {
 	}
 
 	//Read a whole configuration element subtree
-	private ConfigurationElement loadConfigurationElementAndChildren(DataInputStream is, DataInputStream extraIs, int depth, int maxDepth, RegistryObjectManager objectManager, String namespaceOwnerId) throws IOException {
-		DataInputStream currentStream = is;
+	private ConfigurationElement loadConfigurationElementAndChildren(DataInput is, DataInput extraIs, int depth, int maxDepth, RegistryObjectManager objectManager, String namespaceOwnerId) throws IOException {
+		DataInput currentStream = is;
 		if (depth > 2)
 			currentStream = extraIs;
 
@@ -278,7 +335,7 @@ public class TableReader {
 		return ce;
 	}
 
-	private String[] readPropertiesAndValue(DataInputStream inputStream) throws IOException {
+	private String[] readPropertiesAndValue(DataInput inputStream) throws IOException {
 		int numberOfProperties = inputStream.readInt();
 		if (numberOfProperties == 0)
 			return RegistryObjectManager.EMPTY_STRING_ARRAY;
@@ -291,12 +348,20 @@ public class TableReader {
 
 	public Object loadExtension(int offset) {
 		try {
+			if (mapFiles) {
+				mappedLock.readLock().lock();
+				try {
+					return basicLoadExtension(openMainData(offset));
+				} finally {
+					mappedLock.readLock().unlock();
+				}
+			}
 			synchronized (mainDataFile) {
 				goToInputFile(offset);
 				return basicLoadExtension(mainInput);
 			}
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			if (DEBUG)
 				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading an extension (" + offset + ") from the registry cache", e)); //$NON-NLS-1$//$NON-NLS-2$
@@ -304,38 +369,31 @@ public class TableReader {
 		return null;
 	}
 
-	private Extension basicLoadExtension(DataInputStream inputStream) throws IOException {
+	private Extension basicLoadExtension(DataInput inputStream) throws IOException {
 		int self = inputStream.readInt();
-		String simpleId = readStringOrNull(mainInput);
-		String namespace = readStringOrNull(mainInput);
-		int[] children = readArray(mainInput);
-		int extraData = mainInput.readInt();
+		String simpleId = readStringOrNull(inputStream);
+		String namespace = readStringOrNull(inputStream);
+		int[] children = readArray(inputStream);
+		int extraData = inputStream.readInt();
 		return getObjectFactory().createExtension(self, simpleId, namespace, children, extraData, true);
 	}
 
 	public ExtensionPoint loadExtensionPointTree(int offset, RegistryObjectManager objects) {
 		try {
-			synchronized (mainDataFile) {
-				ExtensionPoint xpt = (ExtensionPoint) loadExtensionPoint(offset);
-				int[] children = xpt.getRawChildren();
-				int nbrOfExtension = children.length;
-				for (int i = 0; i < nbrOfExtension; i++) {
-					Extension loaded = basicLoadExtension(mainInput);
-					objects.add(loaded, holdObjects);
-				}
-
-				for (int i = 0; i < nbrOfExtension; i++) {
-					int nbrOfCe = mainInput.readInt();
-					for (int j = 0; j < nbrOfCe; j++) {
-						// note that max depth is set to 2 and extra input is never going to
-						// be used in this call to the loadConfigurationElementAndChildren().
-						objects.add(loadConfigurationElementAndChildren(mainInput, null, 1, 2, objects, null), holdObjects);
-					}
+			if (mapFiles) {
+				mappedLock.readLock().lock();
+				try {
+					return basicLoadExtensionPointTree(openMainData(offset), objects);
+				} finally {
+					mappedLock.readLock().unlock();
 				}
-				return xpt;
+			}
+			synchronized (mainDataFile) {
+				goToInputFile(offset);
+				return basicLoadExtensionPointTree(mainInput, objects);
 			}
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			if (DEBUG)
 				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading an extension point tree (" + offset + ") from the registry cache", e)); //$NON-NLS-1$//$NON-NLS-2$
@@ -343,27 +401,34 @@ public class TableReader {
 		}
 	}
 
-	private Object loadExtensionPoint(int offset) {
-		try {
-			goToInputFile(offset);
-			return basicLoadExtensionPoint();
-		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainDataFile);
-			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
-			if (DEBUG)
-				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading an extension point (" + offset + ") from the registry cache", e)); //$NON-NLS-1$ //$NON-NLS-2$
-			return null;
+	private ExtensionPoint basicLoadExtensionPointTree(DataInput inputStream, RegistryObjectManager objects) throws IOException {
+		ExtensionPoint xpt = basicLoadExtensionPoint(inputStream);
+		int[] children = xpt.getRawChildren();
+		int nbrOfExtension = children.length;
+		for (int i = 0; i < nbrOfExtension; i++) {
+			Extension loaded = basicLoadExtension(inputStream);
+			objects.add(loaded, holdObjects);
+		}
+
+		for (int i = 0; i < nbrOfExtension; i++) {
+			int nbrOfCe = inputStream.readInt();
+			for (int j = 0; j < nbrOfCe; j++) {
+				// note that max depth is set to 2 and extra input is never going to
+				// be used in this call to the loadConfigurationElementAndChildren().
+				objects.add(loadConfigurationElementAndChildren(inputStream, null, 1, 2, objects, null), holdObjects);
+			}
 		}
+		return xpt;
 	}
 
-	private ExtensionPoint basicLoadExtensionPoint() throws IOException {
-		int self = mainInput.readInt();
-		int[] children = readArray(mainInput);
-		int extraData = mainInput.readInt();
+	private ExtensionPoint basicLoadExtensionPoint(DataInput inputStream) throws IOException {
+		int self = inputStream.readInt();
+		int[] children = readArray(inputStream);
+		int extraData = inputStream.readInt();
 		return getObjectFactory().createExtensionPoint(self, children, extraData, true);
 	}
 
-	private int[] readArray(DataInputStream in) throws IOException {
+	private int[] readArray(DataInput in) throws IOException {
 		int arraySize = in.readInt();
 		if (arraySize == 0)
 			return RegistryObjectManager.EMPTY_INT_ARRAY;
@@ -382,7 +447,21 @@ public class TableReader {
 		extraDataFile.seek(offset);
 	}
 
-	private String readStringOrNull(DataInputStream in) throws IOException {
+	private DataInput openMainData(int offset) throws IOException {
+		ByteBuffer data = mainData;
+		if (data == null)
+			throw new IOException(NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainFile));
+		return new MappedDataInput(data, offset);
+	}
+
+	private DataInput openExtraData(int offset) throws IOException {
+		ByteBuffer data = extraData;
+		if (data == null)
+			throw new IOException(NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraFile));
+		return new MappedDataInput(data, offset);
+	}
+
+	private String readStringOrNull(DataInput in) throws IOException {
 		byte type = in.readByte();
 		if (type == NULL)
 			return null;
@@ -391,12 +470,20 @@ public class TableReader {
 
 	public String[] loadExtensionExtraData(int dataPosition) {
 		try {
+			if (mapFiles) {
+				mappedLock.readLock().lock();
+				try {
+					return basicLoadExtensionExtraData(openExtraData(dataPosition));
+				} finally {
+					mappedLock.readLock().unlock();
+				}
+			}
 			synchronized (extraDataFile) {
 				goToExtraFile(dataPosition);
-				return basicLoadExtensionExtraData();
+				return basicLoadExtensionExtraData(extraInput);
 			}
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			if (DEBUG)
 				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading extension label (" + dataPosition + ") from the registry cache", e)); //$NON-NLS-1$ //$NON-NLS-2$
@@ -404,18 +491,26 @@ public class TableReader {
 		}
 	}
 
-	private String[] basicLoadExtensionExtraData() throws IOException {
-		return new String[] {readStringOrNull(extraInput), readStringOrNull(extraInput), readStringOrNull(extraInput)};
+	private String[] basicLoadExtensionExtraData(DataInput inputStream) throws IOException {
+		return new String[] {readStringOrNull(inputStream), readStringOrNull(inputStream), readStringOrNull(inputStream)};
 	}
 
 	public String[] loadExtensionPointExtraData(int offset) {
 		try {
+			if (mapFiles) {
+				mappedLock.readLock().lock();
+				try {
+					return basicLoadExtensionPointExtraData(openExtraData(offset));
+				} finally {
+					mappedLock.readLock().unlock();
+				}
+			}
 			synchronized (extraDataFile) {
 				goToExtraFile(offset);
-				return basicLoadExtensionPointExtraData();
+				return basicLoadExtensionPointExtraData(extraInput);
 			}
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, extraFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			if (DEBUG)
 				log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, "Error reading extension point data (" + offset + ") from the registry cache", e)); //$NON-NLS-1$ //$NON-NLS-2$
@@ -423,13 +518,13 @@ public class TableReader {
 		}
 	}
 
-	private String[] basicLoadExtensionPointExtraData() throws IOException {
+	private String[] basicLoadExtensionPointExtraData(DataInput inputStream) throws IOException {
 		String[] result = new String[5];
-		result[0] = readStringOrNull(extraInput); //the label
-		result[1] = readStringOrNull(extraInput); //the schema
-		result[2] = readStringOrNull(extraInput); //the fully qualified name
-		result[3] = readStringOrNull(extraInput); //the namespace
-		result[4] = readStringOrNull(extraInput); //the contributor Id
+		result[0] = readStringOrNull(inputStream); //the label
+		result[1] = readStringOrNull(inputStream); //the schema
+		result[2] = readStringOrNull(inputStream); //the fully qualified name
+		result[3] = readStringOrNull(inputStream); //the namespace
+		result[4] = readStringOrNull(inputStream); //the contributor Id
 		return result;
 	}
 
@@ -544,16 +639,21 @@ public class TableReader {
 
 	// Do not need to synchronize - called only from a synchronized method
 	public boolean readAllCache(RegistryObjectManager objectManager) {
+		mappedLock.readLock().lock();
 		try {
+			if (mapFiles && (mainData == null || extraData == null))
+				throw new IOException(NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainFile));
 			int size = objectManager.getExtensionPoints().size();
 			for (int i = 0; i < size; i++) {
 				objectManager.add(readAllExtensionPointTree(objectManager), holdObjects);
 			}
 			loadAllOrphans(objectManager);
 		} catch (IOException e) {
-			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainDataFile);
+			String message = NLS.bind(RegistryMessages.meta_regCacheIOExceptionReading, mainFile);
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, message, e));
 			return false;
+		} finally {
+			mappedLock.readLock().unlock();
 		}
 		return true;
 	}
@@ -576,8 +676,8 @@ public class TableReader {
 	}
 
 	private ExtensionPoint loadFullExtensionPoint() throws IOException { //TODO I don't like this.
-		ExtensionPoint xpt = basicLoadExtensionPoint();
-		String[] tmp = basicLoadExtensionPointExtraData();
+		ExtensionPoint xpt = basicLoadExtensionPoint(mainInput);
+		String[] tmp = basicLoadExtensionPointExtraData(extraInput);
 		xpt.setLabel(tmp[0]);
 		xpt.setSchema(tmp[1]);
 		xpt.setUniqueIdentifier(tmp[2]);
@@ -589,7 +689,7 @@ public class TableReader {
 	private Extension loadFullExtension(RegistryObjectManager objectManager) throws IOException {
 		String[] tmp;
 		Extension loaded = basicLoadExtension(mainInput);
-		tmp = basicLoadExtensionExtraData();
+		tmp = basicLoadExtensionExtraData(extraInput);
 		loaded.setLabel(tmp[0]);
 		loaded.setExtensionPointIdentifier(tmp[1]);
 		loaded.setContributorId(tmp[2]);
@@ -642,17 +742,36 @@ public class TableReader {
 	}
 
 	public void close() {
+		if (mapFiles) {
+			// wait for the reads in progress before releasing the mapped files
+			mappedLock.writeLock().lock();
+			try {
+				unmap(mainData);
+				unmap(extraData);
+				mainData = null;
+				extraData = null;
+				mainInput = null;
+				extraInput = null;
+			} finally {
+				mappedLock.writeLock().unlock();
+			}
+		}
 		try {
-			if (mainInput != null)
-				mainInput.close();
-			if (extraInput != null)
-				extraInput.close();
+			if (mainDataFile != null)
+				mainDataFile.close();
+			if (extraDataFile != null)
+				extraDataFile.close();
 		} catch (IOException e) {
 			log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, fileError, RegistryMessages.meta_registryCacheReadProblems, e));
 		}
 	}
 
-	private String readUTF(DataInputStream in, int type) throws IOException {
+	private void unmap(ByteBuffer data) {
+		if (data != null && !MappedDataInput.unmap(data) && DEBUG)
+			log(new Status(IStatus.INFO, RegistryMessages.OWNER_NAME, fileError, "The mapped registry cache is released when garbage collected", null)); //$NON-NLS-1$
+	}
+
+	private String readUTF(DataInput in, int type) throws IOException {
 		String value;
 		if (type == LOBJECT) {
 			int length = in.readInt();
@@ -668,16 +787,12 @@ public class TableReader {
 			map = stringPool.get();
 		}
 		if (map == null) {
-			map = new HashMap<>();
+			// shared by the loads of the mapped cache, which are not synchronized
+			map = new ConcurrentHashMap<>();
 			stringPool = new SoftReference<>(map);
 		}
 
-		String pooledString = map.get(value);
-		if (pooledString == null) {
-			map.put(value, value);
-			return value;
-		}
-
-		return pooledString;
+		String pooledString = map.putIfAbsent(value, value);
+		return pooledString == null ? value : pooledString;
 	}
 }
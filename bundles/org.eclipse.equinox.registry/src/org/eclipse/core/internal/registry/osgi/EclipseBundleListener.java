@@ -16,8 +16,9 @@ package org.eclipse.core.internal.registry.osgi;
 import java.io.*;
 import java.net.URL;
 import java.util.*;
-import org.eclipse.core.internal.registry.ExtensionRegistry;
-import org.eclipse.core.internal.registry.RegistryMessages;
+import java.util.concurrent.*;
+import javax.xml.parsers.SAXParserFactory;
+import org.eclipse.core.internal.registry.*;
 import org.eclipse.core.internal.runtime.ResourceTranslator;
 import org.eclipse.core.internal.runtime.RuntimeLog;
 import org.eclipse.core.runtime.*;
@@ -89,6 +90,11 @@ public class EclipseBundleListener implements SynchronousBundleListener {
 	}
 
 	public void processBundles(Bundle[] bundles) {
+		int parsingThreads = getParsingThreads();
+		if (parsingThreads > 1 && bundles.length > 1) {
+			processBundles(bundles, parsingThreads);
+			return;
+		}
 		for (Bundle bundle : bundles) {
 			if (isBundleResolved(bundle)) {
 				addBundle(bundle, false);
@@ -98,6 +104,111 @@ public class EclipseBundleListener implements SynchronousBundleListener {
 		}
 	}
 
+	/*
+	 * Returns the number of threads used to parse the manifests of the initial bundles,
+	 * or 0 if they are parsed one after the other by the calling thread.
+	 */
+	private static int getParsingThreads() {
+		String property = RegistryProperties.getProperty(IRegistryConstants.PROP_PARALLEL_PARSING);
+		if (property == null)
+			return 0;
+		if ("true".equalsIgnoreCase(property)) //$NON-NLS-1$
+			return Runtime.getRuntime().availableProcessors();
+		try {
+			return Integer.parseInt(property.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/*
+	 * Parses the manifests of the resolved bundles on a pool of threads, then adds
+	 * the contributions to the registry in bundle id order all at once.
+	 */
+	private void processBundles(Bundle[] bundles, int parsingThreads) {
+		List<Bundle> resolved = new ArrayList<>(bundles.length);
+		for (Bundle bundle : bundles) {
+			if (isBundleResolved(bundle)) {
+				resolved.add(bundle);
+			} else {
+				removeBundle(bundle);
+			}
+		}
+		resolved.sort(Comparator.comparingLong(Bundle::getBundleId));
+
+		SAXParserFactory factory = strategy.getXMLParser();
+		ExecutorService executor = Executors.newFixedThreadPool(parsingThreads, r -> {
+			Thread thread = new Thread(r, "Extension Registry Parser"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<RecordedManifest>> results = new ArrayList<>(resolved.size());
+			for (Bundle bundle : resolved) {
+				// if the given bundle already exists in the registry then skip it.
+				IContributor contributor = ContributorFactoryOSGi.createContributor(bundle);
+				if (registry.hasContributor(contributor))
+					continue;
+				URL pluginManifest = getExtensionURL(bundle, true);
+				if (pluginManifest == null)
+					continue;
+				results.add(executor.submit(() -> recordManifest(bundle, contributor, pluginManifest, factory)));
+			}
+			List<RecordedManifest> manifests = new ArrayList<>(results.size());
+			for (Future<RecordedManifest> result : results) {
+				RecordedManifest manifest = getResult(result);
+				if (manifest != null)
+					manifests.add(manifest);
+			}
+			registry.addContributions(manifests.toArray(new RecordedManifest[manifests.size()]), true, token);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private RecordedManifest recordManifest(Bundle bundle, IContributor contributor, URL pluginManifest, SAXParserFactory factory) {
+		InputStream is;
+		try {
+			is = new BufferedInputStream(pluginManifest.openStream());
+		} catch (IOException ex) {
+			return null;
+		}
+
+		ResourceBundle translationBundle = null;
+		try {
+			translationBundle = ResourceTranslator.getResourceBundle(bundle);
+		} catch (MissingResourceException e) {
+			//Ignore the exception
+		}
+		long timestamp = 0;
+		if (strategy.checkContributionsTimestamp())
+			timestamp = strategy.getExtendedTimestamp(bundle, pluginManifest);
+		RecordedManifest manifest = new RecordedManifest(contributor, pluginManifest.getPath(), translationBundle, timestamp);
+		manifest.record(factory, is);
+		return manifest;
+	}
+
+	private static RecordedManifest getResult(Future<RecordedManifest> result) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return result.get();
+				} catch (InterruptedException e) {
+					// the contributions have to be added anyway
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			RuntimeLog.log(new Status(IStatus.ERROR, RegistryMessages.OWNER_NAME, 0, String.valueOf(cause.getMessage()), cause));
+			return null;
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
 	private boolean isBundleResolved(Bundle bundle) {
 		return (bundle.getState() & (Bundle.RESOLVED | Bundle.ACTIVE | Bundle.STARTING | Bundle.STOPPING)) != 0;
 	}
@@ -15,6 +15,9 @@
 
 package org.eclipse.core.internal.registry.osgi;
 
+import java.util.List;
+import org.eclipse.core.internal.registry.ExtensionRegistry;
+import org.eclipse.core.internal.registry.RegistryFootprint;
 import org.eclipse.core.runtime.*;
 import org.eclipse.osgi.framework.console.CommandInterpreter;
 import org.eclipse.osgi.framework.console.CommandProvider;
@@ -51,6 +54,10 @@ public class RegistryCommandProvider implements CommandProvider {
 			sb.append("\tpt [-v] uniqueExtensionPointId - display the extension point and extensions; add -v to display config elements"); //$NON-NLS-1$
 			sb.append(NEW_LINE);
 		}
+		if (all || "regmem".equals(commandName)) { //$NON-NLS-1$
+			sb.append("\tregmem [count] - display the estimated memory used by the registry objects of each contributor, largest first"); //$NON-NLS-1$
+			sb.append(NEW_LINE);
+		}
 		return sb.toString();
 	}
 
@@ -108,6 +115,37 @@ public class RegistryCommandProvider implements CommandProvider {
 		}
 	}
 
+	public void _regmem(CommandInterpreter ci) throws Exception {
+		int count = Integer.MAX_VALUE;
+		String countArgument = ci.nextArgument();
+		if (countArgument != null) {
+			try {
+				count = Integer.parseInt(countArgument);
+			} catch (NumberFormatException e) {
+				count = -1;
+			}
+			if (count < 0) {
+				ci.print(getHelp("regmem")); //$NON-NLS-1$
+				return;
+			}
+		}
+		IExtensionRegistry registry = RegistryFactory.getRegistry();
+		if (!(registry instanceof ExtensionRegistry))
+			return;
+		List<RegistryFootprint> footprints = RegistryFootprint.measure((ExtensionRegistry) registry);
+		count = Math.min(count, footprints.size());
+		long total = 0;
+		for (RegistryFootprint footprint : footprints)
+			total += footprint.getSize();
+		ci.println("Registry memory: " + total + " bytes, " + footprints.size() + " contributor(s)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		ci.println("-------------------"); //$NON-NLS-1$
+		for (RegistryFootprint footprint : footprints.subList(0, count)) {
+			ci.print(footprint.getContributor() + ": " + footprint.getSize() + " bytes"); //$NON-NLS-1$ //$NON-NLS-2$
+			ci.print(" (" + footprint.getExtensionPoints() + " extension point(s), " + footprint.getExtensions() + " extension(s), "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			ci.println(footprint.getConfigurationElements() + " configuration element(s))"); //$NON-NLS-1$
+		}
+	}
+
 	/**
 	 * Handles the help command
 	 *
@@ -14,7 +14,7 @@
 package org.eclipse.core.runtime;
 
 import java.io.InputStream;
-import java.util.ResourceBundle;
+import java.util.*;
 
 /**
  * The extension registry holds the master list of all
@@ -143,6 +143,41 @@ public interface IExtensionRegistry {
 	 */
 	public IConfigurationElement[] getConfigurationElementsFor(String namespace, String extensionPointName, String extensionId);
 
+	/**
+	 * Returns the configuration elements from all extensions configured into the
+	 * identified extension point which have the given name and whose given attribute
+	 * has the given value. Only the top-level configuration elements of the extensions
+	 * are considered. Returns an empty array if the extension point does not exist or
+	 * if no configuration element matches.
+	 * <p>
+	 * This is equivalent to filtering the result of {@link #getConfigurationElementsFor(String)},
+	 * but the registry may answer it from an index instead of examining all the
+	 * configuration elements of the extension point.
+	 * </p>
+	 *
+	 * @param extensionPointId the unique identifier of the extension point
+	 *		(e.g. <code>"org.eclipse.core.resources.builders"</code>)
+	 * @param elementName the name of the configuration elements, or <code>null</code>
+	 *		to match configuration elements of any name
+	 * @param attributeName the name of the attribute to compare, or <code>null</code>
+	 *		to match configuration elements regardless of their attributes
+	 * @param attributeValue the value the attribute must have, or <code>null</code>
+	 *		to match configuration elements which do not have the attribute
+	 * @return the matching configuration elements
+	 * @since org.eclipse.equinox.registry 3.12
+	 */
+	public default IConfigurationElement[] findConfigurationElements(String extensionPointId, String elementName, String attributeName, String attributeValue) {
+		List<IConfigurationElement> result = new ArrayList<>();
+		for (IConfigurationElement element : getConfigurationElementsFor(extensionPointId)) {
+			if (elementName != null && !elementName.equals(element.getName()))
+				continue;
+			if (attributeName != null && !Objects.equals(attributeValue, element.getAttribute(attributeName)))
+				continue;
+			result.add(element);
+		}
+		return result.toArray(new IConfigurationElement[result.size()]);
+	}
+
 	/**
 	 * Returns the specified extension in this extension registry,
 	 * or <code>null</code> if there is no such extension.
@@ -10,20 +10,31 @@
  ******************************************************************************/
 package org.eclipse.equinox.log.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.equinox.log.ExtendedLogEntry;
 import org.eclipse.equinox.log.ExtendedLogReaderService;
 import org.eclipse.equinox.log.ExtendedLogService;
 import org.eclipse.equinox.log.SynchronousLogListener;
+import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
+import org.eclipse.osgi.launch.Equinox;
 import org.eclipse.osgi.tests.OSGiTestsActivator;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.log.LogLevel;
 import org.osgi.service.log.LogService;
@@ -164,6 +175,97 @@ public class ExtendedLogReaderServiceTest {
 		assertTrue(entry.getSequenceNumber() > sequenceNumberBefore);
 	}
 
+	@Test
+	public void testListenerQueueBlock() throws Exception {
+		List<String> messages = logToFullQueue("block", 0);
+		// every entry is delivered once the listener catches up
+		assertEquals(21, messages.size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(String.valueOf(i), messages.get(i + 1));
+		}
+	}
+
+	@Test
+	public void testListenerQueueDropOldest() throws Exception {
+		List<String> messages = logToFullQueue("dropOldest", 10);
+		assertEquals(11, messages.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(String.valueOf(i + 10), messages.get(i + 1));
+		}
+	}
+
+	@Test
+	public void testListenerQueueDropNewest() throws Exception {
+		List<String> messages = logToFullQueue("dropNewest", 10);
+		assertEquals(11, messages.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(String.valueOf(i), messages.get(i + 1));
+		}
+	}
+
+	/*
+	 * Logs 20 entries while a listener with a queue of 10 entries is busy with a
+	 * first one, checks the number of entries dropped with the given overflow
+	 * policy and returns the messages the listener received.
+	 */
+	private List<String> logToFullQueue(String overflow, long expectedDropped) throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile("testListenerQueue-" + overflow);
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_LOG_LISTENER_QUEUE_SIZE, "10");
+		configuration.put(EquinoxConfiguration.PROP_LOG_LISTENER_QUEUE_OVERFLOW, overflow);
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+
+		try {
+			LogService testLog = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogService.class));
+			ExtendedLogReaderService testReader = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(ExtendedLogReaderService.class));
+			final List<String> messages = new CopyOnWriteArrayList<>();
+			final CountDownLatch busy = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			testReader.addLogListener(entry -> {
+				messages.add(entry.getMessage());
+				busy.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, (bundle, loggerName, logLevel) -> "test.queue".equals(loggerName));
+			final Logger logger = testLog.getLogger("test.queue");
+			logger.error("first");
+			assertTrue("Entry not delivered.", busy.await(20, TimeUnit.SECONDS));
+
+			// a blocked logger waits for the queue to be drained
+			Thread loggerThread = new Thread(() -> {
+				for (int i = 0; i < 20; i++) {
+					logger.error(String.valueOf(i));
+				}
+			}, "testListenerQueue");
+			loggerThread.start();
+			loggerThread.join(expectedDropped > 0 ? 20000 : 1000);
+			assertEquals("Wrong number of dropped entries.", expectedDropped, testReader.getDroppedLogEntries());
+
+			release.countDown();
+			loggerThread.join(20000);
+			assertFalse("Logger still blocked.", loggerThread.isAlive());
+			long deadline = System.currentTimeMillis() + 20000;
+			int expected = expectedDropped > 0 ? 11 : 21;
+			while (messages.size() < expected && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals("Wrong number of dropped entries.", expectedDropped, testReader.getDroppedLogEntries());
+			assertEquals("first", messages.get(0));
+			return messages;
+		} finally {
+			try {
+				equinox.stop();
+			} catch (BundleException e) {
+				// ignore
+			}
+		}
+	}
+
 	private long getCurrentThreadId() {
 		Thread current = Thread.currentThread();
 		try {
@@ -13,12 +13,15 @@
 package org.eclipse.equinox.log.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -316,6 +319,192 @@ public class LogReaderServiceTest extends AbstractBundleTests {
 		}
 	}
 
+	@Test
+	public void testLogHistoryNewest() throws BundleException {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_LOG_HISTORY_MAX, "10");
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+
+		try {
+			LogService testLog = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogService.class));
+			LogReaderService testReader = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogReaderService.class));
+			// wrap around the history several times, the last entries are kept whatever the position
+			for (int i = 0; i < 35; i++) {
+				testLog.log(LogService.LOG_WARNING, String.valueOf(i));
+				int expected = Math.min(i + 1, 10);
+				assertEquals("Wrong number of logs.", expected, countLogEntries(testReader.getLog(), i));
+			}
+		} finally {
+			try {
+				equinox.stop();
+			} catch (BundleException e) {
+				// ignore
+			}
+		}
+	}
+
+	@Test
+	public void testLogHistoryConcurrent() throws Exception {
+		final int historySize = 50;
+		final int threads = 8;
+		final int entriesPerThread = 2000;
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_LOG_HISTORY_MAX, String.valueOf(historySize));
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+
+		try {
+			final LogService testLog = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogService.class));
+			LogReaderService testReader = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogReaderService.class));
+			final CountDownLatch start = new CountDownLatch(1);
+			final CountDownLatch done = new CountDownLatch(threads);
+			final AtomicReference<Throwable> failure = new AtomicReference<>();
+			for (int t = 0; t < threads; t++) {
+				final String prefix = t + ":";
+				new Thread(() -> {
+					try {
+						start.await();
+						for (int i = 0; i < entriesPerThread; i++) {
+							testLog.log(LogService.LOG_WARNING, prefix + i);
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					} finally {
+						done.countDown();
+					}
+				}, getName() + '-' + t).start();
+			}
+			start.countDown();
+
+			// snapshots taken while the threads log never hold more than the newest entries,
+			// and hold the entries of each thread from the most recent
+			int snapshots = 0;
+			do {
+				checkLogEntries(testReader.getLog(), historySize, threads);
+				snapshots++;
+			} while (!done.await(0, TimeUnit.MILLISECONDS));
+			assertNull("Failed to log: " + failure.get(), failure.get());
+			assertTrue("No snapshot taken.", snapshots > 0);
+
+			Map<String, Integer> last = checkLogEntries(testReader.getLog(), historySize, threads);
+			assertEquals("Wrong number of logs.", historySize, last.values().stream().mapToInt(Integer::intValue).sum());
+
+			// the history keeps working once the writers raced to fill it
+			for (int i = 0; i < historySize; i++) {
+				testLog.log(LogService.LOG_WARNING, String.valueOf(i));
+			}
+			assertEquals("Wrong number of logs.", historySize, countLogEntries(testReader.getLog(), historySize - 1));
+		} finally {
+			try {
+				equinox.stop();
+			} catch (BundleException e) {
+				// ignore
+			}
+		}
+	}
+
+	/*
+	 * Checks a snapshot of the log history taken while threads log entries named
+	 * <thread>:<index>, and returns the number of entries of each thread.
+	 */
+	private Map<String, Integer> checkLogEntries(Enumeration<LogEntry> logEntries, int historySize, int threads) {
+		Map<String, Integer> lastIndexes = new HashMap<>();
+		Map<String, Integer> counts = new HashMap<>();
+		int count = 0;
+		while (logEntries.hasMoreElements()) {
+			String message = logEntries.nextElement().getMessage();
+			int colon = message.indexOf(':');
+			if (colon < 0) {
+				// logged by the framework
+				continue;
+			}
+			count++;
+			String thread = message.substring(0, colon);
+			int index = Integer.parseInt(message.substring(colon + 1));
+			Integer lastIndex = lastIndexes.put(thread, index);
+			assertTrue("Entries out of order: " + message, lastIndex == null || index < lastIndex);
+			counts.merge(thread, 1, Integer::sum);
+		}
+		assertTrue("Too many logs: " + count, count <= historySize);
+		assertTrue("Unknown threads: " + counts.keySet(), counts.size() <= threads);
+		return counts;
+	}
+
+	@Test
+	public void testLogHistoryLazyLocation() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_LOG_HISTORY_MAX, "10");
+		configuration.put(EquinoxConfiguration.PROP_LOG_CAPTURE_ENTRY_LOCATION, "lazy");
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+
+		try {
+			LogService testLog = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogService.class));
+			LogReaderService testReader = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogReaderService.class));
+			testLog.log(LogService.LOG_WARNING, "lazy");
+			LogEntry entry = (LogEntry) testReader.getLog().nextElement();
+			assertEquals("Wrong log message.", "lazy", entry.getMessage());
+
+			// the entry kept holds the strings of its location rather than the frame of its caller
+			Field location = entry.getClass().getDeclaredField("location");
+			location.setAccessible(true);
+			assertTrue("Location not resolved.", location.get(entry) instanceof StackTraceElement);
+			assertEquals("Wrong location.", getClass().getName(), entry.getLocation().getClassName());
+			assertEquals("Wrong location.", getName(), entry.getLocation().getMethodName());
+		} finally {
+			try {
+				equinox.stop();
+			} catch (BundleException e) {
+				// ignore
+			}
+		}
+	}
+
+	@Test
+	public void testLazyLocation() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_LOG_CAPTURE_ENTRY_LOCATION, "lazy");
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+
+		try {
+			LogService testLog = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogService.class));
+			LogReaderService testReader = equinox.getBundleContext().getService(equinox.getBundleContext().getServiceReference(LogReaderService.class));
+			AtomicReference<LogEntry> logged = new AtomicReference<>();
+			testReader.addLogListener((SynchronousLogListener) e -> {
+				if ("lazy".equals(e.getMessage())) {
+					logged.set(e);
+				}
+			});
+			testLog.log(LogService.LOG_WARNING, "lazy");
+			LogEntry entry = logged.get();
+			assertNotNull("No log entry logged.", entry);
+
+			// without a log history the location is resolved when asked for
+			Field location = entry.getClass().getDeclaredField("location");
+			location.setAccessible(true);
+			assertFalse("Location resolved.", location.get(entry) instanceof StackTraceElement);
+			assertEquals("Wrong location.", getClass().getName(), entry.getLocation().getClassName());
+			assertEquals("Wrong location.", getName(), entry.getLocation().getMethodName());
+			assertTrue("Location not resolved.", location.get(entry) instanceof StackTraceElement);
+		} finally {
+			try {
+				equinox.stop();
+			} catch (BundleException e) {
+				// ignore
+			}
+		}
+	}
+
 	private int countLogEntries(Enumeration logEntries, int startingMessage) {
 		int count = 0;
 		while (logEntries.hasMoreElements()) {
@@ -18,10 +18,23 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 import junit.framework.AssertionFailedError;
 import org.eclipse.core.internal.runtime.RuntimeLog;
 import org.eclipse.core.runtime.ILog;
@@ -29,6 +42,7 @@ import org.eclipse.core.runtime.ILogListener;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.adaptor.EclipseStarter;
 import org.eclipse.equinox.log.ExtendedLogEntry;
 import org.eclipse.equinox.log.ExtendedLogReaderService;
 import org.eclipse.equinox.log.ExtendedLogService;
@@ -36,6 +50,7 @@ import org.eclipse.equinox.log.LogFilter;
 import org.eclipse.equinox.log.Logger;
 import org.eclipse.osgi.framework.log.FrameworkLog;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
+import org.eclipse.osgi.launch.Equinox;
 import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -467,4 +482,62 @@ public class LoggingTests extends AbstractBundleTests {
 			Platform.removeLogListener(recurseLog);
 		}
 	}
+
+	@Test
+	public void testLogBackupCompress() throws Exception {
+		File logDir = getContext().getDataFile(getName() + ".logs"); //$NON-NLS-1$
+		delete(logDir);
+		File logFile = new File(logDir, "test.log"); //$NON-NLS-1$
+		Map<String, Object> configuration = createConfiguration();
+		configuration.put(EclipseStarter.PROP_LOGFILE, logFile.getAbsolutePath());
+		configuration.put("eclipse.log.size.max", "10"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.backup.max", "2"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.backup.compress", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.async", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		Equinox equinox = new Equinox(configuration);
+		initAndStart(equinox);
+		try {
+			BundleContext bc = equinox.getBundleContext();
+			ServiceReference<FrameworkLog> fwkLogRef = bc.getServiceReference(FrameworkLog.class);
+			FrameworkLog fwkLog = bc.getService(fwkLogRef);
+			char[] padding = new char[1024];
+			Arrays.fill(padding, 'x');
+			// the log is rotated about every 10 entries, reusing each backup index several times
+			for (int i = 0; i < 100; i++) {
+				fwkLog.log(new FrameworkLogEntry(getName(), FrameworkLogEntry.ERROR, 0, i + " " + new String(padding), 0, null, null)); //$NON-NLS-1$
+			}
+		} finally {
+			// the queued entries are written and the backups compressed when the framework stops
+			stop(equinox);
+		}
+
+		List<Integer> logged = new ArrayList<>();
+		readLoggedNumbers(new FileInputStream(logFile), logged);
+		for (int i = 0; i < 2; i++) {
+			assertFalse("Backup not compressed: " + i, new File(logDir, "test.bak_" + i + ".log").exists()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			File compressed = new File(logDir, "test.bak_" + i + ".log.gz"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Missing compressed backup: " + i, compressed.isFile()); //$NON-NLS-1$
+			readLoggedNumbers(new GZIPInputStream(new FileInputStream(compressed)), logged);
+		}
+		// the newest entries are kept without gaps
+		Collections.sort(logged);
+		assertEquals("Wrong last entry.", Integer.valueOf(99), logged.get(logged.size() - 1)); //$NON-NLS-1$
+		for (int i = 1; i < logged.size(); i++) {
+			assertEquals("Missing entry.", logged.get(i - 1) + 1, logged.get(i).intValue()); //$NON-NLS-1$
+		}
+		assertTrue("Too few entries kept: " + logged.size(), logged.size() > 20); //$NON-NLS-1$
+	}
+
+	private static void readLoggedNumbers(InputStream in, List<Integer> logged) throws IOException {
+		Pattern message = Pattern.compile("!MESSAGE (\\d+) x+"); //$NON-NLS-1$
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Matcher matcher = message.matcher(line);
+				if (matcher.matches()) {
+					logged.add(Integer.valueOf(matcher.group(1)));
+				}
+			}
+		}
+	}
 }
@@ -227,6 +227,8 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 	public static final String PROP_ALLOW_RESTRICTED_PROVIDES = "osgi.equinox.allow.restricted.provides"; //$NON-NLS-1$
 	public static final String PROP_LOG_HISTORY_MAX = "equinox.log.history.max"; //$NON-NLS-1$
 	public static final String PROP_LOG_CAPTURE_ENTRY_LOCATION = "equinox.log.capture.entry.location"; //$NON-NLS-1$
+	public static final String PROP_LOG_LISTENER_QUEUE_SIZE = "equinox.log.listener.queue.size"; //$NON-NLS-1$
+	public static final String PROP_LOG_LISTENER_QUEUE_OVERFLOW = "equinox.log.listener.queue.overflow"; //$NON-NLS-1$
 
 	@Deprecated
 	public static final String PROP_RESOLVER_THREAD_COUNT = "equinox.resolver.thead.count"; //$NON-NLS-1$
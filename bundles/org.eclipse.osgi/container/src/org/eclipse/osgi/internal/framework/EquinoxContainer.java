@@ -238,6 +238,8 @@ public class EquinoxContainer implements ThreadFactory, Runnable {
 		// do this outside of the lock to avoid deadlock
 		currentSaver.close();
 		currentStorage.close();
+		// write what was logged while shutting down before the writer threads end
+		logServices.flush();
 		// Must be done last since it will result in termination of the
 		// framework active thread.
 		currentExecutor.shutdown();
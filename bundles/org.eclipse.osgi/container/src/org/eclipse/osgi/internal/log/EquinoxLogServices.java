@@ -101,8 +101,20 @@ public class EquinoxLogServices {
 			//ignore and use LogLevel.WARN
 		}
 
-		boolean captureLogEntryLocation = "true".equals(environmentInfo.getConfiguration(EquinoxConfiguration.PROP_LOG_CAPTURE_ENTRY_LOCATION, "true")); //$NON-NLS-1$ //$NON-NLS-2$
-		logServiceManager = new LogServiceManager(logHistoryMax, defaultLevel, captureLogEntryLocation, logWriter, perfWriter);
+		String captureLogEntryLocation = environmentInfo.getConfiguration(EquinoxConfiguration.PROP_LOG_CAPTURE_ENTRY_LOCATION, "true"); //$NON-NLS-1$
+
+		String listenerQueueSizeProp = environmentInfo.getConfiguration(EquinoxConfiguration.PROP_LOG_LISTENER_QUEUE_SIZE);
+		int listenerQueueSize = 0;
+		if (listenerQueueSizeProp != null) {
+			try {
+				listenerQueueSize = Integer.parseInt(listenerQueueSizeProp);
+			} catch (NumberFormatException e) {
+				// ignore and deliver each entry in its own task
+			}
+		}
+		String listenerQueueOverflow = environmentInfo.getConfiguration(EquinoxConfiguration.PROP_LOG_LISTENER_QUEUE_OVERFLOW);
+
+		logServiceManager = new LogServiceManager(logHistoryMax, defaultLevel, captureLogEntryLocation, listenerQueueSize, listenerQueueOverflow, logWriter, perfWriter);
 		eclipseLogFactory = new EquinoxLogFactory(logWriter, logServiceManager);
 		rootFrameworkLog = eclipseLogFactory.createFrameworkLog(null, logWriter);
 
@@ -129,6 +141,16 @@ public class EquinoxLogServices {
 		frameworkLogReg.unregister();
 		perfLogReg.unregister();
 		logServiceManager.stop(context);
+		flush();
+	}
+
+	/**
+	 * Writes the entries still queued by asynchronous log writers and waits for
+	 * the backup log files being compressed.
+	 */
+	public void flush() {
+		logWriter.flush();
+		perfWriter.flush();
 	}
 
 	public FrameworkLog getFrameworkLog() {
@@ -16,6 +16,7 @@ package org.eclipse.osgi.internal.log;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -25,15 +26,25 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 import org.eclipse.core.runtime.adaptor.EclipseStarter;
 import org.eclipse.equinox.log.ExtendedLogEntry;
 import org.eclipse.equinox.log.LogFilter;
 import org.eclipse.equinox.log.SynchronousLogListener;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
+import org.eclipse.osgi.internal.framework.EquinoxContainer;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.service.log.LogEntry;
@@ -81,6 +92,24 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	private static final String LOG_EXT = ".log"; //$NON-NLS-1$
 	/** The extension markup to use for backup log files*/
 	private static final String BACKUP_MARK = ".bak_"; //$NON-NLS-1$
+	/** The system property used to specify backup log files should be compressed */
+	private static final String PROP_LOG_BACKUP_COMPRESS = "eclipse.log.backup.compress"; //$NON-NLS-1$
+	/** The extension added to compressed backup log files */
+	private static final String COMPRESSED_EXT = ".gz"; //$NON-NLS-1$
+
+	//Constants for writing the log asynchronously
+	/** The system property used to specify the log should be written by a background thread */
+	private static final String PROP_LOG_ASYNC = "eclipse.log.async"; //$NON-NLS-1$
+	/** The system property used to specify the maximum number of entries waiting to be written */
+	private static final String PROP_LOG_ASYNC_QUEUE_SIZE = "eclipse.log.async.queue.size"; //$NON-NLS-1$
+	/** The default maximum number of entries waiting to be written */
+	private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+	/** The maximum number of entries written between two checks of the log file size */
+	private static final int MAX_BATCH_SIZE = 100;
+	/** The time in milliseconds the writer thread waits for new entries before ending */
+	private static final int MAX_IDLE_WAIT = 10000;
+	/** The time in milliseconds to wait for the queued entries to be written */
+	private static final int MAX_FLUSH_WAIT = 5000;
 
 	/** The system property used to specify command line args should be omitted from the log */
 	private static final String PROP_LOG_INCLUDE_COMMAND_LINE = "eclipse.log.include.commandline"; //$NON-NLS-1$
@@ -105,12 +134,42 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	int maxLogSize = DEFAULT_LOG_SIZE; // The value is in KB.
 	int maxLogFiles = DEFAULT_LOG_FILES;
 	int backupIdx = 0;
+	boolean compressBackups = false;
 
 	private int logLevel = FrameworkLogEntry.OK;
 	private boolean includeCommandLine = true;
 
 	private LoggerAdmin loggerAdmin = null;
 
+	/**
+	 * The entries waiting to be written by the writer thread, or <code>null</code>
+	 * if the entries are written by the logging thread.
+	 */
+	private final ArrayDeque<QueuedEntry> queue;
+	private final int maxQueueSize;
+	// the following fields are guarded by the queue
+	private Thread writerThread;
+	private int pendingEntries;
+	private long droppedEntries;
+
+	/** The thread compressing the backup log files one at a time, guarded by this writer */
+	private ThreadPoolExecutor compressor;
+	/** The pending compressions of the backup log files, guarded by the map */
+	private final Map<File, Future<?>> compressions = new HashMap<>();
+
+	/**
+	 * A log entry waiting to be written and the time it was logged.
+	 */
+	private static final class QueuedEntry {
+		final FrameworkLogEntry entry;
+		final long time;
+
+		QueuedEntry(FrameworkLogEntry entry, long time) {
+			this.entry = entry;
+			this.time = time;
+		}
+	}
+
 	/**
 	 * Constructs an EclipseLog which uses the specified File to log messages to
 	 * @param outFile a file to log messages to
@@ -121,6 +180,8 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		this.loggerName = loggerName;
 		this.enabled = enabled;
 		this.environmentInfo = environmentInfo;
+		this.maxQueueSize = readMaxQueueSize(environmentInfo);
+		this.queue = maxQueueSize > 0 ? new ArrayDeque<>() : null;
 		readLogProperties();
 	}
 
@@ -137,6 +198,8 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		this.loggerName = loggerName;
 		this.enabled = enabled;
 		this.environmentInfo = environmentInfo;
+		this.maxQueueSize = readMaxQueueSize(environmentInfo);
+		this.queue = maxQueueSize > 0 ? new ArrayDeque<>() : null;
 	}
 
 	private Throwable getRoot(Throwable t) {
@@ -242,6 +305,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	}
 
 	public void close() {
+		flush();
 		try {
 			if (writer != null) {
 				Writer tmpWriter = writer;
@@ -288,11 +352,105 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		}
 	}
 
-	private synchronized void log(FrameworkLogEntry logEntry) {
+	private void log(FrameworkLogEntry logEntry) {
 		if (logEntry == null)
 			return;
 		if (!isLoggable(logEntry.getSeverity()))
 			return;
+		if (queue == null) {
+			write(new QueuedEntry[] {new QueuedEntry(logEntry, System.currentTimeMillis())}, 0);
+			return;
+		}
+		Thread t;
+		synchronized (queue) {
+			if (queue.size() >= maxQueueSize) {
+				// never block the logging thread on the disk
+				droppedEntries++;
+				return;
+			}
+			queue.add(new QueuedEntry(logEntry, System.currentTimeMillis()));
+			pendingEntries++;
+			if (writerThread != null) {
+				queue.notifyAll();
+				return;
+			}
+			t = new Thread(this::writeQueue, "Equinox Log Writer - " + loggerName); //$NON-NLS-1$
+			t.setDaemon(true);
+			writerThread = t;
+		}
+		t.start();
+	}
+
+	/**
+	 * Writes the queued entries in batches until no entry is queued for
+	 * MAX_IDLE_WAIT milliseconds.
+	 */
+	private void writeQueue() {
+		while (true) {
+			QueuedEntry[] batch;
+			long dropped;
+			synchronized (queue) {
+				if (queue.isEmpty()) {
+					try {
+						queue.wait(MAX_IDLE_WAIT);
+					} catch (InterruptedException e) {
+						// ignore -- we control the stack here and do not need to propagate it.
+					}
+					if (queue.isEmpty()) {
+						writerThread = null;
+						queue.notifyAll();
+						return;
+					}
+				}
+				batch = new QueuedEntry[Math.min(queue.size(), MAX_BATCH_SIZE)];
+				for (int i = 0; i < batch.length; i++)
+					batch[i] = queue.poll();
+				dropped = droppedEntries;
+				droppedEntries = 0;
+			}
+			try {
+				write(batch, dropped);
+			} finally {
+				synchronized (queue) {
+					pendingEntries -= batch.length;
+					queue.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits, for at most MAX_FLUSH_WAIT milliseconds, until the writer thread has
+	 * written the entries queued so far and the backup log files are compressed.
+	 * The writer and compressor threads are daemon threads, so this must be called
+	 * before the VM exits.
+	 */
+	void flush() {
+		long end = System.currentTimeMillis() + MAX_FLUSH_WAIT;
+		if (queue != null) {
+			synchronized (queue) {
+				long wait;
+				while (pendingEntries > 0 && writerThread != null && writerThread != Thread.currentThread() && (wait = end - System.currentTimeMillis()) > 0) {
+					try {
+						queue.wait(wait);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+		Future<?>[] pending;
+		synchronized (compressions) {
+			pending = compressions.values().toArray(new Future<?>[compressions.size()]);
+		}
+		for (Future<?> compression : pending) {
+			if (!awaitCompression(compression, end - System.currentTimeMillis()))
+				return;
+		}
+	}
+
+	private synchronized void write(QueuedEntry[] entries, long dropped) {
 		try {
 			checkLogFileSize();
 			openFile();
@@ -300,17 +458,21 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 				writeSession();
 				newSession = false;
 			}
-			writeLog(0, logEntry);
+			if (dropped > 0)
+				writeLog(0, new FrameworkLogEntry(EquinoxContainer.NAME, FrameworkLogEntry.WARNING, 0, dropped + " log entries were discarded because the log writer queue was full.", 0, null, null), System.currentTimeMillis()); //$NON-NLS-1$
+			for (QueuedEntry entry : entries)
+				writeLog(0, entry.entry, entry.time);
 			writer.flush();
 		} catch (Exception e) {
 			// any exceptions during logging should be caught
 			System.err.println("An exception occurred while writing to the platform log:");//$NON-NLS-1$
 			e.printStackTrace(System.err);
 			System.err.println("Logging to the console instead.");//$NON-NLS-1$
-			//we failed to write, so dump log entry to console instead
+			//we failed to write, so dump log entries to console instead
 			try {
 				writer = logForErrorStream();
-				writeLog(0, logEntry);
+				for (QueuedEntry entry : entries)
+					writeLog(0, entry.entry, entry.time);
 				writer.flush();
 			} catch (Exception e2) {
 				System.err.println("An exception occurred while logging to the console:");//$NON-NLS-1$
@@ -321,20 +483,28 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		}
 	}
 
-	public synchronized void setWriter(Writer newWriter, boolean append) {
-		setOutput(null, newWriter, append);
+	public void setWriter(Writer newWriter, boolean append) {
+		// write the queued entries to the current output first
+		flush();
+		synchronized (this) {
+			setOutput(null, newWriter, append);
+		}
 	}
 
 	/**
 	 * @throws IOException
 	 */
-	public synchronized void setFile(File newFile, boolean append) throws IOException {
-		if (newFile != null && !newFile.equals(this.outFile)) {
-			// If it's a new file, then reset.
-			readLogProperties();
-			backupIdx = 0;
+	public void setFile(File newFile, boolean append) throws IOException {
+		// write the queued entries to the current output first
+		flush();
+		synchronized (this) {
+			if (newFile != null && !newFile.equals(this.outFile)) {
+				// If it's a new file, then reset.
+				readLogProperties();
+				backupIdx = 0;
+			}
+			setOutput(newFile, null, append);
 		}
-		setOutput(newFile, null, append);
 		environmentInfo.setConfiguration(EclipseStarter.PROP_LOGFILE, newFile == null ? "" : newFile.getAbsolutePath()); //$NON-NLS-1$
 	}
 
@@ -480,17 +650,18 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	 * a sub-entry.
 	 * @param depth the depth of th entry
 	 * @param entry the entry to log
+	 * @param time the time the entry was logged
 	 * @throws IOException if any error occurs writing to the log
 	 */
-	private void writeLog(int depth, FrameworkLogEntry entry) throws IOException {
-		writeEntry(depth, entry);
+	private void writeLog(int depth, FrameworkLogEntry entry, long time) throws IOException {
+		writeEntry(depth, entry, time);
 		writeMessage(entry);
 		writeStack(entry);
 
 		FrameworkLogEntry[] children = entry.getChildren();
 		if (children != null) {
 			for (FrameworkLogEntry child : children) {
-				writeLog(depth + 1, child);
+				writeLog(depth + 1, child, time);
 			}
 		}
 	}
@@ -501,9 +672,10 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	 * a sub-entry.
 	 * @param depth the depth of th entry
 	 * @param entry the entry to write the header for
+	 * @param time the time the entry was logged
 	 * @throws IOException if any error occurs writing to the log
 	 */
-	private void writeEntry(int depth, FrameworkLogEntry entry) throws IOException {
+	private void writeEntry(int depth, FrameworkLogEntry entry, long time) throws IOException {
 		if (depth == 0) {
 			writeln(); // write a blank line before all !ENTRY tags bug #64406
 			write(ENTRY);
@@ -519,7 +691,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		writeSpace();
 		write(Integer.toString(entry.getBundleCode()));
 		writeSpace();
-		write(getDate(new Date()));
+		write(getDate(new Date(time)));
 		writeln();
 	}
 
@@ -612,6 +784,17 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 					backupFilename = logFilename + BACKUP_MARK + backupIdx;
 				}
 				File backupFile = new File(backupFilename);
+				File compressedBackupFile = new File(backupFilename + COMPRESSED_EXT);
+				// the previous backup with this index may still be compressed
+				Future<?> compression;
+				synchronized (compressions) {
+					compression = compressions.remove(backupFile);
+				}
+				if (compression != null)
+					awaitCompression(compression, Long.MAX_VALUE);
+				if (compressedBackupFile.exists() && !compressedBackupFile.delete()) {
+					System.err.println("Error when trying to delete old log file: " + compressedBackupFile.getName());//$NON-NLS-1$
+				}
 				if (backupFile.exists()) {
 					if (!backupFile.delete()) {
 						System.err.println("Error when trying to delete old log file: " + backupFile.getName());//$NON-NLS-1$
@@ -638,7 +821,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 				try {
 					writeSession();
 					writeln();
-					writeln("This is a continuation of log file " + backupFile.getAbsolutePath());//$NON-NLS-1$
+					writeln("This is a continuation of log file " + (isRenameOK && compressBackups ? compressedBackupFile : backupFile).getAbsolutePath());//$NON-NLS-1$
 					writeln("Created Time: " + getDate(new Date(System.currentTimeMillis()))); //$NON-NLS-1$
 					writer.flush();
 				} catch (IOException ioe) {
@@ -646,13 +829,99 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 				}
 				closeFile();
 				backupIdx = (++backupIdx) % maxLogFiles;
+				if (isRenameOK && compressBackups) {
+					synchronized (compressions) {
+						compressions.values().removeIf(Future::isDone);
+						compressions.put(backupFile, getCompressor().submit(() -> compress(backupFile, compressedBackupFile)));
+					}
+				}
 			}
 		}
 		return isBackupOK;
 	}
 
 	/**
-	 * Reads the PROP_LOG_SIZE_MAX and PROP_LOG_FILE_MAX properties.
+	 * Returns the executor compressing the backup log files with a single daemon
+	 * thread, which ends after MAX_IDLE_WAIT milliseconds without backups to
+	 * compress.
+	 */
+	private synchronized ThreadPoolExecutor getCompressor() {
+		if (compressor == null) {
+			compressor = new ThreadPoolExecutor(1, 1, MAX_IDLE_WAIT, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+				Thread t = new Thread(r, "Equinox Log Compressor - " + loggerName); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			});
+			compressor.allowCoreThreadTimeOut(true);
+		}
+		return compressor;
+	}
+
+	/**
+	 * Waits for the compression of a backup log file to finish.
+	 * @param compression the compression to wait for
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return false if the compression did not finish in time
+	 */
+	private static boolean awaitCompression(Future<?> compression, long timeout) {
+		try {
+			compression.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			// the compression failures are reported by compress
+		} catch (TimeoutException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compresses a backup log file with GZIP and deletes it.
+	 * @param file the backup log file
+	 * @param compressedFile the compressed file to create
+	 */
+	private static void compress(File file, File compressedFile) {
+		try (InputStream in = ExtendedLogServiceFactory.secureAction.getFileInputStream(file); OutputStream out = new GZIPOutputStream(ExtendedLogServiceFactory.secureAction.getFileOutputStream(compressedFile, false))) {
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+		} catch (IOException e) {
+			System.err.println("Error when trying to compress log file: " + file.getName()); //$NON-NLS-1$
+			e.printStackTrace(System.err);
+			compressedFile.delete();
+			return;
+		}
+		if (!file.delete()) {
+			System.err.println("Error when trying to delete compressed log file: " + file.getName()); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the maximum number of entries waiting to be written by the writer
+	 * thread, or 0 if the entries are written by the logging thread.
+	 */
+	private static int readMaxQueueSize(EquinoxConfiguration environmentInfo) {
+		if (!"true".equals(environmentInfo.getConfiguration(PROP_LOG_ASYNC))) //$NON-NLS-1$
+			return 0;
+		String queueSize = environmentInfo.getConfiguration(PROP_LOG_ASYNC_QUEUE_SIZE);
+		if (queueSize != null) {
+			try {
+				int size = Integer.parseInt(queueSize);
+				if (size > 0)
+					return size;
+			} catch (NumberFormatException e) {
+				// ignore and use the default
+			}
+		}
+		return DEFAULT_ASYNC_QUEUE_SIZE;
+	}
+
+	/**
+	 * Reads the PROP_LOG_SIZE_MAX, PROP_LOG_FILE_MAX and PROP_LOG_BACKUP_COMPRESS properties.
 	 */
 	private void readLogProperties() {
 		String newMaxLogSize = environmentInfo.getConfiguration(PROP_LOG_SIZE_MAX);
@@ -686,6 +955,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 				logLevel = FrameworkLogEntry.OK; // OK (0) means log everything
 		}
 
+		compressBackups = "true".equals(environmentInfo.getConfiguration(PROP_LOG_BACKUP_COMPRESS)); //$NON-NLS-1$
 		includeCommandLine = "true".equals(environmentInfo.getConfiguration(PROP_LOG_INCLUDE_COMMAND_LINE, "true")); //$NON-NLS-1$//$NON-NLS-2$
 		applyLogLevel();
 	}
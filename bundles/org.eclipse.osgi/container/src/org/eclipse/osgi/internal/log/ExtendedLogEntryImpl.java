@@ -12,6 +12,7 @@ package org.eclipse.osgi.internal.log;
 
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.equinox.log.ExtendedLogEntry;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
@@ -20,7 +21,7 @@ import org.osgi.service.log.LogLevel;
 
 public class ExtendedLogEntryImpl implements ExtendedLogEntry, LogEntry {
 
-	private static long nextSequenceNumber = 1L;
+	private static final AtomicLong nextSequenceNumber = new AtomicLong(1L);
 	private static long nextThreadId = 1L;
 	private static final Map<Thread, Long> threadIds = createThreadIdMap();
 
@@ -36,7 +37,8 @@ public class ExtendedLogEntryImpl implements ExtendedLogEntry, LogEntry {
 	private final long threadId;
 	private final String threadName;
 	private final long sequenceNumber;
-	private final StackTraceElement stackTraceElement;
+	// a StackTraceElement once resolved
+	private volatile Object location;
 
 	private static Map<Thread, Long> createThreadIdMap() {
 		try {
@@ -51,6 +53,10 @@ public class ExtendedLogEntryImpl implements ExtendedLogEntry, LogEntry {
 		if (threadIds == null)
 			return thread.getId();
 
+		return getMappedId(thread);
+	}
+
+	private static synchronized long getMappedId(Thread thread) {
 		Long threadId = threadIds.get(thread);
 		if (threadId == null) {
 			threadId = Long.valueOf(nextThreadId++);
@@ -59,7 +65,7 @@ public class ExtendedLogEntryImpl implements ExtendedLogEntry, LogEntry {
 		return threadId.longValue();
 	}
 
-	public ExtendedLogEntryImpl(Bundle bundle, String loggerName, StackTraceElement stackTraceElement, Object contextObject, LogLevel logLevelEnum, int level, String message, ServiceReference<?> ref, Throwable throwable) {
+	public ExtendedLogEntryImpl(Bundle bundle, String loggerName, Object location, Object contextObject, LogLevel logLevelEnum, int level, String message, ServiceReference<?> ref, Throwable throwable) {
 		this.time = System.currentTimeMillis();
 		this.loggerName = loggerName;
 		this.bundle = bundle;
@@ -73,12 +79,10 @@ public class ExtendedLogEntryImpl implements ExtendedLogEntry, LogEntry {
 		Thread currentThread = Thread.currentThread();
 		this.threadName = currentThread.getName();
 
-		synchronized (ExtendedLogEntryImpl.class) {
-			this.threadId = getId(currentThread);
-			this.sequenceNumber = nextSequenceNumber++;
-		}
+		this.threadId = getId(currentThread);
+		this.sequenceNumber = nextSequenceNumber.getAndIncrement();
 
-		this.stackTraceElement = stackTraceElement;
+		this.location = location;
 	}
 
 	@Override
@@ -152,8 +156,22 @@ public class ExtendedLogEntryImpl implements ExtendedLogEntry, LogEntry {
 		return getThreadName();
 	}
 
+	/**
+	 * Replaces a location captured lazily by its StackTraceElement, which only
+	 * holds strings.
+	 */
+	void resolveLocation() {
+		getLocation();
+	}
+
 	@Override
 	public StackTraceElement getLocation() {
-		return stackTraceElement;
+		Object current = location;
+		if (current == null || current instanceof StackTraceElement) {
+			return (StackTraceElement) current;
+		}
+		StackTraceElement resolved = LogEntryLocation.resolve(current);
+		location = resolved;
+		return resolved;
 	}
 }
@@ -13,6 +13,7 @@ package org.eclipse.osgi.internal.log;
 import java.io.PrintStream;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -23,12 +24,14 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.eclipse.equinox.log.LogFilter;
 import org.eclipse.equinox.log.SynchronousLogListener;
 import org.eclipse.osgi.framework.util.ArrayMap;
 import org.eclipse.osgi.internal.framework.EquinoxContainer;
+import org.eclipse.osgi.internal.log.OrderedExecutor.BatchedLogQueue;
 import org.eclipse.osgi.internal.log.OrderedExecutor.OrderedTaskQueue;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceFactory;
@@ -42,6 +45,11 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 
 	static final int MAX_RECURSIONS = 50;
 
+	// what a batched listener queue does with an entry when it is full
+	static final int OVERFLOW_BLOCK = 0;
+	static final int OVERFLOW_DROP_OLDEST = 1;
+	static final int OVERFLOW_DROP_NEWEST = 2;
+
 	static final class LogTask implements Runnable {
 		private final LogEntry logEntry;
 		private final LogListener listener;
@@ -72,9 +80,12 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 	private ArrayMap<LogListener, Object[]> listeners = new ArrayMap<>(5);
 	private LogFilter[] filters = null;
 	private final ThreadLocal<int[]> nestedCallCount = new ThreadLocal<>();
-	private final LinkedList<LogEntry> history;
-	private final int maxHistory;
+	private final LogHistory history;
 	private final LogLevel defaultLevel;
+	private final int listenerQueueSize;
+	private final int listenerQueueOverflow;
+	// dropped for the listeners which were removed
+	private final AtomicLong removedDroppedLogEntries = new AtomicLong();
 
 	private OrderedExecutor executor;
 
@@ -114,11 +125,24 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 		}
 	}
 
-	public ExtendedLogReaderServiceFactory(int maxHistory, LogLevel defaultLevel) {
+	/**
+	 * @param listenerQueueSize if greater than zero, the entries for each asynchronous
+	 * listener are kept in a queue of this size and delivered in batches
+	 * @param listenerQueueOverflow what to do with an entry when the queue of a listener
+	 * is full: <code>block</code> (the default), <code>dropOldest</code> or <code>dropNewest</code>
+	 */
+	public ExtendedLogReaderServiceFactory(int maxHistory, LogLevel defaultLevel, int listenerQueueSize, String listenerQueueOverflow) {
 		this.defaultLevel = defaultLevel;
-		this.maxHistory = maxHistory;
+		this.listenerQueueSize = listenerQueueSize;
+		if ("dropOldest".equalsIgnoreCase(listenerQueueOverflow)) { //$NON-NLS-1$
+			this.listenerQueueOverflow = OVERFLOW_DROP_OLDEST;
+		} else if ("dropNewest".equalsIgnoreCase(listenerQueueOverflow)) { //$NON-NLS-1$
+			this.listenerQueueOverflow = OVERFLOW_DROP_NEWEST;
+		} else {
+			this.listenerQueueOverflow = OVERFLOW_BLOCK;
+		}
 		if (maxHistory > 0) {
-			history = new LinkedList<>();
+			history = new LogHistory(maxHistory);
 		} else {
 			history = null;
 		}
@@ -209,22 +233,22 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 		return count;
 	}
 
-	void log(final Bundle bundle, final String name, final StackTraceElement stackTraceElement, final Object context, final LogLevel logLevelEnum, final int level, final String message, final ServiceReference<?> ref, final Throwable exception) {
+	void log(final Bundle bundle, final String name, final Object location, final Object context, final LogLevel logLevelEnum, final int level, final String message, final ServiceReference<?> ref, final Throwable exception) {
 		if (System.getSecurityManager() != null) {
 			AccessController.doPrivileged(new PrivilegedAction<Void>() {
 				@Override
 				public Void run() {
-					logPrivileged(bundle, name, stackTraceElement, context, logLevelEnum, level, message, ref, exception);
+					logPrivileged(bundle, name, location, context, logLevelEnum, level, message, ref, exception);
 					return null;
 				}
 			});
 		} else {
-			logPrivileged(bundle, name, stackTraceElement, context, logLevelEnum, level, message, ref, exception);
+			logPrivileged(bundle, name, location, context, logLevelEnum, level, message, ref, exception);
 		}
 	}
 
-	void logPrivileged(Bundle bundle, String name, StackTraceElement stackTraceElement, Object context, LogLevel logLevelEnum, int level, String message, ServiceReference<?> ref, Throwable exception) {
-		LogEntry logEntry = new ExtendedLogEntryImpl(bundle, name, stackTraceElement, context, logLevelEnum, level, message, ref, exception);
+	void logPrivileged(Bundle bundle, String name, Object location, Object context, LogLevel logLevelEnum, int level, String message, ServiceReference<?> ref, Throwable exception) {
+		ExtendedLogEntryImpl logEntry = new ExtendedLogEntryImpl(bundle, name, location, context, logLevelEnum, level, message, ref, exception);
 		storeEntry(logEntry);
 		ArrayMap<LogListener, Object[]> listenersCopy;
 		listenersLock.readLock().lock();
@@ -242,9 +266,11 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 				LogFilter filter = (LogFilter) listenerObjects[0];
 				if (safeIsLoggable(filter, bundle, name, level)) {
 					LogListener listener = listenersCopy.getKey(i);
-					OrderedTaskQueue orderedTaskQueue = (OrderedTaskQueue) listenerObjects[1];
-					if (orderedTaskQueue != null) {
-						orderedTaskQueue.execute(new LogTask(logEntry, listener), size);
+					Object taskQueue = listenerObjects[1];
+					if (taskQueue instanceof BatchedLogQueue) {
+						((BatchedLogQueue) taskQueue).add(logEntry, size);
+					} else if (taskQueue != null) {
+						((OrderedTaskQueue) taskQueue).execute(new LogTask(logEntry, listener), size);
 					} else {
 						// log synchronously
 						safeLogged(listener, logEntry);
@@ -256,14 +282,11 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 		}
 	}
 
-	private void storeEntry(LogEntry logEntry) {
+	private void storeEntry(ExtendedLogEntryImpl logEntry) {
 		if (history != null) {
-			synchronized (history) {
-				if (history.size() == maxHistory) {
-					history.removeLast();
-				}
-				history.addFirst(logEntry);
-			}
+			// a kept entry must not hold the frame, and through it the class, of its caller
+			logEntry.resolveLocation();
+			history.add(logEntry);
 		}
 	}
 
@@ -274,7 +297,10 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 			Object[] listenerObjects = listenersCopy.get(listener);
 			if (listenerObjects == null) {
 				// Only create a task queue for non-SynchronousLogListeners
-				OrderedTaskQueue taskQueue = (listener instanceof SynchronousLogListener) ? null : executor.createQueue();
+				Object taskQueue = null;
+				if (!(listener instanceof SynchronousLogListener)) {
+					taskQueue = listenerQueueSize > 0 ? executor.createBatchedQueue(listener, listenerQueueSize, listenerQueueOverflow) : executor.createQueue();
+				}
 				listenerObjects = new Object[] {filter, taskQueue};
 			} else if (filter != listenerObjects[0]) {
 				// update the filter
@@ -311,6 +337,10 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 		listenersLock.writeLock().lock();
 		try {
 			ArrayMap<LogListener, Object[]> listenersCopy = new ArrayMap<>(listeners.getKeys(), listeners.getValues());
+			Object[] listenerObjects = listenersCopy.get(listener);
+			if (listenerObjects != null && listenerObjects[1] instanceof BatchedLogQueue) {
+				removedDroppedLogEntries.addAndGet(((BatchedLogQueue) listenerObjects[1]).getDropped());
+			}
 			listenersCopy.remove(listener);
 			recalculateFilters(listenersCopy);
 			listeners = listenersCopy;
@@ -319,13 +349,34 @@ public class ExtendedLogReaderServiceFactory implements ServiceFactory<ExtendedL
 		}
 	}
 
+	/**
+	 * Returns the number of entries dropped because the queue of a listener was full,
+	 * including the listeners since removed.
+	 */
+	long getDroppedLogEntries() {
+		ArrayMap<LogListener, Object[]> listenersCopy;
+		listenersLock.readLock().lock();
+		try {
+			listenersCopy = listeners;
+		} finally {
+			listenersLock.readLock().unlock();
+		}
+		long dropped = removedDroppedLogEntries.get();
+		int size = listenersCopy.size();
+		for (int i = 0; i < size; i++) {
+			Object taskQueue = listenersCopy.getValue(i)[1];
+			if (taskQueue instanceof BatchedLogQueue) {
+				dropped += ((BatchedLogQueue) taskQueue).getDropped();
+			}
+		}
+		return dropped;
+	}
+
 	Enumeration<LogEntry> getLog() {
 		if (history == null) {
 			return Collections.emptyEnumeration();
 		}
-		synchronized (history) {
-			return Collections.enumeration(new ArrayList<>(history));
-		}
+		return Collections.enumeration(history.getEntries());
 	}
 
 }
@@ -339,6 +390,8 @@ class OrderedExecutor implements ThreadFactory {
 	private final ThreadPoolExecutor delegate;
 	private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
 	private int coreSize = 0;
+	// set while a log thread delivers a batch
+	final ThreadLocal<Boolean> delivering = new ThreadLocal<>();
 
 	public OrderedExecutor(final EquinoxContainer equinoxContainer) {
 		this.logThreadName = "Equinox Log Thread - " + equinoxContainer.toString(); //$NON-NLS-1$
@@ -360,12 +413,7 @@ class OrderedExecutor implements ThreadFactory {
 			// for ordered task queue
 			firstOrderedTask = dependencyQueue.addTaskAndReturnIfFirst(task);
 			if (firstOrderedTask != null) {
-				// Check that we are at the optimal target for core pool size
-				int targetSize = Math.min(nThreads, numListeners);
-				if (coreSize < targetSize) {
-					coreSize = targetSize;
-					delegate.setCorePoolSize(coreSize);
-				}
+				ensureCoreSize(numListeners);
 			}
 		}
 
@@ -379,6 +427,37 @@ class OrderedExecutor implements ThreadFactory {
 		return new OrderedTaskQueue();
 	}
 
+	BatchedLogQueue createBatchedQueue(LogListener listener, int capacity, int overflow) {
+		return new BatchedLogQueue(listener, capacity, overflow);
+	}
+
+	// must be called while holding the monitor
+	private void ensureCoreSize(int numListeners) {
+		// Check that we are at the optimal target for core pool size
+		int targetSize = Math.min(nThreads, numListeners);
+		if (coreSize < targetSize) {
+			coreSize = targetSize;
+			delegate.setCorePoolSize(coreSize);
+		}
+	}
+
+	void executeBatch(BatchedLogQueue batchedQueue, int numListeners) {
+		synchronized (this) {
+			ensureCoreSize(numListeners);
+		}
+		delegate.execute(batchedQueue);
+	}
+
+	void batchCompleted() {
+		synchronized (this) {
+			if (queue.isEmpty()) {
+				// The event storm has ended, let the threads be reclaimed
+				delegate.setCorePoolSize(0);
+				coreSize = 0;
+			}
+		}
+	}
+
 	void shutdown() {
 		delegate.shutdown();
 	}
@@ -452,4 +531,96 @@ class OrderedExecutor implements ThreadFactory {
 			}
 		}
 	}
+
+	/**
+	 * Keeps the entries for a listener in a bounded queue and delivers them
+	 * in batches. At most one batch of a queue is delivered at a time, in the
+	 * order the entries were added, and each batch runs as a single task of
+	 * the executor instead of one task per entry.
+	 * <p>
+	 * When the queue is full an entry is handled according to the overflow
+	 * policy: the logging thread waits for the queue to be drained, or the
+	 * oldest queued entry or the new entry is dropped. A log thread never
+	 * waits, so that a listener logging while it handles an entry cannot
+	 * block the delivery of entries; its entries are queued over the limit.
+	 * </p>
+	 */
+	class BatchedLogQueue implements Runnable {
+		private final LogListener listener;
+		private final int capacity;
+		private final int overflow;
+		private final ArrayDeque<LogEntry> entries;
+		// reported through ExtendedLogReaderService.getDroppedLogEntries()
+		private final AtomicLong dropped = new AtomicLong();
+		private boolean scheduled;
+
+		BatchedLogQueue(LogListener listener, int capacity, int overflow) {
+			this.listener = listener;
+			this.capacity = capacity;
+			this.overflow = overflow;
+			this.entries = new ArrayDeque<>(Math.min(capacity, 1024));
+		}
+
+		void add(LogEntry logEntry, int numListeners) {
+			synchronized (this) {
+				boolean logThread = delivering.get() != null;
+				while (entries.size() >= capacity && !logThread) {
+					if (overflow == ExtendedLogReaderServiceFactory.OVERFLOW_DROP_NEWEST) {
+						dropped.incrementAndGet();
+						return;
+					}
+					if (overflow == ExtendedLogReaderServiceFactory.OVERFLOW_DROP_OLDEST) {
+						entries.poll();
+						dropped.incrementAndGet();
+						break;
+					}
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				entries.add(logEntry);
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			executeBatch(this, numListeners);
+		}
+
+		long getDropped() {
+			return dropped.get();
+		}
+
+		@Override
+		public void run() {
+			LogEntry[] batch;
+			synchronized (this) {
+				batch = entries.toArray(new LogEntry[entries.size()]);
+				entries.clear();
+				notifyAll();
+			}
+			delivering.set(Boolean.TRUE);
+			try {
+				for (LogEntry logEntry : batch) {
+					ExtendedLogReaderServiceFactory.safeLogged(listener, logEntry);
+				}
+			} finally {
+				delivering.remove();
+				boolean more;
+				synchronized (this) {
+					more = !entries.isEmpty();
+					scheduled = more;
+				}
+				if (more) {
+					// let the other queues have their turn
+					delegate.execute(this);
+				} else {
+					batchCompleted();
+				}
+			}
+		}
+	}
 }
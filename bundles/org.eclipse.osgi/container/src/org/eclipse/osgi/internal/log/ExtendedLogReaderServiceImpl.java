@@ -49,6 +49,12 @@ public class ExtendedLogReaderServiceImpl implements ExtendedLogReaderService {
 		return factory.getLog();
 	}
 
+	@Override
+	public long getDroppedLogEntries() {
+		checkShutdown();
+		return factory.getDroppedLogEntries();
+	}
+
 	@Override
 	public synchronized void removeLogListener(LogListener listener) {
 		checkShutdown();
@@ -37,15 +37,36 @@ public class ExtendedLogServiceFactory implements ServiceFactory<ExtendedLogServ
 	private final Permission logPermission = new LogPermission("*", LogPermission.LOG); //$NON-NLS-1$
 	final ExtendedLogReaderServiceFactory logReaderServiceFactory;
 	private final LoggerAdmin loggerAdmin = new EquinoxLoggerAdmin();
-	private final boolean captureLogEntryLocation;
+	// logger context name -> location capture mode, null for the default mode
+	private final Map<String, Integer> locationModes;
 
-	public ExtendedLogServiceFactory(ExtendedLogReaderServiceFactory logReaderServiceFactory, boolean captureLogEntryLocation) {
+	public ExtendedLogServiceFactory(ExtendedLogReaderServiceFactory logReaderServiceFactory, String captureLogEntryLocation) {
 		this.logReaderServiceFactory = logReaderServiceFactory;
-		this.captureLogEntryLocation = captureLogEntryLocation;
+		this.locationModes = LogEntryLocation.parseModes(captureLogEntryLocation);
 	}
 
-	boolean captureLogEntryLocation() {
-		return captureLogEntryLocation;
+	/**
+	 * Returns how the location of the entries logged for the bundle is captured,
+	 * looking for the logger context names of the bundle from the most specific.
+	 */
+	int getLocationMode(Bundle bundle) {
+		int defaultMode = locationModes.get(null);
+		if (locationModes.size() == 1 || bundle == null) {
+			return defaultMode;
+		}
+		String bsn = bundle.getSymbolicName();
+		if (bsn == null) {
+			bsn = ""; //$NON-NLS-1$
+		}
+		String bsnVersion = bsn + '|' + bundle.getVersion();
+		String bsnVersionLocation = bsnVersion + '|' + secureAction.getLocation(bundle);
+		for (String name : new String[] {bsnVersionLocation, bsnVersion, bsn}) {
+			Integer mode = locationModes.get(name);
+			if (mode != null) {
+				return mode;
+			}
+		}
+		return defaultMode;
 	}
 
 	@Override
@@ -98,8 +119,8 @@ public class ExtendedLogServiceFactory implements ServiceFactory<ExtendedLogServ
 		return logReaderServiceFactory.isLoggable(bundle, name, level);
 	}
 
-	void log(Bundle bundle, String name, StackTraceElement stackTraceElement, Object context, LogLevel logLevelEnum, int level, String message, ServiceReference<?> ref, Throwable exception) {
-		logReaderServiceFactory.log(bundle, name, stackTraceElement, context, logLevelEnum, level, message, ref, exception);
+	void log(Bundle bundle, String name, Object location, Object context, LogLevel logLevelEnum, int level, String message, ServiceReference<?> ref, Throwable exception) {
+		logReaderServiceFactory.log(bundle, name, location, context, logLevelEnum, level, message, ref, exception);
 	}
 
 	void checkLogPermission() throws SecurityException {
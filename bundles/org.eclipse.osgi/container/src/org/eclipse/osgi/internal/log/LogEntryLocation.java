@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.internal.log;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Captures the location of the code logging an entry, that is the first frame
+ * of the stack outside of this package.
+ * <p>
+ * On Java 9 and later the stack is walked with <code>StackWalker</code>, which
+ * stops at the first frame outside of this package instead of copying the whole
+ * stack. On Java 8 a <code>Throwable</code> records the stack. In both cases
+ * the <code>StackTraceElement</code> is only created when the location is
+ * resolved, which the {@link #LAZY} mode defers until a listener asks the log
+ * entry for its location or the entry is kept in the log history. An unresolved
+ * location refers to the class of the caller, which a kept entry must not hold.
+ * </p>
+ * <p>
+ * The mode is given by the <code>equinox.log.capture.entry.location</code>
+ * configuration property: <code>eager</code> (or <code>true</code>, the
+ * default), <code>lazy</code> or <code>off</code> (or any other value), optionally
+ * followed by a comma separated list of
+ * <code>&lt;logger context name&gt;=&lt;mode&gt;</code> giving the mode of the
+ * bundles of a logger context, for example
+ * <code>lazy,org.example.bundle=off</code>.
+ * </p>
+ */
+final class LogEntryLocation {
+	static final int OFF = 0;
+	static final int LAZY = 1;
+	static final int EAGER = 2;
+
+	private static final MethodHandle walk;
+	private static final MethodHandle getClassName;
+	private static final MethodHandle toStackTraceElement;
+	private static final Function<Stream<Object>, Object> findCaller = frames -> frames.filter(LogEntryLocation::isCaller).findFirst().orElse(null);
+
+	static {
+		MethodHandle walkHandle = null;
+		MethodHandle getClassNameHandle = null;
+		MethodHandle toStackTraceElementHandle = null;
+		try {
+			Class<?> walkerClass = Class.forName("java.lang.StackWalker"); //$NON-NLS-1$
+			Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame"); //$NON-NLS-1$
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Object walker = walkerClass.getMethod("getInstance").invoke(null); //$NON-NLS-1$
+			walkHandle = lookup.unreflect(walkerClass.getMethod("walk", Function.class)).bindTo(walker); //$NON-NLS-1$
+			getClassNameHandle = lookup.unreflect(frameClass.getMethod("getClassName")); //$NON-NLS-1$
+			toStackTraceElementHandle = lookup.unreflect(frameClass.getMethod("toStackTraceElement")); //$NON-NLS-1$
+		} catch (Exception e) {
+			// Java 8; capture a Throwable instead
+			walkHandle = null;
+		}
+		walk = walkHandle;
+		getClassName = getClassNameHandle;
+		toStackTraceElement = toStackTraceElementHandle;
+	}
+
+	private LogEntryLocation() {
+		// no instances
+	}
+
+	/**
+	 * Returns the location of the caller according to the mode: <code>null</code>,
+	 * an unresolved location or a <code>StackTraceElement</code>.
+	 */
+	static Object capture(int mode) {
+		if (mode == OFF) {
+			return null;
+		}
+		Object location;
+		if (walk != null) {
+			try {
+				location = walk.invoke(findCaller);
+			} catch (Throwable t) {
+				// not thrown by StackWalker.walk
+				return null;
+			}
+		} else {
+			location = new Throwable();
+		}
+		return mode == EAGER ? resolve(location) : location;
+	}
+
+	/**
+	 * Returns the <code>StackTraceElement</code> of a location returned by
+	 * {@link #capture(int)}.
+	 */
+	static StackTraceElement resolve(Object location) {
+		if (location == null || location instanceof StackTraceElement) {
+			return (StackTraceElement) location;
+		}
+		if (location instanceof Throwable) {
+			for (StackTraceElement element : ((Throwable) location).getStackTrace()) {
+				if (!element.getClassName().startsWith(LoggerImpl.THIS_PACKAGE_NAME)) {
+					return element;
+				}
+			}
+			return null;
+		}
+		try {
+			return (StackTraceElement) toStackTraceElement.invoke(location);
+		} catch (Throwable t) {
+			// not thrown by StackFrame.toStackTraceElement
+			return null;
+		}
+	}
+
+	private static boolean isCaller(Object frame) {
+		try {
+			return !((String) getClassName.invoke(frame)).startsWith(LoggerImpl.THIS_PACKAGE_NAME);
+		} catch (Throwable t) {
+			// not thrown by StackFrame.getClassName
+			return true;
+		}
+	}
+
+	/**
+	 * Parses the value of the <code>equinox.log.capture.entry.location</code>
+	 * property into the modes of the logger contexts, the default mode being
+	 * mapped to the <code>null</code> name.
+	 */
+	static Map<String, Integer> parseModes(String value) {
+		if (value == null) {
+			return Collections.singletonMap(null, EAGER);
+		}
+		Map<String, Integer> modes = new HashMap<>();
+		modes.put(null, EAGER);
+		for (String mode : value.split(",")) { //$NON-NLS-1$
+			int equals = mode.lastIndexOf('=');
+			if (equals < 0) {
+				modes.put(null, parseMode(mode.trim()));
+			} else {
+				modes.put(mode.substring(0, equals).trim(), parseMode(mode.substring(equals + 1).trim()));
+			}
+		}
+		return modes;
+	}
+
+	private static int parseMode(String mode) {
+		if ("true".equalsIgnoreCase(mode) || "eager".equalsIgnoreCase(mode)) { //$NON-NLS-1$ //$NON-NLS-2$
+			return EAGER;
+		}
+		if ("lazy".equalsIgnoreCase(mode)) { //$NON-NLS-1$
+			return LAZY;
+		}
+		return OFF;
+	}
+}
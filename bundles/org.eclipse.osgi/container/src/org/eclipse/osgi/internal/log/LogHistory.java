@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.internal.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.osgi.service.log.LogEntry;
+
+/**
+ * A fixed size ring buffer keeping the most recent log entries. Any number of
+ * threads may add entries and take snapshots without locking.
+ * <p>
+ * Each entry added gets the next sequence number, which gives its slot in the
+ * buffer. A slot holds the entry along with its sequence number so that a
+ * snapshot can tell an entry from the one that replaced it. Slots are only ever
+ * replaced by entries with a higher sequence number.
+ * </p>
+ */
+class LogHistory {
+	private static final class Slot {
+		final long sequence;
+		final LogEntry logEntry;
+
+		Slot(long sequence, LogEntry logEntry) {
+			this.sequence = sequence;
+			this.logEntry = logEntry;
+		}
+	}
+
+	private final AtomicReferenceArray<Slot> slots;
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	LogHistory(int size) {
+		slots = new AtomicReferenceArray<>(size);
+	}
+
+	void add(LogEntry logEntry) {
+		long sequence = nextSequence.getAndIncrement();
+		int index = (int) (sequence % slots.length());
+		Slot slot = new Slot(sequence, logEntry);
+		Slot current = slots.get(index);
+		// a thread which was slower to store an older entry must not replace a newer one
+		while ((current == null || current.sequence < sequence) && !slots.compareAndSet(index, current, slot)) {
+			current = slots.get(index);
+		}
+	}
+
+	/**
+	 * Returns the entries in the buffer, the most recent first. Entries still
+	 * being added by other threads are left out.
+	 */
+	List<LogEntry> getEntries() {
+		long last = nextSequence.get() - 1;
+		long first = Math.max(0, last - slots.length() + 1);
+		List<LogEntry> result = new ArrayList<>((int) (last - first + 1));
+		for (long sequence = last; sequence >= first; sequence--) {
+			Slot slot = slots.get((int) (sequence % slots.length()));
+			if (slot != null && slot.sequence == sequence) {
+				result.add(slot.logEntry);
+			}
+		}
+		return result;
+	}
+}
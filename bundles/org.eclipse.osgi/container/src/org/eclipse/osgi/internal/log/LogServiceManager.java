@@ -61,8 +61,8 @@ public class LogServiceManager implements SynchronousBundleListener, FrameworkLi
 	private EventAdminAdapter eventAdminAdapter;
 	private ConfigAdminListener configAdminListener;
 
-	public LogServiceManager(int maxHistory, LogLevel defaultLevel, boolean captureLogEntryLocation, LogListener... systemListeners) {
-		logReaderServiceFactory = new ExtendedLogReaderServiceFactory(maxHistory, defaultLevel);
+	public LogServiceManager(int maxHistory, LogLevel defaultLevel, String captureLogEntryLocation, int listenerQueueSize, String listenerQueueOverflow, LogListener... systemListeners) {
+		logReaderServiceFactory = new ExtendedLogReaderServiceFactory(maxHistory, defaultLevel, listenerQueueSize, listenerQueueOverflow);
 		logServiceFactory = new ExtendedLogServiceFactory(logReaderServiceFactory, captureLogEntryLocation);
 		systemBundleLog = logServiceFactory.getLogService(new MockSystemBundle());
 		for (LogListener logListener : systemListeners) {
@@ -27,10 +27,12 @@ public class LoggerImpl implements Logger {
 	protected final String name;
 
 	private LogLevel enabledLevel = LogLevel.TRACE;
+	private final int locationMode;
 
 	public LoggerImpl(ExtendedLogServiceImpl logServiceImpl, String name, LoggerContext loggerContext) {
 		this.logServiceImpl = logServiceImpl;
 		this.name = name;
+		this.locationMode = logServiceImpl.getFactory().getLocationMode(logServiceImpl.getBundle());
 		applyLoggerContext(loggerContext);
 	}
 
@@ -291,26 +293,14 @@ public class LoggerImpl implements Logger {
 		if (!enabledLevel.implies(level)) {
 			return;
 		}
-		StackTraceElement location = getLocation();
+		Object location = getLocation();
 		Arguments processedArguments = new Arguments(arguments);
 		String message = processedArguments.isEmpty() ? format : formatMessage(format, processedArguments);
 		logServiceImpl.getFactory().log(logServiceImpl.getBundle(), name, location, processedArguments.serviceReference(), level, level.ordinal(), message.toString(), processedArguments.serviceReference(), processedArguments.throwable());
 	}
 
-	private StackTraceElement getLocation() {
-		if (!logServiceImpl.getFactory().captureLogEntryLocation()) {
-			return null;
-		}
-		StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-		if (elements.length == 0) {
-			return null;
-		}
-		for (int i = 1; i < elements.length; i++) {
-			if (!elements[i].getClassName().startsWith(THIS_PACKAGE_NAME)) {
-				return elements[i];
-			}
-		}
-		return elements[1];
+	private Object getLocation() {
+		return LogEntryLocation.capture(locationMode);
 	}
 
 	String formatMessage(String format, Arguments processedArguments) {
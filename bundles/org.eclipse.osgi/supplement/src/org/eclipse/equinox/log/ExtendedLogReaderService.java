@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others
+ * Copyright (c) 2006, 2022 IBM Corporation and others
  *
  * This program and the accompanying materials are made
  * available under the terms of the Eclipse Public License 2.0 which
@@ -40,4 +40,22 @@ public interface ExtendedLogReaderService extends LogReaderService {
 	 * @see LogReaderService#addLogListener(LogListener)
 	 */
 	public void addLogListener(LogListener listener, LogFilter filter);
+
+	/**
+	 * Returns the number of <code>LogEntry</code> objects dropped because the queue
+	 * of a <code>LogListener</code> was full.
+	 *
+	 * <p>
+	 * The queues of the listeners are only bounded when the
+	 * <code>equinox.log.listener.queue.size</code> configuration property is set, and
+	 * entries are only dropped when <code>equinox.log.listener.queue.overflow</code>
+	 * is <code>dropOldest</code> or <code>dropNewest</code>.
+	 *
+	 * @return the number of entries dropped for all the listeners since the log
+	 *         service started
+	 * @since 1.2
+	 */
+	public default long getDroppedLogEntries() {
+		return 0;
+	}
 }